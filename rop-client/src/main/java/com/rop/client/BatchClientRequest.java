@@ -0,0 +1,68 @@
+/*
+ * Copyright 2012-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.rop.client;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <pre>
+ *   批量调用请求，将多个服务请求合并在一个HTTP请求中发送，服务端只校验一次签名和会话，
+ * 各子调用并行执行，返回的响应列表与添加子调用的顺序一一对应
+ * </pre>
+ *
+ * @author 陈雄华
+ * @version 1.0
+ */
+public interface BatchClientRequest {
+
+	/**
+	 * 设置http请求头信息
+	 * @param name
+	 * @param value
+	 * @return BatchClientRequest
+	 */
+	BatchClientRequest setHeader(String name, String value);
+
+    /**
+     * 添加一个子调用
+     * @param ropResponseClass
+     * @param methodName
+     * @param version
+     * @param params 子调用的业务参数
+     * @param <T>
+     * @return BatchClientRequest
+     */
+    <T> BatchClientRequest addCall(Class<T> ropResponseClass, String methodName, String version, Map<String, ?> params);
+
+    /**
+     * 使用ropRequest添加一个子调用
+     * @param ropRequest
+     * @param ropResponseClass
+     * @param methodName
+     * @param version
+     * @param <T>
+     * @return BatchClientRequest
+     */
+    <T> BatchClientRequest addCall(Object ropRequest, Class<T> ropResponseClass, String methodName, String version) throws IOException;
+
+    /**
+     * 使用POST发送批量请求
+     * @return 各子调用的响应，顺序与添加子调用的顺序一致
+     */
+    List<CompositeResponse<?>> post() throws IOException;
+}
@@ -16,6 +16,7 @@
 package com.rop.client;
 
 import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * <pre>
@@ -58,6 +59,31 @@ public interface ClientRequest {
      */
     ClientRequest clearParam();
 
+    /**
+     * 设置异步请求的超时时间（毫秒），超时后返回的CompletableFuture以{@link java.util.concurrent.TimeoutException}异常完成，
+     * 小于等于0时使用http客户端的默认超时时间
+     * @param timeout
+     * @return ClientRequest
+     */
+    ClientRequest setTimeout(long timeout);
+
+    /**
+     * 标注请求是否幂等，幂等的请求在失败后可以重试，开启对冲时可以同时发送多个请求，参见{@link com.rop.client.retry.RetryPolicy}。
+     * GET请求总是视为幂等的
+     * @param idempotent
+     * @return ClientRequest
+     */
+    ClientRequest setIdempotent(boolean idempotent);
+
+    /**
+     * 设置下载文件的区间（Range报文头），用于断点续传或分段下载，
+     * 续传时可以再通过{@link #setHeader(String, String)}将上次下载得到的ETag设置为If-Range报文头
+     * @param start 起始位置（包含）
+     * @param end 结束位置（包含），小于0时表示直到文件末尾
+     * @return ClientRequest
+     */
+    ClientRequest setRange(long start, long end);
+
     /**
      * 使用POST发起请求
      * @param ropResponseClass
@@ -79,6 +105,19 @@ public interface ClientRequest {
      */
     <T> CompositeResponse<T> post(Object ropRequest, Class<T> ropResponseClass, String methodName, String version) throws IOException;
 
+    /**
+     * 使用POST发送ropRequest的请求，业务参数不再逐个转换为表单参数，而是将ropRequest按客户端的报文格式序列化为一个JSON或XML请求体，
+     * 由服务端一次性解析为请求对象。系统级参数拼接在URL中，签名覆盖系统级参数及请求体的摘要。
+     * 请求体方式下{@link com.rop.annotation.IgnoreSign}及参数转换器不起作用，XML格式时ropRequest需要标注{@link javax.xml.bind.annotation.XmlRootElement}
+     * @param ropRequest
+     * @param ropResponseClass
+     * @param methodName
+     * @param version
+     * @param <T>
+     * @return CompositeResponse
+     */
+    <T> CompositeResponse<T> postBody(Object ropRequest, Class<T> ropResponseClass, String methodName, String version) throws IOException;
+
     /**
      * 使用GET发送服务请求
      * @param ropResponseClass
@@ -99,5 +138,64 @@ public interface ClientRequest {
      * @return CompositeResponse
      */
     <T> CompositeResponse<T> get(Object ropRequest, Class<T> ropResponseClass, String methodName, String version) throws IOException;
-}
 
+    /**
+     * 使用GET下载服务方法返回的文件，响应内容不读入内存，由调用者从返回的{@link DownloadResponse}中读取后关闭。
+     * 下载请求不按重试策略重试
+     * @param methodName
+     * @param version
+     * @return DownloadResponse
+     */
+    DownloadResponse download(String methodName, String version) throws IOException;
+
+    /**
+     * 使用GET下载ropRequest请求的服务方法返回的文件，参见{@link #download(String, String)}
+     * @param ropRequest
+     * @param methodName
+     * @param version
+     * @return DownloadResponse
+     */
+    DownloadResponse download(Object ropRequest, String methodName, String version) throws IOException;
+
+    /**
+     * 使用POST异步发起请求，调用线程不等待响应
+     * @param ropResponseClass
+     * @param methodName
+     * @param version
+     * @param <T>
+     * @return CompletableFuture
+     */
+    <T> CompletableFuture<CompositeResponse<T>> postAsync(Class<T> ropResponseClass, String methodName, String version);
+
+    /**
+     * 直接使用 ropRequest异步发送请求
+     * @param ropRequest
+     * @param ropResponseClass
+     * @param methodName
+     * @param version
+     * @param <T>
+     * @return CompletableFuture
+     */
+    <T> CompletableFuture<CompositeResponse<T>> postAsync(Object ropRequest, Class<T> ropResponseClass, String methodName, String version);
+
+    /**
+     * 使用GET异步发送服务请求
+     * @param ropResponseClass
+     * @param methodName
+     * @param version
+     * @param <T>
+     * @return CompletableFuture
+     */
+    <T> CompletableFuture<CompositeResponse<T>> getAsync(Class<T> ropResponseClass, String methodName, String version);
+
+    /**
+     * 使用GET异步发送ropRequest的请求
+     * @param ropRequest
+     * @param ropResponseClass
+     * @param methodName
+     * @param version
+     * @param <T>
+     * @return CompletableFuture
+     */
+    <T> CompletableFuture<CompositeResponse<T>> getAsync(Object ropRequest, Class<T> ropResponseClass, String methodName, String version);
+}
@@ -23,5 +23,13 @@ public class CommonConstant {
 
     public static final String ERROR_TOKEN = "@@$-ERROR_TOKEN$-@@";
 
+    public static final String ERROR_HEADER = "X-Rop-Error";
+
+    public static final String REJECTED_HEADER = "X-Rop-Rejected";
+
+    public static final String TIMEOUT_HEADER = "X-Rop-Timeout";
+
     public static final String SESSION_CHANGED = "@@SESSION_CHANGED__";
+
+    public static final String BATCH_TOKEN = "@@$-BATCH_TOKEN$-@@";
 }
@@ -15,7 +15,6 @@
  */
 package com.rop.client;
 
-import org.apache.commons.lang.ClassUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -23,27 +22,56 @@ import com.rop.MessageFormat;
 import com.rop.RopMarshaller;
 import com.rop.RopUnmarshaller;
 import com.rop.annotation.IgnoreSign;
+import com.rop.client.balance.Endpoint;
+import com.rop.client.balance.EwmaLoadBalancer;
+import com.rop.client.balance.LeastOutstandingLoadBalancer;
+import com.rop.client.balance.LoadBalancer;
+import com.rop.client.breaker.CircuitBreaker;
+import com.rop.client.breaker.CircuitBreakerOpenException;
+import com.rop.client.breaker.CircuitBreakerRegistry;
+import com.rop.client.cache.ResponseCache;
+import com.rop.client.http.AsyncHttpClient;
 import com.rop.client.http.HttpClient;
 import com.rop.client.http.HttpResponse;
-import com.rop.client.http.JdkHttpClient;
+import com.rop.client.http.PooledAsyncHttpClient;
+import com.rop.client.http.PooledHttpClient;
+import com.rop.client.retry.RetryPolicy;
 import com.rop.config.SystemParameterNames;
 import com.rop.converter.RopConverter;
 import com.rop.converter.UploadFile;
 import com.rop.converter.UploadFileConverter;
 import com.rop.marshaller.FastjsonRopMarshaller;
+import com.rop.marshaller.JacksonCborRopMarshaller;
+import com.rop.marshaller.JacksonSmileRopMarshaller;
 import com.rop.marshaller.JaxbXmlRopMarshaller;
+import com.rop.response.BatchResponse;
 import com.rop.response.ErrorResponse;
 import com.rop.sign.SignHandler;
 import com.rop.unmarshaller.FastjsonRopUnmarshaller;
+import com.rop.unmarshaller.JacksonCborRopUnmarshaller;
+import com.rop.unmarshaller.JacksonSmileRopUnmarshaller;
 import com.rop.unmarshaller.JaxbXmlRopUnmarshaller;
 import com.rop.utils.AnnotationUtils;
+import com.rop.utils.ObjectMapperUtils;
 import com.rop.utils.Assert;
-import com.rop.utils.ReflectionUtils;
+import com.rop.utils.RopUtils;
 
 import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
 import java.io.IOException;
-import java.lang.reflect.Field;
+import java.io.InputStream;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+
+import org.w3c.dom.Element;
 
 /**
  * <pre>
@@ -53,12 +81,21 @@ import java.util.*;
  * @author 陈雄华
  * @version 1.0
  */
-public class DefaultRopClient implements RopClient {
+public class DefaultRopClient implements RopClient, Closeable {
 
     protected final Logger logger = LoggerFactory.getLogger(getClass());
 
-    //服务地址
-    private String serverUrl;
+    //服务地址的负载均衡
+    private LoadBalancer loadBalancer;
+
+    //重试及对冲策略
+    private RetryPolicy retryPolicy;
+
+    //按服务地址及服务方法的熔断器
+    private CircuitBreakerRegistry circuitBreakerRegistry;
+
+    //GET请求的响应缓存
+    private ResponseCache responseCache;
 
     //应用键
     private String appKey;
@@ -78,6 +115,8 @@ public class DefaultRopClient implements RopClient {
     private String localeName = SystemParameterNames.getLocale();
     
     private String signName = SystemParameterNames.getSign();
+
+    private String bodyDigestName = SystemParameterNames.getBodyDigest();
     
     private SignHandler signHandler;
 
@@ -86,44 +125,79 @@ public class DefaultRopClient implements RopClient {
 
     private Locale locale = Locale.SIMPLIFIED_CHINESE;
 
-    private HttpClient httpClient = new JdkHttpClient();
+    //同步请求使用的http客户端，未设置时在首次发送请求时创建
+    private HttpClient httpClient;
+
+    //异步请求使用的非阻塞http客户端，首次发送异步请求时创建
+    private AsyncHttpClient asyncHttpClient;
+
+    //http客户端是否由本客户端创建，由本客户端创建的在替换或关闭时释放其连接池
+    private boolean defaultHttpClient;
 
-    private RopUnmarshaller xmlUnmarshaller;
+    private boolean defaultAsyncHttpClient;
 
-    private RopUnmarshaller jsonUnmarshaller;
+    private volatile RopUnmarshaller xmlUnmarshaller;
+
+    private volatile RopUnmarshaller jsonUnmarshaller;
     
-    private RopMarshaller xmlMarshaller;
+    private volatile RopMarshaller xmlMarshaller;
     
-    private RopMarshaller jsonMarshaller;
+    private volatile RopMarshaller jsonMarshaller;
+
+    private volatile RopUnmarshaller smileUnmarshaller;
 
-    //请求类所有请求参数
-    private Map<Class<?>, List<Field>> requestAllFields = new HashMap<Class<?>, List<Field>>();
+    private volatile RopUnmarshaller cborUnmarshaller;
 
-    //请求类所有不需要进行签名的参数
-    private Map<Class<?>, List<String>> requestIgnoreSignFieldNames = new HashMap<Class<?>, List<String>>();
+    private volatile RopMarshaller smileMarshaller;
+
+    private volatile RopMarshaller cborMarshaller;
+
+    //请求类的序列化计划
+    private final ConcurrentMap<Class<?>, RequestSerializationPlan> requestPlans = new ConcurrentHashMap<Class<?>, RequestSerializationPlan>();
 
     //键为转换的目标类型
-    private static Map<Class<?>, RopConverter<String, ?>> ropConverterMap = new HashMap<Class<?>, RopConverter<String, ?>>();
+    private static Map<Class<?>, RopConverter<String, ?>> ropConverterMap = new ConcurrentHashMap<Class<?>, RopConverter<String, ?>>();
+
+    //转换器注册表的版本，每注册一个转换器加1，使已创建的序列化计划失效
+    private static final AtomicInteger converterVersion = new AtomicInteger();
+
+    //批量响应中XML子响应的JAXB上下文，键为响应类
+    private static final ConcurrentMap<Class<?>, JAXBContext> JAXB_CONTEXTS = new ConcurrentHashMap<Class<?>, JAXBContext>();
    
     static {
         ropConverterMap.put(UploadFile.class, new UploadFileConverter());
     }
 
     public DefaultRopClient(String serverUrl, String appKey) {
-        this.serverUrl = serverUrl;
-        this.appKey = appKey;
+        this(Collections.singletonList(serverUrl), appKey);
     }
 
     public DefaultRopClient(String serverUrl, String appKey, MessageFormat messageFormat) {
-        this.serverUrl = serverUrl;
-        this.appKey = appKey;
-        this.messageFormat = messageFormat;
+        this(Collections.singletonList(serverUrl), appKey, messageFormat);
     }
 
     public DefaultRopClient(String serverUrl, String appKey, MessageFormat messageFormat, Locale locale) {
-        this.serverUrl = serverUrl;
+        this(Collections.singletonList(serverUrl), appKey, messageFormat, locale);
+    }
+
+    /**
+     * 使用多个服务地址，默认选择在途请求数最少的地址
+     *
+     * @param serverUrls
+     * @param appKey
+     */
+    public DefaultRopClient(List<String> serverUrls, String appKey) {
+        this.loadBalancer = new LeastOutstandingLoadBalancer(serverUrls);
         this.appKey = appKey;
+    }
+
+    public DefaultRopClient(List<String> serverUrls, String appKey, MessageFormat messageFormat) {
+        this(serverUrls, appKey);
         this.messageFormat = messageFormat;
+    }
+
+    public DefaultRopClient(List<String> serverUrls, String appKey, MessageFormat messageFormat, Locale locale) {
+        this(serverUrls, appKey, messageFormat);
         this.locale = locale;
     }
 
@@ -181,6 +255,11 @@ public class DefaultRopClient implements RopClient {
     	this.signName = paramName;
         return this;
     }
+
+    public RopClient setBodyDigestParamName(String paramName) {
+        this.bodyDigestName = paramName;
+        return this;
+    }
     
     public RopClient setSignHandler(SignHandler handler) {
     	this.signHandler = handler;
@@ -189,12 +268,441 @@ public class DefaultRopClient implements RopClient {
 
     public void addRopConvertor(RopConverter<String, ?> ropConverter) {
     	DefaultRopClient.ropConverterMap.put(ropConverter.getTargetClass(), ropConverter);
+    	converterVersion.incrementAndGet();
+    }
+
+    /**
+     * 获取请求类的序列化计划，计划不存在或转换器发生变化时重新创建
+     *
+     * @param requestClass
+     * @return
+     */
+    private RequestSerializationPlan getRequestPlan(Class<?> requestClass) {
+        int version = converterVersion.get();
+        RequestSerializationPlan plan = requestPlans.get(requestClass);
+        if (plan == null || plan.getConverterVersion() != version) {
+            plan = RequestSerializationPlan.build(requestClass, ropConverterMap, version);
+            requestPlans.put(requestClass, plan);
+        }
+        return plan;
     }
 
     public ClientRequest buildClientRequest() {
         return new DefaultClientRequest();
     }
 
+    public BatchClientRequest buildBatchClientRequest() {
+        return new DefaultBatchClientRequest();
+    }
+
+	/**
+	 * 获取http请求客户端，未设置时创建默认的{@link PooledHttpClient}
+	 * @return
+	 */
+	public synchronized HttpClient getHttpClient() {
+		if (httpClient == null) {
+			httpClient = new PooledHttpClient();
+			defaultHttpClient = true;
+		}
+		return httpClient;
+	}
+
+	/**
+	 * 设置http请求客户端，默认使用基于连接池的{@link PooledHttpClient}。
+	 * 被替换的默认客户端将被关闭，调用方设置的客户端由调用方负责关闭
+	 * @param httpClient
+	 */
+	public synchronized void setHttpClient(HttpClient httpClient) {
+		if (defaultHttpClient && this.httpClient != httpClient) {
+			closeQuietly(this.httpClient);
+		}
+		this.httpClient = httpClient;
+		defaultHttpClient = false;
+	}
+
+	/**
+	 * 获取异步请求使用的非阻塞http客户端，未设置时创建默认的{@link PooledAsyncHttpClient}
+	 * @return
+	 */
+	public synchronized AsyncHttpClient getAsyncHttpClient() {
+		if (asyncHttpClient == null) {
+			asyncHttpClient = new PooledAsyncHttpClient();
+			defaultAsyncHttpClient = true;
+		}
+		return asyncHttpClient;
+	}
+
+	/**
+	 * 设置异步请求使用的非阻塞http客户端，被替换的默认客户端将被关闭
+	 * @param asyncHttpClient
+	 */
+	public synchronized void setAsyncHttpClient(AsyncHttpClient asyncHttpClient) {
+		if (defaultAsyncHttpClient && this.asyncHttpClient != asyncHttpClient) {
+			closeQuietly(this.asyncHttpClient);
+		}
+		this.asyncHttpClient = asyncHttpClient;
+		defaultAsyncHttpClient = false;
+	}
+
+	/**
+	 * 关闭本客户端创建的默认http客户端，释放连接池及其后台线程。调用方设置的http客户端由调用方负责关闭
+	 *
+	 * @throws IOException
+	 */
+	public synchronized void close() throws IOException {
+		if (defaultHttpClient) {
+			closeQuietly(httpClient);
+			httpClient = null;
+			defaultHttpClient = false;
+		}
+		if (defaultAsyncHttpClient) {
+			closeQuietly(asyncHttpClient);
+			asyncHttpClient = null;
+			defaultAsyncHttpClient = false;
+		}
+	}
+
+	private void closeQuietly(Object client) {
+		if (client instanceof Closeable) {
+			try {
+				((Closeable) client).close();
+			} catch (IOException e) {
+				logger.warn("关闭http客户端出错", e);
+			}
+		}
+	}
+
+	public RetryPolicy getRetryPolicy() {
+		return retryPolicy;
+	}
+
+	/**
+	 * 设置重试及对冲策略，为null时不重试
+	 * @param retryPolicy
+	 */
+	public void setRetryPolicy(RetryPolicy retryPolicy) {
+		this.retryPolicy = retryPolicy;
+	}
+
+	public CircuitBreakerRegistry getCircuitBreakerRegistry() {
+		return circuitBreakerRegistry;
+	}
+
+	/**
+	 * 设置熔断器，为null时不熔断
+	 * @param circuitBreakerRegistry
+	 */
+	public void setCircuitBreakerRegistry(CircuitBreakerRegistry circuitBreakerRegistry) {
+		this.circuitBreakerRegistry = circuitBreakerRegistry;
+	}
+
+	public ResponseCache getResponseCache() {
+		return responseCache;
+	}
+
+	/**
+	 * 设置GET请求的响应缓存，为null时不缓存
+	 * @param responseCache
+	 */
+	public void setResponseCache(ResponseCache responseCache) {
+		this.responseCache = responseCache;
+	}
+
+	public LoadBalancer getLoadBalancer() {
+		return loadBalancer;
+	}
+
+	/**
+	 * 设置服务地址的负载均衡，如{@link LeastOutstandingLoadBalancer}、{@link EwmaLoadBalancer}
+	 * @param loadBalancer
+	 */
+	public void setLoadBalancer(LoadBalancer loadBalancer) {
+		this.loadBalancer = loadBalancer;
+	}
+
+	/**
+	 * 通过负载均衡选择服务地址并发送请求，根据响应结果更新服务地址的负载及健康状态
+	 * @param heads
+	 * @param method
+	 * @param params
+	 * @return
+	 * @throws IOException
+	 */
+	private HttpResponse send(Map<String, String> heads, String method, Map<String, String> params) throws IOException {
+		return send(heads, method, params, false);
+	}
+
+	/**
+	 * @param heads
+	 * @param method
+	 * @param params
+	 * @param streaming 是否流式读取响应内容，参见{@link HttpClient#executeStreaming(Map, String, String, Map)}
+	 * @return
+	 * @throws IOException
+	 */
+	private HttpResponse send(final Map<String, String> heads, final String method, final Map<String, String> params,
+			final boolean streaming) throws IOException {
+		final HttpClient client = getHttpClient();
+		return send(params, url -> streaming ? client.executeStreaming(heads, url, method, params)
+				: client.execute(heads, url, method, params));
+	}
+
+	/**
+	 * 以请求体发送业务参数，参见{@link ClientRequest#postBody(Object, Class, String, String)}。
+	 * 请求体已在内存中，可以按重试策略重发，但不进行对冲
+	 * @param heads
+	 * @param params
+	 * @param contentType
+	 * @param body
+	 * @param idempotent
+	 * @return
+	 * @throws IOException
+	 */
+	private HttpResponse sendBody(final Map<String, String> heads, final Map<String, String> params, final String contentType,
+			final byte[] body, boolean idempotent) throws IOException {
+		final HttpClient client = getHttpClient();
+		Exchange exchange = url -> client.postBody(heads, url, params, contentType, body);
+		if (retryPolicy == null) {
+			return send(params, exchange);
+		}
+		String key = params.get(methodName) + ":" + params.get(versionName);
+		return new HedgedCall(syncAttempt(params, exchange), retryPolicy, key, idempotent).join();
+	}
+
+	/**
+	 * 选择服务地址并发送一次请求
+	 * @param params
+	 * @param exchange
+	 * @return
+	 * @throws IOException
+	 */
+	private HttpResponse send(Map<String, String> params, Exchange exchange) throws IOException {
+		Endpoint endpoint = loadBalancer.select();
+		CircuitBreaker circuitBreaker = acquireCircuitBreaker(endpoint, params);
+		long begin = System.currentTimeMillis();
+		HttpResponse response = null;
+		try {
+			response = exchange.execute(endpoint.getUrl());
+			return response;
+		} finally {
+			long latency = System.currentTimeMillis() - begin;
+			loadBalancer.complete(endpoint, latency, response == null || isUnhealthy(response));
+			if (circuitBreaker != null) {
+				circuitBreaker.onComplete(latency, response == null || isFailed(response));
+			}
+		}
+	}
+
+	/**
+	 * 异步发送请求，参见{@link #send(Map, String, Map)}
+	 * @param heads
+	 * @param method
+	 * @param params
+	 * @param timeout
+	 * @return
+	 */
+	private CompletableFuture<HttpResponse> sendAsync(Map<String, String> heads, String method, Map<String, String> params, long timeout) {
+		final Endpoint endpoint = loadBalancer.select();
+		final CircuitBreaker circuitBreaker;
+		try {
+			circuitBreaker = acquireCircuitBreaker(endpoint, params);
+		} catch (CircuitBreakerOpenException e) {
+			CompletableFuture<HttpResponse> future = new CompletableFuture<HttpResponse>();
+			future.completeExceptionally(e);
+			return future;
+		}
+		final long begin = System.currentTimeMillis();
+		CompletableFuture<HttpResponse> future;
+		try {
+			future = getAsyncHttpClient().executeAsync(heads, endpoint.getUrl(), method, params, timeout);
+		} catch (RuntimeException e) {
+			loadBalancer.complete(endpoint, System.currentTimeMillis() - begin, true);
+			if (circuitBreaker != null) {
+				circuitBreaker.onComplete(System.currentTimeMillis() - begin, true);
+			}
+			throw e;
+		}
+		return future.whenComplete((response, e) -> {
+			long latency = System.currentTimeMillis() - begin;
+			loadBalancer.complete(endpoint, latency, e != null || isUnhealthy(response));
+			if (circuitBreaker != null) {
+				circuitBreaker.onComplete(latency, e != null || isFailed(response));
+			}
+		});
+	}
+
+	/**
+	 * 向选定的服务地址发送一次请求
+	 */
+	private interface Exchange {
+
+		HttpResponse execute(String url) throws IOException;
+	}
+
+	/**
+	 * 获取服务地址及服务方法的熔断器，熔断器打开时请求不再发出
+	 * @param endpoint
+	 * @param params
+	 * @return 没有设置熔断器时返回null
+	 * @throws CircuitBreakerOpenException
+	 */
+	private CircuitBreaker acquireCircuitBreaker(Endpoint endpoint, Map<String, String> params) throws CircuitBreakerOpenException {
+		if (circuitBreakerRegistry == null) {
+			return null;
+		}
+		CircuitBreaker circuitBreaker = circuitBreakerRegistry.get(endpoint.getUrl(), params.get(methodName), params.get(versionName));
+		if (!circuitBreaker.tryAcquire()) {
+			loadBalancer.cancel(endpoint);
+			throw new CircuitBreakerOpenException(circuitBreaker.getName());
+		}
+		return circuitBreaker;
+	}
+
+	/**
+	 * 创建按重试策略执行的调用，对冲时需要同时发送多个请求，因此使用异步的http客户端
+	 * @param heads
+	 * @param method
+	 * @param params
+	 * @param timeout
+	 * @param idempotent
+	 * @param async 是否由异步接口发起
+	 * @return
+	 */
+	private HedgedCall newHedgedCall(final Map<String, String> heads, final String method, final Map<String, String> params,
+			final long timeout, boolean idempotent, boolean async) {
+		String key = params.get(methodName) + ":" + params.get(versionName);
+		boolean hedging = idempotent && retryPolicy.isHedging();
+		if (async || hedging) {
+			return new HedgedCall(() -> sendAsync(heads, method, params, timeout), retryPolicy, key, idempotent);
+		}
+		final HttpClient client = getHttpClient();
+		return new HedgedCall(syncAttempt(params, url -> client.execute(heads, url, method, params)),
+				retryPolicy, key, idempotent);
+	}
+
+	/**
+	 * 在调用线程中同步发送请求，以已完成的CompletableFuture作为结果
+	 * @param params
+	 * @param exchange
+	 * @return
+	 */
+	private Supplier<CompletableFuture<HttpResponse>> syncAttempt(final Map<String, String> params, final Exchange exchange) {
+		return () -> {
+			CompletableFuture<HttpResponse> future = new CompletableFuture<HttpResponse>();
+			try {
+				future.complete(send(params, exchange));
+			} catch (IOException e) {
+				future.completeExceptionally(e);
+			}
+			return future;
+		};
+	}
+
+	/**
+	 * 服务端错误或服务端因资源耗尽拒绝服务时，说明该服务节点不健康
+	 * @param response
+	 * @return
+	 */
+	private boolean isUnhealthy(HttpResponse response) {
+		return response.getCode() >= 500 || response.getHeader(CommonConstant.REJECTED_HEADER) != null;
+	}
+
+	/**
+	 * 熔断器除节点不健康外，还将服务方法执行超时计为失败
+	 * @param response
+	 * @return
+	 */
+	private boolean isFailed(HttpResponse response) {
+		return isUnhealthy(response) || response.getHeader(CommonConstant.TIMEOUT_HEADER) != null;
+	}
+
+	/**
+	 * 直接从响应的输入流中解析服务响应，根据服务端设置的错误报文头判断调用是否成功，响应内容只读取一遍。
+	 * 无论成功与否都会关闭响应，使连接得以复用
+	 * @param response
+	 * @param ropResponseClass
+	 * @return
+	 * @throws IOException
+	 */
+	private <T> CompositeResponse<T> readCompositeResponse(HttpResponse response, Class<T> ropResponseClass) throws IOException {
+		try {
+			if (!response.isSuccessful()) {
+				return new DefaultCompositeResponse<T>(false);
+			}
+			boolean successful = response.getHeader(CommonConstant.ERROR_HEADER) == null;
+			DefaultCompositeResponse<T> compositeResponse = new DefaultCompositeResponse<T>(successful);
+			InputStream in = response.getInputStream();
+			if (successful) {
+				compositeResponse.setSuccessRopResponse(getUnmarshaller().unmarshaller(in, ropResponseClass));
+			} else {
+				compositeResponse.setErrorResponse(getUnmarshaller().unmarshaller(in, ErrorResponse.class));
+			}
+			return compositeResponse;
+		} finally {
+			response.close();
+		}
+	}
+
+	/**
+	 * 使用仍然新鲜的缓存响应
+	 * @param entry
+	 * @param ropResponseClass
+	 * @return 没有缓存、缓存已过期或缓存的响应类型不符时返回null
+	 */
+	private <T> CompositeResponse<T> getFreshCachedResponse(ResponseCache.Entry entry, Class<T> ropResponseClass) {
+		if (entry == null || !entry.isFresh(System.currentTimeMillis()) || !ropResponseClass.isInstance(entry.getResponse())) {
+			return null;
+		}
+		return toCompositeResponse(entry, ropResponseClass);
+	}
+
+	private <T> CompositeResponse<T> toCompositeResponse(ResponseCache.Entry entry, Class<T> ropResponseClass) {
+		DefaultCompositeResponse<T> compositeResponse = new DefaultCompositeResponse<T>(true);
+		compositeResponse.setSuccessRopResponse(ropResponseClass.cast(entry.getResponse()));
+		return compositeResponse;
+	}
+
+	/**
+	 * 解析可以缓存的响应：服务端返回304时使用缓存的响应，否则解析响应并按服务端的缓存指令缓存
+	 * @param cache
+	 * @param key
+	 * @param entry 已过期的缓存项，没有时为null
+	 * @param response
+	 * @param ropResponseClass
+	 * @return
+	 * @throws IOException
+	 */
+	private <T> CompositeResponse<T> readCacheableResponse(ResponseCache cache, String key, ResponseCache.Entry entry,
+			HttpResponse response, Class<T> ropResponseClass) throws IOException {
+		String cacheControl = response.getHeader(ResponseCache.CACHE_CONTROL);
+		if (response.getCode() == 304 && entry != null && ropResponseClass.isInstance(entry.getResponse())) {
+			response.close();
+			return toCompositeResponse(cache.revalidate(key, entry, cacheControl), ropResponseClass);
+		}
+		String etag = response.getHeader(ResponseCache.ETAG);
+		CompositeResponse<T> compositeResponse = readCompositeResponse(response, ropResponseClass);
+		if (compositeResponse.isSuccessful()) {
+			cache.put(key, compositeResponse.getSuccessResponse(), etag, cacheControl);
+		}
+		return compositeResponse;
+	}
+
+	private RopUnmarshaller getUnmarshaller() {
+		return getUnmarshaller(messageFormat);
+	}
+
+	private RopUnmarshaller getUnmarshaller(MessageFormat format) {
+		if (MessageFormat.JSON == format) {
+			return getJsonUnmarshaller();
+		} else if (MessageFormat.SMILE == format) {
+			return getSmileUnmarshaller();
+		} else if (MessageFormat.CBOR == format) {
+			return getCborUnmarshaller();
+		} else {
+			return getXmlUnmarshaller();
+		}
+	}
+
 	public RopUnmarshaller getXmlUnmarshaller() {
 		if(xmlUnmarshaller == null){
 			xmlUnmarshaller = new JaxbXmlRopUnmarshaller();
@@ -238,6 +746,50 @@ public class DefaultRopClient implements RopClient {
 	public void setJsonMarshaller(RopMarshaller jsonMarshaller) {
 		this.jsonMarshaller = jsonMarshaller;
 	}
+
+	public RopUnmarshaller getSmileUnmarshaller() {
+		if(smileUnmarshaller == null){
+			smileUnmarshaller = new JacksonSmileRopUnmarshaller();
+		}
+		return smileUnmarshaller;
+	}
+
+	public void setSmileUnmarshaller(RopUnmarshaller smileUnmarshaller) {
+		this.smileUnmarshaller = smileUnmarshaller;
+	}
+
+	public RopUnmarshaller getCborUnmarshaller() {
+		if(cborUnmarshaller == null){
+			cborUnmarshaller = new JacksonCborRopUnmarshaller();
+		}
+		return cborUnmarshaller;
+	}
+
+	public void setCborUnmarshaller(RopUnmarshaller cborUnmarshaller) {
+		this.cborUnmarshaller = cborUnmarshaller;
+	}
+
+	public RopMarshaller getSmileMarshaller() {
+		if(smileMarshaller == null){
+			smileMarshaller = new JacksonSmileRopMarshaller();
+		}
+		return smileMarshaller;
+	}
+
+	public void setSmileMarshaller(RopMarshaller smileMarshaller) {
+		this.smileMarshaller = smileMarshaller;
+	}
+
+	public RopMarshaller getCborMarshaller() {
+		if(cborMarshaller == null){
+			cborMarshaller = new JacksonCborRopMarshaller();
+		}
+		return cborMarshaller;
+	}
+
+	public void setCborMarshaller(RopMarshaller cborMarshaller) {
+		this.cborMarshaller = cborMarshaller;
+	}
 	
     private class DefaultClientRequest implements ClientRequest {
 
@@ -247,6 +799,10 @@ public class DefaultRopClient implements RopClient {
         
         private Map<String, String> headMap = new HashMap<String, String>();
 
+        private long timeout;
+
+        private boolean idempotent;
+
         private DefaultClientRequest() {
             paramMap.put(appKeyName, appKey);
             paramMap.put(formatName, messageFormat.name());
@@ -277,6 +833,21 @@ public class DefaultRopClient implements RopClient {
             return this;
         }
 
+        public ClientRequest setTimeout(long timeout) {
+            this.timeout = timeout;
+            return this;
+        }
+
+        public ClientRequest setIdempotent(boolean idempotent) {
+            this.idempotent = idempotent;
+            return this;
+        }
+
+        public ClientRequest setRange(long start, long end) {
+            headMap.put("Range", "bytes=" + start + "-" + (end < 0 ? "" : String.valueOf(end)));
+            return this;
+        }
+
         @SuppressWarnings({ "unchecked", "rawtypes" })
 		public ClientRequest addParam(String paramName, Object paramValue, boolean ignoreSign) {
             Assert.isTrue(paramName != null && paramName.length() > 0, "参数名不能为空");
@@ -307,12 +878,24 @@ public class DefaultRopClient implements RopClient {
         }
 
         private <T> CompositeResponse<T> post(Class<T> ropResponseClass, Map<String, String> requestParams) throws IOException {
-        	HttpResponse response = httpClient.post(headMap, serverUrl, requestParams);
-			if(response.isSuccessful()){
-				String responseContent = response.getString();
-				return toCompositeResponse(responseContent, ropResponseClass);
-			}
-			return new DefaultCompositeResponse<T>(false);
+        	return execute(ropResponseClass, "POST", requestParams);
+        }
+
+        public <T> CompositeResponse<T> postBody(Object ropRequest, Class<T> ropResponseClass, String methodName, String version) throws IOException {
+            byte[] body = getRequestBody(ropRequest);
+            Map<String, String> requestParams = getSystemParams(methodName, version);
+            requestParams.put(DefaultRopClient.this.bodyDigestName, RopUtils.byte2hex(RopUtils.newBodyDigest().digest(body)));
+            requestParams.put(DefaultRopClient.this.signName,
+                    DefaultRopClient.this.signHandler.sign(requestParams, Collections.<String>emptyList()));
+            String contentType;
+            if (MessageFormat.SMILE == messageFormat) {
+                contentType = "application/x-jackson-smile";
+            } else if (MessageFormat.CBOR == messageFormat) {
+                contentType = "application/cbor";
+            } else {
+                contentType = (MessageFormat.JSON == messageFormat ? "application/json" : "application/xml") + ";charset=UTF-8";
+            }
+            return readCompositeResponse(sendBody(headMap, requestParams, contentType, body, idempotent), ropResponseClass);
         }
 
 
@@ -327,85 +910,201 @@ public class DefaultRopClient implements RopClient {
         }
 
         private <T> CompositeResponse<T> get(Class<T> ropResponseClass, Map<String, String> requestParams) throws IOException {
-        	HttpResponse response = httpClient.get(headMap, serverUrl, requestParams);
-			if(response.isSuccessful()){
-				String responseContent = response.getString();
-				return toCompositeResponse(responseContent, ropResponseClass);
-			}
-			return new DefaultCompositeResponse<T>(false);
+        	return execute(ropResponseClass, "GET", requestParams);
         }
 
-        private Map<String, String> addOtherParamMap(String methodName, String version) {
-            paramMap.put(DefaultRopClient.this.methodName, methodName);
-            paramMap.put(DefaultRopClient.this.versionName, version);
-            String signValue = DefaultRopClient.this.signHandler.sign(paramMap, ignoreSignParams);
-            paramMap.put(DefaultRopClient.this.signName, signValue);
-            return paramMap;
+        public DownloadResponse download(String methodName, String version) throws IOException {
+            return download(addOtherParamMap(methodName, version));
         }
 
-        private <T> CompositeResponse<T> toCompositeResponse(String content, Class<T> ropResponseClass) {
-            if(logger.isDebugEnabled()){
-                logger.debug(content);
+        public DownloadResponse download(Object ropRequest, String methodName, String version) throws IOException {
+            return download(getRequestForm(ropRequest, methodName, version));
+        }
+
+        private DownloadResponse download(Map<String, String> requestParams) throws IOException {
+            //响应内容在读取时才从连接中传输，中途失败无法透明地重试，因此不使用重试策略
+            HttpResponse response = DefaultRopClient.this.send(headMap, "GET", requestParams, true);
+            return new DownloadResponse(response, getUnmarshaller());
+        }
+
+        private <T> CompositeResponse<T> execute(Class<T> ropResponseClass, String method, Map<String, String> requestParams) throws IOException {
+            ResponseCache cache = "GET".equals(method) ? responseCache : null;
+            if (cache == null) {
+                return readCompositeResponse(send(headMap, method, requestParams), ropResponseClass);
             }
-            boolean successful = isSuccessful(content);
-            DefaultCompositeResponse<T> compositeResponse = new DefaultCompositeResponse<T>(successful);
-            if (MessageFormat.JSON == messageFormat) {
-                if (successful) {
-                    T ropResponse = getJsonUnmarshaller().unmarshaller(content, ropResponseClass);
-                    compositeResponse.setSuccessRopResponse(ropResponse);
-                } else {
-                    ErrorResponse errorResponse = getJsonUnmarshaller().unmarshaller(content, ErrorResponse.class);
-                    compositeResponse.setErrorResponse(errorResponse);
-                }
-            } else {
-                if (successful) {
-                    T ropResponse = getXmlUnmarshaller().unmarshaller(content, ropResponseClass);
-                    compositeResponse.setSuccessRopResponse(ropResponse);
-                } else {
-                    ErrorResponse errorResponse = getXmlUnmarshaller().unmarshaller(content, ErrorResponse.class);
-                    compositeResponse.setErrorResponse(errorResponse);
-                }
+            String key = cache.createKey(requestParams, signName);
+            ResponseCache.Entry entry = cache.get(key);
+            CompositeResponse<T> cached = getFreshCachedResponse(entry, ropResponseClass);
+            if (cached != null) {
+                return cached;
             }
-            return compositeResponse;
+            HttpResponse response = send(conditionalHeads(headMap, entry), method, requestParams);
+            return readCacheableResponse(cache, key, entry, response, ropResponseClass);
+        }
+
+        private HttpResponse send(Map<String, String> heads, String method, Map<String, String> requestParams) throws IOException {
+            if (retryPolicy == null) {
+                return DefaultRopClient.this.send(heads, method, requestParams);
+            }
+            return newHedgedCall(heads, method, requestParams, timeout, isIdempotent(method), false).join();
+        }
+
+        /**
+         * 缓存的响应有ETag时，发送条件请求
+         * @param heads
+         * @param entry
+         * @return
+         */
+        private Map<String, String> conditionalHeads(Map<String, String> heads, ResponseCache.Entry entry) {
+            if (entry == null || entry.getEtag() == null) {
+                return heads;
+            }
+            Map<String, String> conditional = new HashMap<String, String>(heads);
+            conditional.put(ResponseCache.IF_NONE_MATCH, entry.getEtag());
+            return conditional;
+        }
+
+        private boolean isIdempotent(String method) {
+            return idempotent || "GET".equals(method);
+        }
+
+        public <T> CompletableFuture<CompositeResponse<T>> postAsync(Class<T> ropResponseClass, String methodName, String version) {
+            return executeAsync(ropResponseClass, "POST", addOtherParamMap(methodName, version));
+        }
+
+        public <T> CompletableFuture<CompositeResponse<T>> postAsync(Object ropRequest, Class<T> ropResponseClass, String methodName, String version) {
+            try {
+                return executeAsync(ropResponseClass, "POST", getRequestForm(ropRequest, methodName, version));
+            } catch (IOException e) {
+                return failedFuture(e);
+            }
+        }
+
+        public <T> CompletableFuture<CompositeResponse<T>> getAsync(Class<T> ropResponseClass, String methodName, String version) {
+            return executeAsync(ropResponseClass, "GET", addOtherParamMap(methodName, version));
+        }
+
+        public <T> CompletableFuture<CompositeResponse<T>> getAsync(Object ropRequest, Class<T> ropResponseClass, String methodName, String version) {
+            try {
+                return executeAsync(ropResponseClass, "GET", getRequestForm(ropRequest, methodName, version));
+            } catch (IOException e) {
+                return failedFuture(e);
+            }
+        }
+
+        private <T> CompletableFuture<CompositeResponse<T>> executeAsync(final Class<T> ropResponseClass, String method,
+                Map<String, String> requestParams) {
+            //请求可能在等待队列中延后发出，复制参数以免本对象被再次使用时影响已提交的请求
+            Map<String, String> heads = new HashMap<String, String>(headMap);
+            Map<String, String> params = new LinkedHashMap<String, String>(requestParams);
+            final ResponseCache cache = "GET".equals(method) ? responseCache : null;
+            final String key = cache != null ? cache.createKey(params, signName) : null;
+            final ResponseCache.Entry entry = cache != null ? cache.get(key) : null;
+            CompositeResponse<T> cached = getFreshCachedResponse(entry, ropResponseClass);
+            if (cached != null) {
+                return CompletableFuture.completedFuture(cached);
+            }
+            heads = conditionalHeads(heads, entry);
+            CompletableFuture<HttpResponse> future = retryPolicy == null ? sendAsync(heads, method, params, timeout)
+                    : newHedgedCall(heads, method, params, timeout, isIdempotent(method), true).start();
+            return future.thenApply(response -> {
+                try {
+                    return cache == null ? readCompositeResponse(response, ropResponseClass)
+                            : readCacheableResponse(cache, key, entry, response, ropResponseClass);
+                } catch (IOException e) {
+                    throw new CompletionException(e);
+                }
+            });
         }
 
-        private boolean isSuccessful(String content) {
-            return !(content.contains(CommonConstant.ERROR_TOKEN));
+        private <T> CompletableFuture<CompositeResponse<T>> failedFuture(Throwable e) {
+            CompletableFuture<CompositeResponse<T>> future = new CompletableFuture<CompositeResponse<T>>();
+            future.completeExceptionally(e);
+            return future;
+        }
+
+        private Map<String, String> addOtherParamMap(String methodName, String version) {
+            paramMap.put(DefaultRopClient.this.methodName, methodName);
+            paramMap.put(DefaultRopClient.this.versionName, version);
+            String signValue = DefaultRopClient.this.signHandler.sign(paramMap, ignoreSignParams);
+            paramMap.put(DefaultRopClient.this.signName, signValue);
+            return paramMap;
         }
 
         private Map<String, String> getRequestForm(Object ropRequest, String methodName, String version) throws IOException {
-            Map<String, String> form = new LinkedHashMap<String, String>(16);
+            RequestSerializationPlan plan = getRequestPlan(ropRequest.getClass());
             //系统级参数
-            form.put(DefaultRopClient.this.appKeyName, appKey);
-            form.put(DefaultRopClient.this.methodName, methodName);
-            form.put(DefaultRopClient.this.versionName, version);
-            form.put(DefaultRopClient.this.formatName, messageFormat.name());
-            form.put(DefaultRopClient.this.localeName, locale.toString());
-            if (sessionId != null) {
-                form.put(DefaultRopClient.this.sessionIdName, sessionId);
-            }
+            Map<String, String> form = getSystemParams(methodName, version);
 
             //业务级参数
-            form.putAll(getParamFields(ropRequest, messageFormat));
+            toParamValueMap(plan, ropRequest, messageFormat, form);
 
             //对请求进行签名
-            String signValue = sign(ropRequest.getClass(), form);
+            String signValue = sign(plan, form);
             form.put(DefaultRopClient.this.signName, signValue);
             return form;
         }
 
 
+        /**
+         * 获取系统级参数，按签名顺序排列
+         *
+         * @param methodName
+         * @param version
+         * @return
+         */
+        private Map<String, String> getSystemParams(String methodName, String version) {
+            Map<String, String> params = new TreeMap<String, String>();
+            params.put(DefaultRopClient.this.appKeyName, appKey);
+            params.put(DefaultRopClient.this.methodName, methodName);
+            params.put(DefaultRopClient.this.versionName, version);
+            params.put(DefaultRopClient.this.formatName, messageFormat.name());
+            params.put(DefaultRopClient.this.localeName, locale.toString());
+            if (sessionId != null) {
+                params.put(DefaultRopClient.this.sessionIdName, sessionId);
+            }
+            return params;
+        }
+
+        /**
+         * 将ropRequest序列化为请求体。JSON及二进制格式时按序列化计划取出请求参数的属性，与表单方式发送的参数保持一致
+         *
+         * @param ropRequest
+         * @return
+         * @throws IOException
+         */
+        private byte[] getRequestBody(Object ropRequest) throws IOException {
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            if (MessageFormat.JSON == messageFormat || messageFormat.isBinary()) {
+                Map<String, Object> fields = new LinkedHashMap<String, Object>();
+                for (RequestSerializationPlan.FieldPlan fieldPlan : getRequestPlan(ropRequest.getClass()).getFieldPlans()) {
+                    Object fieldValue = fieldPlan.getValue(ropRequest);
+                    if (fieldValue != null) {
+                        fields.put(fieldPlan.getName(), fieldValue);
+                    }
+                }
+                if (MessageFormat.SMILE == messageFormat) {
+                    getSmileMarshaller().marshaller(fields, baos);
+                } else if (MessageFormat.CBOR == messageFormat) {
+                    getCborMarshaller().marshaller(fields, baos);
+                } else {
+                    getJsonMarshaller().marshaller(fields, baos);
+                }
+            } else {
+                getXmlMarshaller().marshaller(ropRequest, baos);
+            }
+            return baos.toByteArray();
+        }
+
         /**
          * 对请求参数进行签名
          *
-         * @param ropRequestClass
-         * @param appSecret
+         * @param plan
          * @param form
          * @return
          */
-        private String sign(Class<?> ropRequestClass, Map<String, String> form) {
-            List<String> ignoreFieldNames = requestIgnoreSignFieldNames.get(ropRequestClass);
-            return DefaultRopClient.this.signHandler.sign(form, ignoreFieldNames);
+        private String sign(RequestSerializationPlan plan, Map<String, String> form) {
+            return DefaultRopClient.this.signHandler.sign(form, plan.getIgnoreSignFieldNames());
         }
 
         /**
@@ -417,47 +1116,43 @@ public class DefaultRopClient implements RopClient {
          * @throws IOException 
          */
         private Map<String, String> getParamFields(Object ropRequest, MessageFormat mf) throws IOException {
-            if (!requestAllFields.containsKey(ropRequest.getClass())) {
-                parseRopRequestClass(ropRequest);
-            }
-            return toParamValueMap(ropRequest, mf);
+            Map<String, String> params = new TreeMap<String, String>();
+            toParamValueMap(getRequestPlan(ropRequest.getClass()), ropRequest, mf, params);
+            return params;
         }
 
         /**
-         * 获取ropRequest对象的对应的参数列表
+         * 按序列化计划将ropRequest对象的参数放入参数列表中
          *
+         * @param plan
          * @param ropRequest
          * @param mf
-         * @return
+         * @param params
          * @throws IOException 
          */
         @SuppressWarnings({ "unchecked", "rawtypes" })
-		private Map<String, String> toParamValueMap(Object ropRequest, MessageFormat mf) throws IOException {
-            List<Field> fields = requestAllFields.get(ropRequest.getClass());
-            Map<String, String> params = new HashMap<String, String>();
-            for (Field field : fields) {
-                RopConverter convertor = getConvertor(field.getType());
-                Object fieldValue = ReflectionUtils.getField(field, ropRequest);
+		private void toParamValueMap(RequestSerializationPlan plan, Object ropRequest, MessageFormat mf,
+                                     Map<String, String> params) throws IOException {
+            for (RequestSerializationPlan.FieldPlan fieldPlan : plan.getFieldPlans()) {
+                Object fieldValue = fieldPlan.getValue(ropRequest);
                 if (fieldValue != null) {
+                    RopConverter convertor = fieldPlan.getConverter();
                     if (convertor != null) {//有对应转换器
-                        String strParamValue = (String) convertor.unconvert(fieldValue);
-                        params.put(field.getName(), strParamValue);
-                    } else if (!field.getType().isPrimitive()) {
-                        String message = marshaller(fieldValue, mf);
-                        params.put(field.getName(), message);
+                        params.put(fieldPlan.getName(), (String) convertor.unconvert(fieldValue));
+                    } else if (!fieldPlan.isPrimitive()) {
+                        params.put(fieldPlan.getName(), marshaller(fieldValue, mf));
                     } else {
-                        params.put(field.getName(), fieldValue.toString());
+                        params.put(fieldPlan.getName(), fieldValue.toString());
                     }
                 }
             }
-            return params;
         }
-        
 
         private String marshaller(Object value, MessageFormat mf) throws IOException{
         	 ByteArrayOutputStream baos = new ByteArrayOutputStream();
         	 String message;
-             if(MessageFormat.JSON == mf){
+             //二进制格式的请求参数仍是文本，嵌套对象使用JSON格式
+             if(MessageFormat.JSON == mf || mf.isBinary()){
              	getJsonMarshaller().marshaller(value, baos);
              	message = baos.toString("UTF-8");
              }else{
@@ -466,22 +1161,166 @@ public class DefaultRopClient implements RopClient {
              }
              return message;
         }
+    }
+
+    private class DefaultBatchClientRequest implements BatchClientRequest {
+
+        private static final String BATCH_METHOD = "rop.batch";
+
+        private static final String BATCH_VERSION = "1.0";
+
+        private static final String ERROR_TOKEN_ATTRIBUTE = "errorToken";
+
+        //复用单个请求的参数转换
+        private DefaultClientRequest helper = new DefaultClientRequest();
+
+        private List<Map<String, Object>> calls = new ArrayList<Map<String, Object>>();
+
+        private List<Class<?>> responseClasses = new ArrayList<Class<?>>();
+
+        private Map<String, String> headMap = new HashMap<String, String>();
+
+        public BatchClientRequest setHeader(String name, String value) {
+            headMap.put(name, value);
+            return this;
+        }
 
-        private RopConverter<String, ?> getConvertor(Class<?> fieldType) {
-            for (Map.Entry<Class<?>,RopConverter<String,?>> entry : ropConverterMap.entrySet()) {
-                if (ClassUtils.isAssignable(entry.getKey(), fieldType)) {
-                    return entry.getValue();
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        public <T> BatchClientRequest addCall(Class<T> ropResponseClass, String methodName, String version, Map<String, ?> params) {
+            Map<String, String> callParams = new LinkedHashMap<String, String>();
+            if (params != null) {
+                for (Map.Entry<String, ?> entry : params.entrySet()) {
+                    Object paramValue = entry.getValue();
+                    if (paramValue == null) {
+                        continue;
+                    }
+                    String valueAsStr = paramValue.toString();
+                    if (ropConverterMap.containsKey(paramValue.getClass())) {
+                        RopConverter ropConverter = ropConverterMap.get(paramValue.getClass());
+                        valueAsStr = (String) ropConverter.unconvert(paramValue);
+                    }
+                    callParams.put(entry.getKey(), valueAsStr);
                 }
             }
-            return null;
+            return addCallParams(ropResponseClass, methodName, version, callParams);
         }
 
-        private void parseRopRequestClass(Object ropRequest) {
-            List<Field> allFields = ReflectionUtils.getFields(ropRequest.getClass());
-            List<String> ignoreSignFieldNames = ReflectionUtils.getIgnoreSignFieldNames(ropRequest.getClass());
-            requestAllFields.put(ropRequest.getClass(), allFields);
-            requestIgnoreSignFieldNames.put(ropRequest.getClass(), ignoreSignFieldNames);
+        public <T> BatchClientRequest addCall(Object ropRequest, Class<T> ropResponseClass, String methodName, String version) throws IOException {
+            return addCallParams(ropResponseClass, methodName, version, helper.getParamFields(ropRequest, messageFormat));
+        }
+
+        private BatchClientRequest addCallParams(Class<?> ropResponseClass, String methodName, String version, Map<String, String> callParams) {
+            Assert.isTrue(methodName != null && methodName.length() > 0, "方法名不能为空");
+            Map<String, Object> call = new LinkedHashMap<String, Object>();
+            call.put("method", methodName);
+            call.put("v", version);
+            call.put("params", callParams);
+            calls.add(call);
+            responseClasses.add(ropResponseClass);
+            return this;
+        }
+
+        public List<CompositeResponse<?>> post() throws IOException {
+            Assert.isTrue(!calls.isEmpty(), "批量请求中至少需要一个子调用");
+            Map<String, String> form = new LinkedHashMap<String, String>(16);
+            form.put(DefaultRopClient.this.appKeyName, appKey);
+            form.put(DefaultRopClient.this.methodName, BATCH_METHOD);
+            form.put(DefaultRopClient.this.versionName, BATCH_VERSION);
+            form.put(DefaultRopClient.this.formatName, getBatchFormat().name());
+            form.put(DefaultRopClient.this.localeName, locale.toString());
+            if (sessionId != null) {
+                form.put(DefaultRopClient.this.sessionIdName, sessionId);
+            }
+            form.put(SystemParameterNames.getCalls(), ObjectMapperUtils.getObjectMapper().writeValueAsString(calls));
+            form.put(DefaultRopClient.this.signName, DefaultRopClient.this.signHandler.sign(form, null));
+
+            HttpResponse response = send(headMap, "POST", form);
+            List<CompositeResponse<?>> compositeResponses = new ArrayList<CompositeResponse<?>>(calls.size());
+            BatchResponse batchResponse;
+            try {
+                if (!response.isSuccessful()) {
+                    for (int i = 0; i < calls.size(); i++) {
+                        compositeResponses.add(new DefaultCompositeResponse<Object>(false));
+                    }
+                    return compositeResponses;
+                }
+                if (response.getHeader(CommonConstant.ERROR_HEADER) != null) {
+                    //整个批量请求未通过校验，所有子调用都返回同一个错误
+                    ErrorResponse errorResponse = getUnmarshaller(getBatchFormat()).unmarshaller(response.getInputStream(), ErrorResponse.class);
+                    for (int i = 0; i < calls.size(); i++) {
+                        DefaultCompositeResponse<Object> compositeResponse = new DefaultCompositeResponse<Object>(false);
+                        compositeResponse.setErrorResponse(errorResponse);
+                        compositeResponses.add(compositeResponse);
+                    }
+                    return compositeResponses;
+                }
+                batchResponse = getUnmarshaller(getBatchFormat()).unmarshaller(response.getInputStream(), BatchResponse.class);
+            } finally {
+                response.close();
+            }
+            List<Object> items = batchResponse.getResponses();
+            for (int i = 0; i < responseClasses.size(); i++) {
+                if (items == null || i >= items.size()) {
+                    compositeResponses.add(new DefaultCompositeResponse<Object>(false));
+                } else {
+                    compositeResponses.add(toCompositeResponse(items.get(i), responseClasses.get(i)));
+                }
+            }
+            return compositeResponses;
+        }
+
+        /**
+         * 服务端的批量调用不支持二进制格式，客户端使用二进制格式时以JSON格式发送批量请求
+         *
+         * @return
+         */
+        private MessageFormat getBatchFormat() {
+            return messageFormat.isBinary() ? MessageFormat.JSON : messageFormat;
+        }
+
+        /**
+         * 将批量响应中已解析的单个子响应直接转换为响应对象：XML格式的子响应为DOM元素，JSON格式的子响应为Map
+         *
+         * @param item
+         * @param ropResponseClass
+         * @return
+         */
+        private <T> CompositeResponse<T> toCompositeResponse(Object item, Class<T> ropResponseClass) {
+            boolean successful = isSuccessful(item);
+            DefaultCompositeResponse<T> compositeResponse = new DefaultCompositeResponse<T>(successful);
+            if (successful) {
+                compositeResponse.setSuccessRopResponse(convert(item, ropResponseClass));
+            } else {
+                compositeResponse.setErrorResponse(convert(item, ErrorResponse.class));
+            }
+            return compositeResponse;
+        }
+
+        private boolean isSuccessful(Object item) {
+            if (item instanceof Element) {
+                return !CommonConstant.ERROR_TOKEN.equals(((Element) item).getAttribute(ERROR_TOKEN_ATTRIBUTE));
+            }
+            return !(item instanceof Map && ((Map<?, ?>) item).containsValue(CommonConstant.ERROR_TOKEN));
+        }
+
+        private <T> T convert(Object item, Class<T> type) {
+            if (item instanceof Element) {
+                try {
+                    return getJaxbContext(type).createUnmarshaller().unmarshal((Element) item, type).getValue();
+                } catch (JAXBException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+            return ObjectMapperUtils.getObjectMapper().convertValue(item, type);
+        }
+
+        private JAXBContext getJaxbContext(Class<?> type) throws JAXBException {
+            JAXBContext context = JAXB_CONTEXTS.get(type);
+            if (context == null) {
+                context = JAXBContext.newInstance(type);
+                JAXB_CONTEXTS.put(type, context);
+            }
+            return context;
         }
     }
 }
-
@@ -0,0 +1,266 @@
+/**
+ * Copyright 2012-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.rop.client;
+
+import com.rop.RopUnmarshaller;
+import com.rop.client.http.HttpResponse;
+import com.rop.response.ErrorResponse;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+
+/**
+ * <pre>
+ * 功能说明：下载文件的响应。响应内容不预先读入内存，由调用者从{@link #getInputStream()}中读取，
+ * 或者通过{@link #transferTo(OutputStream)}、{@link #saveTo(File)}写出，读完后必须关闭以释放连接。
+ * 请求设置了Range时，服务端返回206及部分内容，{@link #getRangeStart()}为这部分内容在文件中的起始位置。
+ * 服务方法返回错误报文时，{@link #getErrorResponse()}为解析后的错误响应。
+ * </pre>
+ *
+ * @author 陈雄华
+ * @version 1.0
+ */
+public class DownloadResponse implements Closeable {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final HttpResponse response;
+
+    private ErrorResponse errorResponse;
+
+    DownloadResponse(HttpResponse response, RopUnmarshaller unmarshaller) throws IOException {
+        this.response = response;
+        if (response.isSuccessful() && response.getHeader(CommonConstant.ERROR_HEADER) != null) {
+            try {
+                errorResponse = unmarshaller.unmarshaller(response.getInputStream(), ErrorResponse.class);
+            } finally {
+                response.close();
+            }
+        }
+    }
+
+    /**
+     * 是否成功获取到文件内容（状态码为200或206）
+     *
+     * @return
+     */
+    public boolean isSuccessful() {
+        return response.isSuccessful() && errorResponse == null;
+    }
+
+    /**
+     * 服务方法返回的错误响应，没有错误报文时为null
+     *
+     * @return
+     */
+    public ErrorResponse getErrorResponse() {
+        return errorResponse;
+    }
+
+    /**
+     * HTTP状态码，请求的区间超出文件长度时为416
+     *
+     * @return
+     */
+    public int getCode() {
+        return response.getCode();
+    }
+
+    /**
+     * 是否只返回了请求区间的部分内容
+     *
+     * @return
+     */
+    public boolean isPartial() {
+        return response.getCode() == 206;
+    }
+
+    public String getContentType() {
+        return response.getHeader("Content-Type");
+    }
+
+    /**
+     * 本次响应的内容长度，未知时为-1
+     *
+     * @return
+     */
+    public long getContentLength() {
+        String contentLength = response.getHeader("Content-Length");
+        return contentLength == null ? -1 : Long.parseLong(contentLength.trim());
+    }
+
+    /**
+     * 部分内容在文件中的起始位置，返回整个文件时为0
+     *
+     * @return
+     */
+    public long getRangeStart() {
+        String contentRange = getContentRange();
+        if (contentRange == null) {
+            return 0;
+        }
+        return Long.parseLong(contentRange.substring(0, contentRange.indexOf('-')).trim());
+    }
+
+    /**
+     * 整个文件的长度，未知时为-1
+     *
+     * @return
+     */
+    public long getTotalLength() {
+        String contentRange = getContentRange();
+        if (contentRange == null) {
+            return isPartial() ? -1 : getContentLength();
+        }
+        String total = contentRange.substring(contentRange.indexOf('/') + 1).trim();
+        return "*".equals(total) ? -1 : Long.parseLong(total);
+    }
+
+    private String getContentRange() {
+        String contentRange = response.getHeader("Content-Range");
+        if (contentRange == null || !contentRange.startsWith("bytes ") || contentRange.indexOf('-') < 0) {
+            return null;
+        }
+        return contentRange.substring("bytes ".length());
+    }
+
+    /**
+     * 文件的ETag，断点续传时作为If-Range报文头，保证续传的部分与已下载的部分属于同一个文件
+     *
+     * @return
+     */
+    public String getEtag() {
+        return response.getHeader("ETag");
+    }
+
+    /**
+     * 服务端建议的文件名，优先取Content-Disposition中按RFC 5987编码的filename*
+     *
+     * @return 没有指定文件名时返回null
+     */
+    public String getFileName() {
+        String disposition = response.getHeader("Content-Disposition");
+        if (disposition == null) {
+            return null;
+        }
+        String fileName = null;
+        for (String part : disposition.split(";")) {
+            part = part.trim();
+            if (part.startsWith("filename*=")) {
+                String value = part.substring("filename*=".length());
+                int index = value.indexOf("''");
+                if (index > -1) {
+                    try {
+                        return URLDecoder.decode(value.substring(index + 2), value.substring(0, index));
+                    } catch (UnsupportedEncodingException e) {
+                        //使用filename中的文件名
+                    }
+                }
+            } else if (part.startsWith("filename=")) {
+                fileName = part.substring("filename=".length());
+                if (fileName.length() > 1 && fileName.startsWith("\"") && fileName.endsWith("\"")) {
+                    fileName = fileName.substring(1, fileName.length() - 1);
+                }
+            }
+        }
+        return fileName;
+    }
+
+    /**
+     * 响应内容的输入流，只能读取一次
+     *
+     * @return
+     * @throws IOException
+     */
+    public InputStream getInputStream() throws IOException {
+        if (!isSuccessful()) {
+            throw new IOException("download failed, http status: " + response.getCode());
+        }
+        return response.getInputStream();
+    }
+
+    /**
+     * 将响应内容写入输出流，写完后关闭响应（不关闭输出流）
+     *
+     * @param out
+     * @return 写出的字节数
+     * @throws IOException
+     */
+    public long transferTo(OutputStream out) throws IOException {
+        try {
+            InputStream in = getInputStream();
+            byte[] buffer = new byte[BUFFER_SIZE];
+            long count = 0;
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+                count += read;
+            }
+            return count;
+        } finally {
+            close();
+        }
+    }
+
+    /**
+     * 将响应内容保存到文件中，写完后关闭响应。返回部分内容时写入到文件的{@link #getRangeStart()}位置，
+     * 用于断点续传；返回整个文件时覆盖文件原有的内容
+     *
+     * @param file
+     * @return 写出的字节数
+     * @throws IOException
+     */
+    public long saveTo(File file) throws IOException {
+        try {
+            InputStream in = getInputStream();
+            RandomAccessFile out = new RandomAccessFile(file, "rw");
+            try {
+                if (isPartial()) {
+                    out.seek(getRangeStart());
+                } else {
+                    out.setLength(0);
+                }
+                byte[] buffer = new byte[BUFFER_SIZE];
+                long count = 0;
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    out.write(buffer, 0, read);
+                    count += read;
+                }
+                return count;
+            } finally {
+                out.close();
+            }
+        } finally {
+            close();
+        }
+    }
+
+    public HttpResponse getHttpResponse() {
+        return response;
+    }
+
+    @Override
+    public void close() throws IOException {
+        response.close();
+    }
+}
@@ -0,0 +1,200 @@
+/**
+ * Copyright 2012-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.rop.client;
+
+import com.rop.client.breaker.CircuitBreakerOpenException;
+import com.rop.client.http.HttpResponse;
+import com.rop.client.retry.RetryPolicy;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.ConnectException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * <pre>
+ * 功能说明：按{@link RetryPolicy}执行一次服务调用，可能发送多个请求：
+ * 失败且可以重试时立即重试；开启对冲时，第一个请求在对冲延迟内没有响应则再发送一个，取先成功的响应。
+ * 没有被采用的响应会被关闭。所有请求都失败时，以最后一个失败的结果结束调用。
+ * </pre>
+ *
+ * @author 陈雄华
+ * @version 1.0
+ */
+final class HedgedCall {
+
+    private static final ScheduledExecutorService HEDGE_TIMER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "rop-client-hedge-timer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Supplier<CompletableFuture<HttpResponse>> attempt;
+
+    private final RetryPolicy policy;
+
+    private final String key;
+
+    private final boolean idempotent;
+
+    private final boolean hedging;
+
+    private final CompletableFuture<HttpResponse> result = new CompletableFuture<HttpResponse>();
+
+    //已发送的请求数，由this保护
+    private int attempts;
+
+    //尚未返回的请求数，由this保护
+    private int inflight;
+
+    /**
+     * @param attempt    发送一个请求
+     * @param policy
+     * @param key        服务方法名及版本，用于统计响应时间
+     * @param idempotent 请求是否幂等
+     */
+    HedgedCall(Supplier<CompletableFuture<HttpResponse>> attempt, RetryPolicy policy, String key, boolean idempotent) {
+        this.attempt = attempt;
+        this.policy = policy;
+        this.key = key;
+        this.idempotent = idempotent;
+        this.hedging = idempotent && policy.isHedging();
+    }
+
+    CompletableFuture<HttpResponse> start() {
+        policy.getRetryBudget().deposit();
+        long delay = hedging ? policy.getHedgeDelay(key) : -1;
+        launch();
+        if (delay >= 0 && !result.isDone()) {
+            final ScheduledFuture<?> hedge = HEDGE_TIMER.schedule(this::hedge, delay, TimeUnit.MILLISECONDS);
+            result.whenComplete((response, e) -> hedge.cancel(false));
+        }
+        return result;
+    }
+
+    /**
+     * 同步等待调用结果
+     *
+     * @return
+     * @throws IOException
+     */
+    HttpResponse join() throws IOException {
+        try {
+            return start().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    private void hedge() {
+        synchronized (this) {
+            if (result.isDone() || attempts >= policy.getMaxAttempts()) {
+                return;
+            }
+        }
+        if (policy.getRetryBudget().tryWithdraw()) {
+            launch();
+        }
+    }
+
+    private void launch() {
+        synchronized (this) {
+            attempts++;
+            inflight++;
+        }
+        final long begin = System.currentTimeMillis();
+        CompletableFuture<HttpResponse> future;
+        try {
+            future = attempt.get();
+        } catch (RuntimeException e) {
+            future = new CompletableFuture<HttpResponse>();
+            future.completeExceptionally(e);
+        }
+        future.whenComplete((response, e) -> onComplete(response, e, System.currentTimeMillis() - begin));
+    }
+
+    private void onComplete(HttpResponse response, Throwable e, long latency) {
+        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        boolean retryable = cause != null ? isRetryable(cause) : isRetryable(response);
+        boolean retry = false;
+        boolean last;
+        synchronized (this) {
+            inflight--;
+            if (retryable && !result.isDone() && attempts < policy.getMaxAttempts()) {
+                retry = policy.getRetryBudget().tryWithdraw();
+            }
+            last = inflight == 0;
+        }
+        if (retry) {
+            discard(response);
+            launch();
+        } else if (retryable && !last) {
+            //等待另一个请求的结果
+            discard(response);
+        } else if (cause != null) {
+            result.completeExceptionally(cause);
+        } else {
+            if (!retryable) {
+                policy.recordLatency(key, latency);
+            }
+            if (!result.complete(response)) {
+                discard(response);
+            }
+        }
+    }
+
+    private boolean isRetryable(Throwable cause) {
+        if (cause instanceof ConnectException || cause instanceof CircuitBreakerOpenException) {
+            return true;
+        }
+        return idempotent && (cause instanceof IOException || cause instanceof TimeoutException);
+    }
+
+    private boolean isRetryable(HttpResponse response) {
+        if (response.getHeader(CommonConstant.REJECTED_HEADER) != null) {
+            return true;
+        }
+        return idempotent && (response.getCode() >= 500 || response.getHeader(CommonConstant.TIMEOUT_HEADER) != null);
+    }
+
+    private static void discard(HttpResponse response) {
+        if (response != null) {
+            try {
+                response.close();
+            } catch (IOException e) {
+                //忽略
+            }
+        }
+    }
+}
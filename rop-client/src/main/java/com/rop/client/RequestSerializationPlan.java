@@ -0,0 +1,155 @@
+/*
+ * Copyright 2012-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.rop.client;
+
+import com.rop.converter.RopConverter;
+import com.rop.utils.ReflectionUtils;
+import org.apache.commons.lang.ClassUtils;
+
+import java.lang.reflect.Field;
+import java.util.*;
+
+/**
+ * <pre>
+ * 功能说明：请求类的序列化计划，每个请求类只在首次使用时解析一次。
+ * 计划中预先解析好每个请求参数的字段访问器和转换器，并按签名顺序（参数名升序）排列，
+ * 不需要签名的参数名也预先放入集合中。计划创建后不再修改，可以被多个线程共享。
+ * </pre>
+ *
+ * @author 陈雄华
+ * @version 1.0
+ */
+final class RequestSerializationPlan {
+
+    private final Class<?> requestClass;
+
+    //创建计划时转换器注册表的版本，注册新的转换器后计划需要重建
+    private final int converterVersion;
+
+    private final FieldPlan[] fieldPlans;
+
+    private final Set<String> ignoreSignFieldNames;
+
+    private RequestSerializationPlan(Class<?> requestClass, int converterVersion, FieldPlan[] fieldPlans,
+                                     Set<String> ignoreSignFieldNames) {
+        this.requestClass = requestClass;
+        this.converterVersion = converterVersion;
+        this.fieldPlans = fieldPlans;
+        this.ignoreSignFieldNames = ignoreSignFieldNames;
+    }
+
+    /**
+     * 解析请求类，创建序列化计划
+     *
+     * @param requestClass
+     * @param converters       键为转换的目标类型
+     * @param converterVersion
+     * @return
+     */
+    static RequestSerializationPlan build(Class<?> requestClass, Map<Class<?>, RopConverter<String, ?>> converters,
+                                          int converterVersion) {
+        List<Field> fields = ReflectionUtils.getFields(requestClass);
+        List<FieldPlan> fieldPlans = new ArrayList<FieldPlan>(fields.size());
+        for (Field field : fields) {
+            fieldPlans.add(new FieldPlan(field, findConverter(field.getType(), converters)));
+        }
+        Collections.sort(fieldPlans, new Comparator<FieldPlan>() {
+            public int compare(FieldPlan o1, FieldPlan o2) {
+                return o1.getName().compareTo(o2.getName());
+            }
+        });
+        Set<String> ignoreSignFieldNames = Collections.unmodifiableSet(
+                new HashSet<String>(ReflectionUtils.getIgnoreSignFieldNames(requestClass)));
+        return new RequestSerializationPlan(requestClass, converterVersion,
+                fieldPlans.toArray(new FieldPlan[fieldPlans.size()]), ignoreSignFieldNames);
+    }
+
+    private static RopConverter<String, ?> findConverter(Class<?> fieldType,
+                                                         Map<Class<?>, RopConverter<String, ?>> converters) {
+        for (Map.Entry<Class<?>, RopConverter<String, ?>> entry : converters.entrySet()) {
+            if (ClassUtils.isAssignable(entry.getKey(), fieldType)) {
+                return entry.getValue();
+            }
+        }
+        return null;
+    }
+
+    public Class<?> getRequestClass() {
+        return requestClass;
+    }
+
+    public int getConverterVersion() {
+        return converterVersion;
+    }
+
+    /**
+     * @return 按参数名升序排列的请求参数
+     */
+    public FieldPlan[] getFieldPlans() {
+        return fieldPlans;
+    }
+
+    public Set<String> getIgnoreSignFieldNames() {
+        return ignoreSignFieldNames;
+    }
+
+    /**
+     * 单个请求参数的序列化方式：有转换器时使用转换器，基本类型直接转为字符串，其它对象使用报文格式对应的序列化器
+     */
+    static final class FieldPlan {
+
+        private final Field field;
+
+        private final String name;
+
+        private final RopConverter<String, ?> converter;
+
+        private final boolean primitive;
+
+        private FieldPlan(Field field, RopConverter<String, ?> converter) {
+            this.field = field;
+            this.name = field.getName();
+            this.converter = converter;
+            this.primitive = field.getType().isPrimitive();
+        }
+
+        /**
+         * 读取请求对象中该参数的值，字段在解析时已经设置为可访问
+         *
+         * @param target
+         * @return
+         */
+        public Object getValue(Object target) {
+            try {
+                return field.get(target);
+            } catch (IllegalAccessException e) {
+                throw new IllegalArgumentException(e);
+            }
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public RopConverter<String, ?> getConverter() {
+            return converter;
+        }
+
+        public boolean isPrimitive() {
+            return primitive;
+        }
+    }
+}
@@ -91,6 +91,14 @@ public interface RopClient {
      */
     RopClient setSignParamName(String paramName);
 
+    /**
+     * 设置请求体摘要的参数名，参见{@link ClientRequest#postBody(Object, Class, String, String)}
+     *
+     * @param paramName
+     * @return RopClient
+     */
+    RopClient setBodyDigestParamName(String paramName);
+
     /**
      * 设置sessionId
      *
@@ -110,5 +118,11 @@ public interface RopClient {
      * @return
      */
     ClientRequest buildClientRequest();
+
+    /**
+     * 创建一个新的批量调用请求
+     * @return
+     */
+    BatchClientRequest buildBatchClientRequest();
 }
 
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2012-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.rop.client.balance;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <pre>
+ * 功能说明：负载均衡的基类，负责被动健康检查：服务地址连续失败达到阈值后被摘除一段时间，
+ * 摘除期满后重新参与选择，再次失败时立即被摘除。所有地址都被摘除时仍在全部地址中选择，避免请求无处可发。
+ * 子类只需在可用的地址中按各自的策略选择一个。
+ * </pre>
+ *
+ * @author 陈雄华
+ * @version 1.0
+ */
+public abstract class AbstractLoadBalancer implements LoadBalancer {
+
+    protected final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final List<Endpoint> endpoints;
+
+    //选择的起始位置，使负载相同的地址轮流被选中
+    private final AtomicInteger offset = new AtomicInteger();
+
+    //连续失败多少次后摘除
+    private int failureThreshold = 3;
+
+    //摘除的时间（毫秒）
+    private long ejectionTime = 1000 * 30;
+
+    protected AbstractLoadBalancer(Collection<String> urls) {
+        if (urls == null || urls.isEmpty()) {
+            throw new IllegalArgumentException("at least one server url is required");
+        }
+        List<Endpoint> list = new ArrayList<Endpoint>(urls.size());
+        for (String url : urls) {
+            list.add(new Endpoint(url));
+        }
+        this.endpoints = Collections.unmodifiableList(list);
+    }
+
+    public Endpoint select() {
+        long now = System.currentTimeMillis();
+        List<Endpoint> candidates = new ArrayList<Endpoint>(endpoints.size());
+        for (Endpoint endpoint : endpoints) {
+            if (!endpoint.isEjected(now)) {
+                candidates.add(endpoint);
+            }
+        }
+        if (candidates.isEmpty()) {
+            candidates = endpoints;
+        }
+        Endpoint endpoint = candidates.size() == 1 ? candidates.get(0) : choose(candidates, offset.getAndIncrement() & Integer.MAX_VALUE);
+        endpoint.incrementOutstanding();
+        return endpoint;
+    }
+
+    /**
+     * 在可用的服务地址中选择一个
+     *
+     * @param candidates 可用的服务地址，至少有两个
+     * @param offset     非负的起始位置，负载相同时应从该位置开始轮流选择
+     * @return
+     */
+    protected abstract Endpoint choose(List<Endpoint> candidates, int offset);
+
+    public void complete(Endpoint endpoint, long latency, boolean failed) {
+        endpoint.decrementOutstanding();
+        long now = System.currentTimeMillis();
+        if (failed) {
+            int failures = endpoint.recordFailure();
+            if (failures >= failureThreshold) {
+                endpoint.eject(now + ejectionTime);
+                if (logger.isDebugEnabled()) {
+                    logger.debug("服务地址{}连续失败{}次，摘除{}毫秒", new Object[]{endpoint, failures, ejectionTime});
+                }
+            }
+        } else {
+            endpoint.recordSuccess();
+            onSuccess(endpoint, latency, now);
+        }
+    }
+
+    public void cancel(Endpoint endpoint) {
+        endpoint.decrementOutstanding();
+    }
+
+    /**
+     * 请求成功后的回调，子类可据此更新响应时间等统计信息
+     *
+     * @param endpoint
+     * @param latency
+     * @param now
+     */
+    protected void onSuccess(Endpoint endpoint, long latency, long now) {
+    }
+
+    public List<Endpoint> getEndpoints() {
+        return endpoints;
+    }
+
+    public void setFailureThreshold(int failureThreshold) {
+        this.failureThreshold = failureThreshold;
+    }
+
+    public void setEjectionTime(long ejectionTime) {
+        this.ejectionTime = ejectionTime;
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2012-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.rop.client.balance;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <pre>
+ * 功能说明：一个ROP服务地址及其负载统计信息，包括在途请求数、响应时间的指数加权移动平均值（EWMA）
+ * 以及被动健康检查的连续失败次数和摘除截止时间。统计信息由{@link LoadBalancer}维护。
+ * </pre>
+ *
+ * @author 陈雄华
+ * @version 1.0
+ */
+public class Endpoint {
+
+    private final String url;
+
+    private final AtomicInteger outstanding = new AtomicInteger();
+
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+
+    //响应时间的EWMA（毫秒），小于0表示还没有样本
+    private double ewma = -1;
+
+    private long lastSampleTime;
+
+    private volatile long ejectedUntil;
+
+    public Endpoint(String url) {
+        this.url = url;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    /**
+     * @return 当前在途的请求数
+     */
+    public int getOutstanding() {
+        return outstanding.get();
+    }
+
+    /**
+     * @return 响应时间的EWMA（毫秒），还没有样本时返回0
+     */
+    public synchronized double getEwma() {
+        return ewma < 0 ? 0 : ewma;
+    }
+
+    public int getConsecutiveFailures() {
+        return consecutiveFailures.get();
+    }
+
+    /**
+     * 是否已被摘除
+     *
+     * @param now
+     * @return
+     */
+    public boolean isEjected(long now) {
+        return ejectedUntil > now;
+    }
+
+    public long getEjectedUntil() {
+        return ejectedUntil;
+    }
+
+    int incrementOutstanding() {
+        return outstanding.incrementAndGet();
+    }
+
+    int decrementOutstanding() {
+        return outstanding.decrementAndGet();
+    }
+
+    /**
+     * 记录一次响应时间，权重随样本间隔按指数衰减；响应时间高于当前值时直接取峰值，使变慢的节点能被迅速避开
+     *
+     * @param latency   响应时间（毫秒）
+     * @param now
+     * @param decayTime 衰减时间常数（毫秒）
+     */
+    synchronized void observe(long latency, long now, long decayTime) {
+        if (ewma < 0 || latency > ewma) {
+            ewma = latency;
+        } else {
+            double weight = Math.exp(-(double) (now - lastSampleTime) / decayTime);
+            ewma = ewma * weight + latency * (1 - weight);
+        }
+        lastSampleTime = now;
+    }
+
+    int recordFailure() {
+        return consecutiveFailures.incrementAndGet();
+    }
+
+    void recordSuccess() {
+        consecutiveFailures.set(0);
+    }
+
+    void eject(long until) {
+        ejectedUntil = until;
+    }
+
+    @Override
+    public String toString() {
+        return url;
+    }
+}
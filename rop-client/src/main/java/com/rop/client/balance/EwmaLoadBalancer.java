@@ -0,0 +1,63 @@
+/*
+ * Copyright 2012-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.rop.client.balance;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * <pre>
+ * 功能说明：按响应时间的EWMA选择服务地址，代价为EWMA×(在途请求数+1)，选择代价最小的地址。
+ * 还没有响应时间样本的地址代价为0，会被优先选择以获得样本。
+ * </pre>
+ *
+ * @author 陈雄华
+ * @version 1.0
+ */
+public class EwmaLoadBalancer extends AbstractLoadBalancer {
+
+    //EWMA的衰减时间常数（毫秒）
+    private long decayTime = 1000 * 10;
+
+    public EwmaLoadBalancer(Collection<String> urls) {
+        super(urls);
+    }
+
+    @Override
+    protected Endpoint choose(List<Endpoint> candidates, int offset) {
+        int size = candidates.size();
+        Endpoint best = null;
+        double bestCost = Double.MAX_VALUE;
+        for (int i = 0; i < size; i++) {
+            Endpoint endpoint = candidates.get((offset + i) % size);
+            double cost = endpoint.getEwma() * (endpoint.getOutstanding() + 1);
+            if (cost < bestCost) {
+                best = endpoint;
+                bestCost = cost;
+            }
+        }
+        return best;
+    }
+
+    @Override
+    protected void onSuccess(Endpoint endpoint, long latency, long now) {
+        endpoint.observe(latency, now, decayTime);
+    }
+
+    public void setDecayTime(long decayTime) {
+        this.decayTime = decayTime;
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2012-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.rop.client.balance;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * <pre>
+ * 功能说明：选择在途请求数最少的服务地址，在途请求数相同时轮流选择
+ * </pre>
+ *
+ * @author 陈雄华
+ * @version 1.0
+ */
+public class LeastOutstandingLoadBalancer extends AbstractLoadBalancer {
+
+    public LeastOutstandingLoadBalancer(Collection<String> urls) {
+        super(urls);
+    }
+
+    @Override
+    protected Endpoint choose(List<Endpoint> candidates, int offset) {
+        int size = candidates.size();
+        Endpoint best = null;
+        int bestOutstanding = Integer.MAX_VALUE;
+        for (int i = 0; i < size; i++) {
+            Endpoint endpoint = candidates.get((offset + i) % size);
+            int outstanding = endpoint.getOutstanding();
+            if (outstanding < bestOutstanding) {
+                best = endpoint;
+                bestOutstanding = outstanding;
+            }
+        }
+        return best;
+    }
+}
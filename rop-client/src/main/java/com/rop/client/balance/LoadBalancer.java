@@ -0,0 +1,59 @@
+/*
+ * Copyright 2012-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.rop.client.balance;
+
+import java.util.List;
+
+/**
+ * <pre>
+ * 功能说明：在多个ROP服务地址之间选择本次请求使用的地址。
+ * 每次{@link #select()}都必须在请求结束后调用一次{@link #complete(Endpoint, long, boolean)}，
+ * 请求没有发出时则调用{@link #cancel(Endpoint)}。
+ * </pre>
+ *
+ * @author 陈雄华
+ * @version 1.0
+ */
+public interface LoadBalancer {
+
+    /**
+     * 选择本次请求使用的服务地址，并将其在途请求数加1
+     *
+     * @return
+     */
+    Endpoint select();
+
+    /**
+     * 请求结束，更新服务地址的负载统计信息
+     *
+     * @param endpoint
+     * @param latency  响应时间（毫秒）
+     * @param failed   连接失败、服务端拒绝服务等表明节点不健康的情况
+     */
+    void complete(Endpoint endpoint, long latency, boolean failed);
+
+    /**
+     * 选择了服务地址但请求没有发出（如熔断），只恢复在途请求数，不影响统计信息
+     *
+     * @param endpoint
+     */
+    void cancel(Endpoint endpoint);
+
+    /**
+     * @return 所有服务地址
+     */
+    List<Endpoint> getEndpoints();
+}
@@ -0,0 +1,205 @@
+/**
+ * Copyright 2012-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.rop.client.breaker;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <pre>
+ * 功能说明：一个服务地址上一个服务方法（名称及版本）的熔断器。
+ * 关闭状态下按最近{@link CircuitBreakerConfig#getWindowSize()}次调用统计失败率及慢调用率，
+ * 任一比率达到阈值时打开，打开期间请求立即失败，不再占用调用线程；
+ * 打开期满后进入半开状态，放行若干个探测请求，探测请求全部完成后按其失败率及慢调用率决定关闭还是再次打开。
+ * </pre>
+ *
+ * @author 陈雄华
+ * @version 1.0
+ */
+public class CircuitBreaker {
+
+    private final String name;
+
+    private final CircuitBreakerConfig config;
+
+    private final List<CircuitBreakerListener> listeners;
+
+    //最近调用的结果，按位记录：1为失败，2为慢调用
+    private final byte[] outcomes;
+
+    private int count;
+
+    private int next;
+
+    private int failedCalls;
+
+    private int slowCalls;
+
+    private CircuitBreakerState state = CircuitBreakerState.CLOSED;
+
+    private long openUntil;
+
+    //半开状态下剩余可放行的探测请求数
+    private int probePermits;
+
+    //半开状态下尚未完成的探测请求数
+    private int probesInFlight;
+
+    private final AtomicLong notPermittedCalls = new AtomicLong();
+
+    CircuitBreaker(String name, CircuitBreakerConfig config, List<CircuitBreakerListener> listeners) {
+        this.name = name;
+        this.config = config;
+        this.listeners = listeners;
+        this.outcomes = new byte[config.getWindowSize()];
+    }
+
+    /**
+     * 发送请求前调用
+     *
+     * @return 是否放行，返回true时请求结束后必须调用{@link #onComplete(long, boolean)}
+     */
+    public boolean tryAcquire() {
+        CircuitBreakerState from = null;
+        boolean permitted;
+        synchronized (this) {
+            if (state == CircuitBreakerState.OPEN && System.currentTimeMillis() >= openUntil) {
+                from = transitionTo(CircuitBreakerState.HALF_OPEN);
+            }
+            if (state == CircuitBreakerState.CLOSED) {
+                permitted = true;
+            } else if (state == CircuitBreakerState.HALF_OPEN && probePermits > 0) {
+                probePermits--;
+                probesInFlight++;
+                permitted = true;
+            } else {
+                permitted = false;
+            }
+        }
+        if (from != null) {
+            fireStateChange(from, CircuitBreakerState.HALF_OPEN);
+        }
+        if (!permitted) {
+            notPermittedCalls.incrementAndGet();
+        }
+        return permitted;
+    }
+
+    /**
+     * 请求结束后调用
+     *
+     * @param duration 响应时间（毫秒）
+     * @param failed   是否失败
+     */
+    public void onComplete(long duration, boolean failed) {
+        CircuitBreakerState from = null;
+        CircuitBreakerState to = null;
+        synchronized (this) {
+            record(failed, duration >= config.getSlowCallDuration());
+            if (state == CircuitBreakerState.CLOSED) {
+                if (count >= config.getMinimumCalls() && isOverThreshold()) {
+                    to = CircuitBreakerState.OPEN;
+                }
+            } else if (state == CircuitBreakerState.HALF_OPEN) {
+                probesInFlight = Math.max(0, probesInFlight - 1);
+                if (probePermits == 0 && probesInFlight == 0) {
+                    to = isOverThreshold() ? CircuitBreakerState.OPEN : CircuitBreakerState.CLOSED;
+                }
+            }
+            if (to != null) {
+                from = transitionTo(to);
+            }
+        }
+        if (to != null) {
+            fireStateChange(from, to);
+        }
+    }
+
+    private void record(boolean failed, boolean slow) {
+        if (count == outcomes.length) {
+            byte evicted = outcomes[next];
+            failedCalls -= evicted & 1;
+            slowCalls -= (evicted >> 1) & 1;
+        } else {
+            count++;
+        }
+        outcomes[next] = (byte) ((failed ? 1 : 0) | (slow ? 2 : 0));
+        failedCalls += failed ? 1 : 0;
+        slowCalls += slow ? 1 : 0;
+        next = (next + 1) % outcomes.length;
+    }
+
+    private boolean isOverThreshold() {
+        return failedCalls * 100 >= config.getFailureRateThreshold() * count
+                || slowCalls * 100 >= config.getSlowCallRateThreshold() * count;
+    }
+
+    private CircuitBreakerState transitionTo(CircuitBreakerState to) {
+        CircuitBreakerState from = state;
+        state = to;
+        count = 0;
+        next = 0;
+        failedCalls = 0;
+        slowCalls = 0;
+        if (to == CircuitBreakerState.OPEN) {
+            openUntil = System.currentTimeMillis() + config.getOpenDuration();
+        } else if (to == CircuitBreakerState.HALF_OPEN) {
+            probePermits = config.getHalfOpenCalls();
+            probesInFlight = 0;
+        }
+        return from;
+    }
+
+    private void fireStateChange(CircuitBreakerState from, CircuitBreakerState to) {
+        for (CircuitBreakerListener listener : listeners) {
+            listener.onStateChange(this, from, to);
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public synchronized CircuitBreakerState getState() {
+        return state;
+    }
+
+    /**
+     * @return 当前统计窗口内的失败率（百分比），没有调用时返回0
+     */
+    public synchronized float getFailureRate() {
+        return count == 0 ? 0 : failedCalls * 100f / count;
+    }
+
+    /**
+     * @return 当前统计窗口内的慢调用率（百分比），没有调用时返回0
+     */
+    public synchronized float getSlowCallRate() {
+        return count == 0 ? 0 : slowCalls * 100f / count;
+    }
+
+    /**
+     * @return 因熔断而没有发出的请求数
+     */
+    public long getNotPermittedCalls() {
+        return notPermittedCalls.get();
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,104 @@
+/**
+ * Copyright 2012-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.rop.client.breaker;
+
+/**
+ * <pre>
+ * 功能说明：熔断器的配置，同一个{@link CircuitBreakerRegistry}中的熔断器共用一份配置
+ * </pre>
+ *
+ * @author 陈雄华
+ * @version 1.0
+ */
+public class CircuitBreakerConfig {
+
+    //统计最近多少次调用
+    private int windowSize = 50;
+
+    //统计窗口内至少有多少次调用才计算比率
+    private int minimumCalls = 10;
+
+    //失败率阈值（百分比）
+    private int failureRateThreshold = 50;
+
+    //慢调用率阈值（百分比）
+    private int slowCallRateThreshold = 80;
+
+    //响应时间超过该值（毫秒）即为慢调用
+    private long slowCallDuration = 1000 * 5;
+
+    //打开状态的持续时间（毫秒）
+    private long openDuration = 1000 * 30;
+
+    //半开状态放行的探测请求数
+    private int halfOpenCalls = 3;
+
+    public int getWindowSize() {
+        return windowSize;
+    }
+
+    public void setWindowSize(int windowSize) {
+        this.windowSize = windowSize;
+    }
+
+    public int getMinimumCalls() {
+        return minimumCalls;
+    }
+
+    public void setMinimumCalls(int minimumCalls) {
+        this.minimumCalls = minimumCalls;
+    }
+
+    public int getFailureRateThreshold() {
+        return failureRateThreshold;
+    }
+
+    public void setFailureRateThreshold(int failureRateThreshold) {
+        this.failureRateThreshold = failureRateThreshold;
+    }
+
+    public int getSlowCallRateThreshold() {
+        return slowCallRateThreshold;
+    }
+
+    public void setSlowCallRateThreshold(int slowCallRateThreshold) {
+        this.slowCallRateThreshold = slowCallRateThreshold;
+    }
+
+    public long getSlowCallDuration() {
+        return slowCallDuration;
+    }
+
+    public void setSlowCallDuration(long slowCallDuration) {
+        this.slowCallDuration = slowCallDuration;
+    }
+
+    public long getOpenDuration() {
+        return openDuration;
+    }
+
+    public void setOpenDuration(long openDuration) {
+        this.openDuration = openDuration;
+    }
+
+    public int getHalfOpenCalls() {
+        return halfOpenCalls;
+    }
+
+    public void setHalfOpenCalls(int halfOpenCalls) {
+        this.halfOpenCalls = halfOpenCalls;
+    }
+}
@@ -0,0 +1,36 @@
+/**
+ * Copyright 2012-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.rop.client.breaker;
+
+/**
+ * <pre>
+ * 功能说明：熔断器状态变化的监听器，可用于报警或上报监控指标
+ * </pre>
+ *
+ * @author 陈雄华
+ * @version 1.0
+ */
+public interface CircuitBreakerListener {
+
+    /**
+     * 熔断器的状态发生了变化
+     *
+     * @param circuitBreaker
+     * @param from
+     * @param to
+     */
+    void onStateChange(CircuitBreaker circuitBreaker, CircuitBreakerState from, CircuitBreakerState to);
+}
@@ -0,0 +1,44 @@
+/**
+ * Copyright 2012-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.rop.client.breaker;
+
+import java.io.IOException;
+
+/**
+ * <pre>
+ * 功能说明：熔断器打开时请求没有发出，直接抛出该异常。
+ * 请求并未到达服务端，因此可以安全地在其它服务地址上重试。
+ * </pre>
+ *
+ * @author 陈雄华
+ * @version 1.0
+ */
+public class CircuitBreakerOpenException extends IOException {
+
+    private final String name;
+
+    public CircuitBreakerOpenException(String name) {
+        super("circuit breaker " + name + " is open");
+        this.name = name;
+    }
+
+    /**
+     * @return 熔断器的名称
+     */
+    public String getName() {
+        return name;
+    }
+}
@@ -0,0 +1,99 @@
+/**
+ * Copyright 2012-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.rop.client.breaker;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * <pre>
+ * 功能说明：按服务地址、服务方法名及版本管理熔断器，熔断器在第一次使用时创建。
+ * 通过{@link #addListener(CircuitBreakerListener)}监听熔断器的状态变化，
+ * 通过{@link #getCircuitBreakers()}获取各熔断器的状态及统计指标。
+ * </pre>
+ *
+ * @author 陈雄华
+ * @version 1.0
+ */
+public class CircuitBreakerRegistry {
+
+    protected final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final CircuitBreakerConfig config;
+
+    private final ConcurrentMap<String, CircuitBreaker> circuitBreakers = new ConcurrentHashMap<String, CircuitBreaker>();
+
+    private final List<CircuitBreakerListener> listeners = new CopyOnWriteArrayList<CircuitBreakerListener>();
+
+    public CircuitBreakerRegistry() {
+        this(new CircuitBreakerConfig());
+    }
+
+    public CircuitBreakerRegistry(CircuitBreakerConfig config) {
+        this.config = config;
+        listeners.add(new CircuitBreakerListener() {
+            public void onStateChange(CircuitBreaker circuitBreaker, CircuitBreakerState from, CircuitBreakerState to) {
+                if (logger.isInfoEnabled()) {
+                    logger.info("熔断器{}的状态由{}变为{}", new Object[]{circuitBreaker, from, to});
+                }
+            }
+        });
+    }
+
+    /**
+     * 获取熔断器，不存在时创建
+     *
+     * @param url     服务地址
+     * @param method  服务方法名
+     * @param version 服务方法版本
+     * @return
+     */
+    public CircuitBreaker get(String url, String method, String version) {
+        String name = url + "#" + method + ":" + version;
+        CircuitBreaker circuitBreaker = circuitBreakers.get(name);
+        if (circuitBreaker == null) {
+            circuitBreaker = new CircuitBreaker(name, config, listeners);
+            CircuitBreaker existing = circuitBreakers.putIfAbsent(name, circuitBreaker);
+            if (existing != null) {
+                circuitBreaker = existing;
+            }
+        }
+        return circuitBreaker;
+    }
+
+    public void addListener(CircuitBreakerListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(CircuitBreakerListener listener) {
+        listeners.remove(listener);
+    }
+
+    public Collection<CircuitBreaker> getCircuitBreakers() {
+        return Collections.unmodifiableCollection(circuitBreakers.values());
+    }
+
+    public CircuitBreakerConfig getConfig() {
+        return config;
+    }
+}
@@ -0,0 +1,36 @@
+/**
+ * Copyright 2012-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.rop.client.breaker;
+
+/**
+ * <pre>
+ * 功能说明：熔断器的状态
+ * </pre>
+ *
+ * @author 陈雄华
+ * @version 1.0
+ */
+public enum CircuitBreakerState {
+
+    //正常放行请求，统计失败率及慢调用率
+    CLOSED,
+
+    //熔断中，请求立即失败
+    OPEN,
+
+    //熔断期满，放行少量探测请求，根据探测结果关闭或再次打开
+    HALF_OPEN
+}
@@ -0,0 +1,241 @@
+/**
+ * Copyright 2012-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.rop.client.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <pre>
+ * 功能说明：客户端的响应缓存，通过{@link com.rop.client.DefaultRopClient#setResponseCache(ResponseCache)}启用，只缓存GET请求的成功响应。
+ * 缓存的是反序列化后的响应对象，命中时既不发送HTTP请求，也不反序列化报文。缓存按服务端的报文头决定：
+ * 1.Cache-Control的max-age内直接使用缓存；
+ * 2.过期或服务端要求no-cache时，如果有ETag则带上If-None-Match发送条件请求，服务端返回304时继续使用缓存；
+ * 3.Cache-Control为no-store，或既没有max-age也没有ETag的响应不缓存。
+ * 缓存的键由除签名外的所有请求参数排序后组成，包括服务方法名、版本、appKey及会话，因此不同会话的响应不会混用。
+ * 缓存的响应对象被多个调用共享，调用方不应修改。
+ * </pre>
+ *
+ * @author 陈雄华
+ * @version 1.0
+ */
+public class ResponseCache {
+
+    public static final String ETAG = "ETag";
+
+    public static final String IF_NONE_MATCH = "If-None-Match";
+
+    public static final String CACHE_CONTROL = "Cache-Control";
+
+    private static final long NO_STORE = -2;
+
+    private final Map<String, Entry> entries;
+
+    private final AtomicLong hitCount = new AtomicLong();
+
+    private final AtomicLong missCount = new AtomicLong();
+
+    private final AtomicLong revalidatedCount = new AtomicLong();
+
+    public ResponseCache() {
+        this(1000);
+    }
+
+    /**
+     * @param maxEntries 最多缓存的响应数，超过时淘汰最近最少使用的响应
+     */
+    public ResponseCache(final int maxEntries) {
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, ResponseCache.Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * 根据请求参数生成缓存的键
+     *
+     * @param params   请求参数
+     * @param signName 签名参数名，不参与生成键
+     * @return
+     */
+    public String createKey(Map<String, String> params, String signName) {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, String> param : new TreeMap<String, String>(params).entrySet()) {
+            if (param.getKey().equals(signName)) {
+                continue;
+            }
+            sb.append(param.getKey()).append('=').append(param.getValue()).append('&');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 获取缓存的响应，包括已过期但可以重新验证的响应
+     *
+     * @param key
+     * @return 没有缓存时返回null
+     */
+    public Entry get(String key) {
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+        }
+        if (entry != null && entry.isFresh(System.currentTimeMillis())) {
+            hitCount.incrementAndGet();
+        } else {
+            missCount.incrementAndGet();
+        }
+        return entry;
+    }
+
+    /**
+     * 缓存服务端的成功响应，响应不允许缓存时忽略
+     *
+     * @param key
+     * @param response     反序列化后的响应对象
+     * @param etag         服务端返回的ETag
+     * @param cacheControl 服务端返回的Cache-Control
+     */
+    public void put(String key, Object response, String etag, String cacheControl) {
+        long maxAge = parseMaxAge(cacheControl);
+        if (maxAge == NO_STORE || (maxAge < 0 && etag == null)) {
+            synchronized (entries) {
+                entries.remove(key);
+            }
+            return;
+        }
+        Entry entry = new Entry(response, etag, System.currentTimeMillis() + Math.max(maxAge, 0) * 1000);
+        synchronized (entries) {
+            entries.put(key, entry);
+        }
+    }
+
+    /**
+     * 服务端返回304，缓存的响应仍然有效，按新的Cache-Control更新过期时间
+     *
+     * @param key
+     * @param entry
+     * @param cacheControl
+     * @return 更新后的缓存项
+     */
+    public Entry revalidate(String key, Entry entry, String cacheControl) {
+        revalidatedCount.incrementAndGet();
+        long maxAge = parseMaxAge(cacheControl);
+        Entry revalidated = new Entry(entry.getResponse(), entry.getEtag(), System.currentTimeMillis() + Math.max(maxAge, 0) * 1000);
+        synchronized (entries) {
+            entries.put(key, revalidated);
+        }
+        return revalidated;
+    }
+
+    public void invalidate(String key) {
+        synchronized (entries) {
+            entries.remove(key);
+        }
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * @return 命中新鲜缓存的次数
+     */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * @return 条件请求返回304的次数
+     */
+    public long getRevalidatedCount() {
+        return revalidatedCount.get();
+    }
+
+    /**
+     * 解析Cache-Control
+     *
+     * @param cacheControl
+     * @return max-age（秒），no-cache返回0，没有max-age时返回-1，no-store返回-2
+     */
+    static long parseMaxAge(String cacheControl) {
+        if (cacheControl == null) {
+            return -1;
+        }
+        long maxAge = -1;
+        for (String directive : cacheControl.split(",")) {
+            directive = directive.trim().toLowerCase();
+            if (directive.equals("no-store")) {
+                return NO_STORE;
+            } else if (directive.equals("no-cache")) {
+                maxAge = 0;
+            } else if (directive.startsWith("max-age=") && maxAge != 0) {
+                try {
+                    maxAge = Long.parseLong(directive.substring("max-age=".length()).trim());
+                } catch (NumberFormatException e) {
+                    maxAge = 0;
+                }
+            }
+        }
+        return maxAge;
+    }
+
+    /**
+     * 缓存项，创建后不再修改
+     */
+    public static class Entry {
+
+        private final Object response;
+
+        private final String etag;
+
+        private final long expiresAt;
+
+        Entry(Object response, String etag, long expiresAt) {
+            this.response = response;
+            this.etag = etag;
+            this.expiresAt = expiresAt;
+        }
+
+        public Object getResponse() {
+            return response;
+        }
+
+        public String getEtag() {
+            return etag;
+        }
+
+        public boolean isFresh(long now) {
+            return now < expiresAt;
+        }
+    }
+}
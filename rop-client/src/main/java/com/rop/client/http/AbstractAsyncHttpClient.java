@@ -0,0 +1,366 @@
+/**
+ * Copyright 2012-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.rop.client.http;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 非阻塞http请求客户端的基类，负责限制同时在途的请求数并控制每个请求的截止时间。
+ * <p>
+ * 在途请求达到上限时，新请求进入等待队列而不阻塞调用线程，有请求完成后再依次发出；
+ * 请求在等待队列中的时间也计入超时时间。请求超时或被调用方取消时，底层的请求同时被取消。
+ * 同步的请求方法通过等待异步请求的结果实现。
+ * </p>
+ * @author liangruisen
+ *
+ */
+public abstract class AbstractAsyncHttpClient implements AsyncHttpClient, Closeable {
+
+	public static final int DEFAULT_MAX_IN_FLIGHT = 64;
+
+	private final Semaphore permits;
+
+	private final Queue<AsyncCall> pendingCalls = new ConcurrentLinkedQueue<AsyncCall>();
+
+	private final ScheduledExecutorService timer;
+
+	// 默认的请求超时时间（毫秒）
+	private volatile long defaultTimeout = 1000 * 30;
+
+	protected AbstractAsyncHttpClient(int maxInFlight) {
+		this.permits = new Semaphore(maxInFlight);
+		this.timer = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread thread = new Thread(r, "rop-http-deadline-timer");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * 发出请求，请求完成、失败或取消时必须以相应的方式完成result
+	 * @param heads
+	 * @param url
+	 * @param method
+	 * @param params
+	 * @param timeout 请求的剩余超时时间（毫秒）
+	 * @param result
+	 * @return 用于取消底层请求的Future
+	 * @throws IOException
+	 */
+	protected abstract Future<?> doExecute(Map<String, String> heads, String url, String method,
+			Map<String, String> params, int timeout, CompletableFuture<HttpResponse> result) throws IOException;
+
+	/**
+	 * 以请求体发出POST请求，请求参数拼接在URL中，请求完成、失败或取消时必须以相应的方式完成result
+	 * @param heads
+	 * @param url
+	 * @param params
+	 * @param contentType 请求体的类型
+	 * @param body 请求体内容
+	 * @param timeout 请求的剩余超时时间（毫秒）
+	 * @param result
+	 * @return 用于取消底层请求的Future
+	 * @throws IOException
+	 */
+	protected abstract Future<?> doPostBody(Map<String, String> heads, String url, Map<String, String> params,
+			String contentType, byte[] body, int timeout, CompletableFuture<HttpResponse> result) throws IOException;
+
+	/**
+	 * @see com.rop.client.http.AsyncHttpClient#executeAsync(java.util.Map,
+	 * java.lang.String, java.lang.String, java.util.Map, long)
+	 */
+	@Override
+	public CompletableFuture<HttpResponse> executeAsync(Map<String, String> heads, String url, String method,
+			Map<String, String> params, long timeout) {
+		return submit(heads, url, method, params, null, null, timeout);
+	}
+
+	/**
+	 * @see com.rop.client.http.AsyncHttpClient#postBodyAsync(java.util.Map,
+	 * java.lang.String, java.util.Map, java.lang.String, byte[], long)
+	 */
+	@Override
+	public CompletableFuture<HttpResponse> postBodyAsync(Map<String, String> heads, String url,
+			Map<String, String> params, String contentType, byte[] body, long timeout) {
+		return submit(heads, url, "POST", params, contentType, body, timeout);
+	}
+
+	private CompletableFuture<HttpResponse> submit(Map<String, String> heads, final String url, String method,
+			Map<String, String> params, String contentType, byte[] body, long timeout) {
+		final long deadlineTimeout = timeout > 0 ? timeout : defaultTimeout;
+		final CompletableFuture<HttpResponse> result = new CompletableFuture<HttpResponse>();
+		final AsyncCall call = new AsyncCall(heads, url, method, params, contentType, body,
+				System.currentTimeMillis() + deadlineTimeout, result);
+		final ScheduledFuture<?> deadline = timer.schedule(() -> result.completeExceptionally(
+				new TimeoutException("request to " + url + " timed out after " + deadlineTimeout + "ms")),
+				deadlineTimeout, TimeUnit.MILLISECONDS);
+		result.whenComplete((response, e) -> {
+			deadline.cancel(false);
+			call.finish();
+		});
+		pendingCalls.add(call);
+		dispatch();
+		return result;
+	}
+
+	/**
+	 * 在有空闲配额时依次发出等待队列中的请求
+	 */
+	private void dispatch() {
+		while (!pendingCalls.isEmpty() && permits.tryAcquire()) {
+			AsyncCall call = pendingCalls.poll();
+			if (call == null) {
+				permits.release();
+			} else {
+				call.start();
+			}
+		}
+	}
+
+	/**
+	 * @see com.rop.client.http.HttpClient#execute(java.util.Map,
+	 * java.lang.String, java.lang.String, java.util.Map)
+	 */
+	@Override
+	public HttpResponse execute(Map<String, String> heads, String url, String method, Map<String, String> params)
+			throws IOException {
+		return await(executeAsync(heads, url, method, params, 0));
+	}
+
+	/**
+	 * @see com.rop.client.http.HttpClient#postBody(java.util.Map,
+	 * java.lang.String, java.util.Map, java.lang.String, byte[])
+	 */
+	@Override
+	public HttpResponse postBody(Map<String, String> heads, String url, Map<String, String> params, String contentType,
+			byte[] body) throws IOException {
+		return await(postBodyAsync(heads, url, params, contentType, body, 0));
+	}
+
+	/**
+	 * 等待异步请求的结果，将失败原因还原为IOException
+	 * @param future
+	 * @return
+	 * @throws IOException
+	 */
+	private HttpResponse await(CompletableFuture<HttpResponse> future) throws IOException {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException(e.getMessage());
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+			if (cause instanceof TimeoutException) {
+				throw new SocketTimeoutException(cause.getMessage());
+			}
+			throw new IOException(cause);
+		}
+	}
+
+	/**
+	 * @see com.rop.client.http.HttpClient#get(java.lang.String)
+	 */
+	@Override
+	public HttpResponse get(String url) throws IOException {
+		return execute(null, url, "GET", null);
+	}
+
+	/**
+	 * @see com.rop.client.http.HttpClient#get(java.lang.String, java.util.Map)
+	 */
+	@Override
+	public HttpResponse get(String url, Map<String, String> params) throws IOException {
+		return execute(null, url, "GET", params);
+	}
+
+	/**
+	 * @see com.rop.client.http.HttpClient#get(java.util.Map,
+	 * java.lang.String)
+	 */
+	@Override
+	public HttpResponse get(Map<String, String> heads, String url) throws IOException {
+		return execute(heads, url, "GET", null);
+	}
+
+	/**
+	 * @see com.rop.client.http.HttpClient#get(java.util.Map, java.lang.String, java.util.Map)
+	 */
+	@Override
+	public HttpResponse get(Map<String, String> heads, String url, Map<String, String> params) throws IOException {
+		return execute(heads, url, "GET", params);
+	}
+
+	/**
+	 * @see
+	 * com.rop.client.http.HttpClient#post(java.lang.String)
+	 */
+	@Override
+	public HttpResponse post(String url) throws IOException {
+		return execute(null, url, "POST", null);
+	}
+
+	/**
+	 * @see com.rop.client.http.HttpClient#post(java.util.Map,
+	 * java.lang.String)
+	 */
+	@Override
+	public HttpResponse post(Map<String, String> heads, String url) throws IOException {
+		return execute(heads, url, "POST", null);
+	}
+
+	/**
+	 * @see
+	 * com.rop.client.http.HttpClient#post(java.lang.String,
+	 * java.util.Map)
+	 */
+	@Override
+	public HttpResponse post(String url, Map<String, String> params) throws IOException {
+		return execute(null, url, "POST", params);
+	}
+
+	/**
+	 * @see com.rop.client.http.HttpClient#post(java.util.Map,
+	 * java.lang.String, java.util.Map)
+	 */
+	@Override
+	public HttpResponse post(Map<String, String> heads, String url, Map<String, String> params) throws IOException {
+		return execute(heads, url, "POST", params);
+	}
+
+	/**
+	 * 停止超时计时线程，未完成的请求由子类负责取消
+	 * @see java.io.Closeable#close()
+	 */
+	@Override
+	public void close() throws IOException {
+		timer.shutdownNow();
+	}
+
+	/**
+	 * 设置默认的请求超时时间（毫秒）
+	 * @param defaultTimeout
+	 */
+	public void setDefaultTimeout(long defaultTimeout) {
+		this.defaultTimeout = defaultTimeout;
+	}
+
+	/**
+	 * 获取当前在等待队列中的请求数
+	 * @return
+	 */
+	public int getPendingCount() {
+		return pendingCalls.size();
+	}
+
+	/**
+	 * 一次异步请求，状态依次为等待、执行中和已结束
+	 */
+	private class AsyncCall {
+
+		private static final int PENDING = 0;
+
+		private static final int RUNNING = 1;
+
+		private static final int FINISHED = 2;
+
+		private final AtomicInteger state = new AtomicInteger(PENDING);
+
+		private final Map<String, String> heads;
+
+		private final String url;
+
+		private final String method;
+
+		private final Map<String, String> params;
+
+		// 请求体的类型及内容，不以请求体发送时为null
+		private final String contentType;
+
+		private final byte[] body;
+
+		private final long deadline;
+
+		private final CompletableFuture<HttpResponse> result;
+
+		private volatile Future<?> handle;
+
+		private AsyncCall(Map<String, String> heads, String url, String method, Map<String, String> params,
+				String contentType, byte[] body, long deadline, CompletableFuture<HttpResponse> result) {
+			this.heads = heads;
+			this.url = url;
+			this.method = method;
+			this.params = params;
+			this.contentType = contentType;
+			this.body = body;
+			this.deadline = deadline;
+			this.result = result;
+		}
+
+		/**
+		 * 已获得配额后发出请求，请求在等待期间已经结束时直接归还配额
+		 */
+		private void start() {
+			if (!state.compareAndSet(PENDING, RUNNING)) {
+				permits.release();
+				return;
+			}
+			try {
+				int remaining = (int) Math.max(deadline - System.currentTimeMillis(), 1);
+				handle = body == null ? doExecute(heads, url, method, params, remaining, result)
+						: doPostBody(heads, url, params, contentType, body, remaining, result);
+			} catch (Throwable e) {
+				result.completeExceptionally(e);
+			}
+			if (result.isDone() && handle != null) {
+				handle.cancel(true);
+			}
+		}
+
+		/**
+		 * 请求结束时取消底层请求并归还配额
+		 */
+		private void finish() {
+			if (state.getAndSet(FINISHED) == RUNNING) {
+				Future<?> current = handle;
+				if (current != null) {
+					current.cancel(true);
+				}
+				permits.release();
+				dispatch();
+			}
+		}
+	}
+}
@@ -0,0 +1,54 @@
+/**
+ * Copyright 2012-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.rop.client.http;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 非阻塞的http请求客户端接口，异步发送请求，调用线程不等待响应
+ * </p>
+ * @author liangruisen
+ *
+ */
+public interface AsyncHttpClient extends HttpClient {
+
+	/**
+	 * 设置HTTP Header信息并异步发送HTTP 请求
+	 * @param heads
+	 * @param url
+	 * @param method
+	 * @param params
+	 * @param timeout 从提交请求到收到响应的最长时间（毫秒），小于等于0时使用客户端的默认超时时间。
+	 *                超时后返回的CompletableFuture以{@link java.util.concurrent.TimeoutException}异常完成
+	 * @return CompletableFuture<HttpResponse>
+	 */
+	CompletableFuture<HttpResponse> executeAsync(Map<String, String> heads, String url, String method,
+			Map<String, String> params, long timeout);
+
+	/**
+	 * 设置HTTP Header信息并异步发送HTTP POST 请求，请求参数拼接在URL中，body作为请求体原样发送
+	 * @param heads
+	 * @param url
+	 * @param params
+	 * @param contentType 请求体的类型
+	 * @param body 请求体内容
+	 * @param timeout 从提交请求到收到响应的最长时间（毫秒），小于等于0时使用客户端的默认超时时间
+	 * @return CompletableFuture<HttpResponse>
+	 */
+	CompletableFuture<HttpResponse> postBodyAsync(Map<String, String> heads, String url, Map<String, String> params,
+			String contentType, byte[] body, long timeout);
+}
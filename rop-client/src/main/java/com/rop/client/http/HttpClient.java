@@ -107,4 +107,32 @@ public interface HttpClient {
 	 * @throws IOException
 	 */
 	HttpResponse execute(Map<String, String> heads, String url, String method, Map<String, String> params) throws IOException;
+
+	/**
+	 * 设置HTTP Header信息并同步发送HTTP 请求，响应内容不预先读入内存，由调用者从{@link HttpResponse#getInputStream()}中读取，
+	 * 用于下载文件等大的响应，读完后必须关闭响应以释放连接。默认实现与{@link #execute(Map, String, String, Map)}相同
+	 * @param heads
+	 * @param url
+	 * @param method
+	 * @param params
+	 * @return SimpleResponse
+	 * @throws IOException
+	 */
+	default HttpResponse executeStreaming(Map<String, String> heads, String url, String method, Map<String, String> params) throws IOException {
+		return execute(heads, url, method, params);
+	}
+
+	/**
+	 * 设置HTTP Header信息并同步发送HTTP POST 请求，请求参数拼接在URL中，body作为请求体原样发送，
+	 * 用于以JSON或XML请求体发送业务参数
+	 * @param heads
+	 * @param url
+	 * @param params
+	 * @param contentType 请求体的类型
+	 * @param body 请求体内容
+	 * @return SimpleResponse
+	 * @throws IOException
+	 */
+	HttpResponse postBody(Map<String, String> heads, String url, Map<String, String> params, String contentType,
+			byte[] body) throws IOException;
 }
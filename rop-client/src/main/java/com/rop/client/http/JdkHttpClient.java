@@ -31,6 +31,28 @@ import java.util.Map;
  */
 public class JdkHttpClient implements HttpClient {
 
+	// 建立连接的超时时间（毫秒）
+	private int connectTimeout = 1000 * 10;
+
+	// 读取响应的超时时间（毫秒）
+	private int readTimeout = 1000 * 30;
+
+	/**
+	 * 设置建立连接的超时时间（毫秒）
+	 * @param connectTimeout
+	 */
+	public void setConnectTimeout(int connectTimeout) {
+		this.connectTimeout = connectTimeout;
+	}
+
+	/**
+	 * 设置读取响应的超时时间（毫秒）
+	 * @param readTimeout
+	 */
+	public void setReadTimeout(int readTimeout) {
+		this.readTimeout = readTimeout;
+	}
+
 	/**
 	 * @see com.rop.client.http.HttpClient#get(java.lang.String)
 	 */
@@ -113,6 +135,23 @@ public class JdkHttpClient implements HttpClient {
 		return execute(request);
 	}
 
+	/**
+	 * @see com.rop.client.http.HttpClient#postBody(Map, String, Map, String, byte[])
+	 */
+	@Override
+	public HttpResponse postBody(Map<String, String> heads, String url, Map<String, String> params, String contentType,
+			byte[] body) throws IOException {
+		JdkHttpRequest request = new JdkHttpRequest();
+		request.setMethod("POST");
+		request.setUrl(new URL(appendUrlParams(url, params)));
+		JdkHttpRequestBody requestBody = new JdkHttpRequestBody();
+		requestBody.setType(contentType);
+		requestBody.write(body);
+		request.setBody(requestBody);
+		addHeaders(request, heads);
+		return execute(request);
+	}
+
 	private JdkHttpResponse execute(JdkHttpRequest request) throws IOException {
 		HttpURLConnection connection = (HttpURLConnection) request.getUrl().openConnection();
 		JdkHttpResponse response = new JdkHttpResponse(request, connection);
@@ -126,8 +165,8 @@ public class JdkHttpClient implements HttpClient {
 				}
 			}
 		}
-		connection.setReadTimeout(1000 * 30);
-		connection.setConnectTimeout(1000 * 10);
+		connection.setReadTimeout(readTimeout);
+		connection.setConnectTimeout(connectTimeout);
 		connection.setRequestMethod(request.getMethod());
 		if (request.getBody() != null) {
 			connection.setDoOutput(true);
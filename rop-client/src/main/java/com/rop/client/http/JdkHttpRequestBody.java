@@ -54,4 +54,13 @@ public class JdkHttpRequestBody {
 		content.write('=');
 		content.write(URLEncoder.encode(value, "UTF-8").getBytes());
 	}
+
+	/**
+	 * 写入已经序列化好的请求体内容
+	 * @param bytes
+	 * @throws IOException
+	 */
+	public void write(byte[] bytes) throws IOException{
+		content.write(bytes);
+	}
 }
@@ -44,12 +44,29 @@ public class JdkHttpResponse implements HttpResponse {
 	private HttpURLConnection connection;
 	
 	/**
+	 * 读完并关闭响应流，使底层连接可以被keep-alive复用，而不是断开连接
 	 * @see java.io.Closeable#close()
 	 */
 	@Override
 	public void close() throws IOException {
-		if(connection != null){
-			connection.disconnect();
+		if(connection == null){
+			return;
+		}
+		InputStream in = null;
+		try {
+			in = connection.getInputStream();
+		} catch (IOException e) {
+			in = connection.getErrorStream();
+		}
+		if(in != null){
+			try {
+				byte[] buffer = new byte[4096];
+				while (in.read(buffer) >= 0) {
+					// 丢弃未读取的响应内容
+				}
+			} finally {
+				IOUtils.closeQuietly(in);
+			}
 		}
 	}
 
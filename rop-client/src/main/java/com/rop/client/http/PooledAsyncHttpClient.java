@@ -0,0 +1,120 @@
+/**
+ * Copyright 2012-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.rop.client.http;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.util.EntityUtils;
+
+/**
+ * 基于Apache HttpAsyncClient的非阻塞http请求客户端实现，
+ * 所有请求由少量的I/O线程通过NIO处理，并复用连接池中的keep-alive连接，不会为每个请求占用一个线程。
+ * 使用完毕后应调用{@link #close()}释放连接池及I/O线程。
+ * @author liangruisen
+ *
+ */
+public class PooledAsyncHttpClient extends AbstractAsyncHttpClient {
+
+	private final CloseableHttpAsyncClient httpClient;
+
+	// 建立连接的超时时间（毫秒）
+	private volatile int connectTimeout = 1000 * 10;
+
+	public PooledAsyncHttpClient() {
+		this(DEFAULT_MAX_IN_FLIGHT);
+	}
+
+	/**
+	 * @param maxInFlight 同时在途的最大请求数，同时也是连接池的最大连接数
+	 */
+	public PooledAsyncHttpClient(int maxInFlight) {
+		super(maxInFlight);
+		httpClient = HttpAsyncClients.custom().setMaxConnTotal(maxInFlight).setMaxConnPerRoute(maxInFlight).build();
+		httpClient.start();
+	}
+
+	/**
+	 * @see com.rop.client.http.AbstractAsyncHttpClient#doExecute(java.util.Map,
+	 * java.lang.String, java.lang.String, java.util.Map, int, java.util.concurrent.CompletableFuture)
+	 */
+	@Override
+	protected Future<?> doExecute(Map<String, String> heads, String url, String method, Map<String, String> params,
+			int timeout, final CompletableFuture<HttpResponse> result) throws IOException {
+		return execute(PooledHttpClient.createRequest(heads, url, method, params), timeout, result);
+	}
+
+	/**
+	 * @see com.rop.client.http.AbstractAsyncHttpClient#doPostBody(java.util.Map,
+	 * java.lang.String, java.util.Map, java.lang.String, byte[], int, java.util.concurrent.CompletableFuture)
+	 */
+	@Override
+	protected Future<?> doPostBody(Map<String, String> heads, String url, Map<String, String> params,
+			String contentType, byte[] body, int timeout, CompletableFuture<HttpResponse> result) throws IOException {
+		return execute(PooledHttpClient.createBodyRequest(heads, url, params, contentType, body), timeout, result);
+	}
+
+	private Future<?> execute(final HttpRequestBase request, int timeout, final CompletableFuture<HttpResponse> result) {
+		request.setConfig(RequestConfig.custom().setConnectTimeout(Math.min(connectTimeout, timeout))
+				.setConnectionRequestTimeout(timeout).setSocketTimeout(timeout).build());
+		return httpClient.execute(request, new FutureCallback<org.apache.http.HttpResponse>() {
+			@Override
+			public void completed(org.apache.http.HttpResponse response) {
+				try {
+					byte[] content = response.getEntity() == null ? new byte[0]
+							: EntityUtils.toByteArray(response.getEntity());
+					result.complete(new PooledHttpResponse(request, response, content));
+				} catch (IOException e) {
+					result.completeExceptionally(e);
+				}
+			}
+
+			@Override
+			public void failed(Exception e) {
+				result.completeExceptionally(e);
+			}
+
+			@Override
+			public void cancelled() {
+				result.cancel(false);
+			}
+		});
+	}
+
+	/**
+	 * @see com.rop.client.http.AbstractAsyncHttpClient#close()
+	 */
+	@Override
+	public void close() throws IOException {
+		super.close();
+		httpClient.close();
+	}
+
+	/**
+	 * 设置建立连接的超时时间（毫秒）
+	 * @param connectTimeout
+	 */
+	public void setConnectTimeout(int connectTimeout) {
+		this.connectTimeout = connectTimeout;
+	}
+}
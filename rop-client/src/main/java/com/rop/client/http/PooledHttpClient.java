@@ -0,0 +1,362 @@
+/**
+ * Copyright 2012-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.rop.client.http;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.NameValuePair;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.entity.UrlEncodedFormEntity;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpDelete;
+import org.apache.http.client.methods.HttpEntityEnclosingRequestBase;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpHead;
+import org.apache.http.client.methods.HttpPatch;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpPut;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.message.BasicNameValuePair;
+import org.apache.http.util.EntityUtils;
+
+/**
+ * 基于连接池的http请求客户端实现，同一主机的请求复用keep-alive连接。
+ * <p>
+ * 每次请求返回前都会读完响应内容并将连接归还连接池，因此调用方即使没有关闭
+ * {@link HttpResponse}，或服务端返回的是错误响应，连接也不会泄漏。
+ * 后台线程定期关闭已过期和空闲超过{@link #setIdleTimeout(long)}的连接。
+ * 使用完毕后应调用{@link #close()}释放连接池。
+ * </p>
+ * @author liangruisen
+ *
+ */
+public class PooledHttpClient implements HttpClient, Closeable {
+
+	public static final int DEFAULT_MAX_TOTAL = 200;
+
+	public static final int DEFAULT_MAX_PER_ROUTE = 20;
+
+	private final PoolingHttpClientConnectionManager connectionManager;
+
+	private final CloseableHttpClient httpClient;
+
+	private final ScheduledExecutorService evictor;
+
+	// 建立连接的超时时间（毫秒）
+	private volatile int connectTimeout = 1000 * 10;
+
+	// 读取响应的超时时间（毫秒）
+	private volatile int readTimeout = 1000 * 30;
+
+	// 从连接池获取连接的超时时间（毫秒）
+	private volatile int connectionRequestTimeout = 1000 * 10;
+
+	// 空闲连接的保留时间（毫秒）
+	private volatile long idleTimeout = 1000 * 60;
+
+	public PooledHttpClient() {
+		this(DEFAULT_MAX_TOTAL, DEFAULT_MAX_PER_ROUTE);
+	}
+
+	public PooledHttpClient(int maxTotal, int maxPerRoute) {
+		connectionManager = new PoolingHttpClientConnectionManager();
+		connectionManager.setMaxTotal(maxTotal);
+		connectionManager.setDefaultMaxPerRoute(maxPerRoute);
+		httpClient = HttpClients.custom().setConnectionManager(connectionManager).build();
+		evictor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "rop-http-connection-evictor");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		evictor.scheduleWithFixedDelay(new Runnable() {
+			@Override
+			public void run() {
+				connectionManager.closeExpiredConnections();
+				connectionManager.closeIdleConnections(idleTimeout, TimeUnit.MILLISECONDS);
+			}
+		}, 5, 5, TimeUnit.SECONDS);
+	}
+
+	/**
+	 * @see com.rop.client.http.HttpClient#get(java.lang.String)
+	 */
+	@Override
+	public HttpResponse get(String url) throws IOException {
+		return execute(null, url, "GET", null);
+	}
+
+	/**
+	 * @see com.rop.client.http.HttpClient#get(java.lang.String, java.util.Map)
+	 */
+	@Override
+	public HttpResponse get(String url, Map<String, String> params) throws IOException {
+		return execute(null, url, "GET", params);
+	}
+
+	/**
+	 * @see com.rop.client.http.HttpClient#get(java.util.Map,
+	 * java.lang.String)
+	 */
+	@Override
+	public HttpResponse get(Map<String, String> heads, String url) throws IOException {
+		return execute(heads, url, "GET", null);
+	}
+
+	/**
+	 * @see com.rop.client.http.HttpClient#get(java.util.Map, java.lang.String, java.util.Map)
+	 */
+	@Override
+	public HttpResponse get(Map<String, String> heads, String url, Map<String, String> params) throws IOException {
+		return execute(heads, url, "GET", params);
+	}
+
+	/**
+	 * @see
+	 * com.rop.client.http.HttpClient#post(java.lang.String)
+	 */
+	@Override
+	public HttpResponse post(String url) throws IOException {
+		return execute(null, url, "POST", null);
+	}
+
+	/**
+	 * @see com.rop.client.http.HttpClient#post(java.util.Map,
+	 * java.lang.String)
+	 */
+	@Override
+	public HttpResponse post(Map<String, String> heads, String url) throws IOException {
+		return execute(heads, url, "POST", null);
+	}
+
+	/**
+	 * @see
+	 * com.rop.client.http.HttpClient#post(java.lang.String,
+	 * java.util.Map)
+	 */
+	@Override
+	public HttpResponse post(String url, Map<String, String> params) throws IOException {
+		return execute(null, url, "POST", params);
+	}
+
+	/**
+	 * @see com.rop.client.http.HttpClient#post(java.util.Map,
+	 * java.lang.String, java.util.Map)
+	 */
+	@Override
+	public HttpResponse post(Map<String, String> heads, String url, Map<String, String> params) throws IOException {
+		return execute(heads, url, "POST", params);
+	}
+
+	/**
+	 * @see
+	 * com.rop.client.http.HttpClient#execute(java.util.Map,
+	 * java.lang.String, java.lang.String, java.util.Map)
+	 */
+	@Override
+	public HttpResponse execute(Map<String, String> heads, String url, String method, Map<String, String> params)
+			throws IOException {
+		return execute(createRequest(heads, url, method, params));
+	}
+
+	/**
+	 * @see com.rop.client.http.HttpClient#postBody(Map, String, Map, String, byte[])
+	 */
+	@Override
+	public HttpResponse postBody(Map<String, String> heads, String url, Map<String, String> params, String contentType,
+			byte[] body) throws IOException {
+		return execute(createBodyRequest(heads, url, params, contentType, body));
+	}
+
+	private HttpResponse execute(HttpRequestBase request) throws IOException {
+		request.setConfig(RequestConfig.custom().setConnectTimeout(connectTimeout).setSocketTimeout(readTimeout)
+				.setConnectionRequestTimeout(connectionRequestTimeout).build());
+		CloseableHttpResponse response = httpClient.execute(request);
+		try {
+			// 读完响应内容后连接即归还连接池
+			byte[] content = response.getEntity() == null ? new byte[0] : EntityUtils.toByteArray(response.getEntity());
+			return new PooledHttpResponse(request, response, content);
+		} finally {
+			response.close();
+		}
+	}
+
+	/**
+	 * 响应内容不读入内存，连接在响应关闭后才归还连接池
+	 * @see com.rop.client.http.HttpClient#executeStreaming(Map, String, String, Map)
+	 */
+	@Override
+	public HttpResponse executeStreaming(Map<String, String> heads, String url, String method, Map<String, String> params)
+			throws IOException {
+		HttpRequestBase request = createRequest(heads, url, method, params);
+		request.setConfig(RequestConfig.custom().setConnectTimeout(connectTimeout).setSocketTimeout(readTimeout)
+				.setConnectionRequestTimeout(connectionRequestTimeout).build());
+		return new PooledHttpResponse(request, httpClient.execute(request));
+	}
+
+	/**
+	 * 创建http请求，GET、HEAD及DELETE请求的参数拼接在URL中，其它请求的参数以表单形式放在请求体中
+	 * @param heads
+	 * @param url
+	 * @param method
+	 * @param params
+	 * @return HttpRequestBase
+	 * @throws IOException
+	 */
+	static HttpRequestBase createRequest(Map<String, String> heads, String url, String method,
+			Map<String, String> params) throws IOException {
+		HttpRequestBase request = createRequest(url, method.toUpperCase(Locale.US), params);
+		if (heads != null) {
+			for (Map.Entry<String, String> entry : heads.entrySet()) {
+				request.addHeader(entry.getKey(), entry.getValue());
+			}
+		}
+		return request;
+	}
+
+	/**
+	 * 创建以请求体发送的POST请求，请求参数拼接在URL中
+	 * @param heads
+	 * @param url
+	 * @param params
+	 * @param contentType
+	 * @param body
+	 * @return HttpRequestBase
+	 * @throws IOException
+	 */
+	static HttpRequestBase createBodyRequest(Map<String, String> heads, String url, Map<String, String> params,
+			String contentType, byte[] body) throws IOException {
+		HttpPost request = new HttpPost(JdkHttpClient.appendUrlParams(url, params));
+		request.setEntity(new ByteArrayEntity(body, ContentType.parse(contentType)));
+		if (heads != null) {
+			for (Map.Entry<String, String> entry : heads.entrySet()) {
+				request.addHeader(entry.getKey(), entry.getValue());
+			}
+		}
+		return request;
+	}
+
+	private static HttpRequestBase createRequest(String url, String method, Map<String, String> params) throws IOException {
+		if ("GET".equals(method)) {
+			return new HttpGet(JdkHttpClient.appendUrlParams(url, params));
+		}
+		if ("HEAD".equals(method)) {
+			return new HttpHead(JdkHttpClient.appendUrlParams(url, params));
+		}
+		HttpEntityEnclosingRequestBase request;
+		if ("POST".equals(method)) {
+			request = new HttpPost(url);
+		} else if ("PUT".equals(method)) {
+			request = new HttpPut(url);
+		} else if ("PATCH".equals(method)) {
+			request = new HttpPatch(url);
+		} else if ("DELETE".equals(method)) {
+			return new HttpDelete(JdkHttpClient.appendUrlParams(url, params));
+		} else {
+			throw new IllegalArgumentException("unsupported http method: " + method);
+		}
+		if (params != null && !params.isEmpty()) {
+			List<NameValuePair> pairs = new ArrayList<NameValuePair>(params.size());
+			for (Map.Entry<String, String> entry : params.entrySet()) {
+				pairs.add(new BasicNameValuePair(entry.getKey(), entry.getValue()));
+			}
+			request.setEntity(new UrlEncodedFormEntity(pairs, "UTF-8"));
+		}
+		return request;
+	}
+
+	/**
+	 * 关闭连接池及空闲连接清理线程
+	 * @see java.io.Closeable#close()
+	 */
+	@Override
+	public void close() throws IOException {
+		evictor.shutdownNow();
+		httpClient.close();
+	}
+
+	/**
+	 * 设置连接池的最大连接数
+	 * @param maxTotal
+	 */
+	public void setMaxTotal(int maxTotal) {
+		connectionManager.setMaxTotal(maxTotal);
+	}
+
+	/**
+	 * 设置每个主机的最大连接数
+	 * @param maxPerRoute
+	 */
+	public void setMaxPerRoute(int maxPerRoute) {
+		connectionManager.setDefaultMaxPerRoute(maxPerRoute);
+	}
+
+	/**
+	 * 设置建立连接的超时时间（毫秒）
+	 * @param connectTimeout
+	 */
+	public void setConnectTimeout(int connectTimeout) {
+		this.connectTimeout = connectTimeout;
+	}
+
+	/**
+	 * 设置读取响应的超时时间（毫秒）
+	 * @param readTimeout
+	 */
+	public void setReadTimeout(int readTimeout) {
+		this.readTimeout = readTimeout;
+	}
+
+	/**
+	 * 设置从连接池获取连接的超时时间（毫秒）
+	 * @param connectionRequestTimeout
+	 */
+	public void setConnectionRequestTimeout(int connectionRequestTimeout) {
+		this.connectionRequestTimeout = connectionRequestTimeout;
+	}
+
+	/**
+	 * 设置空闲连接的保留时间（毫秒），超过该时间的空闲连接将被关闭
+	 * @param idleTimeout
+	 */
+	public void setIdleTimeout(long idleTimeout) {
+		this.idleTimeout = idleTimeout;
+	}
+
+	/**
+	 * 获取连接池当前的统计信息
+	 * @return
+	 */
+	public String getPoolStats() {
+		return connectionManager.getTotalStats().toString();
+	}
+}
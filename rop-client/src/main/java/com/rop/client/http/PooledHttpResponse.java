@@ -0,0 +1,197 @@
+/**
+ * Copyright 2012-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.rop.client.http;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.util.EntityUtils;
+
+/**
+ * 连接池客户端的响应，响应内容在连接归还连接池之前已经全部读入内存
+ * @author liangruisen
+ *
+ */
+public class PooledHttpResponse implements HttpResponse {
+
+	private final HttpUriRequest request;
+
+	private final int code;
+
+	private final String message;
+
+	private final String protocol;
+
+	private final Map<String, List<String>> headers;
+
+	private byte[] content;
+
+	// 流式读取响应内容时持有的响应，关闭后连接才归还连接池
+	private CloseableHttpResponse streamingResponse;
+
+	public PooledHttpResponse(HttpUriRequest request, org.apache.http.HttpResponse response, byte[] content) {
+		this.request = request;
+		this.code = response.getStatusLine().getStatusCode();
+		this.message = response.getStatusLine().getReasonPhrase();
+		this.protocol = response.getStatusLine().getProtocolVersion().toString();
+		this.content = content;
+		Map<String, List<String>> headerMap = new TreeMap<String, List<String>>(String.CASE_INSENSITIVE_ORDER);
+		for (Header header : response.getAllHeaders()) {
+			List<String> values = headerMap.get(header.getName());
+			if (values == null) {
+				values = new ArrayList<String>(1);
+				headerMap.put(header.getName(), values);
+			}
+			values.add(header.getValue());
+		}
+		this.headers = headerMap;
+	}
+
+	/**
+	 * 流式读取响应内容，参见{@link HttpClient#executeStreaming(Map, String, String, Map)}
+	 * @param request
+	 * @param response
+	 */
+	public PooledHttpResponse(HttpUriRequest request, CloseableHttpResponse response) {
+		this(request, response, null);
+		this.streamingResponse = response;
+	}
+
+	/**
+	 * 连接已经归还连接池，无需释放资源
+	 * @see java.io.Closeable#close()
+	 */
+	@Override
+	public void close() throws IOException {
+		if (streamingResponse != null) {
+			streamingResponse.close();
+		}
+	}
+
+	/**
+	 * @see com.rop.client.http.HttpResponse#getResponse()
+	 */
+	@Override
+	public Object getResponse() {
+		return this;
+	}
+
+	/**
+	 * @see com.rop.client.http.HttpResponse#getString()
+	 */
+	@Override
+	public String getString() throws IOException {
+		return new String(getBytes(), "UTF-8");
+	}
+
+	/**
+	 * @see com.rop.client.http.HttpResponse#getBytes()
+	 */
+	@Override
+	public byte[] getBytes() throws IOException {
+		if (content == null) {
+			HttpEntity entity = streamingResponse.getEntity();
+			content = entity == null ? new byte[0] : EntityUtils.toByteArray(entity);
+		}
+		return content;
+	}
+
+	/**
+	 * @see com.rop.client.http.HttpResponse#getInputStream()
+	 */
+	@Override
+	public InputStream getInputStream() throws IOException {
+		if (content == null) {
+			HttpEntity entity = streamingResponse.getEntity();
+			return entity == null ? new ByteArrayInputStream(new byte[0]) : entity.getContent();
+		}
+		return new ByteArrayInputStream(content);
+	}
+
+	/**
+	 * @see com.rop.client.http.HttpResponse#getCode()
+	 */
+	@Override
+	public int getCode() {
+		return code;
+	}
+
+	/**
+	 * @see com.rop.client.http.HttpResponse#getRequest()
+	 */
+	@Override
+	public Object getRequest() {
+		return request;
+	}
+
+	/**
+	 * @see com.rop.client.http.HttpResponse#getMessage()
+	 */
+	@Override
+	public String getMessage() {
+		return message;
+	}
+
+	/**
+	 * @see com.rop.client.http.HttpResponse#getHeader(java.lang.String)
+	 */
+	@Override
+	public String getHeader(String name) {
+		List<String> values = getHeaders(name);
+		return values == null || values.isEmpty() ? null : values.get(values.size() - 1);
+	}
+
+	/**
+	 * @see com.rop.client.http.HttpResponse#getHeaders(java.lang.String)
+	 */
+	@Override
+	public List<String> getHeaders(String name) {
+		return headers.get(name);
+	}
+
+	/**
+	 * @see com.rop.client.http.HttpResponse#getHeaders()
+	 */
+	@Override
+	public Map<String, List<String>> getHeaders() {
+		return headers;
+	}
+
+	/**
+	 * @see com.rop.client.http.HttpResponse#isSuccessful()
+	 */
+	@Override
+	public boolean isSuccessful() {
+		return code >= 200 && code < 300;
+	}
+
+	/**
+	 * @see com.rop.client.http.HttpResponse#getProtocol()
+	 */
+	@Override
+	public String getProtocol() {
+		return protocol;
+	}
+}
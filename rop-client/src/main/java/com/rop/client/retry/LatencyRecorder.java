@@ -0,0 +1,77 @@
+/**
+ * Copyright 2012-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.rop.client.retry;
+
+import java.util.Arrays;
+
+/**
+ * <pre>
+ * 功能说明：记录最近若干次成功调用的响应时间，用于计算对冲请求的发送延迟。
+ * </pre>
+ *
+ * @author 陈雄华
+ * @version 1.0
+ */
+public class LatencyRecorder {
+
+    private final long[] samples;
+
+    private final int minSamples;
+
+    private int count;
+
+    private int next;
+
+    public LatencyRecorder() {
+        this(256, 20);
+    }
+
+    /**
+     * @param capacity   保留的样本数
+     * @param minSamples 样本数少于该值时不计算百分位数
+     */
+    public LatencyRecorder(int capacity, int minSamples) {
+        this.samples = new long[capacity];
+        this.minSamples = minSamples;
+    }
+
+    public synchronized void record(long latency) {
+        samples[next] = latency;
+        next = (next + 1) % samples.length;
+        if (count < samples.length) {
+            count++;
+        }
+    }
+
+    /**
+     * 计算响应时间的百分位数
+     *
+     * @param percentile 百分位，如95
+     * @return 响应时间（毫秒），样本不足时返回-1
+     */
+    public long percentile(double percentile) {
+        long[] sorted;
+        synchronized (this) {
+            if (count < minSamples) {
+                return -1;
+            }
+            sorted = Arrays.copyOf(samples, count);
+        }
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+}
@@ -0,0 +1,87 @@
+/**
+ * Copyright 2012-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.rop.client.retry;
+
+/**
+ * <pre>
+ * 功能说明：重试预算。每个请求存入一定比例的令牌，每次重试（包括对冲请求）取出一个令牌，
+ * 使重试的数量不超过正常请求数量的一定比例，避免服务过载时重试进一步放大负载。
+ * 请求量很小时按比例积攒的令牌不足，因此每秒另外允许少量的重试。
+ * </pre>
+ *
+ * @author 陈雄华
+ * @version 1.0
+ */
+public class RetryBudget {
+
+    //每个请求存入的令牌数，即重试数占请求数的比例
+    private final double ratio;
+
+    //每秒额外允许的重试次数
+    private final int minRetriesPerSecond;
+
+    //令牌数的上限，避免长时间空闲后积攒的令牌引发大量重试
+    private final double maxBalance;
+
+    private double balance;
+
+    private long reserveSecond;
+
+    private int reserveUsed;
+
+    public RetryBudget() {
+        this(0.1, 10, 100);
+    }
+
+    public RetryBudget(double ratio, int minRetriesPerSecond, double maxBalance) {
+        this.ratio = ratio;
+        this.minRetriesPerSecond = minRetriesPerSecond;
+        this.maxBalance = maxBalance;
+    }
+
+    /**
+     * 发起一个请求时调用，存入令牌
+     */
+    public synchronized void deposit() {
+        balance = Math.min(maxBalance, balance + ratio);
+    }
+
+    /**
+     * 发起重试前调用
+     *
+     * @return 预算是否允许重试
+     */
+    public synchronized boolean tryWithdraw() {
+        if (balance >= 1) {
+            balance -= 1;
+            return true;
+        }
+        long second = System.currentTimeMillis() / 1000;
+        if (second != reserveSecond) {
+            reserveSecond = second;
+            reserveUsed = 0;
+        }
+        if (reserveUsed < minRetriesPerSecond) {
+            reserveUsed++;
+            return true;
+        }
+        return false;
+    }
+
+    public synchronized double getBalance() {
+        return balance;
+    }
+}
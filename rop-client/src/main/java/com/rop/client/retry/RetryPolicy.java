@@ -0,0 +1,120 @@
+/**
+ * Copyright 2012-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.rop.client.retry;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * <pre>
+ * 功能说明：客户端的重试及对冲策略，通过{@link com.rop.client.DefaultRopClient#setRetryPolicy(RetryPolicy)}启用。
+ * 1.连接失败、熔断或服务端因资源耗尽拒绝服务（{@link com.rop.client.CommonConstant#REJECTED_HEADER}）时，服务方法并未执行，任何请求都可以重试；
+ * 2.读超时、服务端5xx错误或服务方法执行超时（{@link com.rop.client.CommonConstant#TIMEOUT_HEADER}）时，只重试幂等的请求；
+ * 3.开启对冲后，幂等的请求在等待时间超过该服务方法响应时间的百分位数后，向另一个服务地址再发送一次，取先成功的响应。
+ * GET请求及通过{@link com.rop.client.ClientRequest#setIdempotent(boolean)}标注的请求为幂等请求。
+ * 所有的重试及对冲请求都受{@link RetryBudget}的限制。
+ * </pre>
+ *
+ * @author 陈雄华
+ * @version 1.0
+ */
+public class RetryPolicy {
+
+    //一次调用最多发送的请求数（包括第一次请求）
+    private int maxAttempts = 2;
+
+    private boolean hedging = false;
+
+    //对冲请求的发送延迟取响应时间的百分位数
+    private double hedgePercentile = 95;
+
+    //对冲请求的最小发送延迟（毫秒）
+    private long minHedgeDelay = 10;
+
+    private RetryBudget retryBudget = new RetryBudget();
+
+    private final ConcurrentMap<String, LatencyRecorder> latencyRecorders = new ConcurrentHashMap<String, LatencyRecorder>();
+
+    /**
+     * 计算对冲请求的发送延迟
+     *
+     * @param key 服务方法名及版本
+     * @return 延迟（毫秒），样本不足时返回-1，表示不发送对冲请求
+     */
+    public long getHedgeDelay(String key) {
+        LatencyRecorder recorder = latencyRecorders.get(key);
+        long delay = recorder == null ? -1 : recorder.percentile(hedgePercentile);
+        return delay < 0 ? -1 : Math.max(delay, minHedgeDelay);
+    }
+
+    /**
+     * 记录一次成功调用的响应时间
+     *
+     * @param key
+     * @param latency
+     */
+    public void recordLatency(String key, long latency) {
+        LatencyRecorder recorder = latencyRecorders.get(key);
+        if (recorder == null) {
+            recorder = new LatencyRecorder();
+            LatencyRecorder existing = latencyRecorders.putIfAbsent(key, recorder);
+            if (existing != null) {
+                recorder = existing;
+            }
+        }
+        recorder.record(latency);
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public void setMaxAttempts(int maxAttempts) {
+        this.maxAttempts = maxAttempts;
+    }
+
+    public boolean isHedging() {
+        return hedging;
+    }
+
+    public void setHedging(boolean hedging) {
+        this.hedging = hedging;
+    }
+
+    public double getHedgePercentile() {
+        return hedgePercentile;
+    }
+
+    public void setHedgePercentile(double hedgePercentile) {
+        this.hedgePercentile = hedgePercentile;
+    }
+
+    public long getMinHedgeDelay() {
+        return minHedgeDelay;
+    }
+
+    public void setMinHedgeDelay(long minHedgeDelay) {
+        this.minHedgeDelay = minHedgeDelay;
+    }
+
+    public RetryBudget getRetryBudget() {
+        return retryBudget;
+    }
+
+    public void setRetryBudget(RetryBudget retryBudget) {
+        this.retryBudget = retryBudget;
+    }
+}
@@ -0,0 +1,138 @@
+/**
+ * Copyright 2012-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.rop.client;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.rop.MessageFormat;
+import com.rop.client.sign.DigestSignHandler;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * <pre>
+ * 功能说明：
+ * </pre>
+ *
+ * @author 陈雄华
+ * @version 1.0
+ */
+public class DownloadResponseTest {
+
+    private static final String ETAG = "\"64-1\"";
+
+    private final byte[] content = new byte[100];
+
+    private HttpServer server;
+
+    private DefaultRopClient ropClient;
+
+    @Before
+    public void setUp() throws IOException {
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) i;
+        }
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/router", new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                if (exchange.getRequestURI().getQuery().contains("method=file.missing")) {
+                    byte[] error = "{\"errorToken\":\"@@$-ERROR_TOKEN$-@@\",\"code\":\"9\",\"message\":\"not found\"}".getBytes("UTF-8");
+                    exchange.getResponseHeaders().add(CommonConstant.ERROR_HEADER, "true");
+                    exchange.sendResponseHeaders(200, error.length);
+                    exchange.getResponseBody().write(error);
+                    exchange.close();
+                    return;
+                }
+                exchange.getResponseHeaders().add("ETag", ETAG);
+                exchange.getResponseHeaders().add("Content-Disposition",
+                        "attachment; filename=\"__.bin\"; filename*=UTF-8''%E6%8A%A5%E8%A1%A8.bin");
+                String range = exchange.getRequestHeaders().getFirst("Range");
+                int start = 0;
+                if (range != null) {
+                    start = Integer.parseInt(range.substring("bytes=".length(), range.indexOf('-')));
+                    exchange.getResponseHeaders().add("Content-Range", "bytes " + start + "-99/100");
+                    exchange.sendResponseHeaders(206, content.length - start);
+                } else {
+                    exchange.sendResponseHeaders(200, content.length);
+                }
+                OutputStream out = exchange.getResponseBody();
+                out.write(content, start, content.length - start);
+                out.close();
+            }
+        });
+        server.start();
+        ropClient = new DefaultRopClient("http://127.0.0.1:" + server.getAddress().getPort() + "/router", "00001", MessageFormat.JSON);
+        ropClient.setSignHandler(new DigestSignHandler("SHA-1", "abcdeabcdeabcdeabcdeabcde"));
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    public void testDownload() throws Exception {
+        DownloadResponse response = ropClient.buildClientRequest().download("file.get", "1.0");
+        assertTrue(response.isSuccessful());
+        assertFalse(response.isPartial());
+        assertEquals(100, response.getContentLength());
+        assertEquals(100, response.getTotalLength());
+        assertEquals("报表.bin", response.getFileName());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(100, response.transferTo(out));
+        assertArrayEquals(content, out.toByteArray());
+    }
+
+    @Test
+    public void testResume() throws Exception {
+        File file = File.createTempFile("rop_download_", ".bin");
+        try {
+            //已下载前30个字节
+            FileOutputStream out = new FileOutputStream(file);
+            out.write(content, 0, 30);
+            out.close();
+            DownloadResponse response = ropClient.buildClientRequest().setRange(file.length(), -1)
+                    .setHeader("If-Range", ETAG).download("file.get", "1.0");
+            assertTrue(response.isPartial());
+            assertEquals(30, response.getRangeStart());
+            assertEquals(100, response.getTotalLength());
+            assertEquals(70, response.saveTo(file));
+            assertArrayEquals(content, FileUtils.readFileToByteArray(file));
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testErrorResponse() throws Exception {
+        DownloadResponse response = ropClient.buildClientRequest().download("file.missing", "1.0");
+        assertFalse(response.isSuccessful());
+        assertEquals("9", response.getErrorResponse().getCode());
+    }
+}
@@ -0,0 +1,189 @@
+/**
+ * Copyright 2012-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.rop.client;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.apache.http.HttpVersion;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.message.BasicHttpResponse;
+import org.junit.Test;
+
+import com.rop.client.http.HttpResponse;
+import com.rop.client.http.PooledHttpResponse;
+import com.rop.client.retry.RetryBudget;
+import com.rop.client.retry.RetryPolicy;
+
+/**
+ * <pre>
+ * 功能说明：
+ * </pre>
+ *
+ * @author 陈雄华
+ * @version 1.0
+ */
+public class HedgedCallTest {
+
+    private static final String KEY = "user.get:1.0";
+
+    /**
+     * 依次返回预先设定的结果，并记录发送的请求
+     */
+    private static class Attempts implements Supplier<CompletableFuture<HttpResponse>> {
+
+        private final List<CompletableFuture<HttpResponse>> futures = new ArrayList<CompletableFuture<HttpResponse>>();
+
+        private final List<Object> outcomes = new ArrayList<Object>();
+
+        Attempts then(Object outcome) {
+            outcomes.add(outcome);
+            return this;
+        }
+
+        public synchronized CompletableFuture<HttpResponse> get() {
+            CompletableFuture<HttpResponse> future = new CompletableFuture<HttpResponse>();
+            Object outcome = futures.size() < outcomes.size() ? outcomes.get(futures.size()) : null;
+            futures.add(future);
+            if (outcome instanceof HttpResponse) {
+                future.complete((HttpResponse) outcome);
+            } else if (outcome instanceof Throwable) {
+                future.completeExceptionally((Throwable) outcome);
+            }
+            return future;
+        }
+
+        synchronized int count() {
+            return futures.size();
+        }
+
+        synchronized CompletableFuture<HttpResponse> future(int index) {
+            return futures.get(index);
+        }
+    }
+
+    private static HttpResponse response(int code, String header) {
+        BasicHttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, code, "");
+        if (header != null) {
+            response.addHeader(header, "true");
+        }
+        return new PooledHttpResponse(new HttpGet("http://localhost/router"), response, new byte[0]);
+    }
+
+    private static RetryPolicy policy(int maxAttempts) {
+        RetryPolicy policy = new RetryPolicy();
+        policy.setMaxAttempts(maxAttempts);
+        policy.setRetryBudget(new RetryBudget(0, 100, 0));
+        return policy;
+    }
+
+    @Test
+    public void testRejectedIsRetriedForAnyRequest() throws IOException {
+        HttpResponse ok = response(200, null);
+        Attempts attempts = new Attempts().then(response(200, CommonConstant.REJECTED_HEADER)).then(ok);
+        assertSame(ok, new HedgedCall(attempts, policy(3), KEY, false).join());
+        assertEquals(2, attempts.count());
+
+        attempts = new Attempts().then(new ConnectException()).then(ok);
+        assertSame(ok, new HedgedCall(attempts, policy(3), KEY, false).join());
+        assertEquals(2, attempts.count());
+    }
+
+    @Test
+    public void testTimeoutIsRetriedOnlyForIdempotentRequest() throws IOException {
+        HttpResponse timeout = response(200, CommonConstant.TIMEOUT_HEADER);
+        HttpResponse ok = response(200, null);
+        Attempts attempts = new Attempts().then(timeout).then(ok);
+        assertSame(timeout, new HedgedCall(attempts, policy(3), KEY, false).join());
+        assertEquals(1, attempts.count());
+
+        attempts = new Attempts().then(timeout).then(ok);
+        assertSame(ok, new HedgedCall(attempts, policy(3), KEY, true).join());
+        assertEquals(2, attempts.count());
+
+        attempts = new Attempts().then(new SocketTimeoutException()).then(ok);
+        try {
+            new HedgedCall(attempts, policy(3), KEY, false).join();
+            fail();
+        } catch (SocketTimeoutException e) {
+            assertEquals(1, attempts.count());
+        }
+    }
+
+    @Test
+    public void testMaxAttemptsAndBudget() throws IOException {
+        HttpResponse error = response(503, null);
+        Attempts attempts = new Attempts().then(error).then(error).then(error).then(error);
+        assertSame(error, new HedgedCall(attempts, policy(3), KEY, true).join());
+        assertEquals(3, attempts.count());
+
+        //预算耗尽时不再重试
+        RetryPolicy policy = policy(3);
+        policy.setRetryBudget(new RetryBudget(0, 0, 0));
+        attempts = new Attempts().then(error).then(response(200, null));
+        assertSame(error, new HedgedCall(attempts, policy, KEY, true).join());
+        assertEquals(1, attempts.count());
+    }
+
+    @Test
+    public void testHedgedRequestWins() throws Exception {
+        RetryPolicy policy = policy(2);
+        policy.setHedging(true);
+        policy.setMinHedgeDelay(1);
+        for (int i = 0; i < 50; i++) {
+            policy.recordLatency(KEY, 20);
+        }
+        assertEquals(20, policy.getHedgeDelay(KEY));
+
+        //第一个请求一直没有响应，对冲请求成功
+        HttpResponse ok = response(200, null);
+        Attempts attempts = new Attempts().then(null).then(ok);
+        CompletableFuture<HttpResponse> result = new HedgedCall(attempts, policy, KEY, true).start();
+        assertSame(ok, result.get(5, TimeUnit.SECONDS));
+        assertEquals(2, attempts.count());
+        attempts.future(0).complete(response(200, null));
+        assertSame(ok, result.get());
+
+        //非幂等的请求不对冲
+        attempts = new Attempts().then(null);
+        result = new HedgedCall(attempts, policy, KEY, false).start();
+        Thread.sleep(100);
+        assertEquals(1, attempts.count());
+        assertFalse(result.isDone());
+    }
+
+    @Test
+    public void testRetryBudget() {
+        RetryBudget budget = new RetryBudget(0.5, 0, 10);
+        assertFalse(budget.tryWithdraw());
+        budget.deposit();
+        budget.deposit();
+        assertTrue(budget.tryWithdraw());
+        assertFalse(budget.tryWithdraw());
+        for (int i = 0; i < 100; i++) {
+            budget.deposit();
+        }
+        assertEquals(10, budget.getBalance(), 0.001);
+    }
+}
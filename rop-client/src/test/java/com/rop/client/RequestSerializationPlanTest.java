@@ -0,0 +1,83 @@
+/*
+ * Copyright 2012-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.rop.client;
+
+import static org.junit.Assert.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.rop.annotation.IgnoreSign;
+import com.rop.annotation.Temporary;
+import com.rop.converter.RopConverter;
+import com.rop.converter.UploadFile;
+import com.rop.converter.UploadFileConverter;
+
+/**
+ * <pre>
+ * 功能说明：
+ * </pre>
+ *
+ * @author 陈雄华
+ * @version 1.0
+ */
+public class RequestSerializationPlanTest {
+
+    public static class UserRequest {
+
+        public static final String CONSTANT = "constant";
+
+        private String userName;
+
+        @IgnoreSign
+        private String remark;
+
+        @Temporary
+        private String temp;
+
+        private int age;
+
+        private UploadFile photo;
+    }
+
+    @Test
+    public void testBuild() {
+        Map<Class<?>, RopConverter<String, ?>> converters = new HashMap<Class<?>, RopConverter<String, ?>>();
+        converters.put(UploadFile.class, new UploadFileConverter());
+        RequestSerializationPlan plan = RequestSerializationPlan.build(UserRequest.class, converters, 3);
+
+        assertEquals(3, plan.getConverterVersion());
+        RequestSerializationPlan.FieldPlan[] fieldPlans = plan.getFieldPlans();
+        //静态属性及@Temporary属性不是请求参数，其它参数按签名顺序排列
+        assertEquals(4, fieldPlans.length);
+        assertEquals("age", fieldPlans[0].getName());
+        assertEquals("photo", fieldPlans[1].getName());
+        assertEquals("remark", fieldPlans[2].getName());
+        assertEquals("userName", fieldPlans[3].getName());
+        assertTrue(fieldPlans[0].isPrimitive());
+        assertTrue(fieldPlans[1].getConverter() instanceof UploadFileConverter);
+        assertNull(fieldPlans[3].getConverter());
+
+        assertTrue(plan.getIgnoreSignFieldNames().contains("remark"));
+        assertFalse(plan.getIgnoreSignFieldNames().contains("userName"));
+
+        UserRequest request = new UserRequest();
+        request.userName = "tom";
+        assertEquals("tom", fieldPlans[3].getValue(request));
+    }
+}
@@ -0,0 +1,199 @@
+/**
+ * Copyright 2012-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.rop.client.balance;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.rop.MessageFormat;
+import com.rop.client.ClientRequest;
+import com.rop.client.CommonConstant;
+import com.rop.client.CompositeResponse;
+import com.rop.client.DefaultRopClient;
+import com.rop.client.sign.DigestSignHandler;
+import com.rop.response.CommonRopResponse;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * <pre>
+ * 功能说明：
+ * </pre>
+ *
+ * @author 陈雄华
+ * @version 1.0
+ */
+public class LoadBalancerTest {
+
+    private final List<HttpServer> servers = new ArrayList<HttpServer>();
+
+    @After
+    public void tearDown() {
+        for (HttpServer server : servers) {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void testLeastOutstanding() {
+        LeastOutstandingLoadBalancer loadBalancer = new LeastOutstandingLoadBalancer(Arrays.asList("a", "b", "c"));
+        Endpoint first = loadBalancer.select();
+        Endpoint second = loadBalancer.select();
+        Endpoint third = loadBalancer.select();
+        assertNotSame(first, second);
+        assertNotSame(first, third);
+        assertNotSame(second, third);
+
+        //只有second完成，下一个请求应发往second
+        loadBalancer.complete(second, 10, false);
+        assertSame(second, loadBalancer.select());
+        assertEquals(1, second.getOutstanding());
+    }
+
+    @Test
+    public void testEwmaAvoidsSlowEndpoint() {
+        EwmaLoadBalancer loadBalancer = new EwmaLoadBalancer(Arrays.asList("fast", "slow"));
+        Endpoint fast = loadBalancer.getEndpoints().get(0);
+        Endpoint slow = loadBalancer.getEndpoints().get(1);
+        loadBalancer.complete(select(loadBalancer, fast), 5, false);
+        loadBalancer.complete(select(loadBalancer, slow), 500, false);
+        for (int i = 0; i < 5; i++) {
+            assertSame(fast, loadBalancer.select());
+        }
+    }
+
+    @Test
+    public void testEjectionAndFailOpen() {
+        LeastOutstandingLoadBalancer loadBalancer = new LeastOutstandingLoadBalancer(Arrays.asList("a", "b"));
+        loadBalancer.setFailureThreshold(2);
+        Endpoint a = loadBalancer.getEndpoints().get(0);
+        Endpoint b = loadBalancer.getEndpoints().get(1);
+
+        loadBalancer.complete(select(loadBalancer, a), 1, true);
+        assertFalse(a.isEjected(System.currentTimeMillis()));
+        loadBalancer.complete(select(loadBalancer, a), 1, true);
+        assertTrue(a.isEjected(System.currentTimeMillis()));
+        for (int i = 0; i < 3; i++) {
+            Endpoint endpoint = loadBalancer.select();
+            assertSame(b, endpoint);
+            loadBalancer.complete(endpoint, 1, false);
+        }
+
+        //所有地址都被摘除时仍然选择一个地址
+        loadBalancer.complete(select(loadBalancer, b), 1, true);
+        loadBalancer.complete(select(loadBalancer, b), 1, true);
+        assertTrue(b.isEjected(System.currentTimeMillis()));
+        assertNotNull(loadBalancer.select());
+    }
+
+    @Test
+    public void testPassiveEjectionAgainstStandInServers() throws Exception {
+        final AtomicInteger healthyHits = new AtomicInteger();
+        final AtomicInteger rejectedHits = new AtomicInteger();
+        String healthyUrl = startServer(new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                healthyHits.incrementAndGet();
+                reply(exchange, "{\"successful\":true}");
+            }
+        });
+        String rejectedUrl = startServer(new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                rejectedHits.incrementAndGet();
+                exchange.getResponseHeaders().add(CommonConstant.ERROR_HEADER, "true");
+                exchange.getResponseHeaders().add(CommonConstant.REJECTED_HEADER, "true");
+                reply(exchange, "{\"code\":\"7\",\"message\":\"service unavailable\"}");
+            }
+        });
+        String refusedUrl = "http://127.0.0.1:" + unusedPort() + "/router";
+
+        LeastOutstandingLoadBalancer loadBalancer = new LeastOutstandingLoadBalancer(Arrays.asList(refusedUrl, rejectedUrl, healthyUrl));
+        loadBalancer.setFailureThreshold(1);
+        DefaultRopClient ropClient = new DefaultRopClient(healthyUrl, "00001", MessageFormat.JSON);
+        ropClient.setLoadBalancer(loadBalancer);
+        ropClient.setSignHandler(new DigestSignHandler("SHA-1", "abcdeabcdeabcdeabcdeabcde"));
+
+        int successful = 0;
+        for (int i = 0; i < 10; i++) {
+            ClientRequest request = ropClient.buildClientRequest();
+            try {
+                CompositeResponse<CommonRopResponse> response = request.post(CommonRopResponse.class, "user.get", "1.0");
+                if (response.isSuccessful()) {
+                    assertNotNull(response.getSuccessResponse());
+                    successful++;
+                }
+            } catch (IOException e) {
+                //连接被拒绝
+            }
+        }
+        //两个不健康的地址各失败一次后被摘除，其余请求都发往健康的地址
+        assertEquals(1, rejectedHits.get());
+        assertEquals(healthyHits.get(), successful);
+        assertTrue(successful >= 8);
+        assertTrue(loadBalancer.getEndpoints().get(0).isEjected(System.currentTimeMillis()));
+        assertTrue(loadBalancer.getEndpoints().get(1).isEjected(System.currentTimeMillis()));
+        for (Endpoint endpoint : loadBalancer.getEndpoints()) {
+            assertEquals(0, endpoint.getOutstanding());
+        }
+    }
+
+    private static Endpoint select(LoadBalancer loadBalancer, Endpoint expected) {
+        while (true) {
+            Endpoint endpoint = loadBalancer.select();
+            if (endpoint == expected) {
+                return endpoint;
+            }
+            loadBalancer.complete(endpoint, 0, false);
+        }
+    }
+
+    private String startServer(HttpHandler handler) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/router", handler);
+        server.start();
+        servers.add(server);
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/router";
+    }
+
+    private static void reply(HttpExchange exchange, String body) throws IOException {
+        byte[] content = body.getBytes("UTF-8");
+        exchange.getResponseHeaders().add("Content-Type", "application/json;charset=UTF-8");
+        exchange.sendResponseHeaders(200, content.length);
+        OutputStream out = exchange.getResponseBody();
+        out.write(content);
+        out.close();
+    }
+
+    private static int unusedPort() throws IOException {
+        ServerSocket socket = new ServerSocket(0);
+        try {
+            return socket.getLocalPort();
+        } finally {
+            socket.close();
+        }
+    }
+}
@@ -0,0 +1,153 @@
+/**
+ * Copyright 2012-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.rop.client.breaker;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.rop.client.ClientRequest;
+import com.rop.client.DefaultRopClient;
+import com.rop.client.sign.DigestSignHandler;
+import com.rop.response.CommonRopResponse;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * <pre>
+ * 功能说明：
+ * </pre>
+ *
+ * @author 陈雄华
+ * @version 1.0
+ */
+public class CircuitBreakerTest {
+
+    private final List<String> events = Collections.synchronizedList(new ArrayList<String>());
+
+    private CircuitBreakerRegistry registry(CircuitBreakerConfig config) {
+        CircuitBreakerRegistry registry = new CircuitBreakerRegistry(config);
+        registry.addListener(new CircuitBreakerListener() {
+            public void onStateChange(CircuitBreaker circuitBreaker, CircuitBreakerState from, CircuitBreakerState to) {
+                events.add(from + "->" + to);
+            }
+        });
+        return registry;
+    }
+
+    private static CircuitBreakerConfig config() {
+        CircuitBreakerConfig config = new CircuitBreakerConfig();
+        config.setWindowSize(10);
+        config.setMinimumCalls(4);
+        config.setOpenDuration(50);
+        config.setHalfOpenCalls(2);
+        config.setSlowCallDuration(100);
+        return config;
+    }
+
+    private static void call(CircuitBreaker circuitBreaker, long duration, boolean failed) {
+        assertTrue(circuitBreaker.tryAcquire());
+        circuitBreaker.onComplete(duration, failed);
+    }
+
+    @Test
+    public void testFailureRateOpensAndProbeCloses() throws Exception {
+        CircuitBreakerRegistry registry = registry(config());
+        CircuitBreaker circuitBreaker = registry.get("http://a/router", "user.get", "1.0");
+        assertSame(circuitBreaker, registry.get("http://a/router", "user.get", "1.0"));
+        assertNotSame(circuitBreaker, registry.get("http://b/router", "user.get", "1.0"));
+
+        call(circuitBreaker, 1, false);
+        call(circuitBreaker, 1, true);
+        call(circuitBreaker, 1, false);
+        assertEquals(CircuitBreakerState.CLOSED, circuitBreaker.getState());
+        call(circuitBreaker, 1, true);
+        assertEquals(CircuitBreakerState.OPEN, circuitBreaker.getState());
+        assertFalse(circuitBreaker.tryAcquire());
+        assertEquals(1, circuitBreaker.getNotPermittedCalls());
+
+        Thread.sleep(80);
+        //半开状态只放行两个探测请求
+        assertTrue(circuitBreaker.tryAcquire());
+        assertTrue(circuitBreaker.tryAcquire());
+        assertFalse(circuitBreaker.tryAcquire());
+        assertEquals(CircuitBreakerState.HALF_OPEN, circuitBreaker.getState());
+        circuitBreaker.onComplete(1, false);
+        circuitBreaker.onComplete(1, false);
+        assertEquals(CircuitBreakerState.CLOSED, circuitBreaker.getState());
+        assertEquals("[CLOSED->OPEN, OPEN->HALF_OPEN, HALF_OPEN->CLOSED]", events.toString());
+    }
+
+    @Test
+    public void testSlowCallsOpenAndFailedProbeReopens() throws Exception {
+        CircuitBreaker circuitBreaker = registry(config()).get("http://a/router", "user.get", "1.0");
+        for (int i = 0; i < 4; i++) {
+            call(circuitBreaker, 200, false);
+        }
+        assertEquals(CircuitBreakerState.OPEN, circuitBreaker.getState());
+
+        Thread.sleep(80);
+        call(circuitBreaker, 1, true);
+        call(circuitBreaker, 1, true);
+        assertEquals(CircuitBreakerState.OPEN, circuitBreaker.getState());
+        assertEquals("[CLOSED->OPEN, OPEN->HALF_OPEN, HALF_OPEN->OPEN]", events.toString());
+    }
+
+    @Test
+    public void testOpenBreakerFailsFast() throws Exception {
+        final AtomicInteger hits = new AtomicInteger();
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/router", new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                hits.incrementAndGet();
+                exchange.sendResponseHeaders(503, -1);
+                OutputStream out = exchange.getResponseBody();
+                out.close();
+            }
+        });
+        server.start();
+        try {
+            CircuitBreakerConfig config = config();
+            config.setOpenDuration(60000);
+            DefaultRopClient ropClient = new DefaultRopClient("http://127.0.0.1:" + server.getAddress().getPort() + "/router", "00001");
+            ropClient.setSignHandler(new DigestSignHandler("SHA-1", "abcdeabcdeabcdeabcdeabcde"));
+            ropClient.setCircuitBreakerRegistry(registry(config));
+            int rejected = 0;
+            for (int i = 0; i < 10; i++) {
+                ClientRequest request = ropClient.buildClientRequest();
+                try {
+                    assertFalse(request.post(CommonRopResponse.class, "user.get", "1.0").isSuccessful());
+                } catch (CircuitBreakerOpenException e) {
+                    rejected++;
+                }
+            }
+            assertEquals(4, hits.get());
+            assertEquals(6, rejected);
+            assertEquals(0, ropClient.getLoadBalancer().getEndpoints().get(0).getOutstanding());
+        } finally {
+            server.stop(0);
+        }
+    }
+}
@@ -0,0 +1,169 @@
+/**
+ * Copyright 2012-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.rop.client.cache;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.rop.MessageFormat;
+import com.rop.client.CompositeResponse;
+import com.rop.client.DefaultRopClient;
+import com.rop.client.sign.DigestSignHandler;
+import com.rop.response.CommonRopResponse;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * <pre>
+ * 功能说明：
+ * </pre>
+ *
+ * @author 陈雄华
+ * @version 1.0
+ */
+public class ResponseCacheTest {
+
+    private static final String ETAG = "\"v1\"";
+
+    private HttpServer server;
+
+    private final AtomicInteger hits = new AtomicInteger();
+
+    private final AtomicInteger notModified = new AtomicInteger();
+
+    private volatile String cacheControl;
+
+    private DefaultRopClient ropClient;
+
+    private ResponseCache responseCache;
+
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/router", new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                hits.incrementAndGet();
+                if (cacheControl != null) {
+                    exchange.getResponseHeaders().add(ResponseCache.CACHE_CONTROL, cacheControl);
+                }
+                exchange.getResponseHeaders().add(ResponseCache.ETAG, ETAG);
+                if (ETAG.equals(exchange.getRequestHeaders().getFirst(ResponseCache.IF_NONE_MATCH))) {
+                    notModified.incrementAndGet();
+                    exchange.sendResponseHeaders(304, -1);
+                    exchange.close();
+                    return;
+                }
+                byte[] content = "{\"successful\":true}".getBytes("UTF-8");
+                exchange.sendResponseHeaders(200, content.length);
+                OutputStream out = exchange.getResponseBody();
+                out.write(content);
+                out.close();
+            }
+        });
+        server.start();
+        ropClient = new DefaultRopClient("http://127.0.0.1:" + server.getAddress().getPort() + "/router", "00001", MessageFormat.JSON);
+        ropClient.setSignHandler(new DigestSignHandler("SHA-1", "abcdeabcdeabcdeabcdeabcde"));
+        responseCache = new ResponseCache();
+        ropClient.setResponseCache(responseCache);
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    private CompositeResponse<CommonRopResponse> get() throws IOException {
+        return ropClient.buildClientRequest().get(CommonRopResponse.class, "dict.list", "1.0");
+    }
+
+    @Test
+    public void testFreshResponseSkipsHttp() throws Exception {
+        cacheControl = "public, max-age=60";
+        CompositeResponse<CommonRopResponse> first = get();
+        CompositeResponse<CommonRopResponse> second = get();
+        assertTrue(second.isSuccessful());
+        assertSame(first.getSuccessResponse(), second.getSuccessResponse());
+        assertSame(first.getSuccessResponse(), ropClient.buildClientRequest()
+                .getAsync(CommonRopResponse.class, "dict.list", "1.0").get().getSuccessResponse());
+        assertEquals(1, hits.get());
+        assertEquals(2, responseCache.getHitCount());
+
+        //POST请求不使用缓存
+        ropClient.buildClientRequest().post(CommonRopResponse.class, "dict.list", "1.0");
+        assertEquals(2, hits.get());
+    }
+
+    @Test
+    public void testStaleResponseIsRevalidated() throws Exception {
+        cacheControl = "no-cache";
+        CompositeResponse<CommonRopResponse> first = get();
+        CompositeResponse<CommonRopResponse> second = get();
+        assertTrue(second.isSuccessful());
+        assertSame(first.getSuccessResponse(), second.getSuccessResponse());
+        assertEquals(2, hits.get());
+        assertEquals(1, notModified.get());
+        assertEquals(1, responseCache.getRevalidatedCount());
+    }
+
+    @Test
+    public void testNoStore() throws Exception {
+        cacheControl = "no-store";
+        get();
+        get();
+        assertEquals(2, hits.get());
+        assertEquals(0, notModified.get());
+        assertEquals(0, responseCache.size());
+    }
+
+    @Test
+    public void testKeyAndEviction() {
+        ResponseCache cache = new ResponseCache(2);
+        Map<String, String> params = new HashMap<String, String>();
+        params.put("method", "dict.list");
+        params.put("v", "1.0");
+        params.put("sign", "A");
+        String key = cache.createKey(params, "sign");
+        params.put("sign", "B");
+        assertEquals(key, cache.createKey(params, "sign"));
+        params.put("type", "1");
+        assertNotEquals(key, cache.createKey(params, "sign"));
+
+        cache.put("a", "A", null, "max-age=60");
+        cache.put("b", "B", null, "max-age=60");
+        cache.get("a");
+        cache.put("c", "C", null, "max-age=60");
+        assertNotNull(cache.get("a"));
+        assertNull(cache.get("b"));
+        //既没有max-age也没有ETag的响应不缓存
+        cache.put("d", "D", null, null);
+        assertNull(cache.get("d"));
+
+        assertEquals(60, ResponseCache.parseMaxAge("private, max-age=60"));
+        assertEquals(0, ResponseCache.parseMaxAge("no-cache, max-age=60"));
+        assertEquals(-1, ResponseCache.parseMaxAge(null));
+    }
+}
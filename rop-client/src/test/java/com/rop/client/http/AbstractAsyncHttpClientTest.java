@@ -0,0 +1,158 @@
+/*
+ * Copyright 2012-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.rop.client.http;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.Test;
+
+/**
+ * <pre>
+ * 功能说明：
+ * </pre>
+ *
+ * @author 陈雄华
+ * @version 1.0
+ */
+public class AbstractAsyncHttpClientTest {
+
+    /**
+     * 只记录请求，由测试代码手工完成请求的客户端
+     */
+    private static class ManualAsyncHttpClient extends AbstractAsyncHttpClient {
+
+        private final List<CompletableFuture<HttpResponse>> started = new CopyOnWriteArrayList<CompletableFuture<HttpResponse>>();
+
+        private final List<CompletableFuture<Void>> handles = new CopyOnWriteArrayList<CompletableFuture<Void>>();
+
+        private final List<byte[]> bodies = new CopyOnWriteArrayList<byte[]>();
+
+        private ManualAsyncHttpClient(int maxInFlight) {
+            super(maxInFlight);
+        }
+
+        @Override
+        protected Future<?> doExecute(Map<String, String> heads, String url, String method, Map<String, String> params,
+                                      int timeout, CompletableFuture<HttpResponse> result) throws IOException {
+            started.add(result);
+            CompletableFuture<Void> handle = new CompletableFuture<Void>();
+            handles.add(handle);
+            return handle;
+        }
+
+        @Override
+        protected Future<?> doPostBody(Map<String, String> heads, String url, Map<String, String> params,
+                                       String contentType, byte[] body, int timeout,
+                                       CompletableFuture<HttpResponse> result) throws IOException {
+            bodies.add(body);
+            return doExecute(heads, url, "POST", params, timeout, result);
+        }
+    }
+
+    @Test
+    public void testBoundedInFlight() throws Exception {
+        ManualAsyncHttpClient client = new ManualAsyncHttpClient(2);
+        try {
+            CompletableFuture<HttpResponse> f1 = client.executeAsync(null, "http://localhost/router", "POST", null, 10000);
+            CompletableFuture<HttpResponse> f2 = client.executeAsync(null, "http://localhost/router", "POST", null, 10000);
+            CompletableFuture<HttpResponse> f3 = client.executeAsync(null, "http://localhost/router", "POST", null, 10000);
+            assertEquals(2, client.started.size());
+            assertEquals(1, client.getPendingCount());
+
+            //完成一个请求后等待中的请求被发出
+            client.started.get(0).complete(null);
+            assertEquals(3, client.started.size());
+            assertEquals(0, client.getPendingCount());
+
+            //调用方取消请求时底层请求同时被取消
+            f2.cancel(false);
+            assertTrue(client.handles.get(1).isCancelled());
+            assertTrue(f1.isDone());
+            assertFalse(f3.isDone());
+        } finally {
+            client.close();
+        }
+    }
+
+    @Test
+    public void testDeadline() throws Exception {
+        ManualAsyncHttpClient client = new ManualAsyncHttpClient(1);
+        try {
+            CompletableFuture<HttpResponse> f1 = client.executeAsync(null, "http://localhost/router", "GET", null, 100);
+            try {
+                f1.get(5, TimeUnit.SECONDS);
+                fail();
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof TimeoutException);
+            }
+            assertTrue(client.handles.get(0).isCancelled());
+
+            //在等待队列中的请求同样受截止时间限制，超时后不再发出
+            CompletableFuture<HttpResponse> f2 = client.executeAsync(null, "http://localhost/router", "GET", null, 10000);
+            CompletableFuture<HttpResponse> f3 = client.executeAsync(null, "http://localhost/router", "GET", null, 100);
+            try {
+                f3.get(5, TimeUnit.SECONDS);
+                fail();
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof TimeoutException);
+            }
+            client.started.get(1).complete(null);
+            assertNull(f2.get(5, TimeUnit.SECONDS));
+            assertEquals(2, client.started.size());
+
+            //配额已全部归还
+            CompletableFuture<HttpResponse> f4 = client.executeAsync(null, "http://localhost/router", "GET", null, 10000);
+            assertEquals(3, client.started.size());
+            client.started.get(2).complete(null);
+            assertNull(f4.get(5, TimeUnit.SECONDS));
+        } finally {
+            client.close();
+        }
+    }
+
+    @Test
+    public void testPostBody() throws Exception {
+        ManualAsyncHttpClient client = new ManualAsyncHttpClient(1);
+        try {
+            CompletableFuture<HttpResponse> f1 = client.executeAsync(null, "http://localhost/router", "POST", null, 10000);
+            byte[] body = "{\"userName\":\"tom\"}".getBytes("UTF-8");
+            //以请求体发送的请求同样受在途请求数的限制
+            CompletableFuture<HttpResponse> f2 = client.postBodyAsync(null, "http://localhost/router", null,
+                    "application/json", body, 10000);
+            assertEquals(1, client.getPendingCount());
+            assertTrue(client.bodies.isEmpty());
+
+            client.started.get(0).complete(null);
+            assertNull(f1.get(5, TimeUnit.SECONDS));
+            assertEquals(1, client.bodies.size());
+            assertSame(body, client.bodies.get(0));
+            client.started.get(1).complete(null);
+            assertNull(f2.get(5, TimeUnit.SECONDS));
+        } finally {
+            client.close();
+        }
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2012-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.rop.client.http;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * <pre>
+ * 功能说明：
+ * </pre>
+ *
+ * @author 陈雄华
+ * @version 1.0
+ */
+public class PooledHttpClientTest {
+
+    private HttpServer server;
+
+    private String url;
+
+    private final Set<Integer> clientPorts = Collections.synchronizedSet(new HashSet<Integer>());
+
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/router", new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                clientPorts.add(exchange.getRemoteAddress().getPort());
+                String body = IOUtils.toString(exchange.getRequestBody(), "UTF-8");
+                String query = exchange.getRequestURI().getRawQuery();
+                byte[] content = (query != null ? query : body).getBytes("UTF-8");
+                exchange.sendResponseHeaders(body.contains("fail") ? 500 : 200, content.length);
+                OutputStream out = exchange.getResponseBody();
+                out.write(content);
+                out.close();
+            }
+        });
+        server.start();
+        url = "http://127.0.0.1:" + server.getAddress().getPort() + "/router";
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    public void testConnectionReleasedAndReused() throws IOException {
+        PooledHttpClient client = new PooledHttpClient(1, 1);
+        client.setConnectionRequestTimeout(2000);
+        try {
+            for (int i = 0; i < 5; i++) {
+                Map<String, String> params = Collections.singletonMap("name", i == 2 ? "fail" : "rop" + i);
+                //错误响应及未关闭的响应也不能占用连接
+                HttpResponse response = client.post(url, params);
+                assertEquals(i != 2, response.isSuccessful());
+            }
+            HttpResponse response = client.get(url, Collections.singletonMap("name", "rop"));
+            assertEquals("name=rop", response.getString());
+            assertTrue(client.getPoolStats().contains("leased: 0"));
+            assertEquals(1, clientPorts.size());
+        } finally {
+            client.close();
+        }
+    }
+}
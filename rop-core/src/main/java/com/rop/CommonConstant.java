@@ -27,5 +27,21 @@ public class CommonConstant {
 	
     public static final String ERROR_TOKEN = "@@$-ERROR_TOKEN$-@@";
 
+    //响应为错误报文时服务端设置的HTTP报文头，客户端据此判断调用是否成功，无需扫描报文内容
+    public static final String ERROR_HEADER = "X-Rop-Error";
+
+    //服务平台资源耗尽拒绝服务时设置的HTTP报文头，客户端据此暂时摘除该服务节点
+    public static final String REJECTED_HEADER = "X-Rop-Rejected";
+
+    //服务方法执行超时时设置的HTTP报文头，客户端据此判断幂等的请求是否可以重试
+    public static final String TIMEOUT_HEADER = "X-Rop-Timeout";
+
     public static final String SESSION_CHANGED = "@@SESSION_CHANGED__";
+
+    public static final String BATCH_TOKEN = "@@$-BATCH_TOKEN$-@@";
+
+    /**
+     * 批量调用的服务方法名，批量调用的各个子调用通过calls参数传递
+     */
+    public static final String BATCH_METHOD = "rop.batch";
 }
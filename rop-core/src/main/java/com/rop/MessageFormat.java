@@ -19,11 +19,20 @@ import org.apache.commons.lang.StringUtils;
 import org.slf4j.LoggerFactory;
 
 /**
- * 支持的响应的格式类型
+ * 支持的响应的格式类型，SMILE和CBOR是与JSON数据模型相同的二进制格式，报文更小、解析更快，适合服务之间的调用
  */
 public enum MessageFormat {
 	
-    XML, JSON, STREAM;
+    XML, JSON, STREAM, SMILE, CBOR;
+
+    /**
+     * 是否是二进制格式
+     *
+     * @return
+     */
+    public boolean isBinary() {
+        return this == SMILE || this == CBOR;
+    }
 
     public static MessageFormat getFormat(String value) {
         if (StringUtils.isBlank(value)) {
@@ -15,6 +15,8 @@
  */
 package com.rop;
 
+import java.io.InputStream;
+
 /**
  * <pre>
  *   对响应进行反流化
@@ -34,5 +36,15 @@ public interface RopUnmarshaller {
      * @return
      */
     <T> T unmarshaller(String content, Class<T> objectType);
+
+    /**
+     * 直接从输入流中反序列化为相应的对象，无需先将报文读为字符串，输入流的字符集为UTF-8
+     *
+     * @param in
+     * @param objectType
+     * @param <T>
+     * @return
+     */
+    <T> T unmarshaller(InputStream in, Class<T> objectType);
 }
 
@@ -0,0 +1,33 @@
+/*
+ * Copyright 2012-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.rop.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * <pre>
+ *     标注在响应类的字符串属性（或字符串集合属性）上，表示序列化为JSON、Smile或CBOR格式时，
+ * 先对属性值进行HTML解码（如将&amp;lt;还原为&lt;）。默认不进行解码，以免每个字符串都要扫描一遍。
+ * </pre>
+ *
+ * @author 陈雄华
+ * @version 1.0
+ */
+@Target({ElementType.FIELD, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface UnescapeHtml {
+}
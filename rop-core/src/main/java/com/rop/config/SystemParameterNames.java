@@ -50,6 +50,12 @@ public class SystemParameterNames {
     //签名的默认参数名
     private static final String SIGN = "sign";
 
+    //批量调用子调用列表的默认参数名
+    private static final String CALLS = "calls";
+
+    //请求体摘要的默认参数名
+    private static final String BODY_DIGEST = "bodyDigest";
+
     private static String method = METHOD;
 
     private static String format = FORMAT;
@@ -64,6 +70,10 @@ public class SystemParameterNames {
     private static String sign = SIGN;
 
     private static String jsonp = JSONP;
+
+    private static String calls = CALLS;
+
+    private static String bodyDigest = BODY_DIGEST;
     
     //默认忽略签名的参数列表
     private static List<String> ignoreSignFieldNames;
@@ -132,6 +142,22 @@ public class SystemParameterNames {
         SystemParameterNames.jsonp = jsonp;
     }
 
+    public static String getCalls() {
+        return calls;
+    }
+
+    public static void setCalls(String calls) {
+        SystemParameterNames.calls = calls;
+    }
+
+    public static String getBodyDigest() {
+        return bodyDigest;
+    }
+
+    public static void setBodyDigest(String bodyDigest) {
+        SystemParameterNames.bodyDigest = bodyDigest;
+    }
+
 	public static List<String> getIgnoreSignFieldNames() {
 		return ignoreSignFieldNames;
 	}
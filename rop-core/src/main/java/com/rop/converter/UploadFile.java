@@ -17,14 +17,21 @@ package com.rop.converter;
 
 import com.rop.annotation.IgnoreSign;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 
 import org.apache.commons.io.FileUtils;
 
 /**
  * <pre>
- *    上传的文件
+ *    上传的文件。文件内容可以在内存中，也可以保存在文件中（如multipart上传时超过内存阈值的文件），
+ * 保存在文件中的内容通过{@link #getInputStream()}或{@link #getByteBuffer()}访问时不会整体加载到内存中。
  * </pre>
  *
  * @author 陈雄华
@@ -37,6 +44,10 @@ public class UploadFile {
 
     private byte[] content;
 
+    private File file;
+
+    private long size;
+
     /**
      * 根据文件内容构造
      *
@@ -45,6 +56,19 @@ public class UploadFile {
     public UploadFile(String fileType, byte[] content) {
         this.content = content;
         this.fileType = fileType;
+        this.size = content == null ? 0 : content.length;
+    }
+
+    /**
+     * 根据保存文件内容的文件构造，文件内容在需要时才读取
+     *
+     * @param fileType
+     * @param file
+     */
+    public UploadFile(String fileType, File file) {
+        this.fileType = fileType;
+        this.file = file;
+        this.size = file.length();
     }
 
     /**
@@ -54,6 +78,7 @@ public class UploadFile {
     public UploadFile(File file) {
         try {
             this.content = FileUtils.readFileToByteArray(file);
+            this.size = content.length;
             this.fileType = file.getName().substring(file.getName().lastIndexOf('.')+1);
         } catch (IOException e) {
             throw new RuntimeException(e);
@@ -64,9 +89,71 @@ public class UploadFile {
         return fileType;
     }
 
+    /**
+     * 获取文件内容，内容保存在文件中时将整个文件读入内存
+     *
+     * @return
+     */
     public byte[] getContent() {
+        if (content == null && file != null) {
+            try {
+                content = FileUtils.readFileToByteArray(file);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
         return content;
     }
+
+    /**
+     * 获取文件的字节数
+     *
+     * @return
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * 以流的方式读取文件内容
+     *
+     * @return
+     * @throws IOException
+     */
+    public InputStream getInputStream() throws IOException {
+        if (content == null && file != null) {
+            return new FileInputStream(file);
+        }
+        return new ByteArrayInputStream(content == null ? new byte[0] : content);
+    }
+
+    /**
+     * 获取文件内容的只读视图，内容保存在文件中时为内存映射的视图
+     *
+     * @return
+     * @throws IOException
+     */
+    public ByteBuffer getByteBuffer() throws IOException {
+        if (content == null && file != null) {
+            RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+            try {
+                FileChannel channel = randomAccessFile.getChannel();
+                return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            } finally {
+                randomAccessFile.close();
+            }
+        }
+        return ByteBuffer.wrap(content == null ? new byte[0] : content).asReadOnlyBuffer();
+    }
+
+    /**
+     * 保存文件内容的文件，文件内容在内存中时返回null
+     *
+     * @return
+     */
+    public File getFile() {
+        return file;
+    }
 }
 
 
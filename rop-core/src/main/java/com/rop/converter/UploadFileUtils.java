@@ -62,6 +62,28 @@ public class UploadFileUtils {
         }
     }
 
+    /**
+     * 根据BASE64编码的长度计算文件的字节数，无需解码文件内容
+     *
+     * @param encodeFile
+     * @return
+     */
+    public static final int getDecodedSize(String encodeFile) {
+        int speratorIndex = encodeFile.indexOf(SPERATOR);
+        if (speratorIndex < 0) {
+            throw new IllegalUploadFileFormatException("文件格式不对，正确格式为：<文件格式>@<文件内容>");
+        }
+        long chars = 0;
+        for (int i = speratorIndex + 1; i < encodeFile.length(); i++) {
+            char c = encodeFile.charAt(i);
+            // 空白字符及填充字符不计入
+            if (c != '=' && !Character.isWhitespace(c)) {
+                chars++;
+            }
+        }
+        return (int) (chars * 3 / 4);
+    }
+
     /**
      * 将文件编码为BASE64的字符串
      *
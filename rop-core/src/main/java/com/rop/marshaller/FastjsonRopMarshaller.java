@@ -17,9 +17,11 @@ package com.rop.marshaller;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.Iterator;
 
 import com.alibaba.fastjson.JSON;
 import com.rop.RopMarshaller;
+import com.rop.response.StreamingResponse;
 
 /**
  * 使用fastjson进行json数据转换
@@ -27,6 +29,31 @@ import com.rop.RopMarshaller;
 public class FastjsonRopMarshaller implements RopMarshaller {
 
 	public void marshaller(Object object, OutputStream outputStream) throws IOException {
+		if (object instanceof StreamingResponse) {
+			marshallerStreaming((StreamingResponse<?>) object, outputStream);
+			return;
+		}
 		outputStream.write(JSON.toJSONBytes(object));
 	}
+
+	/**
+	 * 增量输出流式响应，按流式响应的刷新间隔刷新输出流
+	 */
+	private void marshallerStreaming(StreamingResponse<?> streamingResponse, OutputStream outputStream)
+			throws IOException {
+		outputStream.write(("{" + JSON.toJSONString(streamingResponse.getItemsName()) + ":[").getBytes("utf-8"));
+		int count = 0;
+		Iterator<?> iterator = streamingResponse.getIterator();
+		while (iterator.hasNext()) {
+			if (count > 0) {
+				outputStream.write(',');
+			}
+			outputStream.write(JSON.toJSONBytes(iterator.next()));
+			if (streamingResponse.isFlushNeeded(++count)) {
+				outputStream.flush();
+			}
+		}
+		outputStream.write("]}".getBytes("utf-8"));
+		outputStream.flush();
+	}
 }
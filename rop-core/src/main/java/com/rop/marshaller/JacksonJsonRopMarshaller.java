@@ -18,11 +18,16 @@ package com.rop.marshaller;
 import com.fasterxml.jackson.core.JsonEncoding;
 import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import com.rop.RopMarshaller;
+import com.rop.response.StreamingResponse;
 import com.rop.utils.ObjectMapperUtils;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.Collection;
+import java.util.Iterator;
 
 /**
  * <pre>
@@ -38,14 +43,54 @@ public class JacksonJsonRopMarshaller implements RopMarshaller {
 
     public void marshaller(Object object, OutputStream outputStream) throws IOException {
     	JsonGenerator jsonGenerator = getObjectMapper().getFactory().createGenerator(outputStream, JsonEncoding.UTF8);
+    	if (object instanceof StreamingResponse) {
+    		marshallerStreaming((StreamingResponse<?>) object, jsonGenerator);
+    		return;
+    	}
     	getObjectMapper().writeValue(jsonGenerator, object);
     }
 
+    /**
+     * 增量输出流式响应，每个元素序列化后不立即刷新，按流式响应的刷新间隔刷新输出流
+     *
+     * @param streamingResponse
+     * @param jsonGenerator
+     * @throws IOException
+     */
+    private void marshallerStreaming(StreamingResponse<?> streamingResponse, JsonGenerator jsonGenerator)
+            throws IOException {
+        ObjectWriter objectWriter = getObjectMapper().writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        jsonGenerator.writeStartObject();
+        jsonGenerator.writeArrayFieldStart(streamingResponse.getItemsName());
+        int count = 0;
+        Iterator<?> iterator = streamingResponse.getIterator();
+        while (iterator.hasNext()) {
+            objectWriter.writeValue(jsonGenerator, iterator.next());
+            if (streamingResponse.isFlushNeeded(++count)) {
+                jsonGenerator.flush();
+            }
+        }
+        jsonGenerator.writeEndArray();
+        jsonGenerator.writeEndObject();
+        jsonGenerator.flush();
+    }
+
+    /**
+     * 预先构建并缓存响应类的序列化器（包括生成访问属性的字节码），避免在首次请求时才构建
+     *
+     * @param responseTypes
+     */
+    public void prepare(Collection<Class<?>> responseTypes) {
+        for (Class<?> responseType : responseTypes) {
+            getObjectMapper().canSerialize(responseType);
+        }
+    }
+
     public void setObjectMapper(ObjectMapper objectMapper){
     	this.objectMapper = objectMapper;
     }
     
-	private ObjectMapper getObjectMapper() throws IOException {
+	private ObjectMapper getObjectMapper() {
     	if (objectMapper == null) {
     		objectMapper = ObjectMapperUtils.getObjectMapper();
         }
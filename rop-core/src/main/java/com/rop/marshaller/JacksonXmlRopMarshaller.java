@@ -0,0 +1,92 @@
+/*
+ * Copyright 2012-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.rop.marshaller;
+
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.xml.XmlMapper;
+import com.fasterxml.jackson.dataformat.xml.ser.ToXmlGenerator;
+import com.rop.RopMarshaller;
+import com.rop.response.StreamingResponse;
+import com.rop.utils.ObjectMapperUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+
+/**
+ * <pre>
+ *    使用Jackson将对象流化成XML，按JAXB注解确定元素名及属性，报文与{@link JaxbXmlRopMarshaller}的兼容。
+ * {@link XmlMapper}是线程安全的，无需像JAXB那样每次创建{@link javax.xml.bind.Marshaller}，输出的报文不缩进。
+ * </pre>
+ *
+ * @author 陈雄华
+ * @version 1.0
+ */
+public class JacksonXmlRopMarshaller implements RopMarshaller {
+
+    private XmlMapper xmlMapper;
+
+    public void marshaller(Object object, OutputStream outputStream) throws IOException {
+        if (object instanceof StreamingResponse) {
+            marshallerStreaming((StreamingResponse<?>) object, outputStream);
+            return;
+        }
+        getXmlMapper().writeValue(outputStream, object);
+    }
+
+    /**
+     * 增量输出流式响应：先输出根元素，再将每个元素作为XML片段序列化到缓冲区中，按流式响应的刷新间隔刷新输出流
+     *
+     * @param streamingResponse
+     * @param outputStream
+     * @throws IOException
+     */
+    private void marshallerStreaming(StreamingResponse<?> streamingResponse, OutputStream outputStream)
+            throws IOException {
+        outputStream.write(("<?xml version=\"1.0\" encoding=\"utf-8\" standalone=\"yes\"?>\n<"
+                + streamingResponse.getRootName() + ">\n").getBytes("utf-8"));
+        ObjectWriter objectWriter = getXmlMapper().writer().withRootName(streamingResponse.getItemsName());
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        int count = 0;
+        Iterator<?> iterator = streamingResponse.getIterator();
+        while (iterator.hasNext()) {
+            buffer.reset();
+            ToXmlGenerator xmlGenerator = (ToXmlGenerator) getXmlMapper().getFactory().createGenerator(buffer);
+            xmlGenerator.disable(ToXmlGenerator.Feature.WRITE_XML_DECLARATION);
+            objectWriter.writeValue(xmlGenerator, iterator.next());
+            xmlGenerator.close();
+            buffer.write('\n');
+            buffer.writeTo(outputStream);
+            if (streamingResponse.isFlushNeeded(++count)) {
+                outputStream.flush();
+            }
+        }
+        outputStream.write(("</" + streamingResponse.getRootName() + ">").getBytes("utf-8"));
+        outputStream.flush();
+    }
+
+    public void setXmlMapper(XmlMapper xmlMapper) {
+        this.xmlMapper = xmlMapper;
+    }
+
+    private XmlMapper getXmlMapper() {
+        if (xmlMapper == null) {
+            xmlMapper = ObjectMapperUtils.getXmlMapper();
+        }
+        return xmlMapper;
+    }
+}
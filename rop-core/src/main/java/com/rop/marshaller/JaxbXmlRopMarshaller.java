@@ -17,11 +17,18 @@ package com.rop.marshaller;
 
 import com.rop.RopException;
 import com.rop.RopMarshaller;
+import com.rop.response.StreamingResponse;
 
 import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBElement;
 import javax.xml.bind.JAXBException;
 import javax.xml.bind.Marshaller;
+import javax.xml.namespace.QName;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -40,11 +47,56 @@ public class JaxbXmlRopMarshaller implements RopMarshaller {
 
     public void marshaller(Object object, OutputStream outputStream) {
         try {
+            if (object instanceof StreamingResponse) {
+                marshallerStreaming((StreamingResponse<?>) object, outputStream);
+                return;
+            }
             Marshaller m = buildMarshaller(object.getClass());
             m.marshal(object, outputStream);
         } catch (JAXBException e) {
             throw new RopException(e);
+        } catch (IOException e) {
+            throw new RopException(e);
+        }
+    }
+
+    /**
+     * 增量输出流式响应：先输出根元素，再将每个元素作为XML片段序列化。
+     * JAXB每次序列化后都会刷新输出流，因此元素先序列化到缓冲区中，再按流式响应的刷新间隔刷新输出流
+     *
+     * @param streamingResponse
+     * @param outputStream
+     * @throws JAXBException
+     * @throws IOException
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private void marshallerStreaming(StreamingResponse<?> streamingResponse, OutputStream outputStream)
+            throws JAXBException, IOException {
+        outputStream.write(("<?xml version=\"1.0\" encoding=\"utf-8\" standalone=\"yes\"?>\n<"
+                + streamingResponse.getRootName() + ">\n").getBytes("utf-8"));
+        QName itemName = new QName(streamingResponse.getItemsName());
+        Map<Class<?>, Marshaller> marshallers = new HashMap<Class<?>, Marshaller>();
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        int count = 0;
+        Iterator<?> iterator = streamingResponse.getIterator();
+        while (iterator.hasNext()) {
+            Object item = iterator.next();
+            Marshaller m = marshallers.get(item.getClass());
+            if (m == null) {
+                m = buildMarshaller(item.getClass());
+                m.setProperty(Marshaller.JAXB_FRAGMENT, true);
+                marshallers.put(item.getClass(), m);
+            }
+            buffer.reset();
+            m.marshal(new JAXBElement(itemName, item.getClass(), item), buffer);
+            buffer.write('\n');
+            buffer.writeTo(outputStream);
+            if (streamingResponse.isFlushNeeded(++count)) {
+                outputStream.flush();
+            }
         }
+        outputStream.write(("</" + streamingResponse.getRootName() + ">").getBytes("utf-8"));
+        outputStream.flush();
     }
 
 
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2012-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.rop.response;
+
+import com.rop.CommonConstant;
+
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlAnyElement;
+import javax.xml.bind.annotation.XmlAttribute;
+import javax.xml.bind.annotation.XmlRootElement;
+import java.util.List;
+
+/**
+ * <pre>
+ *    批量调用的响应对象，responses按请求中子调用的顺序依次存放各子调用的响应报文，
+ * 子调用的响应可能是正常的响应，也可能是{@link ErrorResponse}。
+ * 由于各子调用的响应类型不同，反序列化时XML格式的元素为{@link org.w3c.dom.Element}，
+ * JSON格式的元素为JSON库的Map对象，需要再转换为具体的响应类型。
+ * </pre>
+ *
+ * @author 陈雄华
+ * @version 1.0
+ */
+@XmlAccessorType(XmlAccessType.FIELD)
+@XmlRootElement(name = "batchResponse")
+public class BatchResponse {
+
+    @XmlAttribute
+    protected String batchToken = CommonConstant.BATCH_TOKEN;
+
+    @XmlAnyElement
+    protected List<Object> responses;
+
+    public String getBatchToken() {
+        return batchToken;
+    }
+
+    public void setBatchToken(String batchToken) {
+        this.batchToken = batchToken;
+    }
+
+    public List<Object> getResponses() {
+        return responses;
+    }
+
+    public void setResponses(List<Object> responses) {
+        this.responses = responses;
+    }
+}
@@ -0,0 +1,104 @@
+/**
+ * Copyright 2012-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.rop.response;
+
+import java.io.File;
+import java.net.URLConnection;
+
+/**
+ * <pre>
+ *    文件响应对象，用于下载文件。服务方法返回该对象时，服务路由器直接将文件内容作为响应报文体输出，
+ * 不经过序列化器，也不压缩：Servlet容器支持sendfile时交由容器以零拷贝方式发送，
+ * 否则通过{@link java.nio.channels.FileChannel#transferTo}写入响应的输出流。
+ *    响应设置Content-Length、Last-Modified及ETag报文头，支持单个区间的Range请求（断点续传），
+ * 不需要再使用{@link com.rop.MessageFormat#STREAM}格式由服务自己输出。
+ * </pre>
+ *
+ * @author 陈雄华
+ * @version 1.0
+ */
+public class FileResponse {
+
+    public static final String DEFAULT_CONTENT_TYPE = "application/octet-stream";
+
+    private final File file;
+
+    private String contentType;
+
+    private String fileName;
+
+    private boolean attachment = true;
+
+    public FileResponse(File file) {
+        this(file, null);
+    }
+
+    /**
+     * @param file        要下载的文件
+     * @param contentType 文件的内容类型，为空时根据文件名推断
+     */
+    public FileResponse(File file, String contentType) {
+        this.file = file;
+        this.contentType = contentType;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * 文件的内容类型，没有指定时根据文件名推断，无法推断时为application/octet-stream
+     *
+     * @return
+     */
+    public String getContentType() {
+        if (contentType != null) {
+            return contentType;
+        }
+        String guessed = URLConnection.guessContentTypeFromName(file.getName());
+        return guessed != null ? guessed : DEFAULT_CONTENT_TYPE;
+    }
+
+    public void setContentType(String contentType) {
+        this.contentType = contentType;
+    }
+
+    /**
+     * 客户端保存文件时使用的文件名，没有指定时使用文件本身的名称
+     *
+     * @return
+     */
+    public String getFileName() {
+        return fileName != null ? fileName : file.getName();
+    }
+
+    public void setFileName(String fileName) {
+        this.fileName = fileName;
+    }
+
+    /**
+     * 是否以附件方式下载（Content-Disposition为attachment），为false时浏览器直接打开（inline）
+     *
+     * @return
+     */
+    public boolean isAttachment() {
+        return attachment;
+    }
+
+    public void setAttachment(boolean attachment) {
+        this.attachment = attachment;
+    }
+}
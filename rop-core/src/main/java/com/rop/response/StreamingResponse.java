@@ -0,0 +1,115 @@
+/**
+ * Copyright 2012-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.rop.response;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Iterator;
+
+/**
+ * <pre>
+ *    流式响应对象，用于输出大结果集。服务方法返回该对象时，元素不在服务方法中一次性加载到内存，
+ * 而是在输出响应时由序列化器逐个从迭代器中取出并增量输出，每输出{@link #getFlushSize()}个元素
+ * 刷新一次输出流（以分块传输方式发送给客户端），内存占用与结果集的大小无关。
+ *    响应报文的格式与包含一个列表属性的普通响应对象相同：
+ * JSON格式为{"itemsName":[..]}，XML格式为&lt;rootName&gt;&lt;itemsName&gt;..&lt;/itemsName&gt;..&lt;/rootName&gt;。
+ *    迭代器实现了{@link Closeable}时（如数据库游标），输出完成后会被关闭，也可以覆盖{@link #close()}释放其它资源。
+ * </pre>
+ *
+ * @author 陈雄华
+ * @version 1.0
+ */
+public class StreamingResponse<T> implements Closeable {
+
+    public static final int DEFAULT_FLUSH_SIZE = 100;
+
+    private final String rootName;
+
+    private final String itemsName;
+
+    private final Iterator<? extends T> iterator;
+
+    private int flushSize = DEFAULT_FLUSH_SIZE;
+
+    private boolean closed;
+
+    /**
+     * @param rootName  XML格式的根元素名
+     * @param itemsName 元素的名称，即JSON格式的列表属性名及XML格式的元素名
+     * @param iterator  元素迭代器，只能被迭代一次
+     */
+    public StreamingResponse(String rootName, String itemsName, Iterator<? extends T> iterator) {
+        this.rootName = rootName;
+        this.itemsName = itemsName;
+        this.iterator = iterator;
+    }
+
+    public StreamingResponse(String rootName, String itemsName, Iterable<? extends T> iterable) {
+        this(rootName, itemsName, iterable.iterator());
+    }
+
+    public String getRootName() {
+        return rootName;
+    }
+
+    public String getItemsName() {
+        return itemsName;
+    }
+
+    public Iterator<? extends T> getIterator() {
+        return iterator;
+    }
+
+    /**
+     * 每输出多少个元素刷新一次输出流，小于等于0时只在输出完成时刷新
+     *
+     * @return
+     */
+    public int getFlushSize() {
+        return flushSize;
+    }
+
+    public void setFlushSize(int flushSize) {
+        this.flushSize = flushSize;
+    }
+
+    /**
+     * 是否需要在输出第count个元素后刷新输出流
+     *
+     * @param count 已输出的元素数
+     * @return
+     */
+    public boolean isFlushNeeded(int count) {
+        return flushSize > 0 && count % flushSize == 0;
+    }
+
+    /**
+     * 释放迭代器持有的资源，可以多次调用
+     *
+     * @throws IOException
+     */
+    public void close() throws IOException {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        if (iterator instanceof Closeable) {
+            ((Closeable) iterator).close();
+        }
+    }
+}
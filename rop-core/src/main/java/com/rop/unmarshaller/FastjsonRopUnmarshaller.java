@@ -16,8 +16,14 @@
 package com.rop.unmarshaller;
 
 import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONReader;
+import com.rop.RopException;
 import com.rop.RopUnmarshaller;
 
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UnsupportedEncodingException;
+
 /**
  * 使用fastjson将json数据转换成java对象
  */
@@ -26,4 +32,13 @@ public class FastjsonRopUnmarshaller implements RopUnmarshaller {
 	public <T> T unmarshaller(String content, Class<T> objectType) {
 		return JSON.parseObject(content, objectType);
 	}
+
+	public <T> T unmarshaller(InputStream in, Class<T> objectType) {
+		try {
+			JSONReader reader = new JSONReader(new InputStreamReader(in, "UTF-8"));
+			return reader.readObject(objectType);
+		} catch (UnsupportedEncodingException e) {
+			throw new RopException(e);
+		}
+	}
 }
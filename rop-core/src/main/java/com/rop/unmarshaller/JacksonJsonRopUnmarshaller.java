@@ -21,6 +21,7 @@ import com.rop.RopUnmarshaller;
 import com.rop.utils.ObjectMapperUtils;
 
 import java.io.IOException;
+import java.io.InputStream;
 
 /**
  * <pre>
@@ -42,6 +43,14 @@ public class JacksonJsonRopUnmarshaller implements RopUnmarshaller {
         }
     }
 
+    public <T> T unmarshaller(InputStream in, Class<T> objectType) {
+        try {
+            return getObjectMapper().readValue(in, objectType);
+        } catch (IOException e) {
+            throw new RopException(e);
+        }
+    }
+
     private ObjectMapper getObjectMapper() {
         if (objectMapper == null) {
             objectMapper = ObjectMapperUtils.getObjectMapper();
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2012-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.rop.unmarshaller;
+
+import com.fasterxml.jackson.dataformat.xml.XmlMapper;
+import com.rop.RopException;
+import com.rop.RopUnmarshaller;
+import com.rop.utils.ObjectMapperUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * <pre>
+ * 功能说明：使用Jackson按JAXB注解将xml数据转换成java对象，直接从输入流中流式解析，
+ * 根元素名不作校验，因此没有标注@XmlRootElement的类也可以解析
+ * </pre>
+ *
+ * @author 陈雄华
+ * @version 1.0
+ */
+public class JacksonXmlRopUnmarshaller implements RopUnmarshaller {
+
+    private XmlMapper xmlMapper;
+
+    public <T> T unmarshaller(String content, Class<T> objectType) {
+        try {
+            return getXmlMapper().readValue(content, objectType);
+        } catch (IOException e) {
+            throw new RopException(e);
+        }
+    }
+
+    public <T> T unmarshaller(InputStream in, Class<T> objectType) {
+        try {
+            return getXmlMapper().readValue(in, objectType);
+        } catch (IOException e) {
+            throw new RopException(e);
+        }
+    }
+
+    private XmlMapper getXmlMapper() {
+        if (xmlMapper == null) {
+            xmlMapper = ObjectMapperUtils.getXmlMapper();
+        }
+        return xmlMapper;
+    }
+
+    public void setXmlMapper(XmlMapper xmlMapper) {
+        this.xmlMapper = xmlMapper;
+    }
+}
@@ -23,7 +23,10 @@ import org.xml.sax.InputSource;
 import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
 import javax.xml.bind.Unmarshaller;
+import javax.xml.bind.annotation.XmlRootElement;
+import javax.xml.transform.stream.StreamSource;
 
+import java.io.InputStream;
 import java.io.StringReader;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -52,6 +55,19 @@ public class JaxbXmlRopUnmarshaller implements RopUnmarshaller {
         }
     }
 
+    public <T> T unmarshaller(InputStream in, Class<T> objectType) {
+        try {
+            Unmarshaller unmarshaller = buildUnmarshaller(objectType);
+            if (objectType.isAnnotationPresent(XmlRootElement.class)) {
+                return objectType.cast(unmarshaller.unmarshal(in));
+            }
+            //没有标注@XmlRootElement的类（如以请求体发送的请求对象），按声明的类型解析根元素
+            return unmarshaller.unmarshal(new StreamSource(in), objectType).getValue();
+        } catch (JAXBException e) {
+            throw new RopException(e);
+        }
+    }
+
     private Unmarshaller buildUnmarshaller(Class<?> objectType) throws JAXBException {
         if (!jaxbContextHashMap.containsKey(objectType)) {
             JAXBContext context = JAXBContext.newInstance(objectType);
@@ -19,37 +19,107 @@ import java.io.IOException;
 import java.text.SimpleDateFormat;
 import java.util.TimeZone;
 
-import org.apache.commons.lang.StringEscapeUtils;
-
 import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.AnnotationIntrospector;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.JsonSerializer;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.databind.SerializerProvider;
-import com.fasterxml.jackson.databind.module.SimpleModule;
 import com.fasterxml.jackson.databind.type.TypeFactory;
+import com.fasterxml.jackson.databind.util.ISO8601DateFormat;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.xml.JacksonXmlModule;
+import com.fasterxml.jackson.dataformat.xml.XmlMapper;
+import com.fasterxml.jackson.dataformat.xml.ser.ToXmlGenerator;
+import com.fasterxml.jackson.module.afterburner.AfterburnerModule;
 import com.fasterxml.jackson.module.jaxb.JaxbAnnotationIntrospector;
 
 public class ObjectMapperUtils {
 
 	private static ObjectMapper objectMapper;
+
+	private static volatile ObjectMapper smileObjectMapper;
+
+	private static volatile ObjectMapper cborObjectMapper;
+
+	private static volatile XmlMapper xmlMapper;
 	
 	public static ObjectMapper getObjectMapper(){
 		if(objectMapper == null){
 			synchronized (ObjectMapperUtils.class) {
 				if(objectMapper == null){
-					objectMapper = createObjectMapper();
+					objectMapper = createObjectMapper(new JsonFactory());
 				}
 			}
 		}
 		return objectMapper;
 	}
 
-	private static ObjectMapper createObjectMapper() {
-		ObjectMapper objectMapper = new ObjectMapper();
-		objectMapper.setAnnotationIntrospector(new JaxbAnnotationIntrospector(TypeFactory.defaultInstance(), true));
+	/**
+	 * 获取输出Smile二进制格式的ObjectMapper，配置与JSON格式的相同
+	 * @return
+	 */
+	public static ObjectMapper getSmileObjectMapper(){
+		if(smileObjectMapper == null){
+			synchronized (ObjectMapperUtils.class) {
+				if(smileObjectMapper == null){
+					smileObjectMapper = createObjectMapper(new SmileFactory());
+				}
+			}
+		}
+		return smileObjectMapper;
+	}
+
+	/**
+	 * 获取输出CBOR二进制格式的ObjectMapper，配置与JSON格式的相同
+	 * @return
+	 */
+	public static ObjectMapper getCborObjectMapper(){
+		if(cborObjectMapper == null){
+			synchronized (ObjectMapperUtils.class) {
+				if(cborObjectMapper == null){
+					cborObjectMapper = createObjectMapper(new CBORFactory());
+				}
+			}
+		}
+		return cborObjectMapper;
+	}
+
+	/**
+	 * 获取输出XML格式的XmlMapper，使用JAXB注解，输出的报文与JAXB的兼容：
+	 * 集合不额外包装（除非标注了@XmlElementWrapper），不输出null值，日期为ISO8601（xsd:dateTime）格式。
+	 * JDK自带的StAX实现在处理JAXB注解的空命名空间时有缺陷，因此需要使用Woodstox
+	 * @return
+	 */
+	public static XmlMapper getXmlMapper(){
+		if(xmlMapper == null){
+			synchronized (ObjectMapperUtils.class) {
+				if(xmlMapper == null){
+					JacksonXmlModule xmlModule = new JacksonXmlModule();
+					xmlModule.setDefaultUseWrapper(false);
+					XmlMapper mapper = new XmlMapper(xmlModule);
+					mapper.setAnnotationIntrospector(new JaxbAnnotationIntrospector(TypeFactory.defaultInstance(), true));
+					mapper.setSerializationInclusion(Include.NON_NULL);
+					mapper.disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+					mapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+					mapper.setDateFormat(new ISO8601DateFormat());
+					mapper.configure(ToXmlGenerator.Feature.WRITE_XML_DECLARATION, true);
+					xmlMapper = mapper;
+				}
+			}
+		}
+		return xmlMapper;
+	}
+
+	private static ObjectMapper createObjectMapper(JsonFactory jsonFactory) {
+		ObjectMapper objectMapper = new ObjectMapper(jsonFactory);
+		objectMapper.setAnnotationIntrospector(AnnotationIntrospector.pair(new UnescapeHtmlAnnotationIntrospector(),
+				new JaxbAnnotationIntrospector(TypeFactory.defaultInstance(), true)));
 		objectMapper.setDateFormat(new SimpleDateFormat("yyyy-MM-dd HH:mm:sss"));
 		objectMapper.setSerializationInclusion(Include.NON_EMPTY);
 		objectMapper.disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
@@ -63,16 +133,8 @@ public class ObjectMapperUtils {
 						jgen.writeString("");
 					}
 				});
-		// 进行HTML解码。
-		objectMapper.registerModule(new SimpleModule().addSerializer(
-				String.class, new JsonSerializer<String>() {
-					@Override
-					public void serialize(String value, JsonGenerator jgen,
-							SerializerProvider provider) throws IOException,
-							JsonProcessingException {
-						jgen.writeString(StringEscapeUtils.unescapeHtml(value));
-					}
-				}));
+		// 在首次序列化某个类时生成字节码访问其属性，取代反射调用
+		objectMapper.registerModule(new AfterburnerModule());
 		// 设置时区
 		objectMapper.setTimeZone(TimeZone.getDefault());
 		return objectMapper;
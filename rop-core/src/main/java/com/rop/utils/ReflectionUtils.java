@@ -90,9 +90,9 @@ public abstract class ReflectionUtils {
         },
         new FieldFilter() {
             public boolean matches(Field field) {
-                //属性定义处标注了@Temporary
+                //排除静态属性及属性定义处标注了@Temporary的属性
                 Temporary temporary = field.getAnnotation(Temporary.class);
-                return temporary != null;
+                return temporary == null && !Modifier.isStatic(field.getModifiers());
             }
         });
     	return list;
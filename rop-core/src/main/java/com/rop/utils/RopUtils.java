@@ -33,6 +33,11 @@ import java.util.*;
  */
 public class RopUtils {
 
+    /**
+     * 请求体摘要的算法，业务参数以请求体发送时，请求体的摘要作为系统级参数参与签名
+     */
+    public static final String BODY_DIGEST_ALGORITHM = "SHA-256";
+
     /**
      * 使用<code>secret</code>对paramValues按以下算法进行签名： <br/>
      * uppercase(hex(sha1(secretkey1value1key2value2...secret))
@@ -108,6 +113,19 @@ public class RopUtils {
         return bytes;
     }
 
+    /**
+     * 创建计算请求体摘要的{@link MessageDigest}
+     *
+     * @return MessageDigest
+     */
+    public static MessageDigest newBodyDigest() {
+        try {
+            return MessageDigest.getInstance(BODY_DIGEST_ALGORITHM);
+        } catch (GeneralSecurityException e) {
+            throw new RopException(e);
+        }
+    }
+
     /**
      * 二进制转十六进制字符串
      *
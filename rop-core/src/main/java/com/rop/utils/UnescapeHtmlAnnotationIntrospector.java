@@ -0,0 +1,65 @@
+/*
+ * Copyright 2012-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.rop.utils;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.introspect.Annotated;
+import com.fasterxml.jackson.databind.introspect.NopAnnotationIntrospector;
+import com.rop.annotation.UnescapeHtml;
+import org.apache.commons.lang.StringEscapeUtils;
+
+import java.io.IOException;
+import java.util.Collection;
+
+/**
+ * <pre>
+ * 功能说明：为标注了{@link UnescapeHtml}的属性指定进行HTML解码的序列化器，
+ * 字符串属性直接使用该序列化器，字符串集合或数组属性将其作为元素的序列化器。
+ * </pre>
+ *
+ * @author 陈雄华
+ * @version 1.0
+ */
+class UnescapeHtmlAnnotationIntrospector extends NopAnnotationIntrospector {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final JsonSerializer<String> UNESCAPE_HTML_SERIALIZER = new JsonSerializer<String>() {
+        @Override
+        public void serialize(String value, JsonGenerator jgen, SerializerProvider provider) throws IOException {
+            jgen.writeString(StringEscapeUtils.unescapeHtml(value));
+        }
+    };
+
+    @Override
+    public Object findSerializer(Annotated am) {
+        if (am.hasAnnotation(UnescapeHtml.class) && am.getRawType() == String.class) {
+            return UNESCAPE_HTML_SERIALIZER;
+        }
+        return null;
+    }
+
+    @Override
+    public Object findContentSerializer(Annotated am) {
+        if (am.hasAnnotation(UnescapeHtml.class)
+                && (Collection.class.isAssignableFrom(am.getRawType()) || am.getRawType() == String[].class)) {
+            return UNESCAPE_HTML_SERIALIZER;
+        }
+        return null;
+    }
+}
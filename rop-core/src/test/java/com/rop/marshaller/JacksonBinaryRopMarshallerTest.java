@@ -0,0 +1,93 @@
+/*
+ * Copyright 2012-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.rop.marshaller;
+
+import com.rop.RopMarshaller;
+import com.rop.RopUnmarshaller;
+import com.rop.unmarshaller.JacksonCborRopUnmarshaller;
+import com.rop.unmarshaller.JacksonSmileRopUnmarshaller;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * <pre>
+ * 功能说明：Smile及CBOR二进制格式的序列化和反序列化
+ * </pre>
+ *
+ * @author 陈雄华
+ * @version 1.0
+ */
+public class JacksonBinaryRopMarshallerTest {
+
+    @Test
+    public void testSmile() throws IOException {
+        assertRoundTrip(new JacksonSmileRopMarshaller(), new JacksonSmileRopUnmarshaller());
+    }
+
+    @Test
+    public void testCbor() throws IOException {
+        assertRoundTrip(new JacksonCborRopMarshaller(), new JacksonCborRopUnmarshaller());
+    }
+
+    private void assertRoundTrip(RopMarshaller marshaller, RopUnmarshaller unmarshaller) throws IOException {
+        Foo foo = new Foo();
+        foo.setB1(true);
+        foo.setI2(2);
+        foo.setOk("ok");
+        Bar bar = new Bar();
+        bar.setFoo(foo);
+        byte[] content = marshall(marshaller, bar);
+        assertEquals(bar, unmarshaller.unmarshaller(new ByteArrayInputStream(content), Bar.class));
+
+        SampleResponse sampleResponse = newSampleResponse(20);
+        content = marshall(marshaller, sampleResponse);
+        assertTrue(content.length < marshall(new JacksonJsonRopMarshaller(), sampleResponse).length);
+        SampleResponse actual = unmarshaller.unmarshaller(new ByteArrayInputStream(content), SampleResponse.class);
+        assertEquals(sampleResponse.getUserId(), actual.getUserId());
+        assertEquals(sampleResponse.getTable(), actual.getTable());
+    }
+
+    private static byte[] marshall(RopMarshaller marshaller, Object object) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        marshaller.marshaller(object, out);
+        return out.toByteArray();
+    }
+
+    static SampleResponse newSampleResponse(int rows) {
+        SampleResponse sampleResponse = new SampleResponse();
+        sampleResponse.setUserId("1");
+        sampleResponse.setCreateTime("2016-01-01 00:00:00");
+        List<HashMap<String, Object>> table = new ArrayList<HashMap<String, Object>>(rows);
+        for (int i = 0; i < rows; i++) {
+            HashMap<String, Object> row = new HashMap<String, Object>();
+            row.put("id", i);
+            row.put("userName", "tom" + i);
+            row.put("salary", 2500 + i);
+            table.add(row);
+        }
+        sampleResponse.setTable(table);
+        return sampleResponse;
+    }
+}
@@ -17,12 +17,18 @@ package com.rop.marshaller;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
+import com.rop.annotation.UnescapeHtml;
 import org.junit.Test;
 
+import java.io.ByteArrayOutputStream;
+
+import static org.junit.Assert.assertEquals;
+
 /**
  * @author : chenxh(quickselect@163.com)
  * @date: 14-3-27
@@ -61,4 +67,50 @@ public class JacksonJsonRopMarshallerTest {
         maps.put("2",f1);
         marshaller.marshaller(maps,System.out);
     }
+
+    @Test
+    public void testUnescapeHtml() throws IOException{
+        HtmlBean htmlBean = new HtmlBean();
+        htmlBean.setEscaped("&lt;b&gt;");
+        htmlBean.setRaw("&lt;b&gt;");
+        htmlBean.setTags(Arrays.asList("&amp;", "a"));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        marshaller.marshaller(htmlBean, out);
+        assertEquals("{\"escaped\":\"<b>\",\"raw\":\"&lt;b&gt;\",\"tags\":[\"&\",\"a\"]}", out.toString("UTF-8"));
+    }
+
+    public static class HtmlBean {
+
+        @UnescapeHtml
+        private String escaped;
+
+        private String raw;
+
+        @UnescapeHtml
+        private List<String> tags;
+
+        public String getEscaped() {
+            return escaped;
+        }
+
+        public void setEscaped(String escaped) {
+            this.escaped = escaped;
+        }
+
+        public String getRaw() {
+            return raw;
+        }
+
+        public void setRaw(String raw) {
+            this.raw = raw;
+        }
+
+        public List<String> getTags() {
+            return tags;
+        }
+
+        public void setTags(List<String> tags) {
+            this.tags = tags;
+        }
+    }
 }
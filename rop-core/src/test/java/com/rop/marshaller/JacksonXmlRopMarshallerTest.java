@@ -0,0 +1,204 @@
+/*
+ * Copyright 2012-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.rop.marshaller;
+
+import com.rop.RopMarshaller;
+import com.rop.RopUnmarshaller;
+import com.rop.response.CommonRopResponse;
+import com.rop.response.ErrorResponse;
+import com.rop.response.StreamingResponse;
+import com.rop.response.SubError;
+import com.rop.unmarshaller.JacksonXmlRopUnmarshaller;
+import com.rop.unmarshaller.JaxbXmlRopUnmarshaller;
+import org.junit.Test;
+
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlAttribute;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlElementWrapper;
+import javax.xml.bind.annotation.XmlRootElement;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * <pre>
+ * 功能说明：{@link JacksonXmlRopMarshaller}与{@link JaxbXmlRopMarshaller}的兼容性测试，
+ * 两者输出的报文都可以被对方的反序列化器解析，解析结果再用JAXB序列化后的报文相同
+ * </pre>
+ *
+ * @author 陈雄华
+ * @version 1.0
+ */
+public class JacksonXmlRopMarshallerTest {
+
+    private JaxbXmlRopMarshaller jaxbMarshaller = new JaxbXmlRopMarshaller();
+
+    private JaxbXmlRopUnmarshaller jaxbUnmarshaller = new JaxbXmlRopUnmarshaller();
+
+    private JacksonXmlRopMarshaller jacksonMarshaller = new JacksonXmlRopMarshaller();
+
+    private JacksonXmlRopUnmarshaller jacksonUnmarshaller = new JacksonXmlRopUnmarshaller();
+
+    @Test
+    public void testErrorResponse() throws IOException {
+        ErrorResponse errorResponse = new ErrorResponse();
+        errorResponse.setCode("33");
+        errorResponse.setMessage("非法的参数");
+        errorResponse.setSolution("检查参数");
+        errorResponse.addSubError(new SubError("isv.parameters-mismatch:userName", "userName格式不正确"));
+        errorResponse.addSubError(new SubError("isv.missing-parameter:age", "缺少age参数"));
+        assertCompatible(errorResponse);
+    }
+
+    @Test
+    public void testCommonRopResponse() throws IOException {
+        assertCompatible(CommonRopResponse.SUCCESSFUL_RESPONSE);
+    }
+
+    @Test
+    public void testListResponse() throws IOException {
+        UserListResponse response = new UserListResponse();
+        response.setTotal(2);
+        response.setCreated(new Date(1451606400000L));
+        response.setUsers(Arrays.asList(new User("1", "tom"), new User("2", "<jack&rose>")));
+        response.setTags(Arrays.asList("a", "b"));
+        assertCompatible(response);
+    }
+
+    @Test
+    public void testStreamingResponse() throws IOException {
+        List<User> users = Arrays.asList(new User("1", "tom"), new User("2", "jack"));
+        String jaxbContent = marshall(jaxbMarshaller, new StreamingResponse<User>("users", "user", users));
+        String jacksonContent = marshall(jacksonMarshaller, new StreamingResponse<User>("users", "user", users));
+        UserListResponse expected = jaxbUnmarshaller.unmarshaller(jaxbContent, UserListResponse.class);
+        UserListResponse actual = jaxbUnmarshaller.unmarshaller(jacksonContent, UserListResponse.class);
+        assertEquals(2, actual.getUsers().size());
+        assertEquals(marshall(jaxbMarshaller, expected), marshall(jaxbMarshaller, actual));
+    }
+
+    @Test
+    public void testUnmarshallerFromInputStream() throws IOException {
+        User user = new User("1", "tom");
+        byte[] content = marshall(jaxbMarshaller, user).getBytes("utf-8");
+        User actual = jacksonUnmarshaller.unmarshaller(new ByteArrayInputStream(content), User.class);
+        assertEquals("1", actual.getId());
+        assertEquals("tom", actual.getName());
+    }
+
+    private void assertCompatible(Object response) throws IOException {
+        String expected = marshall(jaxbMarshaller, response);
+        String jacksonContent = marshall(jacksonMarshaller, response);
+        assertTrue(jacksonContent.startsWith("<?xml"));
+
+        //Jackson输出的报文由JAXB解析
+        Object fromJackson = jaxbUnmarshaller.unmarshaller(jacksonContent, response.getClass());
+        assertEquals(expected, marshall(jaxbMarshaller, fromJackson));
+
+        //JAXB输出的报文由Jackson解析
+        Object fromJaxb = jacksonUnmarshaller.unmarshaller(expected, response.getClass());
+        assertEquals(expected, marshall(jaxbMarshaller, fromJaxb));
+    }
+
+    private static String marshall(RopMarshaller marshaller, Object object) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        marshaller.marshaller(object, out);
+        return out.toString("utf-8");
+    }
+
+    @XmlAccessorType(XmlAccessType.FIELD)
+    @XmlRootElement(name = "users")
+    public static class UserListResponse {
+
+        @XmlAttribute
+        private int total;
+
+        @XmlElement(name = "user")
+        private List<User> users = new ArrayList<User>();
+
+        @XmlElementWrapper(name = "tags")
+        @XmlElement(name = "tag")
+        private List<String> tags;
+
+        private Date created;
+
+        public int getTotal() {
+            return total;
+        }
+
+        public void setTotal(int total) {
+            this.total = total;
+        }
+
+        public List<User> getUsers() {
+            return users;
+        }
+
+        public void setUsers(List<User> users) {
+            this.users = users;
+        }
+
+        public List<String> getTags() {
+            return tags;
+        }
+
+        public void setTags(List<String> tags) {
+            this.tags = tags;
+        }
+
+        public Date getCreated() {
+            return created;
+        }
+
+        public void setCreated(Date created) {
+            this.created = created;
+        }
+    }
+
+    @XmlAccessorType(XmlAccessType.FIELD)
+    @XmlRootElement(name = "user")
+    public static class User {
+
+        @XmlAttribute
+        private String id;
+
+        private String name;
+
+        public User() {
+        }
+
+        public User(String id, String name) {
+            this.id = id;
+            this.name = name;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public String getName() {
+            return name;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2012-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.rop.marshaller;
+
+import com.rop.MessageFormat;
+import com.rop.RopMarshaller;
+import com.rop.RopUnmarshaller;
+import com.rop.unmarshaller.JacksonCborRopUnmarshaller;
+import com.rop.unmarshaller.JacksonJsonRopUnmarshaller;
+import com.rop.unmarshaller.JacksonSmileRopUnmarshaller;
+import com.rop.unmarshaller.JacksonXmlRopUnmarshaller;
+import com.rop.unmarshaller.JaxbXmlRopUnmarshaller;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <pre>
+ * 功能说明：比较各报文格式序列化示例响应后的大小及序列化、反序列化的吞吐量，XML格式分别比较JAXB及Jackson的实现。
+ * 用法：java com.rop.marshaller.MessageFormatBenchmark [每项的执行次数] [示例响应的行数]
+ * </pre>
+ *
+ * @author 陈雄华
+ * @version 1.0
+ */
+public class MessageFormatBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        int rows = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+
+        Foo foo = new Foo();
+        foo.setB1(true);
+        foo.setI1(1);
+        foo.setI2(2);
+        foo.setOk("ok");
+        List<JacksonXmlRopMarshallerTest.User> users = new ArrayList<JacksonXmlRopMarshallerTest.User>(rows);
+        for (int i = 0; i < rows; i++) {
+            users.add(new JacksonXmlRopMarshallerTest.User(String.valueOf(i), "tom" + i));
+        }
+        JacksonXmlRopMarshallerTest.UserListResponse userList = new JacksonXmlRopMarshallerTest.UserListResponse();
+        userList.setTotal(rows);
+        userList.setUsers(users);
+        Object[] samples = {foo, JacksonBinaryRopMarshallerTest.newSampleResponse(rows), userList};
+
+        //XML格式分别比较JAXB及Jackson的实现
+        String[] formats = {MessageFormat.XML.name(), MessageFormat.XML.name() + "(jackson)", MessageFormat.JSON.name(),
+                MessageFormat.SMILE.name(), MessageFormat.CBOR.name()};
+        RopMarshaller[] marshallers = {new JaxbXmlRopMarshaller(), new JacksonXmlRopMarshaller(),
+                new JacksonJsonRopMarshaller(), new JacksonSmileRopMarshaller(), new JacksonCborRopMarshaller()};
+        RopUnmarshaller[] unmarshallers = {new JaxbXmlRopUnmarshaller(), new JacksonXmlRopUnmarshaller(),
+                new JacksonJsonRopUnmarshaller(), new JacksonSmileRopUnmarshaller(), new JacksonCborRopUnmarshaller()};
+
+        System.out.println(String.format("%-16s %-13s %10s %16s %16s", "sample", "format", "bytes", "marshal ops/s", "unmarshal ops/s"));
+        for (Object sample : samples) {
+            for (int i = 0; i < formats.length; i++) {
+                byte[] content = marshall(marshallers[i], sample);
+                //预热
+                run(marshallers[i], unmarshallers[i], sample, content, iterations / 10);
+                long[] elapsed = run(marshallers[i], unmarshallers[i], sample, content, iterations);
+                System.out.println(String.format("%-16s %-13s %10d %16.0f %16.0f", sample.getClass().getSimpleName(),
+                        formats[i], content.length, iterations * 1e9 / elapsed[0], iterations * 1e9 / elapsed[1]));
+            }
+        }
+    }
+
+    private static long[] run(RopMarshaller marshaller, RopUnmarshaller unmarshaller, Object sample, byte[] content,
+                              int iterations) throws Exception {
+        long beginTime = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            marshall(marshaller, sample);
+        }
+        long marshalTime = System.nanoTime() - beginTime;
+        beginTime = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            unmarshaller.unmarshaller(new ByteArrayInputStream(content), sample.getClass());
+        }
+        return new long[]{marshalTime, System.nanoTime() - beginTime};
+    }
+
+    private static byte[] marshall(RopMarshaller marshaller, Object object) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        marshaller.marshaller(object, out);
+        return out.toByteArray();
+    }
+}
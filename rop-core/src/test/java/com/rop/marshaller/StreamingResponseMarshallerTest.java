@@ -0,0 +1,132 @@
+/**
+ * Copyright 2012-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.rop.marshaller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rop.response.StreamingResponse;
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.NodeList;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * <pre>
+ * 功能说明：
+ * </pre>
+ *
+ * @author 陈雄华
+ * @version 1.0
+ */
+public class StreamingResponseMarshallerTest {
+
+    /**
+     * 按需产生元素的迭代器，记录已产生的元素数
+     */
+    private static class FooIterator implements Iterator<Foo> {
+
+        private final int size;
+        private int count;
+
+        private FooIterator(int size) {
+            this.size = size;
+        }
+
+        public boolean hasNext() {
+            return count < size;
+        }
+
+        public Foo next() {
+            Foo foo = new Foo();
+            foo.setI2(++count);
+            return foo;
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private static class FlushCountingOutputStream extends ByteArrayOutputStream {
+
+        private int flushCount;
+
+        @Override
+        public void flush() throws IOException {
+            flushCount++;
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testJackson() throws Exception {
+        FooIterator iterator = new FooIterator(25);
+        StreamingResponse<Foo> response = new StreamingResponse<Foo>("foos", "foo", iterator);
+        response.setFlushSize(10);
+        FlushCountingOutputStream out = new FlushCountingOutputStream();
+        new JacksonJsonRopMarshaller().marshaller(response, out);
+        //每10个元素刷新一次，输出完成后再刷新一次
+        assertEquals(3, out.flushCount);
+
+        Map<String, Object> map = new ObjectMapper().readValue(out.toByteArray(), Map.class);
+        List<Map<String, Object>> foos = (List<Map<String, Object>>) map.get("foo");
+        assertEquals(25, foos.size());
+        assertEquals(1, foos.get(0).get("i2"));
+        assertEquals(25, foos.get(24).get("i2"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testFastjson() throws Exception {
+        StreamingResponse<Foo> response = new StreamingResponse<Foo>("foos", "foo", new FooIterator(3));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new FastjsonRopMarshaller().marshaller(response, out);
+        Map<String, Object> map = new ObjectMapper().readValue(out.toByteArray(), Map.class);
+        assertEquals(3, ((List<Object>) map.get("foo")).size());
+    }
+
+    @Test
+    public void testJaxb() throws Exception {
+        StreamingResponse<Foo> response = new StreamingResponse<Foo>("foos", "foo", new FooIterator(5));
+        response.setFlushSize(0);
+        FlushCountingOutputStream out = new FlushCountingOutputStream();
+        new JaxbXmlRopMarshaller().marshaller(response, out);
+        assertEquals(1, out.flushCount);
+
+        Document document = DocumentBuilderFactory.newInstance().newDocumentBuilder()
+                .parse(new ByteArrayInputStream(out.toByteArray()));
+        assertEquals("foos", document.getDocumentElement().getNodeName());
+        NodeList foos = document.getElementsByTagName("foo");
+        assertEquals(5, foos.getLength());
+        assertEquals("5", ((org.w3c.dom.Element) foos.item(4)).getElementsByTagName("i2").item(0).getTextContent());
+    }
+
+    @Test
+    public void testEmpty() throws Exception {
+        StreamingResponse<Foo> response = new StreamingResponse<Foo>("foos", "foo", new FooIterator(0));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new JacksonJsonRopMarshaller().marshaller(response, out);
+        assertEquals("{\"foo\":[]}", out.toString("utf-8"));
+    }
+}
@@ -2,6 +2,7 @@ package com.rop.unmarshaller;
 
 import static org.junit.Assert.*;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
@@ -77,4 +78,17 @@ public class FastjsonRopUnmarshallerTest {
 		assertNotNull(map);
 	}
 
+	@Test
+	public void testUnmarshallerFromInputStream() throws IOException {
+		Foo foo = new Foo();
+		foo.setB1(true);
+		foo.setI2(2);
+		Bar bar = new Bar();
+		bar.setFoo(foo);
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		fastjsonMarshaller.marshaller(bar, baos);
+		Bar bar2 = unmarshaller.unmarshaller(new ByteArrayInputStream(baos.toByteArray()), Bar.class);
+		assertEquals(bar, bar2);
+	}
+
 }
@@ -2,6 +2,7 @@ package com.rop.unmarshaller;
 
 import static org.junit.Assert.*;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -47,4 +48,15 @@ public class JaxbXmlRopUnmarshallerTest {
 		assertNotNull(response);
 	}
 
+	@Test
+	public void testUnmarshallerFromInputStream() {
+		Foo foo = new Foo();
+		foo.setB1(true);
+		foo.setI2(2);
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		marshaller.marshaller(foo, baos);
+		Foo foo2 = unmarshaller.unmarshaller(new ByteArrayInputStream(baos.toByteArray()), Foo.class);
+		assertEquals(foo, foo2);
+	}
+
 }
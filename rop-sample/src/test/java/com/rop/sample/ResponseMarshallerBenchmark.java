@@ -0,0 +1,123 @@
+/*
+ * Copyright 2012-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.rop.sample;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.type.TypeFactory;
+import com.fasterxml.jackson.module.jaxb.JaxbAnnotationIntrospector;
+import com.rop.marshaller.JacksonJsonRopMarshaller;
+import com.rop.sample.response.*;
+import com.rop.utils.ObjectMapperUtils;
+import org.apache.commons.lang.StringEscapeUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * <pre>
+ * 功能说明：比较示例响应类序列化为JSON格式的吞吐量：
+ * reflect-unescape为反射访问属性且对所有字符串进行HTML解码（原来的实现），
+ * reflect为反射访问属性且只对标注了{@link com.rop.annotation.UnescapeHtml}的属性解码，
+ * afterburner为{@link ObjectMapperUtils#getObjectMapper()}，由生成的字节码访问属性。
+ * 用法：java com.rop.sample.ResponseMarshallerBenchmark [每项的执行次数]
+ * </pre>
+ *
+ * @author 陈雄华
+ * @version 1.0
+ */
+public class ResponseMarshallerBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+
+        CreateUserResponse createUserResponse = new CreateUserResponse();
+        createUserResponse.setUserId("1");
+        createUserResponse.setCreateTime("2016-01-01 00:00:00");
+        createUserResponse.setFeedback("tom &amp; jerry");
+        createUserResponse.setDate(new Date());
+        List<Foo> fooList = new ArrayList<Foo>();
+        for (int i = 0; i < 10; i++) {
+            fooList.add(new Foo(String.valueOf(i), "foo" + i));
+        }
+        createUserResponse.setFooList(fooList);
+        LogonResponse logonResponse = new LogonResponse();
+        logonResponse.setSessionId("mockSessionId1");
+        LogoutResponse logoutResponse = new LogoutResponse();
+        logoutResponse.setSuccessful(true);
+        InterceptorResponse interceptorResponse = new InterceptorResponse();
+        interceptorResponse.setTestField("interceptor");
+        Object[] samples = {createUserResponse, new UserListResponse(), logonResponse, logoutResponse, interceptorResponse};
+
+        String[] names = {"reflect-unescape", "reflect", "afterburner"};
+        JacksonJsonRopMarshaller[] marshallers = new JacksonJsonRopMarshaller[names.length];
+        ObjectMapper[] objectMappers = {newReflectObjectMapper(true), newReflectObjectMapper(false),
+                ObjectMapperUtils.getObjectMapper()};
+        for (int i = 0; i < names.length; i++) {
+            marshallers[i] = new JacksonJsonRopMarshaller();
+            marshallers[i].setObjectMapper(objectMappers[i]);
+        }
+
+        System.out.println(String.format("%-20s %-18s %16s", "response", "serializer", "marshal ops/s"));
+        for (Object sample : samples) {
+            for (int i = 0; i < names.length; i++) {
+                //预热
+                run(marshallers[i], sample, iterations / 10);
+                long elapsed = run(marshallers[i], sample, iterations);
+                System.out.println(String.format("%-20s %-18s %16.0f", sample.getClass().getSimpleName(), names[i],
+                        iterations * 1e9 / elapsed));
+            }
+        }
+    }
+
+    /**
+     * 与{@link ObjectMapperUtils}的配置相同，但不使用字节码生成
+     *
+     * @param unescapeAll 是否对所有字符串进行HTML解码
+     * @return
+     */
+    private static ObjectMapper newReflectObjectMapper(boolean unescapeAll) {
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.setAnnotationIntrospector(new JaxbAnnotationIntrospector(TypeFactory.defaultInstance(), true));
+        objectMapper.setSerializationInclusion(JsonInclude.Include.NON_EMPTY);
+        if (unescapeAll) {
+            objectMapper.registerModule(new SimpleModule().addSerializer(String.class, new JsonSerializer<String>() {
+                @Override
+                public void serialize(String value, JsonGenerator jgen, SerializerProvider provider) throws IOException {
+                    jgen.writeString(StringEscapeUtils.unescapeHtml(value));
+                }
+            }));
+        }
+        return objectMapper;
+    }
+
+    private static long run(JacksonJsonRopMarshaller marshaller, Object sample, int iterations) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(1024);
+        long beginTime = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            out.reset();
+            marshaller.marshaller(sample, out);
+        }
+        return System.nanoTime() - beginTime;
+    }
+}
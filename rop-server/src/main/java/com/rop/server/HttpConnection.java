@@ -0,0 +1,386 @@
+/**
+ * Copyright 2012-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.rop.server;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.*;
+
+/**
+ * <pre>
+ * 功能说明：{@link RopHttpServer}的一个客户端连接。读到的字节累积在输入缓冲中，每凑齐一个完整的请求就解码一个，
+ * 因此同一连接上流水线发送的多个请求可以并发执行；响应按请求的顺序排队，只有排在最前面的响应完成后才写出。
+ * 除{@link PendingResponse#complete}由服务线程调用外，其它方法都只在I/O线程中调用。
+ * </pre>
+ *
+ * @author 陈雄华
+ * @version 1.0
+ */
+class HttpConnection {
+
+    private static final byte[] HEAD_END = {'\r', '\n', '\r', '\n'};
+
+    private static final byte[] CONTINUE = toBytes("HTTP/1.1 100 Continue\r\n\r\n");
+
+    private final SocketChannel channel;
+
+    private final InetSocketAddress localAddress;
+
+    private final InetSocketAddress remoteAddress;
+
+    private final LinkedList<PendingResponse> responses = new LinkedList<PendingResponse>();
+
+    private SelectionKey selectionKey;
+
+    private byte[] inbound = new byte[4096];
+
+    private int inboundLength;
+
+    private boolean continueSent;
+
+    // 收到不保持连接的请求或解码出错后，不再解码后续的请求
+    private boolean closing;
+
+    private boolean inputClosed;
+
+    private long lastActiveTime = System.currentTimeMillis();
+
+    HttpConnection(SocketChannel channel) {
+        this.channel = channel;
+        this.localAddress = (InetSocketAddress) channel.socket().getLocalSocketAddress();
+        this.remoteAddress = (InetSocketAddress) channel.socket().getRemoteSocketAddress();
+    }
+
+    private static byte[] toBytes(String s) {
+        try {
+            return s.getBytes("ISO-8859-1");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    SocketChannel getChannel() {
+        return channel;
+    }
+
+    SelectionKey getSelectionKey() {
+        return selectionKey;
+    }
+
+    void setSelectionKey(SelectionKey selectionKey) {
+        this.selectionKey = selectionKey;
+    }
+
+    long getLastActiveTime() {
+        return lastActiveTime;
+    }
+
+    boolean isClosing() {
+        return closing;
+    }
+
+    void setClosing() {
+        this.closing = true;
+    }
+
+    boolean isInputClosed() {
+        return inputClosed;
+    }
+
+    void setInputClosed() {
+        this.inputClosed = true;
+    }
+
+    int getPendingCount() {
+        return responses.size();
+    }
+
+    /**
+     * 将读到的字节追加到输入缓冲中
+     */
+    void append(ByteBuffer buffer) {
+        int length = buffer.remaining();
+        if (inboundLength + length > inbound.length) {
+            inbound = Arrays.copyOf(inbound, Math.max(inbound.length * 2, inboundLength + length));
+        }
+        buffer.get(inbound, inboundLength, length);
+        inboundLength += length;
+        lastActiveTime = System.currentTimeMillis();
+    }
+
+    /**
+     * 从输入缓冲中解码一个完整的请求
+     *
+     * @param maxHeaderSize    请求行和请求头的最大字节数
+     * @param maxContentLength 请求体的最大字节数
+     * @return 数据还不完整时返回null
+     * @throws HttpStatusException 请求不合法时抛出，携带应返回的状态码
+     */
+    NioHttpServletRequest decode(int maxHeaderSize, int maxContentLength) throws HttpStatusException {
+        if (closing) {
+            return null;
+        }
+        int headEnd = indexOf(inbound, inboundLength, HEAD_END);
+        if (headEnd < 0) {
+            if (inboundLength > maxHeaderSize) {
+                throw new HttpStatusException(HttpServletResponse.SC_BAD_REQUEST, "request header is too large");
+            }
+            return null;
+        }
+        String head;
+        try {
+            head = new String(inbound, 0, headEnd, "ISO-8859-1");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+        String[] lines = head.split("\r\n");
+        String[] requestLine = lines[0].split(" ");
+        if (requestLine.length != 3 || !requestLine[2].startsWith("HTTP/1.")) {
+            throw new HttpStatusException(HttpServletResponse.SC_BAD_REQUEST, "invalid request line: " + lines[0]);
+        }
+        Map<String, List<String>> headers = new TreeMap<String, List<String>>(String.CASE_INSENSITIVE_ORDER);
+        for (int i = 1; i < lines.length; i++) {
+            int index = lines[i].indexOf(':');
+            if (index <= 0) {
+                throw new HttpStatusException(HttpServletResponse.SC_BAD_REQUEST, "invalid header: " + lines[i]);
+            }
+            String name = lines[i].substring(0, index).trim();
+            List<String> values = headers.get(name);
+            if (values == null) {
+                values = new ArrayList<String>(1);
+                headers.put(name, values);
+            }
+            values.add(lines[i].substring(index + 1).trim());
+        }
+        if (headers.containsKey("Transfer-Encoding")) {
+            throw new HttpStatusException(HttpServletResponse.SC_NOT_IMPLEMENTED, "chunked request body is not supported");
+        }
+        int contentLength = 0;
+        if (headers.containsKey("Content-Length")) {
+            try {
+                contentLength = Integer.parseInt(headers.get("Content-Length").get(0));
+            } catch (NumberFormatException e) {
+                throw new HttpStatusException(HttpServletResponse.SC_BAD_REQUEST, "invalid Content-Length");
+            }
+            if (contentLength < 0) {
+                throw new HttpStatusException(HttpServletResponse.SC_BAD_REQUEST, "invalid Content-Length");
+            }
+            if (contentLength > maxContentLength) {
+                throw new HttpStatusException(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE,
+                        "request body is larger than " + maxContentLength);
+            }
+        }
+        int requestLength = headEnd + HEAD_END.length + contentLength;
+        if (inboundLength < requestLength) {
+            if (!continueSent && headers.containsKey("Expect")
+                    && "100-continue".equalsIgnoreCase(headers.get("Expect").get(0)) && responses.isEmpty()) {
+                continueSent = true;
+                try {
+                    channel.write(ByteBuffer.wrap(CONTINUE));
+                } catch (IOException e) {
+                    //连接出错时由后续的读写处理
+                }
+            }
+            return null;
+        }
+        byte[] body = Arrays.copyOfRange(inbound, headEnd + HEAD_END.length, requestLength);
+        System.arraycopy(inbound, requestLength, inbound, 0, inboundLength - requestLength);
+        inboundLength -= requestLength;
+        continueSent = false;
+        NioHttpServletRequest request = new NioHttpServletRequest(requestLine[0], requestLine[1], requestLine[2],
+                headers, body, localAddress, remoteAddress);
+        if (!request.isKeepAlive()) {
+            closing = true;
+        }
+        return request;
+    }
+
+    private static int indexOf(byte[] bytes, int length, byte[] target) {
+        outer:
+        for (int i = 0; i <= length - target.length; i++) {
+            for (int j = 0; j < target.length; j++) {
+                if (bytes[i + j] != target[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    /**
+     * 按请求的顺序占一个响应的位置
+     */
+    PendingResponse newPendingResponse() {
+        PendingResponse pendingResponse = new PendingResponse();
+        responses.addLast(pendingResponse);
+        return pendingResponse;
+    }
+
+    /**
+     * 按顺序写出已完成的响应，写出的字节先复制到直接缓冲区中
+     *
+     * @param directBuffer I/O线程共用的直接缓冲区
+     * @return 所有已完成的响应都写完时返回true，Socket发送缓冲区已满时返回false
+     * @throws IOException
+     */
+    boolean flush(ByteBuffer directBuffer) throws IOException {
+        while (!responses.isEmpty()) {
+            PendingResponse response = responses.getFirst();
+            byte[] data = response.data;
+            if (data == null) {
+                return true;
+            }
+            while (response.offset < data.length) {
+                directBuffer.clear();
+                int length = Math.min(directBuffer.remaining(), data.length - response.offset);
+                directBuffer.put(data, response.offset, length);
+                directBuffer.flip();
+                int written = channel.write(directBuffer);
+                response.offset += written;
+                if (written < length) {
+                    return false;
+                }
+            }
+            if (!response.transferFile(channel)) {
+                return false;
+            }
+            responses.removeFirst();
+            lastActiveTime = System.currentTimeMillis();
+            if (response.close) {
+                throw new ConnectionClosedException();
+            }
+        }
+        return true;
+    }
+
+    void close() {
+        try {
+            if (selectionKey != null) {
+                selectionKey.cancel();
+            }
+            channel.close();
+        } catch (IOException e) {
+            //忽略关闭连接时的异常
+        }
+        for (PendingResponse response : responses) {
+            response.closeFile();
+        }
+    }
+
+    /**
+     * 按请求顺序排队的响应，data在服务线程中生成后由I/O线程写出。
+     * 以sendfile方式发送文件时，data只包含状态行和报文头，报文体由文件通道直接传输到Socket
+     */
+    static class PendingResponse {
+
+        private volatile byte[] data;
+
+        private volatile boolean close;
+
+        private int offset;
+
+        private FileChannel file;
+
+        private long filePosition;
+
+        private long fileEnd;
+
+        void complete(byte[] data, boolean close) {
+            this.close = close;
+            this.data = data;
+        }
+
+        /**
+         * 完成响应，报文头之后发送文件的[start, end)区间
+         */
+        void complete(byte[] head, FileChannel file, long start, long end, boolean close) {
+            this.file = file;
+            this.filePosition = start;
+            this.fileEnd = end;
+            complete(head, close);
+        }
+
+        /**
+         * 将文件内容直接传输到Socket
+         *
+         * @return 文件传输完成时返回true，Socket发送缓冲区已满时返回false
+         * @throws IOException
+         */
+        private boolean transferFile(SocketChannel channel) throws IOException {
+            if (file == null) {
+                return true;
+            }
+            try {
+                while (filePosition < fileEnd) {
+                    if (filePosition >= file.size()) {
+                        throw new IOException("file is truncated while sending");
+                    }
+                    long transferred = file.transferTo(filePosition, fileEnd - filePosition, channel);
+                    if (transferred == 0) {
+                        return false;
+                    }
+                    filePosition += transferred;
+                }
+            } catch (IOException e) {
+                closeFile();
+                throw e;
+            }
+            closeFile();
+            return true;
+        }
+
+        private void closeFile() {
+            if (file != null) {
+                try {
+                    file.close();
+                } catch (IOException e) {
+                    //忽略关闭文件时的异常
+                }
+                file = null;
+            }
+        }
+    }
+
+    /**
+     * 写完不保持连接的响应后关闭连接
+     */
+    static class ConnectionClosedException extends IOException {
+    }
+
+    /**
+     * 请求不合法，需要返回错误状态并关闭连接
+     */
+    static class HttpStatusException extends Exception {
+
+        private final int status;
+
+        HttpStatusException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+
+        int getStatus() {
+            return status;
+        }
+    }
+}
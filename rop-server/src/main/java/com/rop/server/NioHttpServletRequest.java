@@ -0,0 +1,420 @@
+/**
+ * Copyright 2012-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.rop.server;
+
+import javax.servlet.RequestDispatcher;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpSession;
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.security.Principal;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.*;
+
+/**
+ * <pre>
+ * 功能说明：{@link RopHttpServer}解析出的HTTP请求。服务路由器只依赖请求参数、请求头、请求体及客户端地址，
+ * 因此这里只实现这些方法，会话、转发、认证等Servlet容器的功能不支持。
+ * 请求参数来自查询字符串及application/x-www-form-urlencoded格式的请求体，默认按UTF-8解码。
+ * </pre>
+ *
+ * @author 陈雄华
+ * @version 1.0
+ */
+public class NioHttpServletRequest implements HttpServletRequest {
+
+    private static final String FORM_CONTENT_TYPE = "application/x-www-form-urlencoded";
+
+    private static final String DEFAULT_CHARACTER_ENCODING = "UTF-8";
+
+    private final String method;
+
+    private final String requestURI;
+
+    private final String queryString;
+
+    private final String protocol;
+
+    private final Map<String, List<String>> headers;
+
+    private final byte[] body;
+
+    private final InetSocketAddress localAddress;
+
+    private final InetSocketAddress remoteAddress;
+
+    private final Map<String, Object> attributes = new HashMap<String, Object>();
+
+    private String characterEncoding;
+
+    private Map<String, String[]> parameterMap;
+
+    private boolean bodyUsed;
+
+    public NioHttpServletRequest(String method, String uri, String protocol, Map<String, List<String>> headers,
+                                 byte[] body, InetSocketAddress localAddress, InetSocketAddress remoteAddress) {
+        this.method = method;
+        int index = uri.indexOf('?');
+        this.requestURI = index < 0 ? uri : uri.substring(0, index);
+        this.queryString = index < 0 ? null : uri.substring(index + 1);
+        this.protocol = protocol;
+        this.headers = headers;
+        this.body = body;
+        this.localAddress = localAddress;
+        this.remoteAddress = remoteAddress;
+        this.characterEncoding = getContentTypeCharset(getContentType());
+    }
+
+    /**
+     * 是否保持连接：HTTP/1.1默认保持，HTTP/1.0需要显式声明keep-alive
+     *
+     * @return
+     */
+    public boolean isKeepAlive() {
+        String connection = getHeader("Connection");
+        if ("HTTP/1.1".equals(protocol)) {
+            return !"close".equalsIgnoreCase(connection);
+        }
+        return "keep-alive".equalsIgnoreCase(connection);
+    }
+
+    private static String getContentTypeCharset(String contentType) {
+        if (contentType != null) {
+            for (String item : contentType.split(";")) {
+                item = item.trim();
+                if (item.regionMatches(true, 0, "charset=", 0, 8)) {
+                    return item.substring(8).trim();
+                }
+            }
+        }
+        return null;
+    }
+
+    private Map<String, String[]> getParameters() {
+        if (parameterMap == null) {
+            Map<String, List<String>> values = new LinkedHashMap<String, List<String>>();
+            String encoding = characterEncoding != null ? characterEncoding : DEFAULT_CHARACTER_ENCODING;
+            parseParameters(queryString, encoding, values);
+            String contentType = getContentType();
+            if (!bodyUsed && body.length > 0 && contentType != null
+                    && contentType.toLowerCase().startsWith(FORM_CONTENT_TYPE)) {
+                try {
+                    parseParameters(new String(body, encoding), encoding, values);
+                } catch (UnsupportedEncodingException e) {
+                    throw new IllegalArgumentException(e);
+                }
+                bodyUsed = true;
+            }
+            parameterMap = new LinkedHashMap<String, String[]>();
+            for (Map.Entry<String, List<String>> entry : values.entrySet()) {
+                parameterMap.put(entry.getKey(), entry.getValue().toArray(new String[entry.getValue().size()]));
+            }
+        }
+        return parameterMap;
+    }
+
+    private static void parseParameters(String query, String encoding, Map<String, List<String>> values) {
+        if (query == null || query.length() == 0) {
+            return;
+        }
+        try {
+            for (String pair : query.split("&")) {
+                if (pair.length() == 0) {
+                    continue;
+                }
+                int index = pair.indexOf('=');
+                String name = URLDecoder.decode(index < 0 ? pair : pair.substring(0, index), encoding);
+                String value = index < 0 ? "" : URLDecoder.decode(pair.substring(index + 1), encoding);
+                List<String> list = values.get(name);
+                if (list == null) {
+                    list = new ArrayList<String>(1);
+                    values.put(name, list);
+                }
+                list.add(value);
+            }
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    public String getParameter(String name) {
+        String[] values = getParameters().get(name);
+        return values == null ? null : values[0];
+    }
+
+    public Enumeration getParameterNames() {
+        return Collections.enumeration(getParameters().keySet());
+    }
+
+    public String[] getParameterValues(String name) {
+        return getParameters().get(name);
+    }
+
+    public Map getParameterMap() {
+        return Collections.unmodifiableMap(getParameters());
+    }
+
+    public String getHeader(String name) {
+        List<String> values = headers.get(name);
+        return values == null || values.isEmpty() ? null : values.get(0);
+    }
+
+    public Enumeration getHeaders(String name) {
+        List<String> values = headers.get(name);
+        return Collections.enumeration(values == null ? Collections.<String>emptyList() : values);
+    }
+
+    public Enumeration getHeaderNames() {
+        return Collections.enumeration(headers.keySet());
+    }
+
+    public int getIntHeader(String name) {
+        String value = getHeader(name);
+        return value == null ? -1 : Integer.parseInt(value);
+    }
+
+    public long getDateHeader(String name) {
+        String value = getHeader(name);
+        if (value == null) {
+            return -1;
+        }
+        SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("GMT"));
+        try {
+            return format.parse(value).getTime();
+        } catch (ParseException e) {
+            throw new IllegalArgumentException("invalid date header " + name + ": " + value);
+        }
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public String getRequestURI() {
+        return requestURI;
+    }
+
+    public StringBuffer getRequestURL() {
+        StringBuffer url = new StringBuffer(getScheme()).append("://");
+        String host = getHeader("Host");
+        url.append(host != null ? host : getServerName() + ":" + getServerPort());
+        return url.append(requestURI);
+    }
+
+    public String getQueryString() {
+        return queryString;
+    }
+
+    public String getProtocol() {
+        return protocol;
+    }
+
+    public String getScheme() {
+        return "http";
+    }
+
+    public boolean isSecure() {
+        return false;
+    }
+
+    public String getContextPath() {
+        return "";
+    }
+
+    public String getServletPath() {
+        return requestURI;
+    }
+
+    public String getPathInfo() {
+        return null;
+    }
+
+    public String getPathTranslated() {
+        return null;
+    }
+
+    public String getContentType() {
+        return getHeader("Content-Type");
+    }
+
+    public int getContentLength() {
+        return body.length;
+    }
+
+    public String getCharacterEncoding() {
+        return characterEncoding;
+    }
+
+    public void setCharacterEncoding(String env) throws UnsupportedEncodingException {
+        "".getBytes(env);
+        this.characterEncoding = env;
+    }
+
+    public ServletInputStream getInputStream() throws IOException {
+        bodyUsed = true;
+        final ByteArrayInputStream in = new ByteArrayInputStream(body);
+        return new ServletInputStream() {
+            @Override
+            public int read() throws IOException {
+                return in.read();
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                return in.read(b, off, len);
+            }
+
+            @Override
+            public int available() throws IOException {
+                return in.available();
+            }
+        };
+    }
+
+    public BufferedReader getReader() throws IOException {
+        String encoding = characterEncoding != null ? characterEncoding : DEFAULT_CHARACTER_ENCODING;
+        return new BufferedReader(new InputStreamReader(getInputStream(), encoding));
+    }
+
+    public Object getAttribute(String name) {
+        return attributes.get(name);
+    }
+
+    public Enumeration getAttributeNames() {
+        return Collections.enumeration(new ArrayList<String>(attributes.keySet()));
+    }
+
+    public void setAttribute(String name, Object value) {
+        if (value == null) {
+            attributes.remove(name);
+        } else {
+            attributes.put(name, value);
+        }
+    }
+
+    public void removeAttribute(String name) {
+        attributes.remove(name);
+    }
+
+    public String getRemoteAddr() {
+        return remoteAddress.getAddress().getHostAddress();
+    }
+
+    public String getRemoteHost() {
+        return getRemoteAddr();
+    }
+
+    public int getRemotePort() {
+        return remoteAddress.getPort();
+    }
+
+    public String getLocalName() {
+        return localAddress.getHostName();
+    }
+
+    public String getLocalAddr() {
+        return localAddress.getAddress().getHostAddress();
+    }
+
+    public int getLocalPort() {
+        return localAddress.getPort();
+    }
+
+    public String getServerName() {
+        String host = getHeader("Host");
+        if (host != null) {
+            int index = host.indexOf(':');
+            return index < 0 ? host : host.substring(0, index);
+        }
+        return getLocalName();
+    }
+
+    public int getServerPort() {
+        return localAddress.getPort();
+    }
+
+    public Locale getLocale() {
+        return Locale.getDefault();
+    }
+
+    public Enumeration getLocales() {
+        return Collections.enumeration(Collections.singletonList(getLocale()));
+    }
+
+    public Cookie[] getCookies() {
+        return null;
+    }
+
+    public String getAuthType() {
+        return null;
+    }
+
+    public String getRemoteUser() {
+        return null;
+    }
+
+    public boolean isUserInRole(String role) {
+        return false;
+    }
+
+    public Principal getUserPrincipal() {
+        return null;
+    }
+
+    public String getRequestedSessionId() {
+        return null;
+    }
+
+    public HttpSession getSession(boolean create) {
+        if (create) {
+            throw new UnsupportedOperationException("http session is not supported");
+        }
+        return null;
+    }
+
+    public HttpSession getSession() {
+        return getSession(true);
+    }
+
+    public boolean isRequestedSessionIdValid() {
+        return false;
+    }
+
+    public boolean isRequestedSessionIdFromCookie() {
+        return false;
+    }
+
+    public boolean isRequestedSessionIdFromURL() {
+        return false;
+    }
+
+    public boolean isRequestedSessionIdFromUrl() {
+        return false;
+    }
+
+    public RequestDispatcher getRequestDispatcher(String path) {
+        return null;
+    }
+
+    public String getRealPath(String path) {
+        return null;
+    }
+}
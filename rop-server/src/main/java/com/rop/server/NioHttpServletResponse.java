@@ -0,0 +1,355 @@
+/**
+ * Copyright 2012-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.rop.server;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.UnsupportedEncodingException;
+import java.text.SimpleDateFormat;
+import java.util.*;
+
+/**
+ * <pre>
+ * 功能说明：{@link RopHttpServer}的HTTP响应。服务路由器输出的报文先写入内存缓冲，
+ * 服务执行完成后由{@link #toBytes(boolean)}生成带Content-Length的完整响应，再由I/O线程写出，
+ * 因此服务线程不会因为客户端接收慢而阻塞。
+ * </pre>
+ *
+ * @author 陈雄华
+ * @version 1.0
+ */
+public class NioHttpServletResponse implements HttpServletResponse {
+
+    private static final String DEFAULT_CHARACTER_ENCODING = "UTF-8";
+
+    private final Map<String, List<String>> headers = new TreeMap<String, List<String>>(String.CASE_INSENSITIVE_ORDER);
+
+    private final ByteArrayOutputStream content = new ByteArrayOutputStream(1024);
+
+    private final ServletOutputStream outputStream = new ServletOutputStream() {
+        @Override
+        public void write(int b) throws IOException {
+            content.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            content.write(b, off, len);
+        }
+    };
+
+    private PrintWriter writer;
+
+    private int status = SC_OK;
+
+    private String contentType;
+
+    private String characterEncoding;
+
+    private Locale locale = Locale.getDefault();
+
+    private int bufferSize = 8192;
+
+    public ServletOutputStream getOutputStream() throws IOException {
+        return outputStream;
+    }
+
+    public PrintWriter getWriter() throws IOException {
+        if (writer == null) {
+            writer = new PrintWriter(new OutputStreamWriter(outputStream, getCharacterEncoding()));
+        }
+        return writer;
+    }
+
+    /**
+     * 生成完整的HTTP响应报文
+     *
+     * @param keepAlive 是否保持连接
+     * @return
+     */
+    public byte[] toBytes(boolean keepAlive) {
+        if (writer != null) {
+            writer.flush();
+        }
+        boolean hasBody = status >= 200 && status != SC_NO_CONTENT && status != SC_NOT_MODIFIED;
+        byte[] headBytes = toHeadBytes(keepAlive, hasBody ? content.size() : -1);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(headBytes.length + (hasBody ? content.size() : 0));
+        out.write(headBytes, 0, headBytes.length);
+        if (hasBody) {
+            try {
+                content.writeTo(out);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * 生成HTTP响应的状态行和报文头（包括结束的空行），报文体由调用者另行写出，用于以sendfile方式发送文件
+     *
+     * @param keepAlive     是否保持连接
+     * @param contentLength 报文体的字节数，小于0时表示没有报文体
+     * @return
+     */
+    public byte[] toHeadBytes(boolean keepAlive, long contentLength) {
+        StringBuilder head = new StringBuilder(256);
+        head.append("HTTP/1.1 ").append(status).append(' ').append(getReasonPhrase(status)).append("\r\n");
+        if (contentType != null) {
+            head.append("Content-Type: ").append(contentType);
+            if (characterEncoding != null && !contentType.toLowerCase().contains("charset=")) {
+                head.append(";charset=").append(characterEncoding);
+            }
+            head.append("\r\n");
+        }
+        for (Map.Entry<String, List<String>> entry : headers.entrySet()) {
+            if ("Content-Length".equalsIgnoreCase(entry.getKey()) || "Connection".equalsIgnoreCase(entry.getKey())
+                    || "Transfer-Encoding".equalsIgnoreCase(entry.getKey())) {
+                continue;
+            }
+            for (String value : entry.getValue()) {
+                head.append(entry.getKey()).append(": ").append(value).append("\r\n");
+            }
+        }
+        if (contentLength >= 0) {
+            head.append("Content-Length: ").append(contentLength).append("\r\n");
+        }
+        head.append("Connection: ").append(keepAlive ? "keep-alive" : "close").append("\r\n");
+        head.append("\r\n");
+        try {
+            return head.toString().getBytes("ISO-8859-1");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static String getReasonPhrase(int status) {
+        switch (status) {
+            case SC_OK:
+                return "OK";
+            case SC_NO_CONTENT:
+                return "No Content";
+            case SC_PARTIAL_CONTENT:
+                return "Partial Content";
+            case SC_MOVED_TEMPORARILY:
+                return "Found";
+            case SC_NOT_MODIFIED:
+                return "Not Modified";
+            case SC_BAD_REQUEST:
+                return "Bad Request";
+            case SC_FORBIDDEN:
+                return "Forbidden";
+            case SC_NOT_FOUND:
+                return "Not Found";
+            case SC_METHOD_NOT_ALLOWED:
+                return "Method Not Allowed";
+            case SC_REQUEST_ENTITY_TOO_LARGE:
+                return "Request Entity Too Large";
+            case SC_REQUESTED_RANGE_NOT_SATISFIABLE:
+                return "Requested Range Not Satisfiable";
+            case SC_INTERNAL_SERVER_ERROR:
+                return "Internal Server Error";
+            case SC_NOT_IMPLEMENTED:
+                return "Not Implemented";
+            case SC_SERVICE_UNAVAILABLE:
+                return "Service Unavailable";
+            default:
+                return "Unknown";
+        }
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public void setStatus(int status) {
+        this.status = status;
+    }
+
+    public void setStatus(int status, String message) {
+        this.status = status;
+    }
+
+    public void sendError(int status, String message) throws IOException {
+        resetBuffer();
+        this.status = status;
+        if (message != null) {
+            contentType = "text/plain";
+            characterEncoding = DEFAULT_CHARACTER_ENCODING;
+            content.write(message.getBytes(DEFAULT_CHARACTER_ENCODING));
+        }
+    }
+
+    public void sendError(int status) throws IOException {
+        sendError(status, null);
+    }
+
+    public void sendRedirect(String location) throws IOException {
+        resetBuffer();
+        this.status = SC_MOVED_TEMPORARILY;
+        setHeader("Location", location);
+    }
+
+    public boolean containsHeader(String name) {
+        return headers.containsKey(name);
+    }
+
+    public String getHeader(String name) {
+        List<String> values = headers.get(name);
+        return values == null ? null : values.get(0);
+    }
+
+    public void setHeader(String name, String value) {
+        if ("Content-Type".equalsIgnoreCase(name)) {
+            setContentType(value);
+            return;
+        }
+        List<String> values = new ArrayList<String>(1);
+        values.add(value);
+        headers.put(name, values);
+    }
+
+    public void addHeader(String name, String value) {
+        List<String> values = headers.get(name);
+        if (values == null) {
+            setHeader(name, value);
+        } else {
+            values.add(value);
+        }
+    }
+
+    public void setIntHeader(String name, int value) {
+        setHeader(name, String.valueOf(value));
+    }
+
+    public void addIntHeader(String name, int value) {
+        addHeader(name, String.valueOf(value));
+    }
+
+    public void setDateHeader(String name, long date) {
+        setHeader(name, formatDate(date));
+    }
+
+    public void addDateHeader(String name, long date) {
+        addHeader(name, formatDate(date));
+    }
+
+    private static String formatDate(long date) {
+        SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("GMT"));
+        return format.format(new Date(date));
+    }
+
+    public void addCookie(Cookie cookie) {
+        StringBuilder value = new StringBuilder(cookie.getName()).append('=').append(cookie.getValue());
+        if (cookie.getPath() != null) {
+            value.append("; Path=").append(cookie.getPath());
+        }
+        if (cookie.getMaxAge() >= 0) {
+            value.append("; Max-Age=").append(cookie.getMaxAge());
+        }
+        addHeader("Set-Cookie", value.toString());
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public void setContentType(String type) {
+        this.contentType = type;
+        if (type != null) {
+            for (String item : type.split(";")) {
+                item = item.trim();
+                if (item.regionMatches(true, 0, "charset=", 0, 8)) {
+                    this.characterEncoding = item.substring(8).trim();
+                }
+            }
+        }
+    }
+
+    public String getCharacterEncoding() {
+        return characterEncoding != null ? characterEncoding : DEFAULT_CHARACTER_ENCODING;
+    }
+
+    public void setCharacterEncoding(String charset) {
+        this.characterEncoding = charset;
+    }
+
+    /**
+     * 响应的长度在输出时根据报文计算，忽略服务设置的值
+     */
+    public void setContentLength(int len) {
+    }
+
+    public void setBufferSize(int size) {
+        this.bufferSize = size;
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    public void flushBuffer() throws IOException {
+        if (writer != null) {
+            writer.flush();
+        }
+    }
+
+    public void resetBuffer() {
+        content.reset();
+    }
+
+    public boolean isCommitted() {
+        return false;
+    }
+
+    public void reset() {
+        resetBuffer();
+        headers.clear();
+        status = SC_OK;
+        contentType = null;
+        characterEncoding = null;
+    }
+
+    public void setLocale(Locale locale) {
+        this.locale = locale;
+    }
+
+    public Locale getLocale() {
+        return locale;
+    }
+
+    public String encodeURL(String url) {
+        return url;
+    }
+
+    public String encodeRedirectURL(String url) {
+        return url;
+    }
+
+    public String encodeUrl(String url) {
+        return url;
+    }
+
+    public String encodeRedirectUrl(String url) {
+        return url;
+    }
+}
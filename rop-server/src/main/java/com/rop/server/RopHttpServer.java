@@ -0,0 +1,441 @@
+/**
+ * Copyright 2012-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.rop.server;
+
+import com.rop.ServiceRouter;
+import com.rop.impl.AnnotationServletServiceRouter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.support.ClassPathXmlApplicationContext;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.*;
+import java.util.Iterator;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <pre>
+ * 功能说明：不依赖Servlet容器的嵌入式HTTP服务器，基于NIO实现HTTP/1.1，直接将请求交给{@link ServiceRouter}处理，
+ * 和{@link com.rop.RopServlet}一样是服务路由器的一种传输方式。
+ * 一个I/O线程负责接收连接及读写，请求在工作线程池中执行，支持：
+ * 1.长连接：HTTP/1.1默认保持连接，空闲超过keepAliveTimeoutSeconds秒的连接被关闭；
+ * 2.流水线：同一连接上连续发送的多个请求并发执行，响应按请求的顺序返回，每个连接最多同时执行maxPipelinedRequests个请求；
+ * 3.直接缓冲区：读写都经过I/O线程持有的直接缓冲区，避免每次读写时JDK分配临时的直接缓冲区。
+ * 可以通过main方法独立启动：java com.rop.server.RopHttpServer spring配置文件 [端口]
+ * </pre>
+ *
+ * @author 陈雄华
+ * @version 1.0
+ */
+public class RopHttpServer {
+
+    public static final int DEFAULT_PORT = 8088;
+
+    protected final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final ServiceRouter serviceRouter;
+
+    private String host;
+
+    private int port = DEFAULT_PORT;
+
+    private int workerThreads = 200;
+
+    private int maxHeaderSize = 8 * 1024;
+
+    private int maxContentLength = 10 * 1024 * 1024;
+
+    private int keepAliveTimeoutSeconds = 60;
+
+    private int maxPipelinedRequests = 16;
+
+    private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(16 * 1024);
+
+    private final ByteBuffer writeBuffer = ByteBuffer.allocateDirect(64 * 1024);
+
+    // 有响应完成、需要I/O线程写出的连接
+    private final ConcurrentLinkedQueue<HttpConnection> completedConnections = new ConcurrentLinkedQueue<HttpConnection>();
+
+    private Selector selector;
+
+    private ServerSocketChannel serverChannel;
+
+    private ThreadPoolExecutor workerExecutor;
+
+    private Thread ioThread;
+
+    private volatile boolean running;
+
+    public RopHttpServer(ServiceRouter serviceRouter) {
+        this.serviceRouter = serviceRouter;
+    }
+
+    /**
+     * 启动服务器，端口为0时使用随机端口，可通过{@link #getLocalPort()}获取
+     *
+     * @throws IOException
+     */
+    public synchronized void start() throws IOException {
+        if (running) {
+            return;
+        }
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.configureBlocking(false);
+        serverChannel.socket().setReuseAddress(true);
+        serverChannel.socket().bind(host == null ? new InetSocketAddress(port) : new InetSocketAddress(host, port), 1024);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        workerExecutor = new ThreadPoolExecutor(workerThreads, workerThreads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new NamedThreadFactory("rop-server-worker-"));
+        running = true;
+        ioThread = new Thread(new Runnable() {
+            public void run() {
+                ioLoop();
+            }
+        }, "rop-server-io");
+        ioThread.start();
+        if (logger.isInfoEnabled()) {
+            logger.info("Rop服务器已启动，监听端口：{}", getLocalPort());
+        }
+    }
+
+    /**
+     * 停止服务器：关闭所有连接并停止工作线程池，服务路由器需要另行关闭
+     */
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        selector.wakeup();
+        try {
+            ioThread.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        workerExecutor.shutdown();
+        if (logger.isInfoEnabled()) {
+            logger.info("Rop服务器已停止");
+        }
+    }
+
+    public int getLocalPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void ioLoop() {
+        long lastIdleCheckTime = System.currentTimeMillis();
+        while (running) {
+            try {
+                selector.select(1000);
+                HttpConnection completed;
+                while ((completed = completedConnections.poll()) != null) {
+                    write(completed);
+                }
+                Iterator<SelectionKey> iterator = selector.selectedKeys().iterator();
+                while (iterator.hasNext()) {
+                    SelectionKey key = iterator.next();
+                    iterator.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                        continue;
+                    }
+                    HttpConnection connection = (HttpConnection) key.attachment();
+                    if (key.isReadable()) {
+                        read(connection);
+                    }
+                    if (key.isValid() && key.isWritable()) {
+                        write(connection);
+                    }
+                }
+                long now = System.currentTimeMillis();
+                if (now - lastIdleCheckTime >= 1000) {
+                    closeIdleConnections(now);
+                    lastIdleCheckTime = now;
+                }
+            } catch (IOException e) {
+                logger.error("Rop服务器I/O出错", e);
+            } catch (CancelledKeyException e) {
+                //连接已关闭
+            }
+        }
+        for (SelectionKey key : selector.keys()) {
+            if (key.attachment() instanceof HttpConnection) {
+                ((HttpConnection) key.attachment()).close();
+            }
+        }
+        try {
+            serverChannel.close();
+            selector.close();
+        } catch (IOException e) {
+            logger.error("关闭Rop服务器出错", e);
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = serverChannel.accept()) != null) {
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            HttpConnection connection = new HttpConnection(channel);
+            connection.setSelectionKey(channel.register(selector, SelectionKey.OP_READ, connection));
+        }
+    }
+
+    private void read(HttpConnection connection) {
+        readBuffer.clear();
+        int length;
+        try {
+            length = connection.getChannel().read(readBuffer);
+        } catch (IOException e) {
+            connection.close();
+            return;
+        }
+        if (length < 0) {
+            connection.setInputClosed();
+            if (connection.getPendingCount() == 0) {
+                connection.close();
+            } else {
+                updateInterestOps(connection, false);
+            }
+            return;
+        }
+        readBuffer.flip();
+        connection.append(readBuffer);
+        dispatch(connection);
+    }
+
+    /**
+     * 解码连接中所有完整的请求，提交到工作线程池执行
+     */
+    private void dispatch(HttpConnection connection) {
+        while (connection.getPendingCount() < maxPipelinedRequests) {
+            NioHttpServletRequest request;
+            try {
+                request = connection.decode(maxHeaderSize, maxContentLength);
+            } catch (HttpConnection.HttpStatusException e) {
+                if (logger.isDebugEnabled()) {
+                    logger.debug("请求不合法：" + e.getMessage());
+                }
+                connection.setClosing();
+                NioHttpServletResponse response = new NioHttpServletResponse();
+                try {
+                    response.sendError(e.getStatus(), e.getMessage());
+                } catch (IOException ignore) {
+                    response.setStatus(e.getStatus());
+                }
+                connection.newPendingResponse().complete(response.toBytes(false), true);
+                write(connection);
+                return;
+            }
+            if (request == null) {
+                break;
+            }
+            HttpConnection.PendingResponse pendingResponse = connection.newPendingResponse();
+            try {
+                workerExecutor.execute(new ServiceTask(connection, request, pendingResponse));
+            } catch (RejectedExecutionException e) {
+                connection.setClosing();
+                NioHttpServletResponse response = new NioHttpServletResponse();
+                response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+                pendingResponse.complete(response.toBytes(false), true);
+                write(connection);
+                return;
+            }
+        }
+        updateInterestOps(connection, false);
+    }
+
+    private void write(HttpConnection connection) {
+        if (!connection.getChannel().isOpen()) {
+            return;
+        }
+        boolean flushed;
+        try {
+            flushed = connection.flush(writeBuffer);
+        } catch (IOException e) {
+            connection.close();
+            return;
+        }
+        if (connection.getPendingCount() == 0 && connection.isInputClosed()) {
+            connection.close();
+            return;
+        }
+        updateInterestOps(connection, !flushed);
+        if (flushed) {
+            //此前因流水线请求过多暂停解码的请求
+            dispatch(connection);
+        }
+    }
+
+    private void updateInterestOps(HttpConnection connection, boolean writeBlocked) {
+        SelectionKey key = connection.getSelectionKey();
+        if (!key.isValid()) {
+            return;
+        }
+        int ops = 0;
+        if (!connection.isInputClosed() && !connection.isClosing()
+                && connection.getPendingCount() < maxPipelinedRequests) {
+            ops |= SelectionKey.OP_READ;
+        }
+        if (writeBlocked) {
+            ops |= SelectionKey.OP_WRITE;
+        }
+        key.interestOps(ops);
+    }
+
+    private void closeIdleConnections(long now) {
+        long timeout = keepAliveTimeoutSeconds * 1000L;
+        for (SelectionKey key : selector.keys()) {
+            if (key.attachment() instanceof HttpConnection) {
+                HttpConnection connection = (HttpConnection) key.attachment();
+                if (connection.getPendingCount() == 0 && now - connection.getLastActiveTime() > timeout) {
+                    connection.close();
+                }
+            }
+        }
+    }
+
+    /**
+     * 在工作线程中执行一个请求，完成后通知I/O线程写出响应
+     */
+    private class ServiceTask implements Runnable {
+
+        private final HttpConnection connection;
+
+        private final NioHttpServletRequest request;
+
+        private final HttpConnection.PendingResponse pendingResponse;
+
+        private ServiceTask(HttpConnection connection, NioHttpServletRequest request,
+                            HttpConnection.PendingResponse pendingResponse) {
+            this.connection = connection;
+            this.request = request;
+            this.pendingResponse = pendingResponse;
+        }
+
+        public void run() {
+            NioHttpServletResponse response = new NioHttpServletResponse();
+            // 文件响应由I/O线程以sendfile方式直接从文件传输到Socket，不经过响应的内存缓冲
+            request.setAttribute(AnnotationServletServiceRouter.SENDFILE_SUPPORT_ATTRNAME, Boolean.TRUE);
+            try {
+                serviceRouter.service(request, response);
+            } catch (Throwable e) {
+                logger.error("处理请求出错", e);
+                request.removeAttribute(AnnotationServletServiceRouter.SENDFILE_FILENAME_ATTRNAME);
+                response.reset();
+                response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+            }
+            boolean keepAlive = running && request.isKeepAlive();
+            String sendfile = (String) request.getAttribute(AnnotationServletServiceRouter.SENDFILE_FILENAME_ATTRNAME);
+            if (sendfile == null || !completeWithFile(response, sendfile, keepAlive)) {
+                pendingResponse.complete(response.toBytes(keepAlive), !keepAlive);
+            }
+            completedConnections.offer(connection);
+            selector.wakeup();
+        }
+
+        private boolean completeWithFile(NioHttpServletResponse response, String fileName, boolean keepAlive) {
+            long start = (Long) request.getAttribute(AnnotationServletServiceRouter.SENDFILE_START_ATTRNAME);
+            long end = (Long) request.getAttribute(AnnotationServletServiceRouter.SENDFILE_END_ATTRNAME);
+            FileChannel file;
+            try {
+                file = new RandomAccessFile(fileName, "r").getChannel();
+            } catch (IOException e) {
+                logger.error("打开要发送的文件出错：" + fileName, e);
+                response.reset();
+                response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+                return false;
+            }
+            pendingResponse.complete(response.toHeadBytes(keepAlive, end - start), file, start, end, !keepAlive);
+            return true;
+        }
+    }
+
+    private static class NamedThreadFactory implements ThreadFactory {
+
+        private final String prefix;
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        private NamedThreadFactory(String prefix) {
+            this.prefix = prefix;
+        }
+
+        public Thread newThread(Runnable runnable) {
+            return new Thread(runnable, prefix + count.incrementAndGet());
+        }
+    }
+
+    public void setHost(String host) {
+        this.host = host;
+    }
+
+    public void setPort(int port) {
+        this.port = port;
+    }
+
+    public void setWorkerThreads(int workerThreads) {
+        this.workerThreads = workerThreads;
+    }
+
+    public void setMaxHeaderSize(int maxHeaderSize) {
+        this.maxHeaderSize = maxHeaderSize;
+    }
+
+    public void setMaxContentLength(int maxContentLength) {
+        this.maxContentLength = maxContentLength;
+    }
+
+    public void setKeepAliveTimeoutSeconds(int keepAliveTimeoutSeconds) {
+        this.keepAliveTimeoutSeconds = keepAliveTimeoutSeconds;
+    }
+
+    public void setMaxPipelinedRequests(int maxPipelinedRequests) {
+        this.maxPipelinedRequests = maxPipelinedRequests;
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            System.err.println("Usage: java " + RopHttpServer.class.getName() + " <spring config location> [port]");
+            System.exit(1);
+        }
+        final ClassPathXmlApplicationContext context = new ClassPathXmlApplicationContext(args[0]);
+        final RopHttpServer server = new RopHttpServer(context.getBean(ServiceRouter.class));
+        server.setPort(args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_PORT);
+        server.start();
+        Runtime.getRuntime().addShutdownHook(new Thread() {
+            @Override
+            public void run() {
+                //先关闭Spring容器排空请求，排空期间的新请求被快速拒绝
+                context.close();
+                server.stop();
+            }
+        });
+    }
+}
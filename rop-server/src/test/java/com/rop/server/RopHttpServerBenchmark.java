@@ -0,0 +1,104 @@
+/**
+ * Copyright 2012-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.rop.server;
+
+import com.rop.ServiceRouter;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.BufferedInputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.Socket;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <pre>
+ * 功能说明：在本机上压测{@link RopHttpServer}的传输层吞吐量，服务路由器只输出固定的报文。
+ * 用法：java com.rop.server.RopHttpServerBenchmark [连接数] [每个连接的请求数] [流水线深度]
+ * </pre>
+ *
+ * @author 陈雄华
+ * @version 1.0
+ */
+public class RopHttpServerBenchmark {
+
+    private static final byte[] RESPONSE_BODY = "{\"userId\":\"1\",\"userName\":\"tom\"}".getBytes();
+
+    public static void main(String[] args) throws Exception {
+        int connections = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+        final int requests = args.length > 1 ? Integer.parseInt(args[1]) : 20000;
+        final int depth = args.length > 2 ? Integer.parseInt(args[2]) : 8;
+
+        ServiceRouter serviceRouter = (ServiceRouter) Proxy.newProxyInstance(ServiceRouter.class.getClassLoader(),
+                new Class[]{ServiceRouter.class}, new InvocationHandler() {
+                    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                        if ("service".equals(method.getName())) {
+                            HttpServletResponse response = (HttpServletResponse) args[1];
+                            response.setContentType("application/json;charset=UTF-8");
+                            response.getOutputStream().write(RESPONSE_BODY);
+                        }
+                        return null;
+                    }
+                });
+        final RopHttpServer server = new RopHttpServer(serviceRouter);
+        server.setHost("127.0.0.1");
+        server.setPort(0);
+        server.setMaxPipelinedRequests(depth);
+        server.start();
+
+        final byte[] request = ("GET /router?method=user.get&v=1.0&userId=1 HTTP/1.1\r\nHost: localhost\r\n\r\n").getBytes("ISO-8859-1");
+        final AtomicLong completed = new AtomicLong();
+        final CountDownLatch latch = new CountDownLatch(connections);
+        long beginTime = System.nanoTime();
+        for (int i = 0; i < connections; i++) {
+            new Thread(new Runnable() {
+                public void run() {
+                    try {
+                        Socket socket = new Socket("127.0.0.1", server.getLocalPort());
+                        socket.setTcpNoDelay(true);
+                        OutputStream out = socket.getOutputStream();
+                        InputStream in = new BufferedInputStream(socket.getInputStream());
+                        byte[] batch = new byte[request.length * depth];
+                        for (int j = 0; j < depth; j++) {
+                            System.arraycopy(request, 0, batch, j * request.length, request.length);
+                        }
+                        for (int sent = 0; sent < requests; sent += depth) {
+                            out.write(batch);
+                            for (int j = 0; j < depth; j++) {
+                                RopHttpServerTest.readResponse(in);
+                            }
+                            completed.addAndGet(depth);
+                        }
+                        socket.close();
+                    } catch (Exception e) {
+                        e.printStackTrace();
+                    } finally {
+                        latch.countDown();
+                    }
+                }
+            }).start();
+        }
+        latch.await();
+        double seconds = (System.nanoTime() - beginTime) / 1e9;
+        System.out.printf("connections=%d, pipeline depth=%d, requests=%d, time=%.2fs, throughput=%.0f req/s%n",
+                connections, depth, completed.get(), seconds, completed.get() / seconds);
+        server.stop();
+    }
+}
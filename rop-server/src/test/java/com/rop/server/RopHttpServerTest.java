@@ -0,0 +1,242 @@
+/**
+ * Copyright 2012-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.rop.server;
+
+import com.rop.ServiceRouter;
+import com.rop.impl.AnnotationServletServiceRouter;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.testng.Assert.*;
+
+/**
+ * <pre>
+ * 功能说明：
+ * </pre>
+ *
+ * @author 陈雄华
+ * @version 1.0
+ */
+public class RopHttpServerTest {
+
+    private RopHttpServer server;
+
+    private File file;
+
+    @BeforeClass
+    public void startServer() throws Exception {
+        file = File.createTempFile("rop_sendfile_", ".txt");
+        FileOutputStream fileOut = new FileOutputStream(file);
+        fileOut.write("0123456789abcdefghij".getBytes("ISO-8859-1"));
+        fileOut.close();
+        ServiceRouter serviceRouter = mock(ServiceRouter.class);
+        //回显method参数，sleep参数用于模拟不同的执行时间
+        doAnswer(new Answer<Object>() {
+            public Object answer(InvocationOnMock invocation) throws Throwable {
+                HttpServletRequest request = (HttpServletRequest) invocation.getArguments()[0];
+                HttpServletResponse response = (HttpServletResponse) invocation.getArguments()[1];
+                if (request.getParameter("sleep") != null) {
+                    Thread.sleep(Long.parseLong(request.getParameter("sleep")));
+                }
+                //按服务路由器输出文件响应的方式设置sendfile属性，由服务器直接发送文件的[2, 12)区间
+                if ("file".equals(request.getParameter("method"))
+                        && Boolean.TRUE.equals(request.getAttribute(AnnotationServletServiceRouter.SENDFILE_SUPPORT_ATTRNAME))) {
+                    response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                    response.setContentType("text/plain");
+                    request.setAttribute(AnnotationServletServiceRouter.SENDFILE_FILENAME_ATTRNAME, file.getAbsolutePath());
+                    request.setAttribute(AnnotationServletServiceRouter.SENDFILE_START_ATTRNAME, 2L);
+                    request.setAttribute(AnnotationServletServiceRouter.SENDFILE_END_ATTRNAME, 12L);
+                    return null;
+                }
+                response.setContentType("text/plain;charset=UTF-8");
+                response.getOutputStream().write(request.getParameter("method").getBytes("UTF-8"));
+                response.getOutputStream().close();
+                return null;
+            }
+        }).when(serviceRouter).service(any(HttpServletRequest.class), any(HttpServletResponse.class));
+        server = new RopHttpServer(serviceRouter);
+        server.setHost("127.0.0.1");
+        server.setPort(0);
+        server.setWorkerThreads(4);
+        server.start();
+    }
+
+    @AfterClass
+    public void stopServer() {
+        server.stop();
+        file.delete();
+    }
+
+    private Socket connect() throws IOException {
+        Socket socket = new Socket("127.0.0.1", server.getLocalPort());
+        socket.setSoTimeout(5000);
+        return socket;
+    }
+
+    private static String get(String query) {
+        return "GET /router?" + query + " HTTP/1.1\r\nHost: localhost\r\n\r\n";
+    }
+
+    @Test
+    public void testKeepAliveAndPipelining() throws Exception {
+        Socket socket = connect();
+        try {
+            OutputStream out = socket.getOutputStream();
+            InputStream in = socket.getInputStream();
+            //先执行完的后发请求，响应仍按请求顺序返回
+            out.write((get("method=a&sleep=300") + get("method=b&sleep=100") + get("method=c")).getBytes("ISO-8859-1"));
+            out.flush();
+            assertEquals(readResponse(in).body, "a");
+            assertEquals(readResponse(in).body, "b");
+            Response response = readResponse(in);
+            assertEquals(response.body, "c");
+            assertEquals(response.headers.get("connection"), "keep-alive");
+
+            out.write(get("method=d").getBytes("ISO-8859-1"));
+            assertEquals(readResponse(in).body, "d");
+        } finally {
+            socket.close();
+        }
+    }
+
+    @Test
+    public void testPostForm() throws Exception {
+        Socket socket = connect();
+        try {
+            byte[] body = "method=%E7%94%A8%E6%88%B7.get&v=1.0".getBytes("ISO-8859-1");
+            OutputStream out = socket.getOutputStream();
+            out.write(("POST /router HTTP/1.1\r\nHost: localhost\r\nContent-Type: application/x-www-form-urlencoded\r\n"
+                    + "Content-Length: " + body.length + "\r\n\r\n").getBytes("ISO-8859-1"));
+            out.write(body);
+            out.flush();
+            Response response = readResponse(socket.getInputStream());
+            assertEquals(response.status, 200);
+            assertEquals(response.body, "用户.get");
+        } finally {
+            socket.close();
+        }
+    }
+
+    @Test
+    public void testConnectionClose() throws Exception {
+        Socket socket = connect();
+        try {
+            socket.getOutputStream().write(("GET /router?method=x HTTP/1.1\r\nConnection: close\r\n\r\n").getBytes("ISO-8859-1"));
+            InputStream in = socket.getInputStream();
+            Response response = readResponse(in);
+            assertEquals(response.body, "x");
+            assertEquals(response.headers.get("connection"), "close");
+            assertEquals(in.read(), -1);
+        } finally {
+            socket.close();
+        }
+    }
+
+    @Test
+    public void testSendfile() throws Exception {
+        Socket socket = connect();
+        try {
+            OutputStream out = socket.getOutputStream();
+            InputStream in = socket.getInputStream();
+            out.write((get("method=file") + get("method=after")).getBytes("ISO-8859-1"));
+            out.flush();
+            Response response = readResponse(in);
+            assertEquals(response.status, 206);
+            assertEquals(response.headers.get("content-length"), "10");
+            assertEquals(response.body, "23456789ab");
+            assertEquals(readResponse(in).body, "after");
+        } finally {
+            socket.close();
+        }
+    }
+
+    @Test
+    public void testBadRequest() throws Exception {
+        Socket socket = connect();
+        try {
+            socket.getOutputStream().write("HELLO\r\n\r\n".getBytes("ISO-8859-1"));
+            InputStream in = socket.getInputStream();
+            assertEquals(readResponse(in).status, 400);
+            assertEquals(in.read(), -1);
+        } finally {
+            socket.close();
+        }
+    }
+
+    static Response readResponse(InputStream in) throws IOException {
+        Response response = new Response();
+        String statusLine = readLine(in);
+        response.status = Integer.parseInt(statusLine.split(" ")[1]);
+        String line;
+        while ((line = readLine(in)).length() > 0) {
+            int index = line.indexOf(':');
+            response.headers.put(line.substring(0, index).toLowerCase(), line.substring(index + 1).trim());
+        }
+        int length = Integer.parseInt(response.headers.get("content-length"));
+        byte[] body = new byte[length];
+        int offset = 0;
+        while (offset < length) {
+            int n = in.read(body, offset, length - offset);
+            if (n < 0) {
+                throw new IOException("unexpected end of stream");
+            }
+            offset += n;
+        }
+        response.body = new String(body, "UTF-8");
+        return response;
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int b;
+        while ((b = in.read()) != '\n') {
+            if (b < 0) {
+                throw new IOException("unexpected end of stream");
+            }
+            if (b != '\r') {
+                line.write(b);
+            }
+        }
+        return line.toString("ISO-8859-1");
+    }
+
+    static class Response {
+
+        int status;
+
+        Map<String, String> headers = new HashMap<String, String>();
+
+        String body;
+    }
+}
@@ -17,6 +17,8 @@ package com.rop;
 
 import com.rop.annotation.Temporary;
 
+import javax.xml.bind.annotation.XmlTransient;
+
 /**
  * <pre>
  *   所有请求对象应该通过扩展此抽象类实现
@@ -31,6 +33,7 @@ public abstract class AbstractRopRequest implements RopRequest {
     private RopRequestContext ropRequestContext;
 
 
+    @XmlTransient
     public RopRequestContext getRopRequestContext() {
         return ropRequestContext;
     }
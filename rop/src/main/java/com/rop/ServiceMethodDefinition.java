@@ -17,6 +17,7 @@ package com.rop;
 
 
 import com.rop.annotation.HttpAction;
+import com.rop.annotation.PriorityType;
 
 /**
  * <pre>
@@ -93,6 +94,56 @@ public class ServiceMethodDefinition {
      */
     private boolean obsoleted = false;
 
+    /**
+     * 服务方法的调度优先级
+     */
+    private PriorityType priority = PriorityType.NORMAL;
+
+    /**
+     * 是否为响应报文生成ETag
+     */
+    private boolean etag = false;
+
+    /**
+     * 响应报文的缓存时间，单位为秒，负数表示不输出Cache-Control
+     */
+    private int cacheMaxAge = -1;
+
+    /**
+     * 是否允许对响应报文进行压缩
+     */
+    private boolean compress = true;
+
+    /**
+     * 熔断的失败率阈值（百分比），0或负数表示不熔断
+     */
+    private int breakerFailureRate = 0;
+
+    /**
+     * 计算失败率所需的最少调用次数
+     */
+    private int breakerMinimumCalls = 20;
+
+    /**
+     * 统计失败率的滑动窗口大小，小于最少调用次数时按最少调用次数处理
+     */
+    private int breakerWindowSize = 0;
+
+    /**
+     * 熔断的时间，单位为秒
+     */
+    private int breakerOpenSeconds = 30;
+
+    /**
+     * 是否合并相同的并发调用
+     */
+    private boolean singleFlight = false;
+
+    /**
+     * 合并调用时不参与比较的参数
+     */
+    private String[] singleFlightIgnoreParams = {};
+
     public String getMethod() {
         return method;
     }
@@ -180,5 +231,84 @@ public class ServiceMethodDefinition {
     public void setObsoleted(boolean obsoleted) {
         this.obsoleted = obsoleted;
     }
-}
 
+    public boolean isEtag() {
+        return etag;
+    }
+
+    public void setEtag(boolean etag) {
+        this.etag = etag;
+    }
+
+    public int getCacheMaxAge() {
+        return cacheMaxAge;
+    }
+
+    public void setCacheMaxAge(int cacheMaxAge) {
+        this.cacheMaxAge = cacheMaxAge;
+    }
+
+    public boolean isCompress() {
+        return compress;
+    }
+
+    public void setCompress(boolean compress) {
+        this.compress = compress;
+    }
+
+    public int getBreakerFailureRate() {
+        return breakerFailureRate;
+    }
+
+    public void setBreakerFailureRate(int breakerFailureRate) {
+        this.breakerFailureRate = breakerFailureRate;
+    }
+
+    public int getBreakerMinimumCalls() {
+        return breakerMinimumCalls;
+    }
+
+    public void setBreakerMinimumCalls(int breakerMinimumCalls) {
+        this.breakerMinimumCalls = breakerMinimumCalls;
+    }
+
+    public int getBreakerWindowSize() {
+        return breakerWindowSize;
+    }
+
+    public void setBreakerWindowSize(int breakerWindowSize) {
+        this.breakerWindowSize = breakerWindowSize;
+    }
+
+    public int getBreakerOpenSeconds() {
+        return breakerOpenSeconds;
+    }
+
+    public void setBreakerOpenSeconds(int breakerOpenSeconds) {
+        this.breakerOpenSeconds = breakerOpenSeconds;
+    }
+
+    public PriorityType getPriority() {
+        return priority;
+    }
+
+    public void setPriority(PriorityType priority) {
+        this.priority = priority;
+    }
+
+    public boolean isSingleFlight() {
+        return singleFlight;
+    }
+
+    public void setSingleFlight(boolean singleFlight) {
+        this.singleFlight = singleFlight;
+    }
+
+    public String[] getSingleFlightIgnoreParams() {
+        return singleFlightIgnoreParams;
+    }
+
+    public void setSingleFlightIgnoreParams(String[] singleFlightIgnoreParams) {
+        this.singleFlightIgnoreParams = singleFlightIgnoreParams;
+    }
+}
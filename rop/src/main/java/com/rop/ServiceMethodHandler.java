@@ -15,6 +15,8 @@
  */
 package com.rop;
 
+import com.rop.impl.ServiceCircuitBreaker;
+
 import java.lang.reflect.Method;
 import java.util.List;
 
@@ -42,6 +44,9 @@ public class ServiceMethodHandler {
     //属性类型为FileItem的字段列表
     private List<String> uploadFileFieldNames;
 
+    //服务方法的熔断器，没有开启熔断时为null
+    private ServiceCircuitBreaker circuitBreaker;
+
 
     public ServiceMethodHandler() {
     }
@@ -90,6 +95,14 @@ public class ServiceMethodHandler {
         this.uploadFileFieldNames = uploadFileFieldNames;
     }
 
+    public ServiceCircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    public void setCircuitBreaker(ServiceCircuitBreaker circuitBreaker) {
+        this.circuitBreaker = circuitBreaker;
+    }
+
     public boolean hasUploadFiles(){
         return uploadFileFieldNames != null && uploadFileFieldNames.size() > 0;
     }
@@ -17,6 +17,8 @@ package com.rop;
 
 import com.rop.event.RopEvent;
 import com.rop.event.RopEventListener;
+import com.rop.security.AppSecretManager;
+import com.rop.security.FileUploadController;
 import com.rop.security.InvokeTimesController;
 import com.rop.session.SessionManager;
 
@@ -154,6 +156,13 @@ public interface ServiceRouter {
      */
     void setSessionManager(SessionManager sessionManager);
 
+    /**
+     * 设置应用密钥管理器，只有合法的应用键才作为服务线程池调度的租户
+     *
+     * @param appSecretManager
+     */
+    void setAppSecretManager(AppSecretManager appSecretManager);
+
     /**
      * 设置服务调用限制管理器
      * @param invokeTimesController
@@ -165,9 +174,67 @@ public interface ServiceRouter {
      * @param threadFerryClass
      */
     void setThreadFerryClass(Class<? extends ThreadFerry> threadFerryClass);
+
+    /**
+     * 设置是否开启响应报文压缩，默认不开启
+     * @param compressionEnable
+     */
+    void setCompressionEnable(boolean compressionEnable);
+
+    /**
+     * 设置启用压缩的最小报文字节数
+     * @param compressionThreshold
+     */
+    void setCompressionThreshold(int compressionThreshold);
+
+    /**
+     * 设置压缩级别，取值为-1(默认级别)或0~9
+     * @param compressionLevel
+     */
+    void setCompressionLevel(int compressionLevel);
+
+    /**
+     * 设置一次批量调用中允许的最大子调用数
+     * @param batchMaxCalls
+     */
+    void setBatchMaxCalls(int batchMaxCalls);
+
+    /**
+     * 设置关闭时等待请求排空的最长时间，单位为秒
+     * @param shutdownTimeoutSeconds
+     */
+    void setShutdownTimeoutSeconds(int shutdownTimeoutSeconds);
+
+    /**
+     * 设置上传文件的控制器，multipart/form-data请求在解析时即按其校验文件类型和大小
+     * @param fileUploadController
+     */
+    void setFileUploadController(FileUploadController fileUploadController);
+
+    /**
+     * 设置上传文件在内存中缓存的最大字节数，超过时写入临时文件
+     * @param uploadMemoryThreshold
+     */
+    void setUploadMemoryThreshold(int uploadMemoryThreshold);
+
+    /**
+     * 设置上传文件的临时目录，为空时使用系统临时目录
+     * @param uploadTempDir
+     */
+    void setUploadTempDir(String uploadTempDir);
     
     void setJsonMarshaller(RopMarshaller jsonMarshaller);
     
     void setXmlMarshaller(RopMarshaller xmlMarshaller);
+
+    void setSmileMarshaller(RopMarshaller smileMarshaller);
+
+    void setCborMarshaller(RopMarshaller cborMarshaller);
+
+    /**
+     * 设置解析XML格式请求体的反序列化器，为空时使用JAXB
+     * @param xmlUnmarshaller
+     */
+    void setXmlUnmarshaller(RopUnmarshaller xmlUnmarshaller);
 }
 
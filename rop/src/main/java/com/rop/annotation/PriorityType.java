@@ -0,0 +1,37 @@
+/**
+ * Copyright 2012-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.rop.annotation;
+
+/**
+ * <pre>
+ *   服务方法的调度优先级，线程池繁忙时高优先级的请求先执行，低优先级的请求先被拒绝。
+ * {@link #DEFAULT}是系统预留的，表示沿用{@link ServiceMethodBean}的设置，都未设置时为{@link #NORMAL}
+ * </pre>
+ *
+ * @author 陈雄华
+ * @version 1.0
+ */
+public enum PriorityType {
+    HIGH, NORMAL, LOW, DEFAULT;
+
+    public static PriorityType toPriority(PriorityType type) {
+        if (DEFAULT == type) {
+            return NORMAL;
+        } else {
+            return type;
+        }
+    }
+}
@@ -23,7 +23,8 @@ import java.lang.annotation.*;
 /**
  * <pre>
  *     使用该注解对服务方法进行标注，这些方法必须是Spring的Service:既打了@Service的注解。
- *
+ *     服务方法可以返回CompletableFuture/CompletionStage（需要JDK 8），服务线程不等待其完成，
+ *     在其完成时再执行输出响应前拦截、发布服务完成事件并输出响应，超时时间同样适用于异步服务方法。
  * </pre>
  *
  * @author 陈雄华
@@ -110,4 +111,83 @@ public @interface ServiceMethod {
      * @return
      */
     ObsoletedType obsoleted() default  ObsoletedType.DEFAULT;
+
+    /**
+     * 服务方法的调度优先级，面向用户、对延迟敏感的服务方法可设为{@link PriorityType#HIGH}，
+     * 批量、后台类的服务方法可设为{@link PriorityType#LOW}，默认为{@link PriorityType#NORMAL}
+     *
+     * @return
+     */
+    PriorityType priority() default PriorityType.DEFAULT;
+
+    /**
+     * 是否为响应报文生成ETag，开启后将根据响应报文内容（或服务通过
+     * {@link com.rop.impl.SimpleRopRequestContext#ETAG_ATTRNAME}属性提供的版本号）计算ETag，
+     * 当请求的If-None-Match与之匹配时直接返回304。只对GET和HEAD请求生效，默认不开启
+     *
+     * @return
+     */
+    boolean etag() default false;
+
+    /**
+     * 响应报文的缓存时间，单位为秒，用于输出Cache-Control的max-age，
+     * 0表示每次都需要重新验证，负数表示不输出Cache-Control
+     *
+     * @return
+     */
+    int cacheMaxAge() default -1;
+
+    /**
+     * 是否允许对响应报文进行压缩，对于内容已经压缩过或很小的报文可关闭，默认允许
+     *
+     * @return
+     */
+    boolean compress() default true;
+
+    /**
+     * 熔断的失败率阈值（百分比），服务方法最近{@link #breakerWindowSize()}次调用中发生异常或超时的比率达到该值时熔断，
+     * 熔断期间请求直接返回服务不可用的错误报文。0或负数表示不熔断，默认不熔断
+     *
+     * @return
+     */
+    int breakerFailureRate() default 0;
+
+    /**
+     * 计算失败率所需的最少调用次数，统计的调用次数不足时不熔断
+     *
+     * @return
+     */
+    int breakerMinimumCalls() default 20;
+
+    /**
+     * 统计失败率的滑动窗口大小，即只统计最近多少次调用。小于{@link #breakerMinimumCalls()}时按
+     * {@link #breakerMinimumCalls()}处理，默认为0，即与{@link #breakerMinimumCalls()}相同
+     *
+     * @return
+     */
+    int breakerWindowSize() default 0;
+
+    /**
+     * 熔断的时间，单位为秒，期满后放行一个探测请求，探测成功则恢复
+     *
+     * @return
+     */
+    int breakerOpenSeconds() default 30;
+
+    /**
+     * 是否合并相同的并发调用，开启后服务方法名、版本及业务参数都相同的请求同时到达时只执行一次服务方法，
+     * 其它请求共享其响应。只适用于只读的服务方法，默认不开启。
+     * 返回流式响应、文件响应或异步返回值时不共享响应，每个请求各自执行服务方法
+     *
+     * @return
+     */
+    boolean singleFlight() default false;
+
+    /**
+     * 合并调用时不参与比较的参数，如appKey、sessionId（响应与应用或会话无关时）。
+     * sign、jsonp及format总是不参与比较
+     *
+     * @return
+     */
+    String[] singleFlightIgnoreParams() default {};
 }
@@ -99,5 +99,12 @@ public @interface ServiceMethodBean {
      * @return
      */
     ObsoletedType obsoleted() default  ObsoletedType.DEFAULT;
+
+    /**
+     * 服务方法的调度优先级，默认为{@link PriorityType#NORMAL}
+     *
+     * @return
+     */
+    PriorityType priority() default PriorityType.DEFAULT;
 }
 
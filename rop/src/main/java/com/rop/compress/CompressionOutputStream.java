@@ -0,0 +1,261 @@
+/*
+ * Copyright 2012-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.rop.compress;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * <pre>
+ * 功能说明：响应报文的流式压缩输出流。
+ * 写入的数据先缓存在阈值大小的缓冲区中，如果报文最终不超过阈值，则原样输出；
+ * 一旦超过阈值，才设置Content-Encoding报文头并边写边压缩，不会把整个报文缓存在内存中。
+ * 支持gzip和deflate两种编码，Deflater从{@link DeflaterPool}中借用，关闭时归还。
+ * 写入过程中出错时应调用{@link #abort()}而不是{@link #close()}，避免把不完整的报文作为完整的报文输出。
+ * 本输出流关闭时不会关闭底层的Servlet输出流。
+ * </pre>
+ *
+ * @author 陈雄华
+ * @version 1.0
+ */
+public class CompressionOutputStream extends OutputStream {
+
+    public static final String GZIP = "gzip";
+
+    public static final String DEFLATE = "deflate";
+
+    public static final String CONTENT_ENCODING = "Content-Encoding";
+
+    private static final byte[] GZIP_HEADER = {
+            (byte) 0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0
+    };
+
+    private final HttpServletResponse response;
+
+    private final String encoding;
+
+    private final DeflaterPool deflaterPool;
+
+    private final byte[] buffer;
+
+    private int count;
+
+    private OutputStream out;
+
+    private Deflater deflater;
+
+    private CRC32 crc;
+
+    private byte[] deflateBuffer;
+
+    private boolean closed;
+
+    /**
+     * @param response     响应对象
+     * @param encoding     协商出的编码，{@link #GZIP}或{@link #DEFLATE}
+     * @param deflaterPool Deflater池，gzip编码需使用nowrap的池
+     * @param threshold    启用压缩的最小报文字节数
+     */
+    public CompressionOutputStream(HttpServletResponse response, String encoding, DeflaterPool deflaterPool,
+                                   int threshold) {
+        this.response = response;
+        this.encoding = encoding;
+        this.deflaterPool = deflaterPool;
+        this.buffer = new byte[threshold > 0 ? threshold : 0];
+    }
+
+    /**
+     * 根据请求的Accept-Encoding协商响应的编码，优先使用gzip，q=0的编码视为不可接受
+     *
+     * @param acceptEncoding
+     * @return {@link #GZIP}、{@link #DEFLATE}，都不接受时返回null
+     */
+    public static String negotiateEncoding(String acceptEncoding) {
+        if (acceptEncoding == null || acceptEncoding.length() == 0) {
+            return null;
+        }
+        float gzipQ = -1, deflateQ = -1, anyQ = -1;
+        for (String item : acceptEncoding.split(",")) {
+            String[] parts = item.split(";");
+            String coding = parts[0].trim().toLowerCase();
+            float q = 1;
+            for (int i = 1; i < parts.length; i++) {
+                String param = parts[i].trim();
+                if (param.startsWith("q=")) {
+                    try {
+                        q = Float.parseFloat(param.substring(2).trim());
+                    } catch (NumberFormatException e) {
+                        q = 0;
+                    }
+                }
+            }
+            if (GZIP.equals(coding) || "x-gzip".equals(coding)) {
+                gzipQ = q;
+            } else if (DEFLATE.equals(coding)) {
+                deflateQ = q;
+            } else if ("*".equals(coding)) {
+                anyQ = q;
+            }
+        }
+        if (gzipQ < 0) {
+            gzipQ = anyQ;
+        }
+        if (deflateQ < 0) {
+            deflateQ = anyQ;
+        }
+        if (gzipQ > 0 && gzipQ >= deflateQ) {
+            return GZIP;
+        }
+        if (deflateQ > 0) {
+            return DEFLATE;
+        }
+        return null;
+    }
+
+    /**
+     * 是否已经开始压缩输出
+     *
+     * @return
+     */
+    public boolean isCompressed() {
+        return deflater != null;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        if (deflater != null) {
+            deflate(b, off, len);
+        } else if (count + len <= buffer.length) {
+            System.arraycopy(b, off, buffer, count, len);
+            count += len;
+        } else {
+            startCompression();
+            deflate(buffer, 0, count);
+            count = 0;
+            deflate(b, off, len);
+        }
+    }
+
+    /**
+     * 已开始压缩时将已压缩的数据输出给客户端（用于流式响应）。未达到阈值的报文仍缓存在本输出流中，
+     * JDK 6的{@link Deflater}不支持同步刷新，尚未产生压缩数据的输入仍保留在Deflater中
+     */
+    @Override
+    public void flush() throws IOException {
+        if (!closed && deflater != null) {
+            out.flush();
+        }
+    }
+
+    /**
+     * 完成输出：未超过阈值时原样输出缓存的报文，否则输出压缩数据的剩余部分（gzip还要输出尾部）。
+     * 无论成功与否都会归还Deflater
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (deflater == null) {
+            response.setContentLength(count);
+            response.getOutputStream().write(buffer, 0, count);
+            return;
+        }
+        try {
+            deflater.finish();
+            while (!deflater.finished()) {
+                drain();
+            }
+            if (crc != null) {
+                writeTrailer();
+            }
+        } finally {
+            deflaterPool.release(deflater);
+        }
+    }
+
+    /**
+     * 放弃输出：丢弃尚未输出的缓存数据，不再输出压缩数据的剩余部分及gzip尾部，归还Deflater。
+     * 已经输出给客户端的压缩数据无法撤回，客户端将得到一个无法解压完整的报文
+     */
+    public void abort() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        count = 0;
+        if (deflater != null) {
+            deflaterPool.release(deflater);
+        }
+    }
+
+    private void startCompression() throws IOException {
+        response.setHeader(CONTENT_ENCODING, encoding);
+        out = response.getOutputStream();
+        deflater = deflaterPool.borrow();
+        deflateBuffer = new byte[8192];
+        if (GZIP.equals(encoding)) {
+            crc = new CRC32();
+            out.write(GZIP_HEADER);
+        }
+    }
+
+    private void deflate(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return;
+        }
+        if (crc != null) {
+            crc.update(b, off, len);
+        }
+        deflater.setInput(b, off, len);
+        while (!deflater.needsInput()) {
+            drain();
+        }
+    }
+
+    private void drain() throws IOException {
+        int n = deflater.deflate(deflateBuffer, 0, deflateBuffer.length);
+        if (n > 0) {
+            out.write(deflateBuffer, 0, n);
+        }
+    }
+
+    private void writeTrailer() throws IOException {
+        byte[] trailer = new byte[8];
+        writeInt((int) crc.getValue(), trailer, 0);
+        writeInt(deflater.getTotalIn(), trailer, 4);
+        out.write(trailer);
+    }
+
+    private static void writeInt(int value, byte[] b, int offset) {
+        b[offset] = (byte) (value & 0xff);
+        b[offset + 1] = (byte) ((value >> 8) & 0xff);
+        b[offset + 2] = (byte) ((value >> 16) & 0xff);
+        b[offset + 3] = (byte) ((value >> 24) & 0xff);
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2012-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.rop.compress;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.Deflater;
+
+/**
+ * <pre>
+ * 功能说明：{@link Deflater}对象池。Deflater内部持有本地内存，每次请求都创建并依赖
+ * finalize回收的代价很高，因此在响应压缩时从池中借用，用完重置后归还。
+ * 池中空闲对象数超过上限时，多余的Deflater直接释放。
+ * </pre>
+ *
+ * @author 陈雄华
+ * @version 1.0
+ */
+public class DeflaterPool {
+
+    public static final int DEFAULT_MAX_IDLE = 64;
+
+    private final int level;
+
+    private final boolean nowrap;
+
+    private final BlockingQueue<Deflater> idleDeflaters;
+
+    /**
+     * @param level  压缩级别，取值为{@link Deflater#DEFAULT_COMPRESSION}或0~9
+     * @param nowrap 为true时输出不带zlib头的原始deflate数据（用于gzip），否则输出zlib格式（用于deflate）
+     */
+    public DeflaterPool(int level, boolean nowrap) {
+        this(level, nowrap, DEFAULT_MAX_IDLE);
+    }
+
+    public DeflaterPool(int level, boolean nowrap, int maxIdle) {
+        this.level = level;
+        this.nowrap = nowrap;
+        this.idleDeflaters = new ArrayBlockingQueue<Deflater>(maxIdle);
+    }
+
+    /**
+     * 借用一个Deflater，池中没有空闲对象时新建一个
+     *
+     * @return
+     */
+    public Deflater borrow() {
+        Deflater deflater = idleDeflaters.poll();
+        if (deflater == null) {
+            deflater = new Deflater(level, nowrap);
+        }
+        return deflater;
+    }
+
+    /**
+     * 归还Deflater，超出空闲上限时直接释放其本地内存
+     *
+     * @param deflater
+     */
+    public void release(Deflater deflater) {
+        deflater.reset();
+        if (!idleDeflaters.offer(deflater)) {
+            deflater.end();
+        }
+    }
+
+    /**
+     * 释放池中所有空闲的Deflater
+     */
+    public void destroy() {
+        Deflater deflater;
+        while ((deflater = idleDeflaters.poll()) != null) {
+            deflater.end();
+        }
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    public boolean isNowrap() {
+        return nowrap;
+    }
+}
@@ -16,6 +16,7 @@
 package com.rop.config;
 
 import com.rop.impl.AnnotationServletServiceRouterFactoryBean;
+import com.rop.schedule.FairThreadPoolExecutorFactoryBean;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -95,6 +96,9 @@ public class AnnotationDrivenBeanDefinitionParser implements BeanDefinitionParse
         if(xmlMarshaller != null){
         	serviceRouterDef.getPropertyValues().add("xmlMarshaller", xmlMarshaller);
         }
+        //XML格式的序列化实现
+        setXmlBinding(element, serviceRouterDef);
+
         //JSON格式转换器
         RuntimeBeanReference jsonMarshaller = getJsonMarshaller(element, source, parserContext);
         if(jsonMarshaller != null){
@@ -118,6 +122,15 @@ public class AnnotationDrivenBeanDefinitionParser implements BeanDefinitionParse
         //设置文件上传配置信息
         setUploadFileSetting(element, serviceRouterDef);
 
+        //设置响应报文压缩配置信息
+        setCompressionSetting(element, serviceRouterDef);
+
+        //设置批量调用的最大子调用数
+        setBatchMaxCalls(element, serviceRouterDef);
+
+        //设置关闭时等待请求排空的最长时间
+        setShutdownTimeout(element, serviceRouterDef);
+
         parserContext.popAndRegisterContainingComponent();
         return null;
     }
@@ -132,11 +145,86 @@ public class AnnotationDrivenBeanDefinitionParser implements BeanDefinitionParse
         if (StringUtils.hasText(uploadFileTypes)) {
             serviceRouterDef.getPropertyValues().addPropertyValue("uploadFileTypes", uploadFileTypes);
         }
+
+        String uploadMemoryThreshold = element.getAttribute("upload-memory-threshold");
+        if (StringUtils.hasText(uploadMemoryThreshold)) {
+            serviceRouterDef.getPropertyValues().addPropertyValue("uploadMemoryThreshold", uploadMemoryThreshold);
+        }
+
+        String uploadTempDir = element.getAttribute("upload-temp-dir");
+        if (StringUtils.hasText(uploadTempDir)) {
+            serviceRouterDef.getPropertyValues().addPropertyValue("uploadTempDir", uploadTempDir);
+        }
+    }
+
+    private void setCompressionSetting(Element element, RootBeanDefinition serviceRouterDef) {
+        String compressionEnable = element.getAttribute("compression-enable");
+        if (StringUtils.hasText(compressionEnable)) {
+            serviceRouterDef.getPropertyValues().addPropertyValue("compressionEnable", compressionEnable);
+        }
+
+        String compressionThreshold = element.getAttribute("compression-threshold");
+        if (StringUtils.hasText(compressionThreshold)) {
+            serviceRouterDef.getPropertyValues().addPropertyValue("compressionThreshold", compressionThreshold);
+        }
+
+        String compressionLevel = element.getAttribute("compression-level");
+        if (StringUtils.hasText(compressionLevel)) {
+            serviceRouterDef.getPropertyValues().addPropertyValue("compressionLevel", compressionLevel);
+        }
+    }
+
+    private void setXmlBinding(Element element, RootBeanDefinition serviceRouterDef) {
+        String xmlBinding = element.getAttribute("xml-binding");
+        if (StringUtils.hasText(xmlBinding)) {
+            serviceRouterDef.getPropertyValues().addPropertyValue("xmlBinding", xmlBinding);
+        }
+    }
+
+    private void setBatchMaxCalls(Element element, RootBeanDefinition serviceRouterDef) {
+        String batchMaxCalls = element.getAttribute("batch-max-calls");
+        if (StringUtils.hasText(batchMaxCalls)) {
+            serviceRouterDef.getPropertyValues().addPropertyValue("batchMaxCalls", batchMaxCalls);
+        }
+    }
+
+    private void setShutdownTimeout(Element element, RootBeanDefinition serviceRouterDef) {
+        String shutdownTimeoutSeconds = element.getAttribute("shutdown-timeout-seconds");
+        if (StringUtils.hasText(shutdownTimeoutSeconds)) {
+            serviceRouterDef.getPropertyValues().addPropertyValue("shutdownTimeoutSeconds", shutdownTimeoutSeconds);
+        }
     }
 
     private void setTaskExecutor(Element element, ParserContext parserContext, Object source, RootBeanDefinition serviceRouterDef) {
-        RootBeanDefinition taskExecutorDef =
-                new RootBeanDefinition(org.springframework.scheduling.concurrent.ThreadPoolExecutorFactoryBean.class);
+        RootBeanDefinition taskExecutorDef;
+        String fairScheduling = element.getAttribute("fair-scheduling");
+        String priorityScheduling = element.getAttribute("priority-scheduling");
+        //优先级通道由公平调度队列实现，因此开启优先级调度时同时按应用公平调度
+        if ((StringUtils.hasText(fairScheduling) && Boolean.valueOf(fairScheduling))
+                || (StringUtils.hasText(priorityScheduling) && Boolean.valueOf(priorityScheduling))) {
+            taskExecutorDef = new RootBeanDefinition(FairThreadPoolExecutorFactoryBean.class);
+            String appWeights = element.getAttribute("app-weights");
+            if (StringUtils.hasText(appWeights)) {
+                taskExecutorDef.getPropertyValues().addPropertyValue("appWeights", appWeights);
+            }
+            String tenantQueueCapacity = element.getAttribute("tenant-queue-capacity");
+            if (StringUtils.hasText(tenantQueueCapacity)) {
+                taskExecutorDef.getPropertyValues().addPropertyValue("tenantQueueCapacity", tenantQueueCapacity);
+            }
+            if (StringUtils.hasText(priorityScheduling)) {
+                taskExecutorDef.getPropertyValues().addPropertyValue("priorityScheduling", priorityScheduling);
+            }
+            String normalPriorityQueueCapacity = element.getAttribute("normal-priority-queue-capacity");
+            if (StringUtils.hasText(normalPriorityQueueCapacity)) {
+                taskExecutorDef.getPropertyValues().addPropertyValue("normalPriorityQueueCapacity", normalPriorityQueueCapacity);
+            }
+            String lowPriorityQueueCapacity = element.getAttribute("low-priority-queue-capacity");
+            if (StringUtils.hasText(lowPriorityQueueCapacity)) {
+                taskExecutorDef.getPropertyValues().addPropertyValue("lowPriorityQueueCapacity", lowPriorityQueueCapacity);
+            }
+        } else {
+            taskExecutorDef = new RootBeanDefinition(org.springframework.scheduling.concurrent.ThreadPoolExecutorFactoryBean.class);
+        }
         String taskExecutorName = parserContext.getReaderContext().registerWithGeneratedName(taskExecutorDef);
 
         String corePoolSize = element.getAttribute("core-pool-size");
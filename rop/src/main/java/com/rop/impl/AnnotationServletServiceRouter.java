@@ -16,24 +16,38 @@
 package com.rop.impl;
 
 import com.rop.*;
+import com.rop.annotation.PriorityType;
+import com.rop.compress.CompressionOutputStream;
+import com.rop.compress.DeflaterPool;
 import com.rop.config.SystemParameterNames;
 import com.rop.event.*;
+import com.rop.marshaller.JacksonCborRopMarshaller;
 import com.rop.marshaller.JacksonJsonRopMarshaller;
+import com.rop.marshaller.JacksonSmileRopMarshaller;
 import com.rop.marshaller.JaxbXmlRopMarshaller;
+import com.rop.request.MultipartFileConverter;
+import com.rop.request.RopMultipartResolver;
 import com.rop.request.RopRequestMessageConverter;
 import com.rop.request.UploadFileConverter;
 import com.rop.response.ErrorResponse;
+import com.rop.response.FileResponse;
 import com.rop.response.MainError;
 import com.rop.response.MainErrorType;
 import com.rop.response.RejectedServiceResponse;
 import com.rop.response.ServiceUnavailableErrorResponse;
+import com.rop.response.StreamingResponse;
 import com.rop.response.TimeoutErrorResponse;
+import com.rop.schedule.TenantAware;
+import com.rop.schedule.TenantFutureTask;
+import com.rop.schedule.TenantStats;
+import com.rop.schedule.WeightedFairQueue;
 import com.rop.security.*;
 import com.rop.security.SecurityManager;
 import com.rop.session.DefaultSessionManager;
 import com.rop.session.SessionBindInterceptor;
 import com.rop.session.SessionManager;
 
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.lang.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -44,21 +58,57 @@ import org.springframework.context.support.ResourceBundleMessageSource;
 import org.springframework.format.support.FormattingConversionService;
 import org.springframework.format.support.FormattingConversionServiceFactoryBean;
 import org.springframework.util.Assert;
+import org.springframework.web.multipart.MultipartException;
+import org.springframework.web.multipart.MultipartHttpServletRequest;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Modifier;
+import java.net.URLEncoder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Deflater;
 
 public class AnnotationServletServiceRouter implements ServiceRouter {
 
 	public static final String APPLICATION_XML = "application/xml";
 
 	public static final String APPLICATION_JSON = "application/json";
+
+	public static final String APPLICATION_SMILE = "application/x-jackson-smile";
+
+	public static final String APPLICATION_CBOR = "application/cbor";
 	public static final String ACCESS_CONTROL_ALLOW_ORIGIN = "Access-Control-Allow-Origin";
 	public static final String ACCESS_CONTROL_ALLOW_METHODS = "Access-Control-Allow-Methods";
+	public static final String ETAG = "ETag";
+	public static final String IF_NONE_MATCH = "If-None-Match";
+	public static final String CACHE_CONTROL = "Cache-Control";
+	public static final String ACCEPT_ENCODING = "Accept-Encoding";
+	public static final String VARY = "Vary";
+	public static final String ACCEPT_RANGES = "Accept-Ranges";
+	public static final String RANGE = "Range";
+	public static final String IF_RANGE = "If-Range";
+	public static final String CONTENT_RANGE = "Content-Range";
+	public static final String CONTENT_LENGTH = "Content-Length";
+	public static final String CONTENT_DISPOSITION = "Content-Disposition";
+	public static final String LAST_MODIFIED = "Last-Modified";
+	// Servlet容器支持sendfile时设置该请求属性（Tomcat的约定），服务路由器通过以下属性将文件交由容器发送
+	public static final String SENDFILE_SUPPORT_ATTRNAME = "org.apache.tomcat.sendfile.support";
+	public static final String SENDFILE_FILENAME_ATTRNAME = "org.apache.tomcat.sendfile.filename";
+	public static final String SENDFILE_START_ATTRNAME = "org.apache.tomcat.sendfile.start";
+	public static final String SENDFILE_END_ATTRNAME = "org.apache.tomcat.sendfile.end";
 	public static final String DEFAULT_EXT_ERROR_BASE_NAME = "i18n/rop/ropError";
 
 	protected final Logger logger = LoggerFactory.getLogger(getClass());
@@ -71,6 +121,12 @@ public class AnnotationServletServiceRouter implements ServiceRouter {
 
 	private RopMarshaller jsonMarshaller;
 
+	private RopMarshaller smileMarshaller;
+
+	private RopMarshaller cborMarshaller;
+
+	private RopUnmarshaller xmlUnmarshaller;
+
 	private RequestContextBuilder requestContextBuilder;
 
 	private SecurityManager securityManager;
@@ -97,6 +153,9 @@ public class AnnotationServletServiceRouter implements ServiceRouter {
 	// 会话管理器
 	private SessionManager sessionManager;
 
+	// 应用密钥管理器，用于校验作为调度租户的应用键
+	private AppSecretManager appSecretManager;
+
 	// 服务调用频率管理器
 	private InvokeTimesController invokeTimesController;
 
@@ -108,8 +167,86 @@ public class AnnotationServletServiceRouter implements ServiceRouter {
 	// 扩展的错误代码国际化资源开始名称数组
 	private String[] extErrorBasenames;
 
+	// 是否开启响应报文压缩，默认不开启
+	private boolean compressionEnable = false;
+
+	// 启用压缩的最小报文字节数
+	private int compressionThreshold = 2048;
+
+	// 压缩级别
+	private int compressionLevel = Deflater.DEFAULT_COMPRESSION;
+
+	// gzip编码使用的Deflater池
+	private DeflaterPool gzipDeflaterPool;
+
+	// deflate编码使用的Deflater池
+	private DeflaterPool deflateDeflaterPool;
+
+	// 一次批量调用中允许的最大子调用数
+	private int batchMaxCalls = 20;
+
+	// 合并相同的并发调用
+	private final SingleFlight singleFlight = new SingleFlight();
+
+	// 关闭时等待请求排空的最长时间，单位为秒
+	private int shutdownTimeoutSeconds = 30;
+
+	// 是否正在关闭，关闭期间不再接收新的请求
+	private volatile boolean draining = false;
+
+	private final AtomicBoolean shutdown = new AtomicBoolean(false);
+
+	// 正在处理的请求数
+	private final AtomicInteger inflightCount = new AtomicInteger();
+
+	private final Object drainMonitor = new Object();
+
+	// 上传文件的控制器，在解析multipart请求时校验文件类型和大小
+	private FileUploadController fileUploadController;
+
+	// 上传文件在内存中缓存的最大字节数，超过时写入临时文件
+	private int uploadMemoryThreshold = RopMultipartResolver.DEFAULT_MEMORY_THRESHOLD;
+
+	// 上传文件的临时目录，为空时使用系统临时目录
+	private String uploadTempDir;
+
+	// multipart/form-data请求的解析器
+	private RopMultipartResolver multipartResolver;
+
 	@Override
 	public void service(HttpServletRequest request, HttpServletResponse response) {
+		if (multipartResolver == null || !multipartResolver.isMultipart(request)) {
+			doService(request, response);
+			return;
+		}
+		// 上传文件以流的方式写入内存或临时文件，不再整体读入参数中
+		MultipartHttpServletRequest multipartRequest;
+		try {
+			multipartRequest = multipartResolver.resolveMultipart(request);
+		} catch (MultipartException e) {
+			String method = request.getParameter(SystemParameterNames.getMethod());
+			String version = request.getParameter(SystemParameterNames.getVersion());
+			log(method, version, "解析上传文件出错。", e);
+			MainError mainError = MainErrors.getError(MainErrorType.UPLOAD_FAIL,
+					ServletRequestContextBuilder.getLocale(request), method, version, e.getMessage());
+			writeErrorResponse(new ErrorResponse(mainError), request, response, getJsonpcallback(request),
+					System.currentTimeMillis());
+			try {
+				response.getOutputStream().flush();
+				response.getOutputStream().close();
+			} catch (IOException ioe) {
+				logger.error("关闭响应出错", ioe);
+			}
+			return;
+		}
+		try {
+			doService(multipartRequest, response);
+		} finally {
+			multipartResolver.cleanupMultipart(multipartRequest);
+		}
+	}
+
+	private void doService(HttpServletRequest request, HttpServletResponse response) {
 		// 获取服务方法最大过期时间
 		String method = request.getParameter(SystemParameterNames.getMethod());
 		String version = request.getParameter(SystemParameterNames.getVersion());
@@ -121,46 +258,326 @@ public class AnnotationServletServiceRouter implements ServiceRouter {
 		String jsonpCallback = getJsonpcallback(request);
 		MessageFormat format = ServletRequestContextBuilder.getResponseFormat(request);
 		Locale locale = ServletRequestContextBuilder.getLocale(request);
+		ServiceCircuitBreaker circuitBreaker = null;
+		// 服务方法是否发生异常或超时，为null时不计入熔断统计
+		Boolean serviceFailed = null;
+		ServiceRunnable runnable = null;
+		inflightCount.incrementAndGet();
 		// 使用异常方式调用服务方法
 		try {
+			// 正在关闭时直接拒绝，客户端可以转到其它服务节点
+			if (draining) {
+				throw new RejectedExecutionException("服务路由器正在关闭");
+			}
+			// 批量调用
+			if (CommonConstant.BATCH_METHOD.equals(method)) {
+				serviceBatch(request, response, format, jsonpCallback, locale, beginTime);
+				return;
+			}
+			// 服务方法已熔断时直接返回错误报文，不再占用工作线程
+			circuitBreaker = getCircuitBreaker(method, version);
+			if (circuitBreaker != null && !circuitBreaker.tryAcquire()) {
+				circuitBreaker = null;
+				log(method, version, "服务方法已熔断。", null);
+				writeErrorResponse(new ServiceUnavailableErrorResponse(method, locale), request, response,
+						jsonpCallback, beginTime);
+				return;
+			}
 			// 执行线程摆渡
 			ThreadFerry threadFerry = buildThreadFerryInstance();
 			if (threadFerry != null) {
 				threadFerry.doInSrcThread();
 			}
-			ServiceRunnable runnable = new ServiceRunnable(request, response, threadFerry);
-			Future<?> future = this.threadPoolExecutor.submit(runnable);
+			runnable = new ServiceRunnable(request, response, threadFerry);
+			Future<?> future = submitService(request, runnable);
 			while (!future.isDone()) {
 				future.get(serviceMethodTimeout, TimeUnit.SECONDS);
 			}
+			// 异步服务方法在服务线程返回后继续执行，在剩余的超时时间内等待其完成
+			if (!runnable.await(Math.max(beginTime + serviceMethodTimeout * 1000L - System.currentTimeMillis(), 0))) {
+				throw new TimeoutException();
+			}
 			// 为了解决子线程在输出内容时超时，将正确执行的结果和超时异常信息同时输出给客户端的bug
 			if (runnable.ropRequestContext != null && runnable.ropRequestContext.getRopResponse() != null) {
-				writeResponse(runnable.ropRequestContext.getRopResponse(), response, format, jsonpCallback);
+				writeResponse(runnable.ropRequestContext, request, response, format, jsonpCallback);
+				// 流式响应在输出时才产生元素，输出失败时响应对象被替换为错误响应
+				serviceFailed = runnable.ropRequestContext.getRopResponse() instanceof ServiceUnavailableErrorResponse;
 			}
 		} catch (RejectedExecutionException e) {// 超过最大的服务平台的最大资源限制，无法提供服务
 			log(method, version, "超过最大资源限制，无法提供服务。", e);
 			RopRequestContext ropRequestContext = buildRequestContextWhenException(request, beginTime);
 			RejectedServiceResponse ropResponse = new RejectedServiceResponse(ropRequestContext);
 			writeErrorResponse(ropResponse, request, response, jsonpCallback, beginTime);
+		} catch (CancellationException e) {// 关闭时排队的请求被放弃，服务方法没有执行
+			log(method, version, "服务路由器已关闭，请求被放弃。", e);
+			RopRequestContext ropRequestContext = buildRequestContextWhenException(request, beginTime);
+			RejectedServiceResponse ropResponse = new RejectedServiceResponse(ropRequestContext);
+			writeErrorResponse(ropResponse, request, response, jsonpCallback, beginTime);
 		} catch (TimeoutException e) {// 服务时间超限
 			log(method, version, "服务调用超时。", e);
+			serviceFailed = Boolean.TRUE;
+			if (runnable != null) {
+				runnable.abandon();
+			}
 			TimeoutErrorResponse ropResponse = new TimeoutErrorResponse(method, locale, serviceMethodTimeout);
 			writeErrorResponse(ropResponse, request, response, jsonpCallback, beginTime);
 		} catch (Exception throwable) {// 产生未知的错误
 			log(method, version, "产生异常", throwable);
+			serviceFailed = Boolean.TRUE;
 			ServiceUnavailableErrorResponse ropResponse = new ServiceUnavailableErrorResponse(method, locale,
 					throwable);
 			writeErrorResponse(ropResponse, request, response, jsonpCallback, beginTime);
 		} finally {
+			if (circuitBreaker != null) {
+				if (serviceFailed == null) {
+					circuitBreaker.release();
+				} else {
+					circuitBreaker.onComplete(serviceFailed);
+				}
+			}
 			try {
 				response.getOutputStream().flush();
 				response.getOutputStream().close();
 			} catch (IOException e) {
 				logger.error("关闭响应出错", e);
 			}
+			if (inflightCount.decrementAndGet() == 0 && draining) {
+				synchronized (drainMonitor) {
+					drainMonitor.notifyAll();
+				}
+			}
 		}
 	}
 
+	/**
+	 * 排空请求：不再接收新的请求（直接返回{@link RejectedServiceResponse}），发布关闭前事件，
+	 * 在期限内等待正在处理的请求完成后再关闭线程池，并等待排队的事件处理完成（正在处理的请求仍会向线程池发布事件，
+	 * 提前关闭会使这些事件被拒绝）。期限到达时中断仍在执行的任务，丢弃仍在排队的任务，
+	 * 并在返回的结果中报告被放弃的请求和任务
+	 * 
+	 * @param timeoutMillis 等待的最长时间，单位为毫秒
+	 * @return 排空的结果
+	 */
+	public DrainReport drain(long timeoutMillis) {
+		long beginTime = System.currentTimeMillis();
+		long deadline = beginTime + timeoutMillis;
+		if (logger.isInfoEnabled()) {
+			logger.info("开始排空Rop服务请求，正在处理的请求数：{}", inflightCount.get());
+		}
+		draining = true;
+		fireBeforeCloseRopEvent();
+		try {
+			synchronized (drainMonitor) {
+				long remaining = deadline - System.currentTimeMillis();
+				while (inflightCount.get() > 0 && remaining > 0) {
+					drainMonitor.wait(remaining);
+					remaining = deadline - System.currentTimeMillis();
+				}
+			}
+			threadPoolExecutor.shutdown();
+			threadPoolExecutor.awaitTermination(Math.max(deadline - System.currentTimeMillis(), 0),
+					TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			threadPoolExecutor.shutdown();
+			Thread.currentThread().interrupt();
+		}
+		int interruptedTasks = 0;
+		Map<String, Integer> abandonedTasksByAppKey = new TreeMap<String, Integer>();
+		if (!threadPoolExecutor.isTerminated()) {
+			interruptedTasks = threadPoolExecutor.getActiveCount();
+			for (Runnable task : threadPoolExecutor.shutdownNow()) {
+				// 取消排队的服务请求，等待其结果的请求线程将返回RejectedServiceResponse
+				if (task instanceof Future) {
+					((Future<?>) task).cancel(false);
+				}
+				String appKey = task instanceof TenantAware ? ((TenantAware) task).getTenant() : "";
+				Integer count = abandonedTasksByAppKey.get(appKey);
+				abandonedTasksByAppKey.put(appKey, count == null ? 1 : count + 1);
+			}
+		}
+		DrainReport drainReport = new DrainReport(timeoutMillis, System.currentTimeMillis() - beginTime,
+				inflightCount.get(), interruptedTasks, abandonedTasksByAppKey);
+		if (drainReport.isCompleted()) {
+			if (logger.isInfoEnabled()) {
+				logger.info("Rop服务请求已排空：{}", drainReport);
+			}
+		} else {
+			logger.warn("Rop服务请求未能在期限内排空：{}", drainReport);
+		}
+		return drainReport;
+	}
+
+	/**
+	 * 是否正在关闭
+	 * 
+	 * @return
+	 */
+	public boolean isDraining() {
+		return draining;
+	}
+
+	/**
+	 * 获取服务方法的熔断器
+	 * @param method
+	 * @param version
+	 * @return 服务方法不存在或没有开启熔断时返回null
+	 */
+	private ServiceCircuitBreaker getCircuitBreaker(String method, String version) {
+		if (method == null || version == null || !ropContext.isValidMethod(method)) {
+			return null;
+		}
+		ServiceMethodHandler serviceMethodHandler = ropContext.getServiceMethodHandler(method, version);
+		return serviceMethodHandler == null ? null : serviceMethodHandler.getCircuitBreaker();
+	}
+
+	/**
+	 * 获取服务方法的调度优先级，服务方法不存在时为普通优先级
+	 * 
+	 * @param method
+	 * @param version
+	 * @return
+	 */
+	private PriorityType getServicePriority(String method, String version) {
+		if (method == null || version == null || !ropContext.isValidMethod(method)) {
+			return PriorityType.NORMAL;
+		}
+		ServiceMethodHandler serviceMethodHandler = ropContext.getServiceMethodHandler(method, version);
+		return serviceMethodHandler == null ? PriorityType.NORMAL
+				: serviceMethodHandler.getServiceMethodDefinition().getPriority();
+	}
+
+	/**
+	 * 执行批量调用：批量请求的应用键、会话和签名只校验一次，各子调用在线程池中并行执行，
+	 * 每个子调用受各自服务方法的超时时间限制，最后按子调用的顺序输出组合的响应报文
+	 * 
+	 * @param request
+	 * @param response
+	 * @param format
+	 * @param jsonpCallback
+	 * @param locale
+	 * @param beginTime
+	 * @throws IOException
+	 */
+	private void serviceBatch(HttpServletRequest request, HttpServletResponse response, MessageFormat format,
+			String jsonpCallback, Locale locale, long beginTime) throws IOException {
+		RopRequestContext batchContext = requestContextBuilder.buildBySysParams(ropContext, request, response);
+		batchContext.setServiceBeginTime(beginTime);
+		String version = batchContext.getVersion();
+		MainError mainError = securityManager.validateBatchParameters(batchContext);
+		List<BatchCall> batchCalls = null;
+		if (mainError == null) {
+			String calls = request.getParameter(SystemParameterNames.getCalls());
+			if (StringUtils.isBlank(calls)) {
+				mainError = MainErrors.getError(MainErrorType.MISSING_REQUIRED_ARGUMENTS, locale,
+						CommonConstant.BATCH_METHOD, version);
+			} else {
+				try {
+					batchCalls = BatchCall.parse(calls);
+				} catch (IllegalArgumentException e) {
+					log(CommonConstant.BATCH_METHOD, version, "批量调用参数非法。", e);
+				}
+				if (batchCalls == null || batchCalls.isEmpty() || batchCalls.size() > batchMaxCalls) {
+					mainError = MainErrors.getError(MainErrorType.INVALID_ARGUMENTS, locale,
+							CommonConstant.BATCH_METHOD, version);
+				}
+			}
+		}
+		if (mainError != null) {
+			writeErrorResponse(new ErrorResponse(mainError), request, response, jsonpCallback, beginTime);
+			return;
+		}
+		Object[] responses = invokeBatchCalls(request, batchCalls, locale, beginTime);
+		writeBatchResponse(responses, request, response, format, jsonpCallback);
+		batchContext.setServiceEndTime(System.currentTimeMillis());
+		fireAfterDoServiceEvent(batchContext);
+	}
+
+	/**
+	 * 将服务请求提交到服务线程池，任务带有请求的应用键及服务方法的优先级，
+	 * 线程池使用{@link WeightedFairQueue}时按优先级和应用调度。
+	 * 提交时应用键尚未校验，非法的应用键一律归入默认租户，避免伪造的应用键绕过租户容量或占用队列的内存
+	 * 
+	 * @param request
+	 * @param runnable
+	 * @return
+	 */
+	private Future<?> submitService(HttpServletRequest request, Runnable runnable) {
+		String appKey = request.getParameter(SystemParameterNames.getAppKey());
+		if (appKey == null || appSecretManager == null || !appSecretManager.isValidAppKey(appKey)) {
+			appKey = WeightedFairQueue.DEFAULT_TENANT;
+		}
+		TenantFutureTask<Object> task = new TenantFutureTask<Object>(runnable, null, appKey,
+				getServicePriority(request.getParameter(SystemParameterNames.getMethod()),
+						request.getParameter(SystemParameterNames.getVersion())));
+		this.threadPoolExecutor.execute(task);
+		return task;
+	}
+
+	/**
+	 * 在线程池中并行执行各子调用，并按顺序收集子调用的响应
+	 * 
+	 * @param request
+	 * @param batchCalls
+	 * @param locale
+	 * @param beginTime
+	 * @return 各子调用的响应
+	 */
+	private Object[] invokeBatchCalls(HttpServletRequest request, List<BatchCall> batchCalls, Locale locale,
+			long beginTime) {
+		int size = batchCalls.size();
+		ServiceRunnable[] runnables = new ServiceRunnable[size];
+		Future<?>[] futures = new Future<?>[size];
+		for (int i = 0; i < size; i++) {
+			ThreadFerry threadFerry = buildThreadFerryInstance();
+			if (threadFerry != null) {
+				threadFerry.doInSrcThread();
+			}
+			BatchCallServletRequest callRequest = new BatchCallServletRequest(request, batchCalls.get(i));
+			runnables[i] = new ServiceRunnable(callRequest, null, threadFerry, true);
+			try {
+				futures[i] = submitService(callRequest, runnables[i]);
+			} catch (RejectedExecutionException e) {
+				// 线程池已满时由当前线程执行，避免批量调用中的部分子调用被拒绝
+				runnables[i].run();
+			}
+		}
+		Object[] responses = new Object[size];
+		for (int i = 0; i < size; i++) {
+			String callMethod = batchCalls.get(i).getMethod();
+			int timeout = getServiceMethodTimeout(callMethod, batchCalls.get(i).getVersion());
+			try {
+				long deadline = beginTime + timeout * 1000L;
+				if (futures[i] != null) {
+					futures[i].get(Math.max(deadline - System.currentTimeMillis(), 0), TimeUnit.MILLISECONDS);
+				}
+				if (!runnables[i].await(Math.max(deadline - System.currentTimeMillis(), 0))) {
+					throw new TimeoutException();
+				}
+			} catch (TimeoutException e) {
+				if (futures[i] != null) {
+					futures[i].cancel(true);
+				}
+				runnables[i].abandon();
+				responses[i] = new TimeoutErrorResponse(callMethod, locale, timeout);
+				continue;
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				responses[i] = new ServiceUnavailableErrorResponse(callMethod, locale, e);
+				continue;
+			} catch (ExecutionException e) {
+				responses[i] = new ServiceUnavailableErrorResponse(callMethod, locale, e.getCause());
+				continue;
+			}
+			RopRequestContext callContext = runnables[i].ropRequestContext;
+			if (callContext != null && callContext.getRopResponse() != null) {
+				responses[i] = callContext.getRopResponse();
+			} else {
+				responses[i] = new ServiceUnavailableErrorResponse(callMethod, locale);
+			}
+		}
+		return responses;
+	}
+
 	/**
 	 * 输出错误信息给调用方
 	 * 
@@ -173,7 +590,13 @@ public class AnnotationServletServiceRouter implements ServiceRouter {
 	private void writeErrorResponse(ErrorResponse errorResponse, HttpServletRequest request,
 			HttpServletResponse response, String jsonpCallback, long beginTime) {
 		MessageFormat format = ServletRequestContextBuilder.getResponseFormat(request);
-		writeResponse(errorResponse, response, format, jsonpCallback);
+		// 响应已提交时（如已经输出了部分压缩报文）无法再更正，追加错误报文只会使报文更加混乱
+		if (!response.isCommitted()) {
+			response.reset();
+			writeResponse(errorResponse, response, format, jsonpCallback);
+		} else {
+			logger.error("响应已提交，无法输出错误报文：" + errorResponse.getCode());
+		}
 		RopRequestContext ropRequestContext = buildRequestContextWhenException(request, beginTime);
 		fireAfterDoServiceEvent(ropRequestContext);
 	}
@@ -228,6 +651,12 @@ public class AnnotationServletServiceRouter implements ServiceRouter {
 		if (jsonMarshaller == null) {
 			jsonMarshaller = new JacksonJsonRopMarshaller();
 		}
+		if (smileMarshaller == null) {
+			smileMarshaller = new JacksonSmileRopMarshaller();
+		}
+		if (cborMarshaller == null) {
+			cborMarshaller = new JacksonCborRopMarshaller();
+		}
 		if (sessionManager == null) {
 			sessionManager = new DefaultSessionManager();
 		}
@@ -241,12 +670,28 @@ public class AnnotationServletServiceRouter implements ServiceRouter {
 		registerConverters(formattingConversionService);
 
 		// 实例化ServletRequestContextBuilder
-		this.requestContextBuilder = new ServletRequestContextBuilder(this.formattingConversionService);
+		ServletRequestContextBuilder servletRequestContextBuilder = new ServletRequestContextBuilder(this.formattingConversionService);
+		if (xmlUnmarshaller != null) {
+			servletRequestContextBuilder.setXmlUnmarshaller(xmlUnmarshaller);
+		}
+		this.requestContextBuilder = servletRequestContextBuilder;
 
 		// 设置校验器
 		if (this.securityManager == null) {
 			this.securityManager = new DefaultSecurityManager();
 		}
+		if (this.appSecretManager == null && this.securityManager instanceof DefaultSecurityManager) {
+			this.appSecretManager = ((DefaultSecurityManager) this.securityManager).getAppSecretManager();
+		}
+
+		// 初始化上传文件解析器
+		if (this.multipartResolver == null) {
+			this.multipartResolver = new RopMultipartResolver(fileUploadController);
+			this.multipartResolver.setMemoryThreshold(uploadMemoryThreshold);
+			if (StringUtils.isNotBlank(uploadTempDir)) {
+				this.multipartResolver.setTempDir(new File(uploadTempDir));
+			}
+		}
 
 		// 设置异步执行器
 		if (this.threadPoolExecutor == null) {
@@ -254,9 +699,18 @@ public class AnnotationServletServiceRouter implements ServiceRouter {
 					new LinkedBlockingQueue<Runnable>());
 		}
 
+		// 初始化压缩使用的Deflater池
+		if (this.compressionEnable) {
+			this.gzipDeflaterPool = new DeflaterPool(compressionLevel, true);
+			this.deflateDeflaterPool = new DeflaterPool(compressionLevel, false);
+		}
+
 		// 创建Rop上下文
 		this.ropContext = buildRopContext();
 
+		// 预先构建服务方法响应类的序列化器
+		prepareMarshallers();
+
 		// 初始化事件发布器
 		this.ropEventMulticaster = buildRopEventMulticaster();
 
@@ -282,6 +736,7 @@ public class AnnotationServletServiceRouter implements ServiceRouter {
 	private void registerConverters(FormattingConversionService conversionService) {
 		conversionService.addConverter(new RopRequestMessageConverter());
 		conversionService.addConverter(new UploadFileConverter());
+		conversionService.addConverter(new MultipartFileConverter());
 	}
 
 	/**
@@ -298,12 +753,20 @@ public class AnnotationServletServiceRouter implements ServiceRouter {
 	}
 
 	/**
-	 * 停止服务
+	 * 停止服务：先排空正在处理的请求，最多等待shutdownTimeoutSeconds秒，重复调用时直接返回
 	 */
 	@Override
 	public void shutdown() {
-		fireBeforeCloseRopEvent();
-		threadPoolExecutor.shutdown();
+		if (!shutdown.compareAndSet(false, true)) {
+			return;
+		}
+		drain(shutdownTimeoutSeconds * 1000L);
+		if (gzipDeflaterPool != null) {
+			gzipDeflaterPool.destroy();
+		}
+		if (deflateDeflaterPool != null) {
+			deflateDeflaterPool.destroy();
+		}
 	}
 
 	/**
@@ -376,6 +839,16 @@ public class AnnotationServletServiceRouter implements ServiceRouter {
 		this.sessionManager = sessionManager;
 	}
 
+	/**
+	 * 设置应用密钥管理器，只有合法的应用键才作为服务线程池调度的租户
+	 */
+	public void setAppSecretManager(AppSecretManager appSecretManager) {
+		if (logger.isDebugEnabled()) {
+			logger.debug("appSecretManager set to {}", appSecretManager.getClass().getName());
+		}
+		this.appSecretManager = appSecretManager;
+	}
+
 	/**
 	 * 获取默认的格式化转换器
 	 *
@@ -416,6 +889,82 @@ public class AnnotationServletServiceRouter implements ServiceRouter {
 		}
 	}
 
+	/**
+	 * 设置是否开启响应报文压缩，默认不开启
+	 */
+	public void setCompressionEnable(boolean compressionEnable) {
+		if (logger.isDebugEnabled()) {
+			logger.debug("compressionEnable set to {}", compressionEnable);
+		}
+		this.compressionEnable = compressionEnable;
+	}
+
+	/**
+	 * 设置启用压缩的最小报文字节数
+	 */
+	public void setCompressionThreshold(int compressionThreshold) {
+		if (logger.isDebugEnabled()) {
+			logger.debug("compressionThreshold set to {}", compressionThreshold);
+		}
+		this.compressionThreshold = compressionThreshold;
+	}
+
+	/**
+	 * 设置压缩级别，取值为-1(默认级别)或0~9
+	 */
+	public void setCompressionLevel(int compressionLevel) {
+		Assert.isTrue(compressionLevel >= Deflater.DEFAULT_COMPRESSION && compressionLevel <= Deflater.BEST_COMPRESSION,
+				"compressionLevel must be between -1 and 9");
+		if (logger.isDebugEnabled()) {
+			logger.debug("compressionLevel set to {}", compressionLevel);
+		}
+		this.compressionLevel = compressionLevel;
+	}
+
+	/**
+	 * 设置关闭时等待请求排空的最长时间，单位为秒
+	 */
+	public void setShutdownTimeoutSeconds(int shutdownTimeoutSeconds) {
+		if (logger.isDebugEnabled()) {
+			logger.debug("shutdownTimeoutSeconds set to {}", shutdownTimeoutSeconds);
+		}
+		this.shutdownTimeoutSeconds = shutdownTimeoutSeconds;
+	}
+
+	/**
+	 * 设置上传文件的控制器
+	 */
+	public void setFileUploadController(FileUploadController fileUploadController) {
+		this.fileUploadController = fileUploadController;
+	}
+
+	/**
+	 * 设置上传文件在内存中缓存的最大字节数
+	 */
+	public void setUploadMemoryThreshold(int uploadMemoryThreshold) {
+		if (logger.isDebugEnabled()) {
+			logger.debug("uploadMemoryThreshold set to {}", uploadMemoryThreshold);
+		}
+		this.uploadMemoryThreshold = uploadMemoryThreshold;
+	}
+
+	/**
+	 * 设置上传文件的临时目录
+	 */
+	public void setUploadTempDir(String uploadTempDir) {
+		this.uploadTempDir = uploadTempDir;
+	}
+
+	/**
+	 * 设置一次批量调用中允许的最大子调用数
+	 */
+	public void setBatchMaxCalls(int batchMaxCalls) {
+		if (logger.isDebugEnabled()) {
+			logger.debug("batchMaxCalls set to {}", batchMaxCalls);
+		}
+		this.batchMaxCalls = batchMaxCalls;
+	}
+
 	/**
 	 * 设置线程池执行器
 	 */
@@ -505,12 +1054,25 @@ public class AnnotationServletServiceRouter implements ServiceRouter {
 		private HttpServletResponse servletResponse;
 		private ThreadFerry threadFerry;
 		private RopRequestContext ropRequestContext;
+		private boolean batchCall;
+		// 服务处理（包括异步服务方法的后续处理）完成的信号
+		private final CountDownLatch completed = new CountDownLatch(1);
+		// 服务方法的异步返回值，同步返回时为null
+		private volatile Object asyncResult;
+		// 请求线程是否已因超时放弃等待服务处理的结果
+		private volatile boolean abandoned;
 
 		private ServiceRunnable(HttpServletRequest servletRequest, HttpServletResponse servletResponse,
 				ThreadFerry threadFerry) {
+			this(servletRequest, servletResponse, threadFerry, false);
+		}
+
+		private ServiceRunnable(HttpServletRequest servletRequest, HttpServletResponse servletResponse,
+				ThreadFerry threadFerry, boolean batchCall) {
 			this.servletRequest = servletRequest;
 			this.servletResponse = servletResponse;
 			this.threadFerry = threadFerry;
+			this.batchCall = batchCall;
 		}
 
 		@Override
@@ -519,9 +1081,13 @@ public class AnnotationServletServiceRouter implements ServiceRouter {
 				threadFerry.doInDestThread();
 			}
 			Object ropRequest;
+			boolean async = false;
 			try {
 				// 用系统级参数构造一个RequestContext实例（第一阶段绑定）
 				ropRequestContext = requestContextBuilder.buildBySysParams(ropContext, servletRequest, servletResponse);
+				if (batchCall) {
+					ropRequestContext.setAttribute(SimpleRopRequestContext.BATCH_CALL_ATTRNAME, Boolean.TRUE);
+				}
 				// 验证系统级参数的合法性
 				MainError mainError = securityManager.validateSystemParameters(ropRequestContext);
 				if (mainError != null) {
@@ -541,7 +1107,15 @@ public class AnnotationServletServiceRouter implements ServiceRouter {
 				invokeBeforceServiceOfInterceptors(ropRequestContext);
 				if (ropRequestContext.getRopResponse() == null) { // 拦截器未生成response
 					// 如果拦截器没有产生ropResponse时才调用服务方法
-					ropRequestContext.setRopResponse(doService(ropRequest, ropRequestContext));
+					Object ropResponse = doService(ropRequest, ropRequestContext);
+					if (AsyncServiceResults.isAsync(ropResponse)) {
+						// 异步服务方法：注册完成回调后释放服务线程，由回调完成后续处理
+						asyncResult = ropResponse;
+						AsyncServiceResults.whenComplete(ropResponse, new AsyncServiceCallback());
+						async = true;
+						return;
+					}
+					ropRequestContext.setRopResponse(ropResponse);
 					// 输出响应前拦截
 					invokeBeforceResponseOfInterceptors(ropRequestContext);
 				}
@@ -561,12 +1135,104 @@ public class AnnotationServletServiceRouter implements ServiceRouter {
 					throw new RopException("RopRequestContext is null.", e);
 				}
 			} finally {
+				if (!async) {
+					complete();
+				}
+			}
+		}
+
+		/**
+		 * 完成服务处理：发布服务完成事件，并通知等待响应的请求线程
+		 */
+		private void complete() {
+			try {
 				if (ropRequestContext != null) {
-					// 发布服务完成事件
 					ropRequestContext.setServiceEndTime(System.currentTimeMillis());
 					// 完成一次服务请求，计算次数
 					invokeTimesController.caculateInvokeTimes(ropRequestContext.getAppKey(), ropRequestContext.getSession());
-					fireAfterDoServiceEvent(ropRequestContext);
+					// 批量调用的响应报文只能容纳序列化的响应对象
+					if (batchCall && ropRequestContext.getRopResponse() instanceof FileResponse) {
+						ropRequestContext.setRopResponse(new ServiceUnavailableErrorResponse(ropRequestContext.getMethod(),
+								ropRequestContext.getLocale(), new RopException("批量调用的子调用不能返回文件响应")));
+					}
+					// 发布服务完成事件，流式响应的元素在输出时才产生，由请求线程在输出完成后发布
+					if (batchCall || !(ropRequestContext.getRopResponse() instanceof StreamingResponse)) {
+						fireAfterDoServiceEvent(ropRequestContext);
+					}
+				}
+			} finally {
+				completed.countDown();
+			}
+			if (abandoned) {
+				closeStreamingResponse();
+			}
+		}
+
+		/**
+		 * 等待服务处理完成
+		 *
+		 * @param timeoutMillis
+		 * @return 超时仍未完成时返回false
+		 * @throws InterruptedException
+		 */
+		private boolean await(long timeoutMillis) throws InterruptedException {
+			return completed.await(timeoutMillis, TimeUnit.MILLISECONDS);
+		}
+
+		/**
+		 * 服务调用超时时放弃服务处理的结果：取消异步服务方法的返回值，关闭不会再输出的流式响应
+		 */
+		private void abandon() {
+			abandoned = true;
+			Object result = asyncResult;
+			if (result != null) {
+				AsyncServiceResults.cancel(result);
+			}
+			if (completed.getCount() == 0) {
+				closeStreamingResponse();
+			}
+		}
+
+		private void closeStreamingResponse() {
+			Object ropResponse = ropRequestContext == null ? null : ropRequestContext.getRopResponse();
+			if (ropResponse instanceof StreamingResponse) {
+				closeQuietly((StreamingResponse<?>) ropResponse);
+			}
+		}
+
+		/**
+		 * 异步服务方法完成时的回调，在完成异步返回值的线程中执行，
+		 * 执行服务方法返回后的处理：输出响应前拦截、发布服务完成事件
+		 */
+		private class AsyncServiceCallback implements AsyncServiceResults.Callback {
+
+			public void onSuccess(Object result) {
+				try {
+					if (threadFerry != null) {
+						threadFerry.doInDestThread();
+					}
+					ropRequestContext.setRopResponse(result);
+					// 输出响应前拦截
+					invokeBeforceResponseOfInterceptors(ropRequestContext);
+				} finally {
+					complete();
+				}
+			}
+
+			public void onFailure(Throwable e) {
+				try {
+					if (threadFerry != null) {
+						threadFerry.doInDestThread();
+					}
+					if (logger.isInfoEnabled()) {
+						logger.info("调用" + ropRequestContext.getMethod() + "时发生异常，异常信息为：" + e.getMessage());
+					}
+					ropRequestContext.setRopResponse(new ServiceUnavailableErrorResponse(ropRequestContext.getMethod(),
+							ropRequestContext.getLocale(), e));
+					// 输出响应前拦截
+					invokeBeforceResponseOfInterceptors(ropRequestContext);
+				} finally {
+					complete();
 				}
 			}
 		}
@@ -590,7 +1256,7 @@ public class AnnotationServletServiceRouter implements ServiceRouter {
 				ropResponse = new ErrorResponse(invalidMethodError);
 			} else {
 				try {
-					ropResponse = serviceMethodAdapter.invokeServiceMethod(ropRequest, context);
+					ropResponse = invokeServiceMethod(ropRequest, context);
 				} catch (Exception e) { // 出错则导致服务不可用的异常
 					if (logger.isInfoEnabled()) {
 						logger.info("调用" + context.getMethod() + "时发生异常，异常信息为：" + e.getMessage());
@@ -601,6 +1267,28 @@ public class AnnotationServletServiceRouter implements ServiceRouter {
 			return ropResponse;
 		}
 
+		/**
+		 * 调用服务方法，开启了合并调用的服务方法与正在执行的相同调用共享结果
+		 *
+		 * @param ropRequest
+		 * @param context
+		 * @return
+		 */
+		private Object invokeServiceMethod(final Object ropRequest, final RopRequestContext context) {
+			ServiceMethodDefinition definition = context.getServiceMethodDefinition();
+			if (definition == null || !definition.isSingleFlight()) {
+				return serviceMethodAdapter.invokeServiceMethod(ropRequest, context);
+			}
+			String key = SingleFlight.createKey(context.getAllParams(),
+					(String) context.getAttribute(SimpleRopRequestContext.BODY_DIGEST_ATTRNAME),
+					definition.getSingleFlightIgnoreParams());
+			return singleFlight.execute(key, new Callable<Object>() {
+				public Object call() throws Exception {
+					return serviceMethodAdapter.invokeServiceMethod(ropRequest, context);
+				}
+			});
+		}
+
 		private void firePreDoServiceEvent(RopRequestContext ropRequestContext) {
 			ropEventMulticaster.multicastEvent(new PreDoServiceEvent(this, ropRequestContext));
 		}
@@ -704,6 +1392,26 @@ public class AnnotationServletServiceRouter implements ServiceRouter {
 		return defaultRopContext;
 	}
 
+	private void prepareMarshallers() {
+		Set<Class<?>> responseTypes = new HashSet<Class<?>>();
+		for (ServiceMethodHandler serviceMethodHandler : ropContext.getAllServiceMethodHandlers().values()) {
+			Class<?> returnType = serviceMethodHandler.getHandlerMethod().getReturnType();
+			//返回类型不确定（如Object、接口或CompletableFuture）时无法预先构建
+			if (!returnType.isPrimitive() && !returnType.isInterface() && returnType != Object.class
+					&& !Modifier.isAbstract(returnType.getModifiers()) && !Future.class.isAssignableFrom(returnType)) {
+				responseTypes.add(returnType);
+			}
+		}
+		for (RopMarshaller ropMarshaller : new RopMarshaller[]{jsonMarshaller, smileMarshaller, cborMarshaller}) {
+			if (ropMarshaller instanceof JacksonJsonRopMarshaller) {
+				((JacksonJsonRopMarshaller) ropMarshaller).prepare(responseTypes);
+			}
+		}
+		if (logger.isDebugEnabled()) {
+			logger.debug("prepared serializers of {} response types", responseTypes.size());
+		}
+	}
+
 	private RopEventMulticaster buildRopEventMulticaster() {
 		SimpleRopEventMulticaster simpleRopEventMulticaster = new SimpleRopEventMulticaster();
 		// 设置异步执行器
@@ -739,6 +1447,465 @@ public class AnnotationServletServiceRouter implements ServiceRouter {
 		this.ropEventMulticaster.multicastEvent(new AfterDoServiceEvent(this, ropRequestContext));
 	}
 
+	/**
+	 * 输出服务方法的响应消息：对开启了ETag或声明了缓存时间的服务方法处理条件请求，
+	 * 如果请求的If-None-Match和响应的ETag匹配，则直接返回304，不再输出报文体；
+	 * 客户端接受gzip/deflate编码时，对超过阈值的报文进行流式压缩。
+	 * 输出出错时与流式响应相同：响应未提交时改为输出错误报文，已经提交时只能中止输出
+	 * @param ropRequestContext
+	 * @param request
+	 * @param response
+	 * @param messageFormat
+	 * @param jsonpCallback
+	 */
+	private void writeResponse(RopRequestContext ropRequestContext, HttpServletRequest request,
+			HttpServletResponse response, MessageFormat messageFormat, String jsonpCallback) {
+		Object ropResponse = ropRequestContext.getRopResponse();
+		ServiceMethodDefinition definition = ropRequestContext.getServiceMethodDefinition();
+		if (ropResponse instanceof StreamingResponse) {
+			writeStreamingResponse(ropRequestContext, request, response, messageFormat, jsonpCallback);
+			return;
+		}
+		if (ropResponse instanceof FileResponse) {
+			writeFileResponse(ropRequestContext, request, response, messageFormat, jsonpCallback);
+			return;
+		}
+		if (definition == null || ropResponse instanceof ErrorResponse || messageFormat == MessageFormat.STREAM) {
+			writeResponse(ropResponse, response, messageFormat, jsonpCallback);
+			return;
+		}
+		Object etagVersion = ropRequestContext.getAttribute(SimpleRopRequestContext.ETAG_ATTRNAME);
+		// 条件请求只对GET和HEAD请求生效，其它请求不生成ETag，免去缓存报文及计算摘要的开销
+		boolean etagEnable = (definition.isEtag() || etagVersion != null) && isConditionalMethod(request);
+		String encoding = getContentEncoding(request, definition);
+		try {
+			byte[] body = null;
+			if (etagEnable) {
+				String etag;
+				if (etagVersion != null) {// 服务提供了版本号，无需序列化报文即可判断是否变更
+					etag = DigestUtils.md5Hex(etagVersion + "|" + messageFormat + "|" + jsonpCallback);
+				} else {
+					ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+					writeBody(ropResponse, buffer, messageFormat, jsonpCallback);
+					body = buffer.toByteArray();
+					etag = DigestUtils.md5Hex(body);
+				}
+				// 压缩后的报文字节不同，但语义相同，使用弱ETag
+				etag = (encoding != null ? "W/" : "") + "\"" + etag + "\"";
+				response.setHeader(ETAG, etag);
+				if (isNotModified(request, etag)) {
+					if (logger.isDebugEnabled()) {
+						logger.debug("服务方法{}的响应未变更，返回304.", ropRequestContext.getMethod());
+					}
+					addCacheControlHeader(response, definition, true);
+					response.addHeader(ACCESS_CONTROL_ALLOW_ORIGIN, "*");
+					response.addHeader(ACCESS_CONTROL_ALLOW_METHODS, "*");
+					response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+					return;
+				}
+			}
+			addCacheControlHeader(response, definition, etagEnable);
+			writeHeaders(response, messageFormat);
+			if (encoding == null) {
+				if (body == null) {
+					writeBody(ropResponse, response.getOutputStream(), messageFormat, jsonpCallback);
+				} else {
+					response.setContentLength(body.length);
+					response.getOutputStream().write(body);
+				}
+				return;
+			}
+			CompressionOutputStream out = newCompressionOutputStream(response, encoding);
+			boolean completed = false;
+			try {
+				if (body == null) {
+					writeBody(ropResponse, out, messageFormat, jsonpCallback);
+				} else {
+					out.write(body);
+				}
+				completed = true;
+			} finally {
+				// 序列化失败时放弃输出，不能把截断的报文当作完整的报文输出
+				if (completed) {
+					out.close();
+				} else {
+					out.abort();
+				}
+			}
+		} catch (Exception e) {
+			ServiceUnavailableErrorResponse errorResponse = new ServiceUnavailableErrorResponse(
+					ropRequestContext.getMethod(), ropRequestContext.getLocale(), e);
+			ropRequestContext.setRopResponse(errorResponse);
+			if (!response.isCommitted()) {
+				log(ropRequestContext.getMethod(), ropRequestContext.getVersion(), "输出响应时发生异常。", e);
+				response.reset();
+				writeResponse(errorResponse, response, messageFormat, jsonpCallback);
+			} else {
+				logger.error("输出服务方法" + ropRequestContext.getMethod() + "的响应时发生异常，响应报文不完整", e);
+			}
+		}
+	}
+
+	/**
+	 * 增量输出流式响应：不计算ETag，报文不设置Content-Length，以分块传输方式输出。
+	 * 流式响应不压缩：JDK 6的Deflater不支持同步刷新，压缩后的数据要到输出结束时才能送达客户端，失去了流式输出的意义。
+	 * 在响应提交（第一次刷新）之前出错时改为输出错误报文；已经提交后出错时报文无法再更正，
+	 * 只能中止输出，客户端将得到一个不完整的报文。输出完成后关闭流式响应并发布服务完成事件
+	 * @param ropRequestContext
+	 * @param request
+	 * @param response
+	 * @param messageFormat
+	 * @param jsonpCallback
+	 */
+	private void writeStreamingResponse(RopRequestContext ropRequestContext, HttpServletRequest request,
+			HttpServletResponse response, MessageFormat messageFormat, String jsonpCallback) {
+		StreamingResponse<?> streamingResponse = (StreamingResponse<?>) ropRequestContext.getRopResponse();
+		ServiceMethodDefinition definition = ropRequestContext.getServiceMethodDefinition();
+		try {
+			if (definition != null) {
+				addCacheControlHeader(response, definition, false);
+			}
+			writeHeaders(response, messageFormat);
+			writeBody(streamingResponse, response.getOutputStream(), messageFormat, jsonpCallback);
+		} catch (Exception e) {
+			ServiceUnavailableErrorResponse errorResponse = new ServiceUnavailableErrorResponse(
+					ropRequestContext.getMethod(), ropRequestContext.getLocale(), e);
+			ropRequestContext.setRopResponse(errorResponse);
+			if (!response.isCommitted()) {
+				log(ropRequestContext.getMethod(), ropRequestContext.getVersion(), "输出流式响应时发生异常。", e);
+				response.reset();
+				writeResponse(errorResponse, response, messageFormat, jsonpCallback);
+			} else {
+				logger.error("输出服务方法" + ropRequestContext.getMethod() + "的流式响应时发生异常，响应报文不完整", e);
+			}
+		} finally {
+			closeQuietly(streamingResponse);
+			ropRequestContext.setServiceEndTime(System.currentTimeMillis());
+			fireAfterDoServiceEvent(ropRequestContext);
+		}
+	}
+
+	/**
+	 * 输出文件响应：文件内容直接作为报文体，不经过序列化器也不压缩。支持If-None-Match条件请求及单个区间的Range请求，
+	 * 多个区间的Range请求按整个文件返回。Servlet容器支持sendfile时只设置报文头及sendfile请求属性，由容器以零拷贝方式发送文件，
+	 * 否则使用{@link FileChannel#transferTo}写入响应的输出流
+	 * @param ropRequestContext
+	 * @param request
+	 * @param response
+	 * @param messageFormat
+	 * @param jsonpCallback
+	 */
+	private void writeFileResponse(RopRequestContext ropRequestContext, HttpServletRequest request,
+			HttpServletResponse response, MessageFormat messageFormat, String jsonpCallback) {
+		FileResponse fileResponse = (FileResponse) ropRequestContext.getRopResponse();
+		File file = fileResponse.getFile();
+		try {
+			if (file == null || !file.isFile() || !file.canRead()) {
+				throw new FileNotFoundException(fileResponse.getFileName());
+			}
+			long length = file.length();
+			// HTTP日期只精确到秒
+			long lastModified = file.lastModified() / 1000 * 1000;
+			String etag = "\"" + Long.toHexString(length) + "-" + Long.toHexString(lastModified) + "\"";
+			ServiceMethodDefinition definition = ropRequestContext.getServiceMethodDefinition();
+			if (definition != null) {
+				addCacheControlHeader(response, definition, true);
+			}
+			response.addHeader(ACCESS_CONTROL_ALLOW_ORIGIN, "*");
+			response.addHeader(ACCESS_CONTROL_ALLOW_METHODS, "*");
+			response.setHeader(ETAG, etag);
+			response.setDateHeader(LAST_MODIFIED, lastModified);
+			response.setHeader(ACCEPT_RANGES, "bytes");
+			if (isNotModified(request, etag)) {
+				response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+				return;
+			}
+			long start = 0;
+			long end = length;
+			if (isRangeApplicable(request, etag, lastModified)) {
+				long[] range = parseRange(request.getHeader(RANGE), length);
+				if (range != null && range.length == 0) {
+					response.setHeader(CONTENT_RANGE, "bytes */" + length);
+					response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+					return;
+				}
+				if (range != null) {
+					start = range[0];
+					end = range[1] + 1;
+					response.setHeader(CONTENT_RANGE, "bytes " + range[0] + "-" + range[1] + "/" + length);
+					response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+				}
+			}
+			response.setContentType(fileResponse.getContentType());
+			response.setHeader(CONTENT_DISPOSITION, getContentDisposition(fileResponse));
+			// 超过2G的文件无法使用setContentLength(int)
+			response.setHeader(CONTENT_LENGTH, String.valueOf(end - start));
+			if ("HEAD".equalsIgnoreCase(request.getMethod())) {
+				return;
+			}
+			if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT_ATTRNAME))) {
+				request.setAttribute(SENDFILE_FILENAME_ATTRNAME, file.getAbsolutePath());
+				request.setAttribute(SENDFILE_START_ATTRNAME, Long.valueOf(start));
+				request.setAttribute(SENDFILE_END_ATTRNAME, Long.valueOf(end));
+				return;
+			}
+			transferFile(file, start, end, response.getOutputStream());
+		} catch (IOException e) {
+			ServiceUnavailableErrorResponse errorResponse = new ServiceUnavailableErrorResponse(
+					ropRequestContext.getMethod(), ropRequestContext.getLocale(), e);
+			ropRequestContext.setRopResponse(errorResponse);
+			if (!response.isCommitted()) {
+				log(ropRequestContext.getMethod(), ropRequestContext.getVersion(), "输出文件响应时发生异常。", e);
+				response.reset();
+				writeResponse(errorResponse, response, messageFormat, jsonpCallback);
+			} else {
+				logger.error("输出服务方法" + ropRequestContext.getMethod() + "的文件响应时发生异常，响应报文不完整", e);
+			}
+		}
+	}
+
+	/**
+	 * 将文件的[start, end)区间写入输出流，由文件通道直接传输，不经过应用层的缓冲区
+	 * @param file
+	 * @param start
+	 * @param end
+	 * @param out
+	 * @throws IOException
+	 */
+	private void transferFile(File file, long start, long end, OutputStream out) throws IOException {
+		FileInputStream in = new FileInputStream(file);
+		try {
+			FileChannel fileChannel = in.getChannel();
+			WritableByteChannel target = Channels.newChannel(out);
+			long position = start;
+			while (position < end) {
+				long transferred = fileChannel.transferTo(position, end - position, target);
+				if (transferred <= 0) {
+					throw new IOException("文件" + file.getName() + "在输出时被截断");
+				}
+				position += transferred;
+			}
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * 没有If-Range报文头，或者If-Range与文件当前的ETag或最后修改时间一致时，才按Range返回部分内容
+	 * @param request
+	 * @param etag
+	 * @param lastModified
+	 * @return
+	 */
+	private boolean isRangeApplicable(HttpServletRequest request, String etag, long lastModified) {
+		String ifRange = request.getHeader(IF_RANGE);
+		if (StringUtils.isBlank(ifRange)) {
+			return true;
+		}
+		if (ifRange.trim().startsWith("\"")) {
+			return etag.equals(ifRange.trim());
+		}
+		try {
+			return request.getDateHeader(IF_RANGE) == lastModified;
+		} catch (IllegalArgumentException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * 解析Range报文头，只支持单个字节区间：bytes=start-end、bytes=start-及bytes=-suffixLength
+	 * @param rangeHeader
+	 * @param length 文件长度
+	 * @return 区间的起止位置（包含），没有Range报文头、格式不合法或包含多个区间时返回null，区间无法满足时返回空数组
+	 */
+	static long[] parseRange(String rangeHeader, long length) {
+		if (rangeHeader == null || !rangeHeader.startsWith("bytes=")) {
+			return null;
+		}
+		String spec = rangeHeader.substring("bytes=".length()).trim();
+		int index = spec.indexOf('-');
+		if (index < 0 || spec.indexOf(',') > -1) {
+			return null;
+		}
+		try {
+			String first = spec.substring(0, index).trim();
+			String last = spec.substring(index + 1).trim();
+			long start;
+			long end;
+			if (first.length() == 0) {
+				long suffixLength = Long.parseLong(last);
+				if (suffixLength <= 0) {
+					return new long[0];
+				}
+				start = Math.max(length - suffixLength, 0);
+				end = length - 1;
+			} else {
+				start = Long.parseLong(first);
+				end = last.length() == 0 ? Long.MAX_VALUE : Long.parseLong(last);
+				if (start < 0 || end < start) {
+					return null;
+				}
+			}
+			if (start >= length) {
+				return new long[0];
+			}
+			return new long[]{start, Math.min(end, length - 1)};
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * 生成Content-Disposition报文头，非ASCII的文件名按RFC 5987编码到filename*中
+	 * @param fileResponse
+	 * @return
+	 */
+	private String getContentDisposition(FileResponse fileResponse) {
+		String fileName = fileResponse.getFileName();
+		StringBuilder asciiName = new StringBuilder(fileName.length());
+		for (int i = 0; i < fileName.length(); i++) {
+			char c = fileName.charAt(i);
+			asciiName.append(c < 0x20 || c > 0x7e || c == '"' || c == '\\' ? '_' : c);
+		}
+		String disposition = (fileResponse.isAttachment() ? "attachment" : "inline") + "; filename=\"" + asciiName + "\"";
+		try {
+			return disposition + "; filename*=UTF-8''" + URLEncoder.encode(fileName, "UTF-8").replace("+", "%20");
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private void closeQuietly(StreamingResponse<?> streamingResponse) {
+		try {
+			streamingResponse.close();
+		} catch (Exception e) {
+			logger.error("关闭流式响应出错", e);
+		}
+	}
+
+	/**
+	 * 协商响应报文的压缩编码，未开启压缩或客户端不接受压缩时返回null
+	 * @param request
+	 * @param definition
+	 * @return
+	 */
+	private String getContentEncoding(HttpServletRequest request, ServiceMethodDefinition definition) {
+		if (!compressionEnable || (definition != null && !definition.isCompress())) {
+			return null;
+		}
+		return CompressionOutputStream.negotiateEncoding(request.getHeader(ACCEPT_ENCODING));
+	}
+
+	/**
+	 * 创建压缩输出流
+	 * @param response
+	 * @param encoding
+	 * @return
+	 */
+	private CompressionOutputStream newCompressionOutputStream(HttpServletResponse response, String encoding) {
+		response.addHeader(VARY, ACCEPT_ENCODING);
+		DeflaterPool deflaterPool = CompressionOutputStream.GZIP.equals(encoding) ? gzipDeflaterPool : deflateDeflaterPool;
+		return new CompressionOutputStream(response, encoding, deflaterPool, compressionThreshold);
+	}
+
+	/**
+	 * 输出批量调用的组合响应报文
+	 * @param responses
+	 * @param request
+	 * @param response
+	 * @param messageFormat
+	 * @param jsonpCallback
+	 * @throws IOException
+	 */
+	private void writeBatchResponse(Object[] responses, HttpServletRequest request, HttpServletResponse response,
+			MessageFormat messageFormat, String jsonpCallback) throws IOException {
+		writeHeaders(response, messageFormat);
+		String encoding = getContentEncoding(request, null);
+		if (encoding == null) {
+			writeBatchBody(responses, response.getOutputStream(), messageFormat, jsonpCallback);
+			return;
+		}
+		CompressionOutputStream out = newCompressionOutputStream(response, encoding);
+		boolean completed = false;
+		try {
+			writeBatchBody(responses, out, messageFormat, jsonpCallback);
+			completed = true;
+		} finally {
+			if (completed) {
+				out.close();
+			} else {
+				out.abort();
+			}
+		}
+	}
+
+	private void writeBatchBody(Object[] responses, OutputStream out, MessageFormat messageFormat,
+			String jsonpCallback) throws IOException {
+		if (jsonpCallback != null) {
+			out.write(jsonpCallback.getBytes());
+			out.write('(');
+		}
+		writeBatchBody(responses, out, messageFormat);
+		if (jsonpCallback != null) {
+			out.write(')');
+			out.write(';');
+		}
+	}
+
+	/**
+	 * 将各子调用的响应依次序列化到批量响应报文中，JSON格式为{"batchToken":"..","responses":[..]}，
+	 * XML格式为&lt;batchResponse batchToken=".."&gt;..&lt;/batchResponse&gt;
+	 * @param responses
+	 * @param out
+	 * @param messageFormat
+	 * @throws IOException
+	 */
+	private void writeBatchBody(Object[] responses, OutputStream out, MessageFormat messageFormat) throws IOException {
+		boolean json = messageFormat == MessageFormat.JSON;
+		RopMarshaller ropMarshaller = json ? jsonMarshaller : xmlMarshaller;
+		if (json) {
+			out.write(("{\"batchToken\":\"" + CommonConstant.BATCH_TOKEN + "\",\"responses\":[").getBytes("utf-8"));
+		} else {
+			out.write(("<?xml version=\"1.0\" encoding=\"utf-8\" standalone=\"yes\"?>\n<batchResponse batchToken=\""
+					+ CommonConstant.BATCH_TOKEN + "\">\n").getBytes("utf-8"));
+		}
+		// 序列化器可能会关闭输出流，因此每个子响应先序列化到缓冲区中
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		for (int i = 0; i < responses.length; i++) {
+			buffer.reset();
+			try {
+				ropMarshaller.marshaller(responses[i], buffer);
+			} finally {
+				if (responses[i] instanceof StreamingResponse) {
+					closeQuietly((StreamingResponse<?>) responses[i]);
+				}
+			}
+			byte[] bytes = buffer.toByteArray();
+			int offset = json ? 0 : skipXmlDeclaration(bytes);
+			if (json && i > 0) {
+				out.write(',');
+			}
+			out.write(bytes, offset, bytes.length - offset);
+		}
+		out.write((json ? "]}" : "</batchResponse>").getBytes("utf-8"));
+	}
+
+	/**
+	 * 获取XML声明之后的位置，以便将子响应嵌入到批量响应报文中
+	 * @param bytes
+	 * @return
+	 */
+	private int skipXmlDeclaration(byte[] bytes) {
+		if (bytes.length > 1 && bytes[0] == '<' && bytes[1] == '?') {
+			for (int i = 2; i < bytes.length - 1; i++) {
+				if (bytes[i] == '?' && bytes[i + 1] == '>') {
+					return i + 2;
+				}
+			}
+		}
+		return 0;
+	}
+
 	/**
 	 * 输出消息给服务调用方
 	 * @param ropResponse
@@ -755,30 +1922,135 @@ public class AnnotationServletServiceRouter implements ServiceRouter {
 				}
 				return;
 			}
-			RopMarshaller ropMarshaller = xmlMarshaller;
-			String contentType = APPLICATION_XML;
-			if (messageFormat == MessageFormat.JSON) {
-				ropMarshaller = jsonMarshaller;
-				contentType = APPLICATION_JSON;
+			if (ropResponse instanceof ErrorResponse) {
+				// 客户端根据该报文头判断调用是否成功，无需扫描报文内容
+				httpServletResponse.setHeader(CommonConstant.ERROR_HEADER, "true");
 			}
-			httpServletResponse.addHeader(ACCESS_CONTROL_ALLOW_ORIGIN, "*");
-			httpServletResponse.addHeader(ACCESS_CONTROL_ALLOW_METHODS, "*");
-			httpServletResponse.setContentType(contentType);
-
-			if (jsonpCallback != null) {
-				httpServletResponse.getOutputStream().write(jsonpCallback.getBytes());
-				httpServletResponse.getOutputStream().write('(');
-			}
-			ropMarshaller.marshaller(ropResponse, httpServletResponse.getOutputStream());
-			if (jsonpCallback != null) {
-				httpServletResponse.getOutputStream().write(')');
-				httpServletResponse.getOutputStream().write(';');
+			if (ropResponse instanceof RejectedServiceResponse) {
+				httpServletResponse.setHeader(CommonConstant.REJECTED_HEADER, "true");
+			} else if (ropResponse instanceof TimeoutErrorResponse) {
+				httpServletResponse.setHeader(CommonConstant.TIMEOUT_HEADER, "true");
 			}
+			writeHeaders(httpServletResponse, messageFormat);
+			writeBody(ropResponse, httpServletResponse.getOutputStream(), messageFormat, jsonpCallback);
 		} catch (IOException e) {
 			throw new RopException(e);
 		}
 	}
 
+	/**
+	 * 设置响应的报文头
+	 * @param httpServletResponse
+	 * @param messageFormat
+	 */
+	private void writeHeaders(HttpServletResponse httpServletResponse, MessageFormat messageFormat) {
+		String contentType;
+		if (messageFormat == MessageFormat.JSON) {
+			contentType = APPLICATION_JSON;
+		} else if (messageFormat == MessageFormat.SMILE) {
+			contentType = APPLICATION_SMILE;
+		} else if (messageFormat == MessageFormat.CBOR) {
+			contentType = APPLICATION_CBOR;
+		} else {
+			contentType = APPLICATION_XML;
+		}
+		httpServletResponse.addHeader(ACCESS_CONTROL_ALLOW_ORIGIN, "*");
+		httpServletResponse.addHeader(ACCESS_CONTROL_ALLOW_METHODS, "*");
+		httpServletResponse.setContentType(contentType);
+	}
+
+	/**
+	 * 将响应对象序列化到输出流中
+	 * @param ropResponse
+	 * @param out
+	 * @param messageFormat
+	 * @param jsonpCallback
+	 * @throws IOException
+	 */
+	private void writeBody(Object ropResponse, OutputStream out, MessageFormat messageFormat, String jsonpCallback)
+			throws IOException {
+		RopMarshaller ropMarshaller = getMarshaller(messageFormat);
+		// 二进制格式不能包装成JSONP
+		if (messageFormat.isBinary()) {
+			jsonpCallback = null;
+		}
+		if (jsonpCallback != null) {
+			out.write(jsonpCallback.getBytes());
+			out.write('(');
+		}
+		ropMarshaller.marshaller(ropResponse, out);
+		if (jsonpCallback != null) {
+			out.write(')');
+			out.write(';');
+		}
+	}
+
+	private RopMarshaller getMarshaller(MessageFormat messageFormat) {
+		if (messageFormat == MessageFormat.JSON) {
+			return jsonMarshaller;
+		} else if (messageFormat == MessageFormat.SMILE) {
+			return smileMarshaller;
+		} else if (messageFormat == MessageFormat.CBOR) {
+			return cborMarshaller;
+		} else {
+			return xmlMarshaller;
+		}
+	}
+
+	/**
+	 * 根据服务方法的定义输出Cache-Control报文头，需要会话的服务只允许客户端私有缓存
+	 * @param response
+	 * @param definition
+	 * @param etagEnable
+	 */
+	private void addCacheControlHeader(HttpServletResponse response, ServiceMethodDefinition definition,
+			boolean etagEnable) {
+		int maxAge = definition.getCacheMaxAge();
+		if (maxAge >= 0) {
+			String scope = definition.isNeedInSession() ? "private" : "public";
+			response.setHeader(CACHE_CONTROL, scope + ", max-age=" + maxAge);
+		} else if (etagEnable) {
+			response.setHeader(CACHE_CONTROL, "no-cache");
+		}
+	}
+
+	/**
+	 * 判断请求的If-None-Match是否与响应的ETag匹配，只对GET和HEAD请求生效
+	 * @param request
+	 * @param etag
+	 * @return
+	 */
+	private boolean isNotModified(HttpServletRequest request, String etag) {
+		String ifNoneMatch = request.getHeader(IF_NONE_MATCH);
+		if (StringUtils.isBlank(ifNoneMatch)) {
+			return false;
+		}
+		if (!isConditionalMethod(request)) {
+			return false;
+		}
+		String expected = etag.startsWith("W/") ? etag.substring(2) : etag;
+		for (String candidate : ifNoneMatch.split(",")) {
+			candidate = candidate.trim();
+			if (candidate.startsWith("W/")) {
+				candidate = candidate.substring(2);
+			}
+			if ("*".equals(candidate) || expected.equals(candidate)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * 是否为可以进行条件请求的GET或HEAD请求
+	 * @param request
+	 * @return
+	 */
+	private boolean isConditionalMethod(HttpServletRequest request) {
+		String httpMethod = request.getMethod();
+		return "GET".equalsIgnoreCase(httpMethod) || "HEAD".equalsIgnoreCase(httpMethod);
+	}
+
 	/**
 	 * 设置国际化资源信息
 	 */
@@ -820,6 +2092,18 @@ public class AnnotationServletServiceRouter implements ServiceRouter {
 		return threadPoolExecutor;
 	}
 
+	/**
+	 * 获取各应用在服务线程池队列中的排队统计信息，仅在启用了按应用公平调度时有数据
+	 * 
+	 * @return 应用键到排队统计信息的映射
+	 */
+	public Map<String, TenantStats> getTenantStats() {
+		if (threadPoolExecutor != null && threadPoolExecutor.getQueue() instanceof WeightedFairQueue) {
+			return ((WeightedFairQueue) threadPoolExecutor.getQueue()).getTenantStats();
+		}
+		return Collections.emptyMap();
+	}
+
 	public RopEventMulticaster getRopEventMulticaster() {
 		return ropEventMulticaster;
 	}
@@ -855,4 +2139,16 @@ public class AnnotationServletServiceRouter implements ServiceRouter {
 	public void setJsonMarshaller(RopMarshaller jsonMarshaller) {
 		this.jsonMarshaller = jsonMarshaller;
 	}
+
+	public void setSmileMarshaller(RopMarshaller smileMarshaller) {
+		this.smileMarshaller = smileMarshaller;
+	}
+
+	public void setCborMarshaller(RopMarshaller cborMarshaller) {
+		this.cborMarshaller = cborMarshaller;
+	}
+
+	public void setXmlUnmarshaller(RopUnmarshaller xmlUnmarshaller) {
+		this.xmlUnmarshaller = xmlUnmarshaller;
+	}
 }
\ No newline at end of file
@@ -22,11 +22,14 @@ import com.rop.ServiceRouter;
 import com.rop.ThreadFerry;
 import com.rop.config.InterceptorHolder;
 import com.rop.config.RopEventListenerHodler;
+import com.rop.marshaller.JacksonXmlRopMarshaller;
 import com.rop.event.RopEvent;
 import com.rop.event.RopEventListener;
+import com.rop.request.RopMultipartResolver;
 import com.rop.security.*;
 import com.rop.security.SecurityManager;
 import com.rop.session.SessionManager;
+import com.rop.unmarshaller.JacksonXmlRopUnmarshaller;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -58,6 +61,10 @@ public class AnnotationServletServiceRouterFactoryBean
 
     private static final String ALL_FILE_TYPES = "*";
 
+    public static final String XML_BINDING_JAXB = "jaxb";
+
+    public static final String XML_BINDING_JACKSON = "jackson";
+
     protected final Logger logger = LoggerFactory.getLogger(getClass());
 
     private ApplicationContext applicationContext;
@@ -92,9 +99,37 @@ public class AnnotationServletServiceRouterFactoryBean
     //单位为K，默认为10M
     private int uploadFileMaxSize = 10 * 1024;
 
+    //上传文件在内存中缓存的最大字节数，超过时写入临时文件
+    private int uploadMemoryThreshold = RopMultipartResolver.DEFAULT_MEMORY_THRESHOLD;
+
+    //上传文件的临时目录，为空时使用系统临时目录
+    private String uploadTempDir;
+
+    //是否开启响应报文压缩，默认不开启
+    private boolean compressionEnable = false;
+
+    //启用压缩的最小报文字节数，默认为2K
+    private int compressionThreshold = 2048;
+
+    //压缩级别，-1为默认级别
+    private int compressionLevel = -1;
+
+    //一次批量调用中允许的最大子调用数
+    private int batchMaxCalls = 20;
+
+    //关闭时等待请求排空的最长时间，单位为秒
+    private int shutdownTimeoutSeconds = 30;
+
     private RopMarshaller xmlMarshaller;
 
     private RopMarshaller jsonMarshaller;
+
+    private RopMarshaller smileMarshaller;
+
+    private RopMarshaller cborMarshaller;
+
+    //XML格式的序列化实现，取值为jaxb或jackson，显式设置的xmlMarshaller优先
+    private String xmlBinding = XML_BINDING_JAXB;
     
     private SecurityManager securityManager;
 
@@ -168,6 +203,7 @@ public class AnnotationServletServiceRouterFactoryBean
         	appSecretManager = findOrCreateBean(AppSecretManager.class, FileBaseAppSecretManager.class);
         }
         securityManager.setAppSecretManager(appSecretManager);
+        serviceRouter.setAppSecretManager(appSecretManager);
         if(serviceAccessController == null){
         	serviceAccessController = findOrCreateBean(ServiceAccessController.class, DefaultServiceAccessController.class);
         }
@@ -177,7 +213,11 @@ public class AnnotationServletServiceRouterFactoryBean
         }
         serviceRouter.setInvokeTimesController(invokeTimesController);
         securityManager.setInvokeTimesController(invokeTimesController);
-        securityManager.setFileUploadController(buildFileUploadController());
+        FileUploadController fileUploadController = buildFileUploadController();
+        securityManager.setFileUploadController(fileUploadController);
+        serviceRouter.setFileUploadController(fileUploadController);
+        serviceRouter.setUploadMemoryThreshold(uploadMemoryThreshold);
+        serviceRouter.setUploadTempDir(uploadTempDir);
         serviceRouter.setSecurityManager(securityManager);
         serviceRouter.setThreadPoolExecutor(threadPoolExecutor);
         serviceRouter.setSignEnable(signEnable);
@@ -187,12 +227,31 @@ public class AnnotationServletServiceRouterFactoryBean
         	serviceRouter.setFormattingConversionService(conversionService);
         }
         serviceRouter.setThreadFerryClass(threadFerryClass);
+        serviceRouter.setCompressionEnable(compressionEnable);
+        serviceRouter.setCompressionThreshold(compressionThreshold);
+        serviceRouter.setCompressionLevel(compressionLevel);
+        serviceRouter.setBatchMaxCalls(batchMaxCalls);
+        serviceRouter.setShutdownTimeoutSeconds(shutdownTimeoutSeconds);
         if(jsonMarshaller != null){
         	serviceRouter.setJsonMarshaller(jsonMarshaller);
         }
+        if(XML_BINDING_JACKSON.equalsIgnoreCase(xmlBinding)){
+        	if(xmlMarshaller == null){
+        		xmlMarshaller = new JacksonXmlRopMarshaller();
+        	}
+        	serviceRouter.setXmlUnmarshaller(new JacksonXmlRopUnmarshaller());
+        }else if(!XML_BINDING_JAXB.equalsIgnoreCase(xmlBinding)){
+        	throw new RopException("xml-binding只能为" + XML_BINDING_JAXB + "或" + XML_BINDING_JACKSON + ": " + xmlBinding);
+        }
         if(xmlMarshaller != null){
         	serviceRouter.setXmlMarshaller(xmlMarshaller);
         }
+        if(smileMarshaller != null){
+        	serviceRouter.setSmileMarshaller(smileMarshaller);
+        }
+        if(cborMarshaller != null){
+        	serviceRouter.setCborMarshaller(cborMarshaller);
+        }
         //注册拦截器
         ArrayList<Interceptor> interceptors = getInterceptors();
         if (interceptors != null) {
@@ -358,6 +417,34 @@ public class AnnotationServletServiceRouterFactoryBean
         this.uploadFileMaxSize = uploadFileMaxSize;
     }
 
+    public void setUploadMemoryThreshold(int uploadMemoryThreshold) {
+        this.uploadMemoryThreshold = uploadMemoryThreshold;
+    }
+
+    public void setUploadTempDir(String uploadTempDir) {
+        this.uploadTempDir = uploadTempDir;
+    }
+
+	public void setCompressionEnable(boolean compressionEnable) {
+		this.compressionEnable = compressionEnable;
+	}
+
+	public void setCompressionThreshold(int compressionThreshold) {
+		this.compressionThreshold = compressionThreshold;
+	}
+
+	public void setCompressionLevel(int compressionLevel) {
+		this.compressionLevel = compressionLevel;
+	}
+
+	public void setBatchMaxCalls(int batchMaxCalls) {
+		this.batchMaxCalls = batchMaxCalls;
+	}
+
+	public void setShutdownTimeoutSeconds(int shutdownTimeoutSeconds) {
+		this.shutdownTimeoutSeconds = shutdownTimeoutSeconds;
+	}
+
 	public void setXmlMarshaller(RopMarshaller xmlMarshaller) {
 		this.xmlMarshaller = xmlMarshaller;
 	}
@@ -366,6 +453,18 @@ public class AnnotationServletServiceRouterFactoryBean
 		this.jsonMarshaller = jsonMarshaller;
 	}
 
+	public void setSmileMarshaller(RopMarshaller smileMarshaller) {
+		this.smileMarshaller = smileMarshaller;
+	}
+
+	public void setCborMarshaller(RopMarshaller cborMarshaller) {
+		this.cborMarshaller = cborMarshaller;
+	}
+
+	public void setXmlBinding(String xmlBinding) {
+		this.xmlBinding = xmlBinding;
+	}
+
 	public void setServiceRouter(ServiceRouter serviceRouter) {
 		this.serviceRouter = serviceRouter;
 	}
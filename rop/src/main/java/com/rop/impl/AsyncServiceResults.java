@@ -0,0 +1,180 @@
+/**
+ * Copyright 2012-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.rop.impl;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * <pre>
+ * 功能说明：服务方法的异步返回值支持。服务方法可以返回CompletableFuture/CompletionStage，
+ * 服务线程在注册完成回调后立即返回，由回调完成响应的后续处理。
+ * Rop运行于JDK 6之上，因此通过反射访问CompletionStage，运行于JDK 8以下时所有的返回值均视为同步返回值。
+ * </pre>
+ *
+ * @author 陈雄华
+ * @version 1.0
+ */
+public final class AsyncServiceResults {
+
+    private static final Logger logger = LoggerFactory.getLogger(AsyncServiceResults.class);
+
+    private static final Class<?> COMPLETION_STAGE_CLASS = loadClass("java.util.concurrent.CompletionStage");
+
+    private static final Class<?> COMPLETION_EXCEPTION_CLASS = loadClass("java.util.concurrent.CompletionException");
+
+    private static final Class<?> BI_CONSUMER_CLASS = loadClass("java.util.function.BiConsumer");
+
+    private static final Method WHEN_COMPLETE_METHOD = getWhenCompleteMethod();
+
+    private AsyncServiceResults() {
+    }
+
+    /**
+     * 异步返回值完成时的回调
+     */
+    public interface Callback {
+
+        /**
+         * 异步返回值正常完成
+         *
+         * @param result 服务方法的响应对象
+         */
+        void onSuccess(Object result);
+
+        /**
+         * 异步返回值异常完成
+         *
+         * @param e 已去除CompletionException、ExecutionException包装的异常
+         */
+        void onFailure(Throwable e);
+    }
+
+    /**
+     * 服务方法的返回值是否是异步返回值
+     *
+     * @param result
+     * @return
+     */
+    public static boolean isAsync(Object result) {
+        return WHEN_COMPLETE_METHOD != null && COMPLETION_STAGE_CLASS.isInstance(result);
+    }
+
+    /**
+     * 注册异步返回值的完成回调，异步返回值已经完成时回调在当前线程中执行，
+     * 否则在完成异步返回值的线程中执行
+     *
+     * @param result   异步返回值
+     * @param callback
+     */
+    public static void whenComplete(Object result, final Callback callback) {
+        if (!isAsync(result)) {
+            throw new IllegalArgumentException(result + " is not a CompletionStage");
+        }
+        Object action = Proxy.newProxyInstance(AsyncServiceResults.class.getClassLoader(),
+                new Class[]{BI_CONSUMER_CLASS}, new InvocationHandler() {
+                    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                        if ("accept".equals(method.getName()) && args != null && args.length == 2) {
+                            complete(callback, args[0], (Throwable) args[1]);
+                            return null;
+                        } else if ("equals".equals(method.getName())) {
+                            return proxy == args[0];
+                        } else if ("hashCode".equals(method.getName())) {
+                            return System.identityHashCode(proxy);
+                        } else if ("toString".equals(method.getName())) {
+                            return callback.toString();
+                        }
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+        try {
+            WHEN_COMPLETE_METHOD.invoke(result, action);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        } catch (InvocationTargetException e) {
+            throw new IllegalStateException(e.getTargetException());
+        }
+    }
+
+    /**
+     * 取消异步返回值（如服务调用超时），异步返回值不是{@link Future}时忽略
+     *
+     * @param result
+     */
+    public static void cancel(Object result) {
+        if (result instanceof Future) {
+            ((Future<?>) result).cancel(true);
+        }
+    }
+
+    /**
+     * 去除异步执行的包装异常
+     *
+     * @param e
+     * @return
+     */
+    public static Throwable unwrap(Throwable e) {
+        Throwable cause = e;
+        while ((cause instanceof ExecutionException || (COMPLETION_EXCEPTION_CLASS != null
+                && COMPLETION_EXCEPTION_CLASS.isInstance(cause))) && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+
+    private static void complete(Callback callback, Object result, Throwable e) {
+        //回调抛出的异常会被CompletionStage吞掉，因此在此记录
+        try {
+            if (e != null) {
+                callback.onFailure(unwrap(e));
+            } else {
+                callback.onSuccess(result);
+            }
+        } catch (RuntimeException re) {
+            logger.error("执行异步服务方法的完成回调时发生异常", re);
+            throw re;
+        } catch (Error error) {
+            logger.error("执行异步服务方法的完成回调时发生异常", error);
+            throw error;
+        }
+    }
+
+    private static Class<?> loadClass(String className) {
+        try {
+            return Class.forName(className);
+        } catch (ClassNotFoundException e) {
+            return null;
+        }
+    }
+
+    private static Method getWhenCompleteMethod() {
+        if (COMPLETION_STAGE_CLASS == null || BI_CONSUMER_CLASS == null) {
+            return null;
+        }
+        try {
+            return COMPLETION_STAGE_CLASS.getMethod("whenComplete", BI_CONSUMER_CLASS);
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2012-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.rop.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <pre>
+ * 功能说明：批量调用中的一个子调用。批量调用的calls参数是一个JSON数组，每个元素的格式为：
+ * {"method":"user.get","v":"1.0","params":{"userId":"1"}}
+ * params中的值如果不是字符串（如嵌套对象），将被转换为JSON字符串，再由格式转换器绑定到请求对象中。
+ * </pre>
+ *
+ * @author 陈雄华
+ * @version 1.0
+ */
+public class BatchCall {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private String method;
+
+    private String version;
+
+    private Map<String, String> params = new LinkedHashMap<String, String>();
+
+    public BatchCall(String method, String version) {
+        this.method = method;
+        this.version = version;
+    }
+
+    /**
+     * 解析calls参数
+     *
+     * @param calls
+     * @return 子调用列表
+     * @throws IllegalArgumentException calls不是合法的子调用JSON数组时抛出
+     */
+    @SuppressWarnings("unchecked")
+    public static List<BatchCall> parse(String calls) {
+        List<Object> items;
+        try {
+            items = OBJECT_MAPPER.readValue(calls, List.class);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("calls is not a valid json array", e);
+        }
+        List<BatchCall> batchCalls = new ArrayList<BatchCall>(items.size());
+        for (Object item : items) {
+            if (!(item instanceof Map)) {
+                throw new IllegalArgumentException("every call must be a json object");
+            }
+            Map<String, Object> callMap = (Map<String, Object>) item;
+            Object method = callMap.get("method");
+            Object version = callMap.get("v");
+            if (!(method instanceof String) || !(version instanceof String)) {
+                throw new IllegalArgumentException("every call must have method and v");
+            }
+            BatchCall batchCall = new BatchCall((String) method, (String) version);
+            Object params = callMap.get("params");
+            if (params instanceof Map) {
+                for (Map.Entry<String, Object> entry : ((Map<String, Object>) params).entrySet()) {
+                    batchCall.params.put(entry.getKey(), toParamValue(entry.getValue()));
+                }
+            } else if (params != null) {
+                throw new IllegalArgumentException("params of call must be a json object");
+            }
+            batchCalls.add(batchCall);
+        }
+        return batchCalls;
+    }
+
+    private static String toParamValue(Object value) {
+        if (value == null || value instanceof String) {
+            return (String) value;
+        }
+        if (value instanceof Map || value instanceof List) {
+            try {
+                return OBJECT_MAPPER.writeValueAsString(value);
+            } catch (IOException e) {
+                throw new IllegalArgumentException(e);
+            }
+        }
+        return value.toString();
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    public Map<String, String> getParams() {
+        return params;
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2012-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.rop.impl;
+
+import com.rop.config.SystemParameterNames;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <pre>
+ * 功能说明：批量调用中子调用的请求对象。
+ * 请求参数由批量请求的公共系统级参数（appKey、sessionId、format、locale）和子调用的method、v及业务参数合并而成，
+ * 子调用的业务参数不能覆盖公共系统级参数，以保证子调用使用的是批量请求已经校验过的应用和会话。
+ * 子调用在不同的线程中并行执行，因此请求属性保存在各自的Map中，不写入共享的原始请求对象。
+ * </pre>
+ *
+ * @author 陈雄华
+ * @version 1.0
+ */
+public class BatchCallServletRequest extends HttpServletRequestWrapper {
+
+    private final Map<String, String[]> parameterMap = new LinkedHashMap<String, String[]>();
+
+    private final Map<String, Object> attributes = new ConcurrentHashMap<String, Object>();
+
+    public BatchCallServletRequest(HttpServletRequest request, BatchCall batchCall) {
+        super(request);
+        List<String> sharedNames = Arrays.asList(SystemParameterNames.getAppKey(), SystemParameterNames.getSessionId(),
+                SystemParameterNames.getFormat(), SystemParameterNames.getLocale());
+        for (Map.Entry<String, String> entry : batchCall.getParams().entrySet()) {
+            if (entry.getValue() != null && !sharedNames.contains(entry.getKey())) {
+                parameterMap.put(entry.getKey(), new String[]{entry.getValue()});
+            }
+        }
+        for (String name : sharedNames) {
+            String value = request.getParameter(name);
+            if (value != null) {
+                parameterMap.put(name, new String[]{value});
+            }
+        }
+        parameterMap.put(SystemParameterNames.getMethod(), new String[]{batchCall.getMethod()});
+        parameterMap.put(SystemParameterNames.getVersion(), new String[]{batchCall.getVersion()});
+        parameterMap.remove(SystemParameterNames.getSign());
+        parameterMap.remove(SystemParameterNames.getJsonp());
+    }
+
+    @Override
+    public String getParameter(String name) {
+        String[] values = parameterMap.get(name);
+        return values == null ? null : values[0];
+    }
+
+    @Override
+    public Map getParameterMap() {
+        return Collections.unmodifiableMap(parameterMap);
+    }
+
+    @Override
+    public Enumeration getParameterNames() {
+        return Collections.enumeration(parameterMap.keySet());
+    }
+
+    @Override
+    public String[] getParameterValues(String name) {
+        return parameterMap.get(name);
+    }
+
+    @Override
+    public Object getAttribute(String name) {
+        Object value = attributes.get(name);
+        return value != null ? value : super.getAttribute(name);
+    }
+
+    @Override
+    public Enumeration getAttributeNames() {
+        Set<String> names = new LinkedHashSet<String>(attributes.keySet());
+        Enumeration<?> parentNames = super.getAttributeNames();
+        while (parentNames.hasMoreElements()) {
+            names.add((String) parentNames.nextElement());
+        }
+        return Collections.enumeration(names);
+    }
+
+    @Override
+    public void setAttribute(String name, Object value) {
+        if (value == null) {
+            attributes.remove(name);
+        } else {
+            attributes.put(name, value);
+        }
+    }
+
+    @Override
+    public void removeAttribute(String name) {
+        attributes.remove(name);
+    }
+}
@@ -129,6 +129,7 @@ public class DefaultRopContext implements RopContext {
                                 }
                                 ServiceMethodHandler serviceMethodHandler = new ServiceMethodHandler();
                                 serviceMethodHandler.setServiceMethodDefinition(definition);
+                                serviceMethodHandler.setCircuitBreaker(ServiceCircuitBreaker.create(definition));
 
                                 //1.set handler
                                 serviceMethodHandler.setHandler(context.getBean(beanName)); //handler
@@ -187,7 +188,17 @@ public class DefaultRopContext implements RopContext {
         definition.setVersion(serviceMethod.version());
         definition.setNeedInSession(NeedInSessionType.isNeedInSession(serviceMethod.needInSession()));
         definition.setObsoleted(ObsoletedType.isObsoleted(serviceMethod.obsoleted()));
+        definition.setPriority(PriorityType.toPriority(serviceMethod.priority()));
         definition.setHttpAction(serviceMethod.httpAction());
+        definition.setEtag(serviceMethod.etag());
+        definition.setCacheMaxAge(serviceMethod.cacheMaxAge());
+        definition.setCompress(serviceMethod.compress());
+        definition.setBreakerFailureRate(serviceMethod.breakerFailureRate());
+        definition.setBreakerMinimumCalls(serviceMethod.breakerMinimumCalls());
+        definition.setBreakerWindowSize(serviceMethod.breakerWindowSize());
+        definition.setBreakerOpenSeconds(serviceMethod.breakerOpenSeconds());
+        definition.setSingleFlight(serviceMethod.singleFlight());
+        definition.setSingleFlightIgnoreParams(serviceMethod.singleFlightIgnoreParams());
         return definition;
     }
 
@@ -202,6 +213,7 @@ public class DefaultRopContext implements RopContext {
         definition.setNeedInSession(NeedInSessionType.isNeedInSession(serviceMethodBean.needInSession()));
         definition.setHttpAction(serviceMethodBean.httpAction());
         definition.setObsoleted(ObsoletedType.isObsoleted(serviceMethodBean.obsoleted()));
+        definition.setPriority(PriorityType.toPriority(serviceMethodBean.priority()));
 
         //如果ServiceMethod所提供的值和ServiceMethodGroup不一样，覆盖之
         definition.setMethod(serviceMethod.method());
@@ -239,10 +251,24 @@ public class DefaultRopContext implements RopContext {
             definition.setObsoleted(ObsoletedType.isObsoleted(serviceMethod.obsoleted()));
         }
 
+        if (serviceMethod.priority() != PriorityType.DEFAULT) {
+            definition.setPriority(serviceMethod.priority());
+        }
+
         if (serviceMethod.httpAction().length > 0) {
             definition.setHttpAction(serviceMethod.httpAction());
         }
 
+        definition.setEtag(serviceMethod.etag());
+        definition.setCacheMaxAge(serviceMethod.cacheMaxAge());
+        definition.setCompress(serviceMethod.compress());
+        definition.setBreakerFailureRate(serviceMethod.breakerFailureRate());
+        definition.setBreakerMinimumCalls(serviceMethod.breakerMinimumCalls());
+        definition.setBreakerWindowSize(serviceMethod.breakerWindowSize());
+        definition.setBreakerOpenSeconds(serviceMethod.breakerOpenSeconds());
+        definition.setSingleFlight(serviceMethod.singleFlight());
+        definition.setSingleFlightIgnoreParams(serviceMethod.singleFlightIgnoreParams());
+
         return definition;
     }
 
@@ -0,0 +1,104 @@
+/**
+ * Copyright 2012-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.rop.impl;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * <pre>
+ * 功能说明：服务路由器关闭时排空请求的结果。超过排空期限后仍未完成的请求及线程池中的任务被放弃，
+ * 放弃的排队任务按应用键分别计数，未能识别应用键的任务（如事件监听任务）计入空字符串。
+ * </pre>
+ *
+ * @author 陈雄华
+ * @version 1.0
+ */
+public class DrainReport {
+
+    private final long timeoutMillis;
+
+    private final long elapsedMillis;
+
+    private final int abandonedRequests;
+
+    private final int interruptedTasks;
+
+    private final int abandonedTasks;
+
+    private final Map<String, Integer> abandonedTasksByAppKey;
+
+    public DrainReport(long timeoutMillis, long elapsedMillis, int abandonedRequests, int interruptedTasks,
+                       Map<String, Integer> abandonedTasksByAppKey) {
+        this.timeoutMillis = timeoutMillis;
+        this.elapsedMillis = elapsedMillis;
+        this.abandonedRequests = abandonedRequests;
+        this.interruptedTasks = interruptedTasks;
+        int abandonedTasks = 0;
+        for (Integer count : abandonedTasksByAppKey.values()) {
+            abandonedTasks += count;
+        }
+        this.abandonedTasks = abandonedTasks;
+        this.abandonedTasksByAppKey = Collections.unmodifiableMap(abandonedTasksByAppKey);
+    }
+
+    /**
+     * @return 是否在期限内完成了所有请求和任务
+     */
+    public boolean isCompleted() {
+        return abandonedRequests == 0 && interruptedTasks == 0 && abandonedTasks == 0;
+    }
+
+    public long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    /**
+     * @return 期限到达时仍未完成的请求数
+     */
+    public int getAbandonedRequests() {
+        return abandonedRequests;
+    }
+
+    /**
+     * @return 期限到达时仍在执行、被中断的任务数
+     */
+    public int getInterruptedTasks() {
+        return interruptedTasks;
+    }
+
+    /**
+     * @return 期限到达时仍在排队、被丢弃的任务数
+     */
+    public int getAbandonedTasks() {
+        return abandonedTasks;
+    }
+
+    public Map<String, Integer> getAbandonedTasksByAppKey() {
+        return abandonedTasksByAppKey;
+    }
+
+    @Override
+    public String toString() {
+        return "DrainReport[elapsed=" + elapsedMillis + "ms, timeout=" + timeoutMillis + "ms, abandonedRequests="
+                + abandonedRequests + ", interruptedTasks=" + interruptedTasks + ", abandonedTasks=" + abandonedTasks
+                + " " + abandonedTasksByAppKey + "]";
+    }
+}
@@ -0,0 +1,198 @@
+/**
+ * Copyright 2012-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.rop.impl;
+
+import com.rop.ServiceMethodDefinition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <pre>
+ * 功能说明：服务方法的熔断器。统计服务方法最近若干次调用中发生异常（{@link com.rop.response.ServiceUnavailableErrorResponse}）
+ * 及超时（{@link com.rop.response.TimeoutErrorResponse}）的比率，达到阈值后熔断，熔断期间请求不再提交到线程池，直接返回错误报文，
+ * 避免服务方法依赖的下游不可用时占满工作线程。熔断期满后每次只放行一个探测请求，探测成功则恢复，失败则继续熔断。
+ * 阈值通过{@link com.rop.annotation.ServiceMethod#breakerFailureRate()}等属性配置。
+ * </pre>
+ *
+ * @author 陈雄华
+ * @version 1.0
+ */
+public class ServiceCircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    protected final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final String name;
+
+    //失败率阈值（百分比）
+    private final int failureRate;
+
+    //熔断时间（毫秒）
+    private final long openTime;
+
+    //计算失败率所需的最少调用次数
+    private final int minimumCalls;
+
+    //最近调用的结果（滑动窗口），true为失败
+    private final boolean[] outcomes;
+
+    private int count;
+
+    private int next;
+
+    private int failures;
+
+    private State state = State.CLOSED;
+
+    private long openUntil;
+
+    //半开状态下是否有探测请求正在执行
+    private boolean probing;
+
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    public ServiceCircuitBreaker(String name, int failureRate, int minimumCalls, int openSeconds) {
+        this(name, failureRate, minimumCalls, minimumCalls, openSeconds);
+    }
+
+    /**
+     * @param name         熔断器名称
+     * @param failureRate  失败率阈值（百分比）
+     * @param minimumCalls 计算失败率所需的最少调用次数
+     * @param windowSize   统计失败率的滑动窗口大小，小于minimumCalls时按minimumCalls处理
+     * @param openSeconds  熔断的时间，单位为秒
+     */
+    public ServiceCircuitBreaker(String name, int failureRate, int minimumCalls, int windowSize, int openSeconds) {
+        this.name = name;
+        this.failureRate = failureRate;
+        this.minimumCalls = Math.max(1, minimumCalls);
+        this.outcomes = new boolean[Math.max(this.minimumCalls, windowSize)];
+        this.openTime = openSeconds * 1000L;
+    }
+
+    /**
+     * 根据服务方法的定义创建熔断器
+     *
+     * @param definition
+     * @return 服务方法没有开启熔断时返回null
+     */
+    public static ServiceCircuitBreaker create(ServiceMethodDefinition definition) {
+        if (definition.getBreakerFailureRate() <= 0) {
+            return null;
+        }
+        return new ServiceCircuitBreaker(definition.getMethod() + "#" + definition.getVersion(),
+                definition.getBreakerFailureRate(), definition.getBreakerMinimumCalls(), definition.getBreakerWindowSize(),
+                definition.getBreakerOpenSeconds());
+    }
+
+    /**
+     * 请求提交到线程池之前调用
+     *
+     * @return 是否放行，返回true时必须调用{@link #onComplete(boolean)}或{@link #release()}
+     */
+    public boolean tryAcquire() {
+        synchronized (this) {
+            if (state == State.CLOSED) {
+                return true;
+            }
+            if (state == State.OPEN && System.currentTimeMillis() >= openUntil) {
+                transitionTo(State.HALF_OPEN);
+            }
+            if (state == State.HALF_OPEN && !probing) {
+                probing = true;
+                return true;
+            }
+        }
+        rejectedCount.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * 记录一次调用的结果
+     *
+     * @param failed 服务方法是否发生异常或超时
+     */
+    public synchronized void onComplete(boolean failed) {
+        if (state == State.HALF_OPEN) {
+            probing = false;
+            transitionTo(failed ? State.OPEN : State.CLOSED);
+            return;
+        }
+        if (state == State.OPEN) {
+            return;
+        }
+        if (count == outcomes.length) {
+            failures -= outcomes[next] ? 1 : 0;
+        } else {
+            count++;
+        }
+        outcomes[next] = failed;
+        failures += failed ? 1 : 0;
+        next = (next + 1) % outcomes.length;
+        if (count >= minimumCalls && failures * 100 >= failureRate * count) {
+            transitionTo(State.OPEN);
+        }
+    }
+
+    /**
+     * 请求没有执行服务方法（如线程池已满），不计入统计
+     */
+    public synchronized void release() {
+        if (state == State.HALF_OPEN) {
+            probing = false;
+        }
+    }
+
+    private void transitionTo(State to) {
+        if (logger.isInfoEnabled()) {
+            logger.info("服务方法" + name + "的熔断器由" + state + "变为" + to);
+        }
+        state = to;
+        count = 0;
+        next = 0;
+        failures = 0;
+        if (to == State.OPEN) {
+            openUntil = System.currentTimeMillis() + openTime;
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * @return 当前统计的失败率（百分比）
+     */
+    public synchronized float getFailureRate() {
+        return count == 0 ? 0 : failures * 100f / count;
+    }
+
+    /**
+     * @return 因熔断被直接拒绝的请求数
+     */
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+}
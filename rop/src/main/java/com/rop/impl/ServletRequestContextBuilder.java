@@ -20,6 +20,11 @@ import com.rop.annotation.HttpAction;
 import com.rop.config.SystemParameterNames;
 import com.rop.response.MainErrorType;
 import com.rop.security.MainErrors;
+import com.rop.unmarshaller.JacksonCborRopUnmarshaller;
+import com.rop.unmarshaller.JacksonJsonRopUnmarshaller;
+import com.rop.unmarshaller.JacksonSmileRopUnmarshaller;
+import com.rop.unmarshaller.JaxbXmlRopUnmarshaller;
+import com.rop.utils.RopUtils;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -28,6 +33,8 @@ import org.springframework.beans.propertyeditors.LocaleEditor;
 import org.springframework.format.support.FormattingConversionService;
 import org.springframework.util.StringUtils;
 import org.springframework.validation.BindingResult;
+import org.springframework.validation.DataBinder;
+import org.springframework.validation.FieldError;
 import org.springframework.validation.ObjectError;
 import org.springframework.validation.Validator;
 import org.springframework.validation.beanvalidation.LocalValidatorFactoryBean;
@@ -36,6 +43,10 @@ import org.springframework.web.bind.ServletRequestDataBinder;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -57,12 +68,32 @@ public class ServletRequestContextBuilder implements RequestContextBuilder {
 
     public static final String X_FORWARDED_FOR = "X-Forwarded-For";
 
+    public static final String JSON_CONTENT_TYPE = "application/json";
+
+    public static final String XML_CONTENT_TYPE = "application/xml";
+
+    public static final String TEXT_XML_CONTENT_TYPE = "text/xml";
+
+    public static final String SMILE_CONTENT_TYPE = "application/x-jackson-smile";
+
+    public static final String CBOR_CONTENT_TYPE = "application/cbor";
+
+    public static final String ACCEPT = "Accept";
+
     protected final Logger logger = LoggerFactory.getLogger(getClass());
 
     private FormattingConversionService conversionService;
 
     private Validator validator;
 
+    private RopUnmarshaller xmlUnmarshaller;
+
+    private RopUnmarshaller jsonUnmarshaller;
+
+    private RopUnmarshaller smileUnmarshaller;
+
+    private RopUnmarshaller cborUnmarshaller;
+
     public ServletRequestContextBuilder(FormattingConversionService conversionService) {
         this.conversionService = conversionService;
     }
@@ -120,6 +151,8 @@ public class ServletRequestContextBuilder implements RequestContextBuilder {
     /**
      * 将{@link HttpServletRequest}的数据绑定到{@link com.rop.RopRequestContext}的{@link com.rop.RopRequest}中，同时使用
      * JSR 303对请求数据进行校验，将错误信息设置到{@link com.rop.RopRequestContext}的属性列表中。
+     * 请求体为JSON或XML时（参见{@link #getRequestBodyFormat(HttpServletRequest)}），业务参数不再从请求参数中逐个绑定，
+     * 而是将请求体一次性流式解析为请求对象。
      *
      * @param ropRequestContext
      */
@@ -131,6 +164,9 @@ public class ServletRequestContextBuilder implements RequestContextBuilder {
     		return args;
     	}
     	HttpServletRequest request = ropRequestContext.getRawRequestObject();
+    	//批量调用的子调用共享批量请求的请求体，只能从子调用的参数中绑定
+    	MessageFormat bodyFormat = ropRequestContext.getAttribute(SimpleRopRequestContext.BATCH_CALL_ATTRNAME) == null
+    			? getRequestBodyFormat(request) : null;
     	List<ObjectError> errors = new ArrayList<ObjectError>();
     	for(int i = 0; i < args.length; i++){
     		Class<?> clazz = classes[i];
@@ -145,7 +181,14 @@ public class ServletRequestContextBuilder implements RequestContextBuilder {
     		}else if(RopRequest.class.equals(clazz) || AbstractRopRequest.class.equals(clazz)){
     			args[i] = new DefaultRopRequest();
     		}else{
-    			BindingResult bindingResult = doBind(request, clazz);
+    			BindingResult bindingResult;
+    			if(bodyFormat != null){
+    				//请求体只能读取一次，绑定到第一个请求对象中
+    				bindingResult = doBindBody(ropRequestContext, clazz, bodyFormat);
+    				bodyFormat = null;
+    			}else{
+    				bindingResult = doBind(request, clazz);
+    			}
     			args[i] = buildRopRequestFromBindingResult(ropRequestContext, bindingResult);
     			List<ObjectError> allErrors = bindingResult.getAllErrors();
     			if(allErrors != null && allErrors.size() > 0){
@@ -158,10 +201,39 @@ public class ServletRequestContextBuilder implements RequestContextBuilder {
     }
 
 
+    /**
+     * 根据请求的Content-Type判断业务参数是否以请求体发送
+     *
+     * @param request
+     * @return 请求体的格式，不是JSON、XML或二进制格式的请求体时返回null
+     */
+    public static MessageFormat getRequestBodyFormat(HttpServletRequest request) {
+        String contentType = request.getContentType();
+        if (contentType == null) {
+            return null;
+        }
+        int index = contentType.indexOf(';');
+        return toMessageFormat((index < 0 ? contentType : contentType.substring(0, index)).trim().toLowerCase(Locale.ENGLISH));
+    }
+
+    private static MessageFormat toMessageFormat(String mimeType) {
+        if (JSON_CONTENT_TYPE.equals(mimeType)) {
+            return MessageFormat.JSON;
+        } else if (XML_CONTENT_TYPE.equals(mimeType) || TEXT_XML_CONTENT_TYPE.equals(mimeType)) {
+            return MessageFormat.XML;
+        } else if (SMILE_CONTENT_TYPE.equals(mimeType)) {
+            return MessageFormat.SMILE;
+        } else if (CBOR_CONTENT_TYPE.equals(mimeType)) {
+            return MessageFormat.CBOR;
+        } else {
+            return null;
+        }
+    }
+
     private String getFormat(HttpServletRequest servletRequest) {
         String messageFormat = servletRequest.getParameter(SystemParameterNames.getFormat());
         if (messageFormat == null) {
-            return MessageFormat.XML.name();
+            return negotiateFormat(servletRequest.getHeader(ACCEPT)).name();
         } else {
             return messageFormat;
         }
@@ -197,15 +269,60 @@ public class ServletRequestContextBuilder implements RequestContextBuilder {
         }
     }
 
+    /**
+     * 获取响应的格式，请求中没有format参数时，按Accept报文头协商，都不支持时使用XML格式
+     *
+     * @param servletRequest
+     * @return
+     */
     public static MessageFormat getResponseFormat(HttpServletRequest servletRequest) {
         String messageFormat = servletRequest.getParameter(SystemParameterNames.getFormat());
-        if (MessageFormat.isValidFormat(messageFormat)) {
+        if (messageFormat == null) {
+            return negotiateFormat(servletRequest.getHeader(ACCEPT));
+        } else if (MessageFormat.isValidFormat(messageFormat)) {
             return MessageFormat.getFormat(messageFormat);
         } else {
             return MessageFormat.XML;
         }
     }
 
+    /**
+     * 根据Accept报文头选择响应格式，取q值最大的可支持类型，q值相同时取靠前的，不处理通配符
+     *
+     * @param accept
+     * @return
+     */
+    static MessageFormat negotiateFormat(String accept) {
+        MessageFormat selected = MessageFormat.XML;
+        if (accept == null) {
+            return selected;
+        }
+        double selectedQ = 0;
+        for (String mediaRange : accept.split(",")) {
+            String[] parts = mediaRange.split(";");
+            MessageFormat format = toMessageFormat(parts[0].trim().toLowerCase(Locale.ENGLISH));
+            if (format == null) {
+                continue;
+            }
+            double q = 1;
+            for (int i = 1; i < parts.length; i++) {
+                String param = parts[i].trim();
+                if (param.startsWith("q=")) {
+                    try {
+                        q = Double.parseDouble(param.substring(2));
+                    } catch (NumberFormatException e) {
+                        q = 0;
+                    }
+                }
+            }
+            if (q > selectedQ) {
+                selected = format;
+                selectedQ = q;
+            }
+        }
+        return selected;
+    }
+
     private Object buildRopRequestFromBindingResult(RopRequestContext ropRequestContext, BindingResult bindingResult) {
     	Object ropRequest = bindingResult.getTarget();
     	if(ropRequest instanceof RopRequest){
@@ -239,6 +356,65 @@ public class ServletRequestContextBuilder implements RequestContextBuilder {
         return dataBinder.getBindingResult();
     }
 
+    /**
+     * 将请求体直接解析为请求对象，解析的同时计算请求体的摘要，供签名校验时与摘要参数比对。
+     * 请求体无法解析时，以参数类型不匹配的错误返回
+     *
+     * @param ropRequestContext
+     * @param requestType
+     * @param bodyFormat
+     * @return
+     */
+    private BindingResult doBindBody(RopRequestContext ropRequestContext, Class<?> requestType, MessageFormat bodyFormat) {
+        HttpServletRequest request = ropRequestContext.getRawRequestObject();
+        MessageDigest digest = RopUtils.newBodyDigest();
+        Object bindObject = null;
+        Exception bodyException = null;
+        try {
+            InputStream in = new DigestInputStream(request.getInputStream(), digest);
+            try {
+                bindObject = getUnmarshaller(bodyFormat).unmarshaller(in, requestType);
+            } catch (RopException e) {
+                bodyException = e;
+            }
+            //解析器不一定读到流的末尾，读完剩余的内容以得到整个请求体的摘要
+            byte[] buffer = new byte[4096];
+            while (in.read(buffer) != -1) {
+                //只需计算摘要，内容丢弃
+            }
+        } catch (IOException e) {
+            bodyException = e;
+        }
+        ropRequestContext.setAttribute(SimpleRopRequestContext.BODY_DIGEST_ATTRNAME, RopUtils.byte2hex(digest.digest()));
+        if (bindObject == null) {
+            bindObject = BeanUtils.instantiateClass(requestType);
+        }
+        DataBinder dataBinder = new DataBinder(bindObject, "bindObject");
+        if (bodyException != null) {
+            if (logger.isDebugEnabled()) {
+                logger.debug("request body of " + ropRequestContext.getMethod() + " can not be parsed", bodyException);
+            }
+            dataBinder.getBindingResult().addError(new FieldError("bindObject", "body", null, true,
+                    new String[]{"typeMismatch"}, null, bodyException.getMessage()));
+        } else {
+            dataBinder.setValidator(getValidator());
+            dataBinder.validate();
+        }
+        return dataBinder.getBindingResult();
+    }
+
+    private RopUnmarshaller getUnmarshaller(MessageFormat bodyFormat) {
+        if (bodyFormat == MessageFormat.JSON) {
+            return getJsonUnmarshaller();
+        } else if (bodyFormat == MessageFormat.SMILE) {
+            return getSmileUnmarshaller();
+        } else if (bodyFormat == MessageFormat.CBOR) {
+            return getCborUnmarshaller();
+        } else {
+            return getXmlUnmarshaller();
+        }
+    }
+
     private Validator getValidator() {
         if (this.validator == null) {
             LocalValidatorFactoryBean localValidatorFactoryBean = new LocalValidatorFactoryBean();
@@ -251,6 +427,50 @@ public class ServletRequestContextBuilder implements RequestContextBuilder {
     public FormattingConversionService getFormattingConversionService() {
         return conversionService;
     }
+
+    public RopUnmarshaller getXmlUnmarshaller() {
+        if (xmlUnmarshaller == null) {
+            xmlUnmarshaller = new JaxbXmlRopUnmarshaller();
+        }
+        return xmlUnmarshaller;
+    }
+
+    public void setXmlUnmarshaller(RopUnmarshaller xmlUnmarshaller) {
+        this.xmlUnmarshaller = xmlUnmarshaller;
+    }
+
+    public RopUnmarshaller getJsonUnmarshaller() {
+        if (jsonUnmarshaller == null) {
+            jsonUnmarshaller = new JacksonJsonRopUnmarshaller();
+        }
+        return jsonUnmarshaller;
+    }
+
+    public void setJsonUnmarshaller(RopUnmarshaller jsonUnmarshaller) {
+        this.jsonUnmarshaller = jsonUnmarshaller;
+    }
+
+    public RopUnmarshaller getSmileUnmarshaller() {
+        if (smileUnmarshaller == null) {
+            smileUnmarshaller = new JacksonSmileRopUnmarshaller();
+        }
+        return smileUnmarshaller;
+    }
+
+    public void setSmileUnmarshaller(RopUnmarshaller smileUnmarshaller) {
+        this.smileUnmarshaller = smileUnmarshaller;
+    }
+
+    public RopUnmarshaller getCborUnmarshaller() {
+        if (cborUnmarshaller == null) {
+            cborUnmarshaller = new JacksonCborRopUnmarshaller();
+        }
+        return cborUnmarshaller;
+    }
+
+    public void setCborUnmarshaller(RopUnmarshaller cborUnmarshaller) {
+        this.cborUnmarshaller = cborUnmarshaller;
+    }
     
     //默认的{@link RopRequest}实现类
     private class DefaultRopRequest extends AbstractRopRequest {
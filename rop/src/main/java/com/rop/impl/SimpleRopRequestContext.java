@@ -36,6 +36,21 @@ public class SimpleRopRequestContext implements RopRequestContext {
 
     public static final String SPRING_VALIDATE_ERROR_ATTRNAME = "$SPRING_VALIDATE_ERROR_ATTRNAME";
 
+    /**
+     * 服务方法可通过该属性提供响应报文的版本号，框架将以此生成ETag，免去对报文内容的摘要计算
+     */
+    public static final String ETAG_ATTRNAME = "$ETAG_ATTRNAME";
+
+    /**
+     * 标识该请求是批量调用中的子调用，其签名和会话已在批量请求中统一校验
+     */
+    public static final String BATCH_CALL_ATTRNAME = "$BATCH_CALL_ATTRNAME";
+
+    /**
+     * 业务参数以请求体发送时，服务端解析请求体的同时计算出的请求体摘要，用于与签名覆盖的摘要参数进行比对
+     */
+    public static final String BODY_DIGEST_ATTRNAME = "$BODY_DIGEST_ATTRNAME";
+
     private RopContext ropContext;
 
     private String method;
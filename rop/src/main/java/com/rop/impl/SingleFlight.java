@@ -0,0 +1,171 @@
+/**
+ * Copyright 2012-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.rop.impl;
+
+import com.rop.RopException;
+import com.rop.config.SystemParameterNames;
+import com.rop.response.FileResponse;
+import com.rop.response.StreamingResponse;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <pre>
+ * 功能说明：合并相同的并发调用。同一个键同时只执行一次，执行期间到达的相同调用等待并共享其结果（或异常），
+ * 执行结束后下一次调用重新执行，因此不会返回过期的结果。
+ * 共享的结果是同一个对象，调用方不应修改。
+ * 流式响应、文件响应及异步返回值只能被一个调用方输出或取消，等待的调用得到这类结果时不共享，而是各自重新执行。
+ * </pre>
+ *
+ * @author 陈雄华
+ * @version 1.0
+ */
+public class SingleFlight {
+
+    //不影响服务方法执行结果的参数，总是不参与生成键
+    private static final List<String> DEFAULT_IGNORE_PARAMS = Collections.unmodifiableList(Arrays.asList(
+            SystemParameterNames.getSign(),
+            SystemParameterNames.getJsonp(),
+            SystemParameterNames.getFormat()));
+
+    private final ConcurrentMap<String, FutureTask<Object>> calls = new ConcurrentHashMap<String, FutureTask<Object>>();
+
+    private final AtomicLong sharedCount = new AtomicLong();
+
+    /**
+     * 根据请求参数生成键，参数按名称排序（与签名的顺序一致），名称和值都带上长度，避免不同的参数拼接出相同的键
+     *
+     * @param params       请求参数
+     * @param ignoreParams 另外不参与生成键的参数，如appKey、sessionId
+     * @return
+     */
+    public static String createKey(Map<String, String> params, String[] ignoreParams) {
+        return createKey(params, null, ignoreParams);
+    }
+
+    /**
+     * 根据请求参数及请求报文体的摘要生成键，报文体格式的请求其业务参数在报文体中，不同的报文体不能得到相同的键
+     *
+     * @param params       请求参数
+     * @param bodyDigest   请求报文体的摘要，没有报文体时为null
+     * @param ignoreParams 另外不参与生成键的参数，如appKey、sessionId
+     * @return
+     */
+    public static String createKey(Map<String, String> params, String bodyDigest, String[] ignoreParams) {
+        List<String> paramNames = new ArrayList<String>(params.keySet());
+        paramNames.removeAll(DEFAULT_IGNORE_PARAMS);
+        if (ignoreParams != null) {
+            paramNames.removeAll(Arrays.asList(ignoreParams));
+        }
+        Collections.sort(paramNames);
+        StringBuilder sb = new StringBuilder();
+        for (String paramName : paramNames) {
+            String value = params.get(paramName);
+            sb.append(paramName.length()).append(':').append(paramName);
+            if (value == null) {
+                sb.append('-');
+            } else {
+                sb.append(value.length()).append(':').append(value);
+            }
+        }
+        if (bodyDigest != null) {
+            sb.append('#').append(bodyDigest);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 执行调用，相同键的调用正在执行时等待其结果
+     *
+     * @param key
+     * @param callable
+     * @return
+     */
+    public Object execute(String key, Callable<Object> callable) {
+        FutureTask<Object> task = new FutureTask<Object>(callable);
+        FutureTask<Object> existing = calls.putIfAbsent(key, task);
+        if (existing == null) {
+            try {
+                task.run();
+            } finally {
+                calls.remove(key, task);
+            }
+            return getResult(task);
+        }
+        Object result = getResult(existing);
+        if (!isShareable(result)) {
+            FutureTask<Object> ownTask = new FutureTask<Object>(callable);
+            ownTask.run();
+            return getResult(ownTask);
+        }
+        sharedCount.incrementAndGet();
+        return result;
+    }
+
+    /**
+     * 流式响应只能迭代一次，文件响应输出后即被关闭，异步返回值超时后会被取消，这些结果都不能共享
+     *
+     * @param result
+     * @return
+     */
+    private static boolean isShareable(Object result) {
+        return !(result instanceof StreamingResponse || result instanceof FileResponse
+                || result instanceof Future || AsyncServiceResults.isAsync(result));
+    }
+
+    private Object getResult(FutureTask<Object> task) {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RopException(e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new RopException(cause);
+        }
+    }
+
+    /**
+     * @return 正在执行的调用数
+     */
+    public int getInflightCount() {
+        return calls.size();
+    }
+
+    /**
+     * @return 共享了其它调用结果的调用次数
+     */
+    public long getSharedCount() {
+        return sharedCount.get();
+    }
+}
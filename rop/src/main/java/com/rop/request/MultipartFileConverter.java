@@ -0,0 +1,55 @@
+/**
+ * Copyright 2012-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.rop.request;
+
+import com.rop.converter.UploadFile;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * <pre>
+ *   将multipart请求中的文件转换为{@link UploadFile}对象，保存在临时文件中的文件内容不读入内存。
+ *   被拒绝的文件转换为null，由安全管理器返回上传失败的错误。
+ * </pre>
+ *
+ * @author 陈雄华
+ * @version 1.0
+ */
+public class MultipartFileConverter implements Converter<MultipartFile, UploadFile> {
+
+    public UploadFile convert(MultipartFile source) {
+        if (source instanceof RopMultipartFile) {
+            RopMultipartFile file = (RopMultipartFile) source;
+            if (file.isRejected()) {
+                return null;
+            }
+            File storeLocation = file.getStoreLocation();
+            if (storeLocation != null) {
+                return new UploadFile(file.getFileType(), storeLocation);
+            }
+        }
+        String fileType = source.getOriginalFilename() == null ? ""
+                : RopMultipartResolver.getFileType(source.getOriginalFilename(), source.getContentType());
+        try {
+            return new UploadFile(fileType, source.getBytes());
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
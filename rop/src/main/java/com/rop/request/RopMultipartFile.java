@@ -0,0 +1,217 @@
+/**
+ * Copyright 2012-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.rop.request;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.output.DeferredFileOutputStream;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * <pre>
+ * 功能说明：multipart请求中的上传文件。文件内容在不超过内存阈值时保存在内存中，
+ * 超过阈值后转存到临时文件中。文件类型不允许或大小超过限制时文件被拒绝，其内容在读取时直接丢弃，
+ * 拒绝的原因由{@link #getRejectMessage()}返回，由安全管理器返回相应的错误。
+ * </pre>
+ *
+ * @author 陈雄华
+ * @version 1.0
+ */
+public class RopMultipartFile implements MultipartFile {
+
+    private static final String TEMP_FILE_PREFIX = "rop_upload_";
+
+    private static final String TEMP_FILE_SUFFIX = ".tmp";
+
+    private final String name;
+
+    private final String originalFilename;
+
+    private final String contentType;
+
+    private final String fileType;
+
+    private final long maxSize;
+
+    private DeferredFileOutputStream content;
+
+    private long size;
+
+    private String rejectMessage;
+
+    /**
+     * @param name             表单字段名
+     * @param originalFilename 客户端的文件名
+     * @param contentType      文件的内容类型
+     * @param fileType         文件类型（扩展名）
+     * @param maxSize          最大字节数，小于等于0时不限制
+     * @param memoryThreshold  保存在内存中的最大字节数
+     * @param tempDir          临时文件目录
+     */
+    public RopMultipartFile(String name, String originalFilename, String contentType, String fileType,
+                            long maxSize, int memoryThreshold, File tempDir) {
+        this.name = name;
+        this.originalFilename = originalFilename;
+        this.contentType = contentType;
+        this.fileType = fileType;
+        this.maxSize = maxSize;
+        this.content = new DeferredFileOutputStream(memoryThreshold, TEMP_FILE_PREFIX, TEMP_FILE_SUFFIX, tempDir);
+    }
+
+    /**
+     * 拒绝该文件，已接收的内容被丢弃
+     *
+     * @param rejectMessage
+     */
+    public void reject(String rejectMessage) {
+        this.rejectMessage = rejectMessage;
+        delete();
+    }
+
+    /**
+     * 获取接收文件内容的输出流，超过最大字节数时拒绝文件
+     *
+     * @param exceedMessage 超过最大字节数时的拒绝原因
+     * @return
+     */
+    OutputStream getOutputStream(final String exceedMessage) {
+        return new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                write(new byte[]{(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                if (rejectMessage != null) {
+                    return;
+                }
+                size += len;
+                if (maxSize > 0 && size > maxSize) {
+                    reject(exceedMessage);
+                    return;
+                }
+                content.write(b, off, len);
+            }
+
+            @Override
+            public void close() throws IOException {
+                if (rejectMessage == null) {
+                    content.close();
+                }
+            }
+        };
+    }
+
+    public String getRejectMessage() {
+        return rejectMessage;
+    }
+
+    public boolean isRejected() {
+        return rejectMessage != null;
+    }
+
+    public String getFileType() {
+        return fileType;
+    }
+
+    /**
+     * 文件内容是否保存在内存中
+     *
+     * @return
+     */
+    public boolean isInMemory() {
+        return content == null || content.isInMemory();
+    }
+
+    /**
+     * 保存文件内容的临时文件，文件内容在内存中时返回null
+     *
+     * @return
+     */
+    public File getStoreLocation() {
+        return isInMemory() ? null : content.getFile();
+    }
+
+    /**
+     * 删除临时文件，释放文件内容
+     */
+    public void delete() {
+        if (content != null) {
+            try {
+                content.close();
+            } catch (IOException e) {
+                // 忽略
+            }
+            if (!content.isInMemory()) {
+                FileUtils.deleteQuietly(content.getFile());
+            }
+            content = null;
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getOriginalFilename() {
+        return originalFilename;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public boolean isEmpty() {
+        return content == null || size == 0;
+    }
+
+    public long getSize() {
+        return content == null ? 0 : size;
+    }
+
+    public byte[] getBytes() throws IOException {
+        if (content == null) {
+            return new byte[0];
+        }
+        return content.isInMemory() ? content.getData() : FileUtils.readFileToByteArray(content.getFile());
+    }
+
+    public InputStream getInputStream() throws IOException {
+        if (content == null) {
+            return new ByteArrayInputStream(new byte[0]);
+        }
+        return content.isInMemory() ? new ByteArrayInputStream(content.getData())
+                : new FileInputStream(content.getFile());
+    }
+
+    public void transferTo(File dest) throws IOException, IllegalStateException {
+        if (content == null) {
+            throw new IllegalStateException("File has been rejected or deleted");
+        }
+        if (content.isInMemory()) {
+            FileUtils.writeByteArrayToFile(dest, content.getData());
+        } else {
+            FileUtils.copyFile(content.getFile(), dest);
+        }
+    }
+}
@@ -0,0 +1,477 @@
+/**
+ * Copyright 2012-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.rop.request;
+
+import com.rop.security.FileUploadController;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.multipart.MultipartException;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.multipart.MultipartHttpServletRequest;
+import org.springframework.web.multipart.MultipartResolver;
+import org.springframework.web.multipart.support.DefaultMultipartHttpServletRequest;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <pre>
+ * 功能说明：流式解析multipart/form-data请求，不依赖Servlet 3.0及commons-fileupload。
+ * 请求体边读边解析：普通表单字段作为请求参数，文件部分写入{@link RopMultipartFile}，
+ * 不超过内存阈值的文件保存在内存中，超过阈值的转存到临时文件。
+ * 文件类型在读取文件头时、文件大小在读取文件内容时即按{@link FileUploadController}检查，
+ * 不满足要求的文件被拒绝，其余内容直接丢弃，不占用内存和磁盘。
+ * </pre>
+ *
+ * @author 陈雄华
+ * @version 1.0
+ */
+public class RopMultipartResolver implements MultipartResolver {
+
+    public static final String MULTIPART_FORM_DATA = "multipart/form-data";
+
+    public static final int DEFAULT_MEMORY_THRESHOLD = 10240;
+
+    public static final int DEFAULT_MAX_FIELD_SIZE = 1024 * 1024;
+
+    private static final int MAX_HEADER_SIZE = 8192;
+
+    private static final int BUFFER_SIZE = 8192;
+
+    protected final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private FileUploadController fileUploadController;
+
+    private int memoryThreshold = DEFAULT_MEMORY_THRESHOLD;
+
+    private int maxFieldSize = DEFAULT_MAX_FIELD_SIZE;
+
+    private File tempDir = new File(System.getProperty("java.io.tmpdir"));
+
+    public RopMultipartResolver() {
+    }
+
+    public RopMultipartResolver(FileUploadController fileUploadController) {
+        this.fileUploadController = fileUploadController;
+    }
+
+    public boolean isMultipart(HttpServletRequest request) {
+        String contentType = request.getContentType();
+        return contentType != null && contentType.toLowerCase().startsWith(MULTIPART_FORM_DATA);
+    }
+
+    public MultipartHttpServletRequest resolveMultipart(HttpServletRequest request) throws MultipartException {
+        String boundary = getBoundary(request.getContentType());
+        if (boundary == null) {
+            throw new MultipartException("the request was rejected because no multipart boundary was found");
+        }
+        String charset = request.getCharacterEncoding() == null ? "utf-8" : request.getCharacterEncoding();
+        MultiValueMap<String, MultipartFile> files = new LinkedMultiValueMap<String, MultipartFile>();
+        Map<String, String[]> params = new LinkedHashMap<String, String[]>();
+        Map<String, String> paramContentTypes = new LinkedHashMap<String, String>();
+        try {
+            PartReader reader = new PartReader(request.getInputStream(), boundary);
+            // 跳过第一个分隔符之前的内容
+            reader.readBody(null);
+            while (reader.nextPart()) {
+                Map<String, String> headers = reader.readHeaders(charset);
+                String disposition = headers.get("content-disposition");
+                String name = getDispositionParam(disposition, "name");
+                String filename = getDispositionParam(disposition, "filename");
+                String contentType = headers.get("content-type");
+                if (name == null) {
+                    reader.readBody(null);
+                } else if (filename == null) {
+                    ByteArrayOutputStream value = new ByteArrayOutputStream();
+                    reader.readBody(new LimitedOutputStream(value, maxFieldSize, name));
+                    addParam(params, name, value.toString(charset));
+                    if (contentType != null) {
+                        paramContentTypes.put(name, contentType);
+                    }
+                } else {
+                    files.add(name, readFile(reader, name, filename, contentType));
+                }
+            }
+        } catch (MultipartException e) {
+            cleanupFiles(files);
+            throw e;
+        } catch (IOException e) {
+            cleanupFiles(files);
+            throw new MultipartException("could not parse multipart servlet request", e);
+        }
+        return new DefaultMultipartHttpServletRequest(request, files, params, paramContentTypes);
+    }
+
+    public void cleanupMultipart(MultipartHttpServletRequest request) {
+        if (request != null) {
+            cleanupFiles(request.getMultiFileMap());
+        }
+    }
+
+    private RopMultipartFile readFile(PartReader reader, String name, String filename, String contentType)
+            throws IOException {
+        String fileType = getFileType(filename, contentType);
+        long maxSize = fileUploadController == null || fileUploadController.getMaxSize() <= 0 ? -1
+                : fileUploadController.getMaxSize() * 1024L;
+        RopMultipartFile file = new RopMultipartFile(name, filename, contentType, fileType, maxSize,
+                memoryThreshold, tempDir);
+        if (fileUploadController != null && !fileUploadController.isAllowFileType(fileType)) {
+            file.reject("FILE_TYPE_NOT_ALLOW:the valid file types is:" + fileUploadController.getAllowFileTypes());
+        }
+        String exceedMessage = "EXCEED_MAX_SIZE:" + (fileUploadController == null ? 0
+                : fileUploadController.getMaxSize()) + "k";
+        OutputStream out = file.getOutputStream(exceedMessage);
+        try {
+            reader.readBody(out);
+        } finally {
+            out.close();
+        }
+        if (file.isRejected() && logger.isDebugEnabled()) {
+            logger.debug("上传文件{}({})被拒绝：{}", new Object[]{name, filename, file.getRejectMessage()});
+        }
+        return file;
+    }
+
+    /**
+     * 文件类型取文件名的扩展名，没有扩展名时取内容类型的子类型
+     *
+     * @param filename
+     * @param contentType
+     * @return
+     */
+    public static String getFileType(String filename, String contentType) {
+        int index = filename.lastIndexOf('.');
+        if (index > -1 && index < filename.length() - 1) {
+            return filename.substring(index + 1).toLowerCase();
+        }
+        if (contentType != null && contentType.indexOf('/') > -1) {
+            String subType = contentType.substring(contentType.indexOf('/') + 1);
+            int paramIndex = subType.indexOf(';');
+            return (paramIndex > -1 ? subType.substring(0, paramIndex) : subType).trim().toLowerCase();
+        }
+        return "";
+    }
+
+    static String getBoundary(String contentType) {
+        String boundary = getHeaderParam(contentType, "boundary");
+        return boundary == null || boundary.length() == 0 ? null : boundary;
+    }
+
+    static String getDispositionParam(String disposition, String name) {
+        return getHeaderParam(disposition, name);
+    }
+
+    private static String getHeaderParam(String header, String name) {
+        if (header == null) {
+            return null;
+        }
+        for (String item : header.split(";")) {
+            item = item.trim();
+            int index = item.indexOf('=');
+            if (index > 0 && item.substring(0, index).trim().equalsIgnoreCase(name)) {
+                String value = item.substring(index + 1).trim();
+                if (value.length() > 1 && value.startsWith("\"") && value.endsWith("\"")) {
+                    value = value.substring(1, value.length() - 1);
+                }
+                // IE会发送文件的完整路径
+                if ("filename".equalsIgnoreCase(name)) {
+                    value = value.substring(Math.max(value.lastIndexOf('/'), value.lastIndexOf('\\')) + 1);
+                }
+                return value;
+            }
+        }
+        return null;
+    }
+
+    private static void addParam(Map<String, String[]> params, String name, String value) {
+        String[] values = params.get(name);
+        if (values == null) {
+            params.put(name, new String[]{value});
+        } else {
+            String[] newValues = new String[values.length + 1];
+            System.arraycopy(values, 0, newValues, 0, values.length);
+            newValues[values.length] = value;
+            params.put(name, newValues);
+        }
+    }
+
+    private static void cleanupFiles(MultiValueMap<String, MultipartFile> files) {
+        for (List<MultipartFile> items : files.values()) {
+            for (MultipartFile file : items) {
+                if (file instanceof RopMultipartFile) {
+                    ((RopMultipartFile) file).delete();
+                }
+            }
+        }
+    }
+
+    public void setFileUploadController(FileUploadController fileUploadController) {
+        this.fileUploadController = fileUploadController;
+    }
+
+    /**
+     * 设置上传文件保存在内存中的最大字节数，超过后转存到临时文件
+     *
+     * @param memoryThreshold
+     */
+    public void setMemoryThreshold(int memoryThreshold) {
+        this.memoryThreshold = memoryThreshold;
+    }
+
+    /**
+     * 设置普通表单字段的最大字节数
+     *
+     * @param maxFieldSize
+     */
+    public void setMaxFieldSize(int maxFieldSize) {
+        this.maxFieldSize = maxFieldSize;
+    }
+
+    public void setTempDir(File tempDir) {
+        this.tempDir = tempDir;
+    }
+
+    /**
+     * 限制表单字段大小的输出流
+     */
+    private static class LimitedOutputStream extends OutputStream {
+
+        private final OutputStream out;
+
+        private final long maxSize;
+
+        private final String name;
+
+        private long size;
+
+        private LimitedOutputStream(OutputStream out, long maxSize, String name) {
+            this.out = out;
+            this.maxSize = maxSize;
+            this.name = name;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            size += len;
+            if (size > maxSize) {
+                throw new MultipartException("the form field " + name + " exceeds its maximum size " + maxSize);
+            }
+            out.write(b, off, len);
+        }
+    }
+
+    /**
+     * 按分隔符切分请求体的读取器，在固定大小的缓冲区中查找分隔符，各部分的内容边读边输出
+     */
+    private static class PartReader {
+
+        private final InputStream in;
+
+        // 分隔符为CRLF--boundary，第一个分隔符前没有CRLF，因此在缓冲区中预置CRLF
+        private final byte[] delimiter;
+
+        private final byte[] buffer;
+
+        private int head;
+
+        private int tail;
+
+        private boolean eof;
+
+        private PartReader(InputStream in, String boundary) throws IOException {
+            this.in = in;
+            this.delimiter = ("\r\n--" + boundary).getBytes("ISO-8859-1");
+            this.buffer = new byte[BUFFER_SIZE + delimiter.length];
+            buffer[0] = '\r';
+            buffer[1] = '\n';
+            tail = 2;
+        }
+
+        /**
+         * 读取分隔符之后的内容，判断是否还有下一部分
+         *
+         * @return 遇到结束分隔符时返回false
+         * @throws IOException
+         */
+        private boolean nextPart() throws IOException {
+            if (!fill(2)) {
+                throw new MultipartException("stream ended unexpectedly");
+            }
+            if (buffer[head] == '-' && buffer[head + 1] == '-') {
+                return false;
+            }
+            // 跳过分隔符之后的空白，直到CRLF
+            while (true) {
+                if (!fill(1)) {
+                    throw new MultipartException("stream ended unexpectedly");
+                }
+                byte b = buffer[head++];
+                if (b == '\n') {
+                    return true;
+                }
+                if (b != '\r' && b != ' ' && b != '\t') {
+                    throw new MultipartException("invalid multipart boundary");
+                }
+            }
+        }
+
+        /**
+         * 读取部分的头，头的名称转换为小写
+         *
+         * @param charset
+         * @return
+         * @throws IOException
+         */
+        private Map<String, String> readHeaders(String charset) throws IOException {
+            ByteArrayOutputStream headerBytes = new ByteArrayOutputStream();
+            int matched = 0;
+            byte[] end = {'\r', '\n', '\r', '\n'};
+            // 头与上一行的CRLF已被消费，空头时直接为CRLF
+            if (fill(2) && buffer[head] == '\r' && buffer[head + 1] == '\n') {
+                head += 2;
+                return new LinkedHashMap<String, String>();
+            }
+            while (matched < end.length) {
+                if (!fill(1)) {
+                    throw new MultipartException("stream ended unexpectedly");
+                }
+                byte b = buffer[head++];
+                matched = b == end[matched] ? matched + 1 : (b == end[0] ? 1 : 0);
+                headerBytes.write(b);
+                if (headerBytes.size() > MAX_HEADER_SIZE) {
+                    throw new MultipartException("multipart header exceeds its maximum size " + MAX_HEADER_SIZE);
+                }
+            }
+            Map<String, String> headers = new LinkedHashMap<String, String>();
+            List<String> lines = new ArrayList<String>();
+            for (String line : headerBytes.toString(charset).split("\r\n")) {
+                if (line.length() == 0) {
+                    continue;
+                }
+                // 折行的头
+                if ((line.charAt(0) == ' ' || line.charAt(0) == '\t') && !lines.isEmpty()) {
+                    lines.set(lines.size() - 1, lines.get(lines.size() - 1) + " " + line.trim());
+                } else {
+                    lines.add(line);
+                }
+            }
+            for (String line : lines) {
+                int index = line.indexOf(':');
+                if (index > 0) {
+                    headers.put(line.substring(0, index).trim().toLowerCase(), line.substring(index + 1).trim());
+                }
+            }
+            return headers;
+        }
+
+        /**
+         * 读取部分的内容直到下一个分隔符
+         *
+         * @param out 内容的输出流，为null时丢弃内容
+         * @throws IOException
+         */
+        private void readBody(OutputStream out) throws IOException {
+            while (true) {
+                fill(delimiter.length);
+                int index = indexOfDelimiter();
+                if (index > -1) {
+                    if (out != null) {
+                        out.write(buffer, head, index - head);
+                    }
+                    head = index + delimiter.length;
+                    return;
+                }
+                if (eof) {
+                    throw new MultipartException("stream ended unexpectedly");
+                }
+                // 缓冲区末尾可能是分隔符的开头，保留下来
+                int safe = tail - delimiter.length + 1;
+                if (safe > head) {
+                    if (out != null) {
+                        out.write(buffer, head, safe - head);
+                    }
+                    head = safe;
+                }
+                compact();
+                read();
+            }
+        }
+
+        private int indexOfDelimiter() {
+            int last = tail - delimiter.length;
+            for (int i = head; i <= last; i++) {
+                int j = 0;
+                while (j < delimiter.length && buffer[i + j] == delimiter[j]) {
+                    j++;
+                }
+                if (j == delimiter.length) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * 保证缓冲区中至少有n个未读字节
+         *
+         * @param n
+         * @return 流已结束且字节数不足时返回false
+         * @throws IOException
+         */
+        private boolean fill(int n) throws IOException {
+            while (tail - head < n && !eof) {
+                compact();
+                read();
+            }
+            return tail - head >= n;
+        }
+
+        private void compact() {
+            if (head > 0) {
+                System.arraycopy(buffer, head, buffer, 0, tail - head);
+                tail -= head;
+                head = 0;
+            }
+        }
+
+        private void read() throws IOException {
+            if (tail == buffer.length) {
+                return;
+            }
+            int n = in.read(buffer, tail, buffer.length - tail);
+            if (n < 0) {
+                eof = true;
+            } else {
+                tail += n;
+            }
+        }
+    }
+}
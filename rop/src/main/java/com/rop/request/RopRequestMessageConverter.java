@@ -64,7 +64,9 @@ public class RopRequestMessageConverter implements ConditionalGenericConverter {
 
     public Object convert(Object source, TypeDescriptor sourceType, TypeDescriptor targetType) {
         try {
-            if (SimpleRopRequestContext.messageFormat.get() == MessageFormat.JSON) {//输入格式为JSON
+            MessageFormat messageFormat = SimpleRopRequestContext.messageFormat.get();
+            //二进制格式的请求中，参数里的对象仍以JSON字符串传递
+            if (messageFormat == MessageFormat.JSON || (messageFormat != null && messageFormat.isBinary())) {//输入格式为JSON
             	return getJsonUnmarshaller().unmarshaller((String)source, targetType.getObjectType());
             } else {
                 return getXmlUnmarshaller().unmarshaller((String)source, targetType.getObjectType());
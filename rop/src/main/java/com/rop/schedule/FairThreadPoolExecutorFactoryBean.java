@@ -0,0 +1,110 @@
+/**
+ * Copyright 2012-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.rop.schedule;
+
+import com.rop.annotation.PriorityType;
+import org.springframework.scheduling.concurrent.ThreadPoolExecutorFactoryBean;
+import org.springframework.util.StringUtils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * <pre>
+ * 功能说明：使用{@link WeightedFairQueue}作为任务队列的线程池工厂Bean，
+ * 服务线程池的队列按应用键分别排队并加权轮询出队，应用的权重通过appWeights配置，格式如：
+ * app1:5,app2:1，未配置的应用权重为1。
+ * 开启优先级调度后，队列中的请求数达到normalPriorityQueueCapacity（默认为总容量的80%）时不再接受普通优先级的请求，
+ * 达到lowPriorityQueueCapacity（默认为总容量的50%）时不再接受低优先级的请求，高优先级的请求可以使用队列的全部容量。
+ * </pre>
+ *
+ * @author 陈雄华
+ * @version 1.0
+ */
+public class FairThreadPoolExecutorFactoryBean extends ThreadPoolExecutorFactoryBean {
+
+    private int tenantQueueCapacity = Integer.MAX_VALUE;
+
+    private Map<String, Integer> weights = new LinkedHashMap<String, Integer>();
+
+    private boolean priorityScheduling = false;
+
+    private int normalPriorityQueueCapacity = -1;
+
+    private int lowPriorityQueueCapacity = -1;
+
+    @Override
+    protected BlockingQueue<Runnable> createQueue(int queueCapacity) {
+        if (queueCapacity <= 0) {
+            return super.createQueue(queueCapacity);
+        }
+        WeightedFairQueue queue = new WeightedFairQueue(queueCapacity, Math.min(queueCapacity, tenantQueueCapacity));
+        queue.setWeights(weights);
+        if (priorityScheduling) {
+            queue.setPriorityCapacity(PriorityType.NORMAL, normalPriorityQueueCapacity > 0 ?
+                    normalPriorityQueueCapacity : Math.max(queueCapacity / 10 * 8, 1));
+            queue.setPriorityCapacity(PriorityType.LOW, lowPriorityQueueCapacity > 0 ?
+                    lowPriorityQueueCapacity : Math.max(queueCapacity / 2, 1));
+        }
+        return queue;
+    }
+
+    /**
+     * 每个应用最多可以排队的请求数，默认只受队列总容量限制
+     *
+     * @param tenantQueueCapacity
+     */
+    public void setTenantQueueCapacity(int tenantQueueCapacity) {
+        this.tenantQueueCapacity = tenantQueueCapacity;
+    }
+
+    public void setPriorityScheduling(boolean priorityScheduling) {
+        this.priorityScheduling = priorityScheduling;
+    }
+
+    public void setNormalPriorityQueueCapacity(int normalPriorityQueueCapacity) {
+        this.normalPriorityQueueCapacity = normalPriorityQueueCapacity;
+    }
+
+    public void setLowPriorityQueueCapacity(int lowPriorityQueueCapacity) {
+        this.lowPriorityQueueCapacity = lowPriorityQueueCapacity;
+    }
+
+    public void setWeights(Map<String, Integer> weights) {
+        this.weights = weights;
+    }
+
+    /**
+     * 以"appKey:权重"的格式设置应用的权重，多个应用之间用逗号分隔
+     *
+     * @param appWeights
+     */
+    public void setAppWeights(String appWeights) {
+        Map<String, Integer> weights = new LinkedHashMap<String, Integer>();
+        for (String item : StringUtils.commaDelimitedListToStringArray(appWeights)) {
+            if (!StringUtils.hasText(item)) {
+                continue;
+            }
+            int index = item.lastIndexOf(':');
+            if (index <= 0) {
+                throw new IllegalArgumentException("app weight must be in the form of appKey:weight, but was " + item);
+            }
+            weights.put(item.substring(0, index).trim(), Integer.valueOf(item.substring(index + 1).trim()));
+        }
+        this.weights = weights;
+    }
+}
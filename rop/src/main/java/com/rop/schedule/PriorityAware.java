@@ -0,0 +1,34 @@
+/**
+ * Copyright 2012-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.rop.schedule;
+
+import com.rop.annotation.PriorityType;
+
+/**
+ * <pre>
+ * 功能说明：提交到线程池的任务实现该接口后，{@link WeightedFairQueue}按其优先级放入不同的通道
+ * </pre>
+ *
+ * @author 陈雄华
+ * @version 1.0
+ */
+public interface PriorityAware {
+
+    /**
+     * @return 任务的优先级
+     */
+    PriorityType getPriority();
+}
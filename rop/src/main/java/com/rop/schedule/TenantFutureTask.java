@@ -0,0 +1,53 @@
+/**
+ * Copyright 2012-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.rop.schedule;
+
+import com.rop.annotation.PriorityType;
+
+import java.util.concurrent.FutureTask;
+
+/**
+ * <pre>
+ * 功能说明：带有租户及优先级信息的{@link FutureTask}，服务路由器以该任务提交服务请求
+ * </pre>
+ *
+ * @author 陈雄华
+ * @version 1.0
+ */
+public class TenantFutureTask<V> extends FutureTask<V> implements TenantAware, PriorityAware {
+
+    private final String tenant;
+
+    private final PriorityType priority;
+
+    public TenantFutureTask(Runnable runnable, V result, String tenant) {
+        this(runnable, result, tenant, PriorityType.NORMAL);
+    }
+
+    public TenantFutureTask(Runnable runnable, V result, String tenant, PriorityType priority) {
+        super(runnable, result);
+        this.tenant = tenant == null ? "" : tenant;
+        this.priority = PriorityType.toPriority(priority);
+    }
+
+    public String getTenant() {
+        return tenant;
+    }
+
+    public PriorityType getPriority() {
+        return priority;
+    }
+}
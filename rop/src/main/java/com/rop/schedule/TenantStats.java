@@ -0,0 +1,101 @@
+/**
+ * Copyright 2012-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.rop.schedule;
+
+/**
+ * <pre>
+ * 功能说明：一个租户在{@link WeightedFairQueue}中的排队统计信息，是获取时的快照
+ * </pre>
+ *
+ * @author 陈雄华
+ * @version 1.0
+ */
+public class TenantStats {
+
+    private final String tenant;
+
+    private final int weight;
+
+    private final int queueSize;
+
+    private final long dequeuedCount;
+
+    private final long rejectedCount;
+
+    private final long totalWaitMillis;
+
+    private final long maxWaitMillis;
+
+    public TenantStats(String tenant, int weight, int queueSize, long dequeuedCount, long rejectedCount,
+                       long totalWaitMillis, long maxWaitMillis) {
+        this.tenant = tenant;
+        this.weight = weight;
+        this.queueSize = queueSize;
+        this.dequeuedCount = dequeuedCount;
+        this.rejectedCount = rejectedCount;
+        this.totalWaitMillis = totalWaitMillis;
+        this.maxWaitMillis = maxWaitMillis;
+    }
+
+    public String getTenant() {
+        return tenant;
+    }
+
+    public int getWeight() {
+        return weight;
+    }
+
+    /**
+     * @return 当前排队的任务数
+     */
+    public int getQueueSize() {
+        return queueSize;
+    }
+
+    /**
+     * @return 已出队执行的任务数
+     */
+    public long getDequeuedCount() {
+        return dequeuedCount;
+    }
+
+    /**
+     * @return 因队列已满被拒绝的任务数
+     */
+    public long getRejectedCount() {
+        return rejectedCount;
+    }
+
+    /**
+     * @return 出队任务的平均排队时间（毫秒）
+     */
+    public long getAverageWaitMillis() {
+        return dequeuedCount == 0 ? 0 : totalWaitMillis / dequeuedCount;
+    }
+
+    /**
+     * @return 出队任务的最长排队时间（毫秒）
+     */
+    public long getMaxWaitMillis() {
+        return maxWaitMillis;
+    }
+
+    @Override
+    public String toString() {
+        return tenant + "[weight=" + weight + ", queueSize=" + queueSize + ", dequeued=" + dequeuedCount
+                + ", rejected=" + rejectedCount + ", avgWait=" + getAverageWaitMillis() + "ms, maxWait=" + maxWaitMillis + "ms]";
+    }
+}
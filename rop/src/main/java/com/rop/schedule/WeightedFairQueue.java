@@ -0,0 +1,563 @@
+/**
+ * Copyright 2012-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.rop.schedule;
+
+import com.rop.annotation.PriorityType;
+
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * <pre>
+ * 功能说明：按优先级和租户（应用键）公平调度的阻塞队列，用于替代服务线程池默认的FIFO队列。
+ * 任务按优先级放入高、中、低三个通道，出队时总是先取高优先级通道中的任务。
+ * 同一通道中每个租户拥有独立的子队列，出队时按赤字轮询（Deficit Round Robin）在有任务的租户之间轮转，
+ * 每轮租户可连续出队的任务数等于其权重，因此某个应用的突发流量只会在自己的子队列中排队，
+ * 不会阻塞其它应用的请求。未实现{@link TenantAware}的任务归入默认租户（空字符串），
+ * 未实现{@link PriorityAware}的任务为{@link PriorityType#NORMAL}优先级。
+ * 队列的总容量和每个租户的容量都有上限，此外每个优先级可以设置更低的准入容量，
+ * 队列中的任务数达到该容量后不再接受该优先级的任务，使得队列饱和时先拒绝低优先级的任务。
+ * 超出容量时offer返回false，由线程池的拒绝策略处理。
+ * 租户的子队列排空后即被移除，未设置权重的租户在没有排队任务时也被移除（其统计信息随之清零），
+ * 因此队列占用的内存只与排队的任务数及设置了权重的租户数有关。
+ * </pre>
+ *
+ * @author 陈雄华
+ * @version 1.0
+ */
+public class WeightedFairQueue extends AbstractQueue<Runnable> implements BlockingQueue<Runnable> {
+
+    public static final String DEFAULT_TENANT = "";
+
+    public static final int DEFAULT_WEIGHT = 1;
+
+    private static final PriorityType[] PRIORITIES = {PriorityType.HIGH, PriorityType.NORMAL, PriorityType.LOW};
+
+    private final int capacity;
+
+    private final int tenantCapacity;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition notEmpty = lock.newCondition();
+
+    private final Condition notFull = lock.newCondition();
+
+    private final Map<String, Integer> weights = new HashMap<String, Integer>();
+
+    private final Map<String, Tenant> tenants = new HashMap<String, Tenant>();
+
+    private final Lane[] lanes = new Lane[PRIORITIES.length];
+
+    private int count;
+
+    public WeightedFairQueue() {
+        this(Integer.MAX_VALUE, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param capacity       队列的总容量
+     * @param tenantCapacity 每个租户可以排队的任务数
+     */
+    public WeightedFairQueue(int capacity, int tenantCapacity) {
+        if (capacity <= 0 || tenantCapacity <= 0) {
+            throw new IllegalArgumentException("capacity and tenantCapacity must be positive");
+        }
+        this.capacity = capacity;
+        this.tenantCapacity = tenantCapacity;
+        for (int i = 0; i < lanes.length; i++) {
+            lanes[i] = new Lane(capacity);
+        }
+    }
+
+    /**
+     * 设置租户的权重，权重越大，每轮可以连续出队的任务越多
+     *
+     * @param tenant
+     * @param weight 大于0的整数
+     */
+    public void setWeight(String tenant, int weight) {
+        if (weight <= 0) {
+            throw new IllegalArgumentException("weight of " + tenant + " must be positive");
+        }
+        lock.lock();
+        try {
+            weights.put(tenant, weight);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void setWeights(Map<String, Integer> weights) {
+        for (Map.Entry<String, Integer> entry : weights.entrySet()) {
+            setWeight(entry.getKey(), entry.getValue());
+        }
+    }
+
+    public int getWeight(String tenant) {
+        lock.lock();
+        try {
+            return weightOf(tenant);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 设置优先级的准入容量：队列中的任务总数达到该值后，不再接受该优先级的任务。
+     * 默认各优先级的准入容量都等于队列的总容量
+     *
+     * @param priority
+     * @param priorityCapacity 大于0的整数，超过总容量时按总容量处理
+     */
+    public void setPriorityCapacity(PriorityType priority, int priorityCapacity) {
+        if (priorityCapacity <= 0) {
+            throw new IllegalArgumentException("capacity of " + priority + " priority must be positive");
+        }
+        lock.lock();
+        try {
+            lanes[laneOf(priority)].capacity = Math.min(priorityCapacity, capacity);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getPriorityCapacity(PriorityType priority) {
+        lock.lock();
+        try {
+            return lanes[laneOf(priority)].capacity;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @param priority
+     * @return 该优先级当前排队的任务数
+     */
+    public int size(PriorityType priority) {
+        lock.lock();
+        try {
+            return lanes[laneOf(priority)].count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @param priority
+     * @return 该优先级因队列已满被拒绝的任务数
+     */
+    public long getRejectedCount(PriorityType priority) {
+        lock.lock();
+        try {
+            return lanes[laneOf(priority)].rejectedCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 获取各租户的排队统计信息
+     *
+     * @return 租户到统计信息的映射
+     */
+    public Map<String, TenantStats> getTenantStats() {
+        lock.lock();
+        try {
+            Map<String, TenantStats> stats = new TreeMap<String, TenantStats>();
+            for (Tenant tenant : tenants.values()) {
+                stats.put(tenant.name, new TenantStats(tenant.name, weightOf(tenant.name), tenant.queueSize,
+                        tenant.dequeuedCount, tenant.rejectedCount, tenant.totalWaitMillis, tenant.maxWaitMillis));
+            }
+            return stats;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean offer(Runnable task) {
+        if (task == null) {
+            throw new NullPointerException();
+        }
+        lock.lock();
+        try {
+            return enqueue(task);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void put(Runnable task) throws InterruptedException {
+        if (task == null) {
+            throw new NullPointerException();
+        }
+        lock.lockInterruptibly();
+        try {
+            while (!enqueue(task)) {
+                notFull.await();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean offer(Runnable task, long timeout, TimeUnit unit) throws InterruptedException {
+        if (task == null) {
+            throw new NullPointerException();
+        }
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (!enqueue(task)) {
+                if (nanos <= 0) {
+                    return false;
+                }
+                nanos = notFull.awaitNanos(nanos);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Runnable poll() {
+        lock.lock();
+        try {
+            return count == 0 ? null : dequeue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Runnable take() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (count == 0) {
+                notEmpty.await();
+            }
+            return dequeue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Runnable poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (count == 0) {
+                if (nanos <= 0) {
+                    return null;
+                }
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            return dequeue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Runnable peek() {
+        lock.lock();
+        try {
+            for (Lane lane : lanes) {
+                if (lane.count > 0) {
+                    return lane.activeQueues.getFirst().nodes.getFirst().task;
+                }
+            }
+            return null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        lock.lock();
+        try {
+            return count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int remainingCapacity() {
+        lock.lock();
+        try {
+            return capacity - count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        if (!(o instanceof Runnable)) {
+            return false;
+        }
+        Runnable task = (Runnable) o;
+        lock.lock();
+        try {
+            Lane lane = lanes[laneOf(task)];
+            SubQueue subQueue = lane.subQueues.get(tenantOf(task));
+            if (subQueue == null) {
+                return false;
+            }
+            for (Iterator<Node> iterator = subQueue.nodes.iterator(); iterator.hasNext(); ) {
+                if (iterator.next().task.equals(o)) {
+                    iterator.remove();
+                    subQueue.tenant.queueSize--;
+                    lane.count--;
+                    count--;
+                    if (subQueue.nodes.isEmpty()) {
+                        lane.activeQueues.remove(subQueue);
+                        evict(lane, subQueue);
+                    }
+                    notFull.signal();
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int drainTo(Collection<? super Runnable> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    public int drainTo(Collection<? super Runnable> c, int maxElements) {
+        if (c == null) {
+            throw new NullPointerException();
+        }
+        if (c == this) {
+            throw new IllegalArgumentException();
+        }
+        lock.lock();
+        try {
+            int n = 0;
+            while (n < maxElements && count > 0) {
+                c.add(dequeue());
+                n++;
+            }
+            return n;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 返回队列中任务的快照迭代器，不支持remove操作
+     */
+    @Override
+    public Iterator<Runnable> iterator() {
+        lock.lock();
+        try {
+            List<Runnable> tasks = new ArrayList<Runnable>(count);
+            for (Lane lane : lanes) {
+                for (SubQueue subQueue : lane.activeQueues) {
+                    for (Node node : subQueue.nodes) {
+                        tasks.add(node.task);
+                    }
+                }
+            }
+            return Collections.unmodifiableList(tasks).iterator();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean enqueue(Runnable task) {
+        String name = tenantOf(task);
+        Tenant tenant = tenants.get(name);
+        if (tenant == null) {
+            tenant = new Tenant(name);
+            if (weights.containsKey(name)) {
+                tenants.put(name, tenant);
+            }
+        }
+        Lane lane = lanes[laneOf(task)];
+        if (count >= lane.capacity || tenant.queueSize >= tenantCapacity) {
+            tenant.rejectedCount++;
+            lane.rejectedCount++;
+            return false;
+        }
+        tenants.put(name, tenant);
+        SubQueue subQueue = lane.subQueues.get(name);
+        if (subQueue == null) {
+            subQueue = new SubQueue(tenant);
+            lane.subQueues.put(name, subQueue);
+        }
+        if (subQueue.nodes.isEmpty()) {
+            lane.activeQueues.addLast(subQueue);
+        }
+        subQueue.nodes.addLast(new Node(task, System.currentTimeMillis()));
+        tenant.queueSize++;
+        lane.count++;
+        count++;
+        notEmpty.signal();
+        return true;
+    }
+
+    private Runnable dequeue() {
+        Lane lane = lanes[0];
+        for (int i = 1; lane.count == 0; i++) {
+            lane = lanes[i];
+        }
+        SubQueue subQueue = lane.activeQueues.getFirst();
+        if (subQueue.deficit <= 0) {
+            subQueue.deficit += weightOf(subQueue.tenant.name);
+        }
+        Node node = subQueue.nodes.removeFirst();
+        subQueue.deficit--;
+        lane.count--;
+        count--;
+
+        Tenant tenant = subQueue.tenant;
+        long waitMillis = System.currentTimeMillis() - node.enqueueTime;
+        tenant.queueSize--;
+        tenant.dequeuedCount++;
+        tenant.totalWaitMillis += waitMillis;
+        if (waitMillis > tenant.maxWaitMillis) {
+            tenant.maxWaitMillis = waitMillis;
+        }
+
+        if (subQueue.nodes.isEmpty()) {
+            lane.activeQueues.removeFirst();
+            evict(lane, subQueue);
+        } else if (subQueue.deficit <= 0) {
+            //本轮额度用完，轮转到队尾
+            lane.activeQueues.addLast(lane.activeQueues.removeFirst());
+        }
+        notFull.signal();
+        return node.task;
+    }
+
+    /**
+     * 移除已排空的子队列，租户在各通道都没有排队任务且未设置权重时一并移除
+     */
+    private void evict(Lane lane, SubQueue subQueue) {
+        String name = subQueue.tenant.name;
+        lane.subQueues.remove(name);
+        if (subQueue.tenant.queueSize == 0 && !weights.containsKey(name)) {
+            tenants.remove(name);
+        }
+    }
+
+    private int weightOf(String tenant) {
+        Integer weight = weights.get(tenant);
+        return weight != null ? weight : DEFAULT_WEIGHT;
+    }
+
+    private static String tenantOf(Runnable task) {
+        if (task instanceof TenantAware) {
+            String tenant = ((TenantAware) task).getTenant();
+            if (tenant != null) {
+                return tenant;
+            }
+        }
+        return DEFAULT_TENANT;
+    }
+
+    private static int laneOf(Runnable task) {
+        if (task instanceof PriorityAware) {
+            return laneOf(((PriorityAware) task).getPriority());
+        }
+        return laneOf(PriorityType.NORMAL);
+    }
+
+    private static int laneOf(PriorityType priority) {
+        if (PriorityType.HIGH == priority) {
+            return 0;
+        } else if (PriorityType.LOW == priority) {
+            return 2;
+        } else {
+            return 1;
+        }
+    }
+
+    private static class Node {
+
+        private final Runnable task;
+
+        private final long enqueueTime;
+
+        private Node(Runnable task, long enqueueTime) {
+            this.task = task;
+            this.enqueueTime = enqueueTime;
+        }
+    }
+
+    /**
+     * 一个租户在某个优先级通道中的子队列
+     */
+    private static class SubQueue {
+
+        private final Tenant tenant;
+
+        private final LinkedList<Node> nodes = new LinkedList<Node>();
+
+        private int deficit;
+
+        private SubQueue(Tenant tenant) {
+            this.tenant = tenant;
+        }
+    }
+
+    /**
+     * 一个优先级的通道，activeQueues为有任务排队的子队列，按轮转顺序排列
+     */
+    private static class Lane {
+
+        private final Map<String, SubQueue> subQueues = new HashMap<String, SubQueue>();
+
+        private final LinkedList<SubQueue> activeQueues = new LinkedList<SubQueue>();
+
+        private int capacity;
+
+        private int count;
+
+        private long rejectedCount;
+
+        private Lane(int capacity) {
+            this.capacity = capacity;
+        }
+    }
+
+    private static class Tenant {
+
+        private final String name;
+
+        private int queueSize;
+
+        private long dequeuedCount;
+
+        private long rejectedCount;
+
+        private long totalWaitMillis;
+
+        private long maxWaitMillis;
+
+        private Tenant(String name) {
+            this.name = name;
+        }
+    }
+}
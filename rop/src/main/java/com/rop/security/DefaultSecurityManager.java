@@ -21,6 +21,8 @@ import com.rop.config.SystemParameterNames;
 import com.rop.impl.DefaultServiceAccessController;
 import com.rop.impl.SimpleRopRequestContext;
 import com.rop.converter.UploadFileUtils;
+import com.rop.request.RopMultipartFile;
+import com.rop.request.RopMultipartResolver;
 import com.rop.response.MainError;
 import com.rop.response.MainErrorType;
 import com.rop.response.SubError;
@@ -33,6 +35,11 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.validation.FieldError;
 import org.springframework.validation.ObjectError;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.multipart.MultipartRequest;
+import org.springframework.web.util.WebUtils;
+
+import javax.servlet.http.HttpServletRequest;
 
 import java.util.*;
 
@@ -134,24 +141,74 @@ public class DefaultSecurityManager implements SecurityManager {
 		return null;
 	}
 
+	public MainError validateBatchParameters(RopRequestContext context) {
+		String method = context.getMethod();
+		String version = context.getVersion();
+		Locale locale = context.getLocale();
+		// 1.检查appKey
+		if (context.getAppKey() == null) {
+			return MainErrors.getError(MainErrorType.MISSING_APP_KEY, locale, method,
+					version, SystemParameterNames.getAppKey());
+		}
+		if (!appSecretManager.isValidAppKey(context.getAppKey())) {
+			return MainErrors.getError(MainErrorType.INVALID_APP_KEY, locale, method,
+					version, context.getAppKey());
+		}
+		// 2.如果带有会话，则检查会话，子调用将不再重复检查
+		if (context.getSessionId() != null && !isValidSession(context)) {
+			return MainErrors.getError(MainErrorType.INVALID_SESSION, locale, method,
+					version, context.getSessionId());
+		}
+		// 3.检查签名，签名覆盖了包括所有子调用在内的全部参数
+		if (context.getRopContext().isSignEnable()) {
+			if (context.getSign() == null) {
+				return MainErrors.getError(MainErrorType.MISSING_SIGNATURE, locale, method, version,
+						SystemParameterNames.getSign());
+			}
+			List<String> ignoreSignFieldNames = new ArrayList<String>();
+			ignoreSignFieldNames.add(SystemParameterNames.getSign());
+			ignoreSignFieldNames.add(SystemParameterNames.getJsonp());
+			if (SystemParameterNames.getIgnoreSignFieldNames() != null) {
+				ignoreSignFieldNames.addAll(SystemParameterNames.getIgnoreSignFieldNames());
+			}
+			if (!getSignHandler().signCheck(context.getSign(), context.getAllParams(), ignoreSignFieldNames)) {
+				if (logger.isErrorEnabled()) {
+					logger.error(context.getAppKey() + "的批量调用签名不合法，请检查");
+				}
+				return MainErrors.getError(MainErrorType.INVALID_SIGNATURE, locale, method, version);
+			}
+		}
+		// 4.检查 format，批量调用不支持STREAM及二进制格式
+		if (!MessageFormat.isValidFormat(context.getFormat()) || context.getMessageFormat() == MessageFormat.STREAM
+				|| context.getMessageFormat().isBinary()) {
+			return MainErrors.getError(MainErrorType.INVALID_FORMAT, locale, method, version, context.getFormat());
+		}
+		return null;
+	}
+
 	public MainError validateOther(RopRequestContext rrctx) {
 		MainError mainError = null;
-		// 1.判断应用/用户是否有权访问目标服务
+		// 1.业务参数以请求体发送时，检查请求体与签名的摘要是否一致
+		mainError = checkBodyDigest(rrctx);
+		if (mainError != null) {
+			return mainError;
+		}
+		// 2.判断应用/用户是否有权访问目标服务
 		mainError = checkServiceAccessAllow(rrctx);
 		if (mainError != null) {
 			return mainError;
 		}
-		// 2.判断应用/会话/用户访问服务的次数或频度是否超限
+		// 3.判断应用/会话/用户访问服务的次数或频度是否超限
 		mainError = checkInvokeTimesLimit(rrctx);
 		if (mainError != null) {
 			return mainError;
 		}
-		// 3.如果是上传文件的服务，检查文件类型和大小是否满足要求
+		// 4.如果是上传文件的服务，检查文件类型和大小是否满足要求
 		mainError = checkUploadFile(rrctx);
 		if (mainError != null) {
 			return mainError;
 		}
-		// 4.检查业务参数合法性
+		// 5.检查业务参数合法性
 		mainError = validateBusinessParams(rrctx);
 		if (mainError != null) {
 			return mainError;
@@ -169,9 +226,18 @@ public class DefaultSecurityManager implements SecurityManager {
 		String version = rrctx.getVersion();
 		List<String> fileFieldNames = serviceMethodHandler.getUploadFileFieldNames();
 		MainErrorType type = MainErrorType.UPLOAD_FAIL;
+		HttpServletRequest request = rrctx.getRawRequestObject();
+		MultipartRequest multipartRequest = request == null ? null
+				: WebUtils.getNativeRequest(request, MultipartRequest.class);
 		for (String fileFieldName : fileFieldNames) {
 			String paramValue = rrctx.getParamValue(fileFieldName);
-			if (paramValue != null) {
+			MultipartFile multipartFile = multipartRequest == null ? null : multipartRequest.getFile(fileFieldName);
+			if (paramValue == null && multipartFile != null) {
+				String msg = checkMultipartFile(multipartFile);
+				if (msg != null) {
+					return MainErrors.getError(type, locale, method, version, msg);
+				}
+			} else if (paramValue != null) {
 				if (paramValue.indexOf("@") < 0) {
 					String msg = "MESSAGE_VALID:not contain '@'.";
 					return MainErrors.getError(type, locale, method, version, msg);
@@ -182,8 +248,8 @@ public class DefaultSecurityManager implements SecurityManager {
 								+ fileUploadController.getAllowFileTypes();
 						return MainErrors.getError(type, locale, method, version, msg);
 					}
-					byte[] fileContent = UploadFileUtils.decode(paramValue);
-					if (fileUploadController.isExceedMaxSize(fileContent.length)) {
+					// 根据编码长度计算文件大小，无需解码文件内容
+					if (fileUploadController.isExceedMaxSize(UploadFileUtils.getDecodedSize(paramValue))) {
 						String msg = "EXCEED_MAX_SIZE:" + fileUploadController.getMaxSize() + "k";
 						return MainErrors.getError(type, locale, method, version, msg);
 					}
@@ -193,6 +259,29 @@ public class DefaultSecurityManager implements SecurityManager {
 		return null;
 	}
 
+	/**
+	 * 检查multipart上传的文件，{@link RopMultipartFile}在读取时已经检查过，直接返回其拒绝原因
+	 * 
+	 * @param multipartFile
+	 * @return 不满足要求的原因，满足时返回null
+	 */
+	private String checkMultipartFile(MultipartFile multipartFile) {
+		if (multipartFile instanceof RopMultipartFile) {
+			return ((RopMultipartFile) multipartFile).getRejectMessage();
+		}
+		String filename = multipartFile.getOriginalFilename();
+		String fileType = RopMultipartResolver.getFileType(filename == null ? "" : filename,
+				multipartFile.getContentType());
+		if (!fileUploadController.isAllowFileType(fileType)) {
+			return "FILE_TYPE_NOT_ALLOW:the valid file types is:" + fileUploadController.getAllowFileTypes();
+		}
+		if (multipartFile.getSize() > Integer.MAX_VALUE
+				|| fileUploadController.isExceedMaxSize((int) multipartFile.getSize())) {
+			return "EXCEED_MAX_SIZE:" + fileUploadController.getMaxSize() + "k";
+		}
+		return null;
+	}
+
 	public void setInvokeTimesController(InvokeTimesController invokeTimesController) {
 		this.invokeTimesController = invokeTimesController;
 	}
@@ -317,6 +406,10 @@ public class DefaultSecurityManager implements SecurityManager {
 			}
 			return null;
 		}
+		// 批量调用的子调用，签名已在批量请求中校验
+		if (isBatchCall(context)) {
+			return null;
+		}
 		Locale locale = context.getLocale();
 		String signKey = SystemParameterNames.getSign();
 		// 系统级签名开启,且服务方法需求签名
@@ -340,6 +433,27 @@ public class DefaultSecurityManager implements SecurityManager {
 		}
 	}
 
+	/**
+	 * 业务参数以请求体发送时，签名只覆盖系统级参数及请求体摘要参数，因此需要检查实际收到的请求体的摘要与摘要参数是否一致
+	 *
+	 * @param context
+	 * @return
+	 */
+	private MainError checkBodyDigest(RopRequestContext context) {
+		String bodyDigest = (String) context.getAttribute(SimpleRopRequestContext.BODY_DIGEST_ATTRNAME);
+		if (bodyDigest == null || !context.isSignEnable() || context.getServiceMethodDefinition().isIgnoreSign()) {
+			return null;
+		}
+		if (!bodyDigest.equalsIgnoreCase(context.getParamValue(SystemParameterNames.getBodyDigest()))) {
+			if (logger.isErrorEnabled()) {
+				logger.error(context.getAppKey() + "的请求体摘要不合法，请检查");
+			}
+			return MainErrors.getError(MainErrorType.INVALID_SIGNATURE, context.getLocale(), context.getMethod(),
+					context.getVersion());
+		}
+		return null;
+	}
+
 	/**
 	 * 是否是合法的会话
 	 *
@@ -357,7 +471,8 @@ public class DefaultSecurityManager implements SecurityManager {
 			return MainErrors.getError(MainErrorType.MISSING_SESSION, context.getLocale(), context.getMethod(),
 					context.getVersion(), SystemParameterNames.getSessionId());
 		} else {
-			if (!isValidSession(context)) {
+			// 批量调用的子调用，会话已在批量请求中校验
+			if (!isBatchCall(context) && !isValidSession(context)) {
 				return MainErrors.getError(MainErrorType.INVALID_SESSION, context.getLocale(), context.getMethod(),
 						context.getVersion(), context.getSessionId());
 			}
@@ -365,6 +480,10 @@ public class DefaultSecurityManager implements SecurityManager {
 		return null;
 	}
 
+	private boolean isBatchCall(RopRequestContext context) {
+		return Boolean.TRUE.equals(context.getAttribute(SimpleRopRequestContext.BATCH_CALL_ATTRNAME));
+	}
+
 	private boolean isValidSession(RopRequestContext smc) {
 		if (sessionManager.getSession(smc.getSessionId()) == null) {
 			if (logger.isDebugEnabled()) {
@@ -46,6 +46,15 @@ public interface SecurityManager {
      */
     MainError validateOther(RopRequestContext ropRequestContext);
 
+    /**
+     * 对批量调用的请求进行一次性检查：应用键、会话、签名及报文格式，
+     * 通过检查后，各子调用不再重复进行签名和会话的校验
+     *
+     * @param ropRequestContext
+     * @return
+     */
+    MainError validateBatchParameters(RopRequestContext ropRequestContext);
+
     /**
      * 获取安全管理器
      *
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2012-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.rop.compress;
+
+import org.apache.commons.io.IOUtils;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import static org.testng.Assert.*;
+
+/**
+ * <pre>
+ * 功能说明：
+ * </pre>
+ *
+ * @author 陈雄华
+ * @version 1.0
+ */
+public class CompressionOutputStreamTest {
+
+    private static byte[] content(int size) {
+        StringBuilder sb = new StringBuilder();
+        while (sb.length() < size) {
+            sb.append("<user><userName>tom</userName><salary>2500.0</salary></user>");
+        }
+        return sb.substring(0, size).getBytes();
+    }
+
+    @Test
+    public void testBelowThreshold() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        DeflaterPool pool = new DeflaterPool(Deflater.DEFAULT_COMPRESSION, true);
+        CompressionOutputStream out = new CompressionOutputStream(response, CompressionOutputStream.GZIP, pool, 1024);
+        byte[] bytes = content(100);
+        out.write(bytes);
+        out.close();
+        assertFalse(out.isCompressed());
+        assertNull(response.getHeader(CompressionOutputStream.CONTENT_ENCODING));
+        assertEquals(response.getContentAsByteArray(), bytes);
+        assertEquals(response.getContentLength(), 100);
+    }
+
+    @Test
+    public void testGzip() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        DeflaterPool pool = new DeflaterPool(Deflater.DEFAULT_COMPRESSION, true);
+        CompressionOutputStream out = new CompressionOutputStream(response, CompressionOutputStream.GZIP, pool, 1024);
+        byte[] bytes = content(50000);
+        //分多次写入，跨越阈值
+        out.write(bytes, 0, 1000);
+        out.write(bytes, 1000, bytes.length - 1000);
+        out.close();
+        assertTrue(out.isCompressed());
+        assertEquals(response.getHeader(CompressionOutputStream.CONTENT_ENCODING), "gzip");
+        assertTrue(response.getContentAsByteArray().length < bytes.length);
+        byte[] inflated = IOUtils.toByteArray(new GZIPInputStream(new ByteArrayInputStream(response.getContentAsByteArray())));
+        assertEquals(inflated, bytes);
+
+        //Deflater归还后可以再次使用
+        response = new MockHttpServletResponse();
+        out = new CompressionOutputStream(response, CompressionOutputStream.GZIP, pool, 1024);
+        out.write(bytes);
+        out.close();
+        inflated = IOUtils.toByteArray(new GZIPInputStream(new ByteArrayInputStream(response.getContentAsByteArray())));
+        assertEquals(inflated, bytes);
+    }
+
+    @Test
+    public void testDeflate() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        DeflaterPool pool = new DeflaterPool(Deflater.BEST_SPEED, false);
+        CompressionOutputStream out = new CompressionOutputStream(response, CompressionOutputStream.DEFLATE, pool, 0);
+        byte[] bytes = content(3000);
+        out.write(bytes);
+        out.close();
+        assertEquals(response.getHeader(CompressionOutputStream.CONTENT_ENCODING), "deflate");
+        byte[] inflated = IOUtils.toByteArray(new InflaterInputStream(new ByteArrayInputStream(response.getContentAsByteArray())));
+        assertEquals(inflated, bytes);
+    }
+
+    @Test
+    public void testAbort() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        DeflaterPool pool = new DeflaterPool(Deflater.DEFAULT_COMPRESSION, true);
+        CompressionOutputStream out = new CompressionOutputStream(response, CompressionOutputStream.GZIP, pool, 1024);
+        out.write(content(100));
+        out.abort();
+        //未超过阈值的报文被丢弃，不会输出
+        assertEquals(response.getContentAsByteArray().length, 0);
+        out.close();
+        assertEquals(response.getContentAsByteArray().length, 0);
+
+        response = new MockHttpServletResponse();
+        out = new CompressionOutputStream(response, CompressionOutputStream.GZIP, pool, 1024);
+        out.write(content(50000));
+        int written = response.getContentAsByteArray().length;
+        out.abort();
+        out.close();
+        //不再输出剩余的压缩数据及gzip尾部
+        assertEquals(response.getContentAsByteArray().length, written);
+    }
+
+    @Test
+    public void testNegotiateEncoding() {
+        assertNull(CompressionOutputStream.negotiateEncoding(null));
+        assertNull(CompressionOutputStream.negotiateEncoding("identity"));
+        assertEquals(CompressionOutputStream.negotiateEncoding("gzip"), "gzip");
+        assertEquals(CompressionOutputStream.negotiateEncoding("deflate, gzip"), "gzip");
+        assertEquals(CompressionOutputStream.negotiateEncoding("gzip;q=0.5, deflate"), "deflate");
+        assertEquals(CompressionOutputStream.negotiateEncoding("gzip;q=0, deflate;q=0.3"), "deflate");
+        assertNull(CompressionOutputStream.negotiateEncoding("gzip;q=0, deflate;q=0"));
+        assertEquals(CompressionOutputStream.negotiateEncoding("*"), "gzip");
+        assertEquals(CompressionOutputStream.negotiateEncoding("gzip;q=0, *"), "deflate");
+    }
+}
@@ -0,0 +1,116 @@
+/**
+ * Copyright 2012-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.rop.impl;
+
+import org.testng.annotations.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.testng.Assert.*;
+
+/**
+ * <pre>
+ * 功能说明：
+ * </pre>
+ *
+ * @author 陈雄华
+ * @version 1.0
+ */
+public class AsyncServiceResultsTest {
+
+    private static class RecordingCallback implements AsyncServiceResults.Callback {
+
+        private final CountDownLatch latch = new CountDownLatch(1);
+        private final AtomicReference<Object> result = new AtomicReference<Object>();
+        private final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        private volatile Thread thread;
+
+        public void onSuccess(Object result) {
+            this.result.set(result);
+            this.thread = Thread.currentThread();
+            latch.countDown();
+        }
+
+        public void onFailure(Throwable e) {
+            this.failure.set(e);
+            this.thread = Thread.currentThread();
+            latch.countDown();
+        }
+    }
+
+    @Test
+    public void testIsAsync() {
+        assertTrue(AsyncServiceResults.isAsync(new CompletableFuture<Object>()));
+        assertFalse(AsyncServiceResults.isAsync("response"));
+        assertFalse(AsyncServiceResults.isAsync(null));
+    }
+
+    @Test
+    public void testCompletedLater() throws Exception {
+        final CompletableFuture<Object> future = new CompletableFuture<Object>();
+        RecordingCallback callback = new RecordingCallback();
+        AsyncServiceResults.whenComplete(future, callback);
+        assertEquals(callback.latch.getCount(), 1);
+
+        Thread completer = new Thread(new Runnable() {
+            public void run() {
+                future.complete("response");
+            }
+        });
+        completer.start();
+        assertTrue(callback.latch.await(5, TimeUnit.SECONDS));
+        assertEquals(callback.result.get(), "response");
+        assertSame(callback.thread, completer);
+    }
+
+    @Test
+    public void testAlreadyCompleted() {
+        RecordingCallback callback = new RecordingCallback();
+        AsyncServiceResults.whenComplete(CompletableFuture.completedFuture("response"), callback);
+        assertEquals(callback.latch.getCount(), 0);
+        assertSame(callback.thread, Thread.currentThread());
+    }
+
+    @Test
+    public void testFailureUnwrapped() {
+        IllegalStateException cause = new IllegalStateException("failed");
+        CompletableFuture<Object> future = new CompletableFuture<Object>();
+        RecordingCallback callback = new RecordingCallback();
+        AsyncServiceResults.whenComplete(future, callback);
+        future.completeExceptionally(new CompletionException(cause));
+        assertSame(callback.failure.get(), cause);
+        assertNull(callback.result.get());
+    }
+
+    @Test
+    public void testCancel() {
+        CompletableFuture<Object> future = new CompletableFuture<Object>();
+        RecordingCallback callback = new RecordingCallback();
+        AsyncServiceResults.whenComplete(future, callback);
+        AsyncServiceResults.cancel(future);
+        assertTrue(future.isCancelled());
+        assertNotNull(callback.failure.get());
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testNotAsync() {
+        AsyncServiceResults.whenComplete("response", new RecordingCallback());
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2012-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.rop.impl;
+
+import com.rop.config.SystemParameterNames;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.testng.annotations.Test;
+
+import java.util.List;
+
+import static org.testng.Assert.*;
+
+/**
+ * <pre>
+ * 功能说明：
+ * </pre>
+ *
+ * @author 陈雄华
+ * @version 1.0
+ */
+public class BatchCallTest {
+
+    @Test
+    public void testParse() {
+        List<BatchCall> calls = BatchCall.parse("[{\"method\":\"user.get\",\"v\":\"1.0\",\"params\":{\"userId\":\"1\",\"age\":20," +
+                "\"address\":{\"zoneCode\":\"0001\"}}},{\"method\":\"user.list\",\"v\":\"2.0\"}]");
+        assertEquals(calls.size(), 2);
+        assertEquals(calls.get(0).getMethod(), "user.get");
+        assertEquals(calls.get(0).getVersion(), "1.0");
+        assertEquals(calls.get(0).getParams().get("userId"), "1");
+        assertEquals(calls.get(0).getParams().get("age"), "20");
+        assertEquals(calls.get(0).getParams().get("address"), "{\"zoneCode\":\"0001\"}");
+        assertTrue(calls.get(1).getParams().isEmpty());
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testParseWithoutMethod() {
+        BatchCall.parse("[{\"v\":\"1.0\"}]");
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testParseInvalidJson() {
+        BatchCall.parse("{\"method\":");
+    }
+
+    @Test
+    public void testBatchCallServletRequest() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setParameter(SystemParameterNames.getAppKey(), "00001");
+        request.setParameter(SystemParameterNames.getSessionId(), "mockSessionId1");
+        request.setParameter(SystemParameterNames.getMethod(), "rop.batch");
+        request.setParameter(SystemParameterNames.getSign(), "sign");
+        request.setParameter(SystemParameterNames.getCalls(), "[]");
+        BatchCall call = BatchCall.parse("[{\"method\":\"user.get\",\"v\":\"1.0\"," +
+                "\"params\":{\"userId\":\"1\",\"appKey\":\"00002\",\"sign\":\"x\"}}]").get(0);
+
+        BatchCallServletRequest callRequest = new BatchCallServletRequest(request, call);
+        assertEquals(callRequest.getParameter(SystemParameterNames.getMethod()), "user.get");
+        assertEquals(callRequest.getParameter(SystemParameterNames.getVersion()), "1.0");
+        assertEquals(callRequest.getParameter("userId"), "1");
+        //公共系统级参数不能被子调用覆盖
+        assertEquals(callRequest.getParameter(SystemParameterNames.getAppKey()), "00001");
+        assertEquals(callRequest.getParameter(SystemParameterNames.getSessionId()), "mockSessionId1");
+        assertNull(callRequest.getParameter(SystemParameterNames.getSign()));
+        assertNull(callRequest.getParameter(SystemParameterNames.getCalls()));
+
+        //属性不写入原始请求
+        callRequest.setAttribute("key", "value");
+        assertEquals(callRequest.getAttribute("key"), "value");
+        assertNull(request.getAttribute("key"));
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2012-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.rop.impl;
+
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+/**
+ * <pre>
+ * 功能说明：
+ * </pre>
+ *
+ * @author 陈雄华
+ * @version 1.0
+ */
+public class FileResponseRangeTest {
+
+    @Test
+    public void testParseRange() {
+        assertRange("bytes=0-99", 0, 99);
+        assertRange("bytes=500-", 500, 999);
+        assertRange("bytes=-100", 900, 999);
+        //超出文件长度的结束位置截断到文件末尾
+        assertRange("bytes=900-2000", 900, 999);
+        assertRange("bytes=-2000", 0, 999);
+    }
+
+    private void assertRange(String range, long start, long end) {
+        long[] r = AnnotationServletServiceRouter.parseRange(range, 1000);
+        assertEquals(r.length, 2);
+        assertEquals(r[0], start);
+        assertEquals(r[1], end);
+    }
+
+    @Test
+    public void testIgnoredRange() {
+        assertNull(AnnotationServletServiceRouter.parseRange(null, 1000));
+        assertNull(AnnotationServletServiceRouter.parseRange("items=0-1", 1000));
+        assertNull(AnnotationServletServiceRouter.parseRange("bytes=abc", 1000));
+        assertNull(AnnotationServletServiceRouter.parseRange("bytes=20-10", 1000));
+        //多个区间时返回整个文件
+        assertNull(AnnotationServletServiceRouter.parseRange("bytes=0-1,5-6", 1000));
+    }
+
+    @Test
+    public void testUnsatisfiableRange() {
+        assertEquals(AnnotationServletServiceRouter.parseRange("bytes=1000-", 1000).length, 0);
+        assertEquals(AnnotationServletServiceRouter.parseRange("bytes=-0", 1000).length, 0);
+        assertEquals(AnnotationServletServiceRouter.parseRange("bytes=0-", 0).length, 0);
+    }
+}
@@ -0,0 +1,269 @@
+/*
+ * Copyright 2012-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.rop.impl;
+
+import com.rop.AbstractRopRequest;
+import com.rop.CommonConstant;
+import com.rop.annotation.NeedInSessionType;
+import com.rop.annotation.ServiceMethod;
+import com.rop.annotation.ServiceMethodBean;
+import com.rop.config.SystemParameterNames;
+import com.rop.security.AppSecretManager;
+import com.rop.security.DefaultInvokeTimesController;
+import com.rop.security.DefaultSecurityManager;
+import com.rop.security.MainErrors;
+import com.rop.security.SubErrors;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.springframework.context.ApplicationContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import javax.servlet.http.HttpServletResponse;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.*;
+
+/**
+ * <pre>
+ * 功能说明：服务方法响应的ETag、条件请求、Cache-Control及压缩输出
+ * </pre>
+ *
+ * @author 陈雄华
+ * @version 1.0
+ */
+public class ResponseCachingTest {
+
+    private AnnotationServletServiceRouter router;
+
+    public static class UserRequest extends AbstractRopRequest {
+    }
+
+    @ServiceMethodBean
+    public static class CachingService {
+
+        @ServiceMethod(method = "cache.user.get", version = "1.0", needInSession = NeedInSessionType.NO, etag = true)
+        public Object getUser(UserRequest request) {
+            return user();
+        }
+
+        @ServiceMethod(method = "cache.user.version", version = "1.0", needInSession = NeedInSessionType.NO)
+        public Object getUserByVersion(UserRequest request) {
+            request.getRopRequestContext().setAttribute(SimpleRopRequestContext.ETAG_ATTRNAME, "v1");
+            return user();
+        }
+
+        @ServiceMethod(method = "cache.user.cached", version = "1.0", needInSession = NeedInSessionType.NO,
+                cacheMaxAge = 60)
+        public Object getCachedUser(UserRequest request) {
+            return user();
+        }
+
+        @ServiceMethod(method = "cache.user.broken", version = "1.0", needInSession = NeedInSessionType.NO)
+        public Object getBrokenUser(UserRequest request) {
+            return brokenUser(3000);
+        }
+
+        @ServiceMethod(method = "cache.user.brokenLarge", version = "1.0", needInSession = NeedInSessionType.NO)
+        public Object getLargeBrokenUser(UserRequest request) {
+            return brokenUser(100000);
+        }
+
+        //超过压缩阈值后才序列化失败的响应
+        private Map<String, Object> brokenUser(int paddingSize) {
+            Random random = new Random(1);
+            StringBuilder padding = new StringBuilder(paddingSize);
+            for (int i = 0; i < paddingSize; i++) {
+                padding.append((char) ('a' + random.nextInt(26)));
+            }
+            Map<String, Object> user = user();
+            user.put("padding", padding.toString());
+            user.put("broken", new BrokenBean());
+            return user;
+        }
+
+        private Map<String, Object> user() {
+            Map<String, Object> user = new LinkedHashMap<String, Object>();
+            user.put("userName", "tom");
+            user.put("salary", 2500.0);
+            return user;
+        }
+    }
+
+    public static class BrokenBean {
+
+        public String getName() {
+            throw new IllegalStateException("broken");
+        }
+    }
+
+    @BeforeClass
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public void startRouter() {
+        ApplicationContext context = mock(ApplicationContext.class);
+        when(context.getBeanNamesForType(any(Class.class))).thenReturn(new String[]{"cachingService"});
+        when(context.getType("cachingService")).thenReturn((Class) CachingService.class);
+        when(context.getBean("cachingService")).thenReturn(new CachingService());
+
+        AppSecretManager appSecretManager = mock(AppSecretManager.class);
+        when(appSecretManager.isValidAppKey(anyString())).thenReturn(true);
+        DefaultSecurityManager securityManager = new DefaultSecurityManager();
+        securityManager.setAppSecretManager(appSecretManager);
+        securityManager.setInvokeTimesController(new DefaultInvokeTimesController());
+
+        router = new AnnotationServletServiceRouter();
+        router.setApplicationContext(context);
+        router.setSignEnable(false);
+        router.setSecurityManager(securityManager);
+        router.setCompressionEnable(true);
+        router.setThreadPoolExecutor(new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>()));
+        router.startup();
+    }
+
+    @AfterClass
+    public void shutdownRouter() {
+        router.shutdown();
+        //路由器启动时设置了全局的错误消息源，避免影响其它测试
+        MainErrors.setErrorMessageSourceAccessor(null);
+        SubErrors.setErrorMessageSourceAccessor(null);
+    }
+
+    private MockHttpServletRequest request(String httpMethod, String method) {
+        MockHttpServletRequest request = new MockHttpServletRequest(httpMethod, "/router");
+        request.setParameter(SystemParameterNames.getAppKey(), "00001");
+        request.setParameter(SystemParameterNames.getMethod(), method);
+        request.setParameter(SystemParameterNames.getVersion(), "1.0");
+        request.setParameter(SystemParameterNames.getFormat(), "json");
+        return request;
+    }
+
+    private MockHttpServletResponse service(MockHttpServletRequest request) {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        router.service(request, response);
+        return response;
+    }
+
+    @Test
+    public void testBodyHashEtag() throws Exception {
+        MockHttpServletResponse response = service(request("GET", "cache.user.get"));
+        assertEquals(response.getStatus(), HttpServletResponse.SC_OK);
+        byte[] body = response.getContentAsByteArray();
+        assertTrue(body.length > 0);
+        assertEquals(response.getHeader(AnnotationServletServiceRouter.ETAG), "\"" + DigestUtils.md5Hex(body) + "\"");
+        assertEquals(response.getHeader(AnnotationServletServiceRouter.CACHE_CONTROL), "no-cache");
+    }
+
+    @Test
+    public void testVersionEtag() throws Exception {
+        MockHttpServletResponse response = service(request("GET", "cache.user.version"));
+        assertEquals(response.getStatus(), HttpServletResponse.SC_OK);
+        assertTrue(response.getContentAsByteArray().length > 0);
+        //服务提供版本号时以版本号生成ETag，不对报文进行摘要
+        assertEquals(response.getHeader(AnnotationServletServiceRouter.ETAG),
+                "\"" + DigestUtils.md5Hex("v1|JSON|null") + "\"");
+    }
+
+    @Test
+    public void testNotModified() throws Exception {
+        String etag = service(request("GET", "cache.user.get")).getHeader(AnnotationServletServiceRouter.ETAG);
+        assertNotNull(etag);
+
+        MockHttpServletRequest request = request("GET", "cache.user.get");
+        request.addHeader(AnnotationServletServiceRouter.IF_NONE_MATCH, etag);
+        MockHttpServletResponse response = service(request);
+        assertEquals(response.getStatus(), HttpServletResponse.SC_NOT_MODIFIED);
+        assertEquals(response.getContentAsByteArray().length, 0);
+        assertEquals(response.getHeader(AnnotationServletServiceRouter.ETAG), etag);
+
+        //不匹配时返回完整的报文
+        request = request("GET", "cache.user.get");
+        request.addHeader(AnnotationServletServiceRouter.IF_NONE_MATCH, "\"other\"");
+        response = service(request);
+        assertEquals(response.getStatus(), HttpServletResponse.SC_OK);
+        assertTrue(response.getContentAsByteArray().length > 0);
+    }
+
+    @Test
+    public void testWeakEtagWhenCompressed() throws Exception {
+        String etag = service(request("GET", "cache.user.get")).getHeader(AnnotationServletServiceRouter.ETAG);
+
+        MockHttpServletRequest request = request("GET", "cache.user.get");
+        request.addHeader("Accept-Encoding", "gzip");
+        MockHttpServletResponse response = service(request);
+        //压缩后的报文与未压缩的报文语义相同，使用弱ETag
+        assertEquals(response.getHeader(AnnotationServletServiceRouter.ETAG), "W/" + etag);
+
+        //弱ETag与强ETag按弱比较匹配
+        request = request("GET", "cache.user.get");
+        request.addHeader("Accept-Encoding", "gzip");
+        request.addHeader(AnnotationServletServiceRouter.IF_NONE_MATCH, etag);
+        assertEquals(service(request).getStatus(), HttpServletResponse.SC_NOT_MODIFIED);
+    }
+
+    @Test
+    public void testCacheControlMaxAge() throws Exception {
+        MockHttpServletResponse response = service(request("GET", "cache.user.cached"));
+        assertEquals(response.getStatus(), HttpServletResponse.SC_OK);
+        assertEquals(response.getHeader(AnnotationServletServiceRouter.CACHE_CONTROL), "public, max-age=60");
+        assertNull(response.getHeader(AnnotationServletServiceRouter.ETAG));
+    }
+
+    @Test
+    public void testNoEtagForPost() throws Exception {
+        MockHttpServletRequest request = request("POST", "cache.user.get");
+        request.addHeader(AnnotationServletServiceRouter.IF_NONE_MATCH, "*");
+        MockHttpServletResponse response = service(request);
+        //非GET、HEAD请求不生成ETag，也不处理条件请求
+        assertEquals(response.getStatus(), HttpServletResponse.SC_OK);
+        assertTrue(response.getContentAsByteArray().length > 0);
+        assertNull(response.getHeader(AnnotationServletServiceRouter.ETAG));
+    }
+
+    @Test
+    public void testCompressionFailureBeforeCommit() throws Exception {
+        MockHttpServletRequest request = request("GET", "cache.user.broken");
+        request.addHeader("Accept-Encoding", "gzip");
+        MockHttpServletResponse response = service(request);
+        //响应未提交时丢弃已压缩的内容，改为输出未压缩的错误报文
+        assertNull(response.getHeader("Content-Encoding"));
+        assertEquals(response.getHeader(CommonConstant.ERROR_HEADER), "true");
+        assertTrue(response.getContentAsString().startsWith("{"));
+    }
+
+    @Test
+    public void testCompressionFailureAfterCommit() throws Exception {
+        MockHttpServletRequest request = request("GET", "cache.user.brokenLarge");
+        request.addHeader("Accept-Encoding", "gzip");
+        MockHttpServletResponse response = service(request);
+        //响应已提交时只能中止输出，不能在压缩报文之后追加错误报文
+        assertTrue(response.isCommitted());
+        assertEquals(response.getHeader("Content-Encoding"), "gzip");
+        assertNull(response.getHeader(CommonConstant.ERROR_HEADER));
+        assertFalse(response.getContentAsString().contains("\"code\""));
+    }
+}
@@ -0,0 +1,105 @@
+/**
+ * Copyright 2012-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.rop.impl;
+
+import com.rop.ServiceMethodDefinition;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+/**
+ * <pre>
+ * 功能说明：
+ * </pre>
+ *
+ * @author 陈雄华
+ * @version 1.0
+ */
+public class ServiceCircuitBreakerTest {
+
+    @Test
+    public void testCreate() {
+        ServiceMethodDefinition definition = new ServiceMethodDefinition();
+        definition.setMethod("user.get");
+        definition.setVersion("1.0");
+        assertNull(ServiceCircuitBreaker.create(definition));
+        definition.setBreakerFailureRate(50);
+        ServiceCircuitBreaker circuitBreaker = ServiceCircuitBreaker.create(definition);
+        assertNotNull(circuitBreaker);
+        assertEquals(circuitBreaker.getName(), "user.get#1.0");
+    }
+
+    @Test
+    public void testOpenAndRecover() throws Exception {
+        ServiceCircuitBreaker circuitBreaker = new ServiceCircuitBreaker("user.get#1.0", 50, 4, 0);
+        for (int i = 0; i < 3; i++) {
+            assertTrue(circuitBreaker.tryAcquire());
+            circuitBreaker.onComplete(i > 0);
+        }
+        assertEquals(circuitBreaker.getState(), ServiceCircuitBreaker.State.CLOSED);
+        assertTrue(circuitBreaker.tryAcquire());
+        circuitBreaker.onComplete(false);
+        //4次调用中2次失败，达到50%
+        assertEquals(circuitBreaker.getState(), ServiceCircuitBreaker.State.OPEN);
+
+        //熔断期满后只放行一个探测请求
+        assertTrue(circuitBreaker.tryAcquire());
+        assertEquals(circuitBreaker.getState(), ServiceCircuitBreaker.State.HALF_OPEN);
+        assertFalse(circuitBreaker.tryAcquire());
+        assertEquals(circuitBreaker.getRejectedCount(), 1);
+        circuitBreaker.onComplete(true);
+        assertEquals(circuitBreaker.getState(), ServiceCircuitBreaker.State.OPEN);
+
+        //没有执行服务方法的探测请求不影响状态
+        assertTrue(circuitBreaker.tryAcquire());
+        circuitBreaker.release();
+        assertTrue(circuitBreaker.tryAcquire());
+        circuitBreaker.onComplete(false);
+        assertEquals(circuitBreaker.getState(), ServiceCircuitBreaker.State.CLOSED);
+        assertEquals(circuitBreaker.getFailureRate(), 0f);
+    }
+
+    @Test
+    public void testWindowSize() {
+        //至少2次调用才计算失败率，只统计最近4次调用
+        ServiceCircuitBreaker circuitBreaker = new ServiceCircuitBreaker("user.get#1.0", 75, 2, 4, 60);
+        circuitBreaker.onComplete(true);
+        assertEquals(circuitBreaker.getState(), ServiceCircuitBreaker.State.CLOSED);
+        circuitBreaker.onComplete(false);
+        circuitBreaker.onComplete(false);
+        circuitBreaker.onComplete(true);
+        circuitBreaker.onComplete(true);
+        //窗口中为[false, false, true, true]，最早的失败已移出窗口
+        assertEquals(circuitBreaker.getFailureRate(), 50f);
+        assertEquals(circuitBreaker.getState(), ServiceCircuitBreaker.State.CLOSED);
+        circuitBreaker.onComplete(true);
+        assertEquals(circuitBreaker.getState(), ServiceCircuitBreaker.State.OPEN);
+    }
+
+    @Test
+    public void testOpenRejects() {
+        ServiceCircuitBreaker circuitBreaker = new ServiceCircuitBreaker("user.get#1.0", 100, 2, 60);
+        assertTrue(circuitBreaker.tryAcquire());
+        circuitBreaker.onComplete(true);
+        assertTrue(circuitBreaker.tryAcquire());
+        circuitBreaker.onComplete(true);
+        assertEquals(circuitBreaker.getState(), ServiceCircuitBreaker.State.OPEN);
+        for (int i = 0; i < 5; i++) {
+            assertFalse(circuitBreaker.tryAcquire());
+        }
+        assertEquals(circuitBreaker.getRejectedCount(), 5);
+    }
+}
@@ -0,0 +1,121 @@
+/**
+ * Copyright 2012-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.rop.impl;
+
+import com.rop.CommonConstant;
+import org.springframework.context.ApplicationContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import com.rop.security.MainErrors;
+import com.rop.security.SubErrors;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.*;
+
+/**
+ * <pre>
+ * 功能说明：
+ * </pre>
+ *
+ * @author 陈雄华
+ * @version 1.0
+ */
+public class ServiceRouterDrainTest {
+
+    @AfterMethod
+    public void resetErrorMessageSource() {
+        //路由器启动时设置了全局的错误消息源，避免影响其它测试
+        MainErrors.setErrorMessageSourceAccessor(null);
+        SubErrors.setErrorMessageSourceAccessor(null);
+    }
+
+    private AnnotationServletServiceRouter startRouter(ThreadPoolExecutor threadPoolExecutor) {
+        ApplicationContext context = mock(ApplicationContext.class);
+        when(context.getBeanNamesForType(any(Class.class))).thenReturn(new String[0]);
+        AnnotationServletServiceRouter router = new AnnotationServletServiceRouter();
+        router.setApplicationContext(context);
+        router.setThreadPoolExecutor(threadPoolExecutor);
+        router.startup();
+        return router;
+    }
+
+    @Test
+    public void testDrainCompleted() throws Exception {
+        ThreadPoolExecutor threadPoolExecutor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>());
+        AnnotationServletServiceRouter router = startRouter(threadPoolExecutor);
+        final CountDownLatch latch = new CountDownLatch(1);
+        threadPoolExecutor.execute(new Runnable() {
+            public void run() {
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                latch.countDown();
+            }
+        });
+        DrainReport drainReport = router.drain(5000);
+        assertTrue(drainReport.isCompleted());
+        assertEquals(latch.getCount(), 0);
+        assertTrue(threadPoolExecutor.isTerminated());
+    }
+
+    @Test
+    public void testDrainAbandoned() throws Exception {
+        ThreadPoolExecutor threadPoolExecutor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>());
+        AnnotationServletServiceRouter router = startRouter(threadPoolExecutor);
+        final CountDownLatch started = new CountDownLatch(1);
+        Runnable slowTask = new Runnable() {
+            public void run() {
+                started.countDown();
+                try {
+                    Thread.sleep(10000);
+                } catch (InterruptedException e) {
+                    //关闭时被中断
+                }
+            }
+        };
+        threadPoolExecutor.execute(slowTask);
+        threadPoolExecutor.execute(slowTask);
+        started.await(5, TimeUnit.SECONDS);
+
+        DrainReport drainReport = router.drain(100);
+        assertFalse(drainReport.isCompleted());
+        assertEquals(drainReport.getInterruptedTasks(), 1);
+        assertEquals(drainReport.getAbandonedTasks(), 1);
+        assertEquals(drainReport.getAbandonedTasksByAppKey().get(""), Integer.valueOf(1));
+        assertTrue(router.isDraining());
+
+        //关闭期间的请求直接被拒绝
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setParameter("method", "user.get");
+        request.setParameter("v", "1.0");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        router.service(request, response);
+        assertEquals(response.getHeader(CommonConstant.REJECTED_HEADER), "true");
+    }
+}
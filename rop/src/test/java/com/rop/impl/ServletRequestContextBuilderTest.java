@@ -19,6 +19,7 @@ import com.rop.MessageFormat;
 import com.rop.RopContext;
 import com.rop.ServiceMethodHandler;
 import com.rop.config.SystemParameterNames;
+import com.rop.utils.RopUtils;
 
 import org.springframework.format.support.FormattingConversionService;
 import org.springframework.mock.web.MockHttpServletRequest;
@@ -29,6 +30,8 @@ import java.util.Locale;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertNotNull;
+import static org.testng.AssertJUnit.assertNull;
 
 /**
  * <pre>
@@ -159,6 +162,77 @@ public class ServletRequestContextBuilderTest {
                 requestContextBuilder.buildBySysParams(ropContext, new MockHttpServletRequest(), null);
     }
 
+    /**
+     * 业务参数以JSON请求体发送时，直接解析为请求对象并计算请求体摘要
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testBuildRopRequestFromBody() throws Exception {
+        FormattingConversionService conversionService = mock(FormattingConversionService.class);
+        ServletRequestContextBuilder requestContextBuilder = new ServletRequestContextBuilder(conversionService);
+
+        RopContext ropContext = mock(RopContext.class);
+        ServiceMethodHandler methodHandler = mock(ServiceMethodHandler.class);
+        when(methodHandler.getHandlerMethod()).thenReturn(getClass().getDeclaredMethod("createUser", CreateUserRequest.class));
+        when(ropContext.getServiceMethodHandler("user.add", "1.0")).thenReturn(methodHandler);
+
+        String body = "{\"userName\":\"tomson\",\"address\":{\"zoneCode\":\"0592\",\"doorCode\":\"002\"}}";
+        MockHttpServletRequest servletRequest = new MockHttpServletRequest("POST", "/router");
+        servletRequest.setParameter(SystemParameterNames.getMethod(), "user.add");
+        servletRequest.setParameter(SystemParameterNames.getVersion(), "1.0");
+        servletRequest.setContentType("application/json;charset=UTF-8");
+        servletRequest.setContent(body.getBytes("UTF-8"));
+
+        SimpleRopRequestContext requestContext = requestContextBuilder.buildBySysParams(ropContext, servletRequest, null);
+        Object[] args = (Object[]) requestContextBuilder.buildRopRequest(requestContext);
+        CreateUserRequest request = (CreateUserRequest) args[0];
+        assertEquals(request.getUserName(), "tomson");
+        assertEquals(request.getAddress().getZoneCode(), "0592");
+        assertNull(requestContext.getAttribute(SimpleRopRequestContext.SPRING_VALIDATE_ERROR_ATTRNAME));
+        assertEquals(requestContext.getAttribute(SimpleRopRequestContext.BODY_DIGEST_ATTRNAME),
+                RopUtils.byte2hex(RopUtils.newBodyDigest().digest(body.getBytes("UTF-8"))));
+
+        //请求体中的数据同样需要通过JSR 303校验
+        servletRequest.setContent("{\"userName\":\"t\"}".getBytes("UTF-8"));
+        requestContext = requestContextBuilder.buildBySysParams(ropContext, servletRequest, null);
+        requestContextBuilder.buildRopRequest(requestContext);
+        assertNotNull(requestContext.getAttribute(SimpleRopRequestContext.SPRING_VALIDATE_ERROR_ATTRNAME));
+    }
+
+    @Test
+    public void testGetRequestBodyFormat() {
+        MockHttpServletRequest servletRequest = new MockHttpServletRequest("POST", "/router");
+        assertNull(ServletRequestContextBuilder.getRequestBodyFormat(servletRequest));
+        servletRequest.setContentType("application/x-www-form-urlencoded");
+        assertNull(ServletRequestContextBuilder.getRequestBodyFormat(servletRequest));
+        servletRequest.setContentType("Application/JSON; charset=UTF-8");
+        assertEquals(ServletRequestContextBuilder.getRequestBodyFormat(servletRequest), MessageFormat.JSON);
+        servletRequest.setContentType("text/xml");
+        assertEquals(ServletRequestContextBuilder.getRequestBodyFormat(servletRequest), MessageFormat.XML);
+        servletRequest.setContentType("application/x-jackson-smile");
+        assertEquals(ServletRequestContextBuilder.getRequestBodyFormat(servletRequest), MessageFormat.SMILE);
+    }
+
+    @Test
+    public void testGetResponseFormat() {
+        MockHttpServletRequest servletRequest = new MockHttpServletRequest("GET", "/router");
+        assertEquals(ServletRequestContextBuilder.getResponseFormat(servletRequest), MessageFormat.XML);
+        servletRequest.addHeader("Accept", "text/html, application/json;q=0.8, application/cbor;q=0.9, */*");
+        assertEquals(ServletRequestContextBuilder.getResponseFormat(servletRequest), MessageFormat.CBOR);
+        servletRequest.setParameter(SystemParameterNames.getFormat(), "json");
+        assertEquals(ServletRequestContextBuilder.getResponseFormat(servletRequest), MessageFormat.JSON);
+
+        assertEquals(ServletRequestContextBuilder.negotiateFormat("application/x-jackson-smile, application/json"), MessageFormat.SMILE);
+        assertEquals(ServletRequestContextBuilder.negotiateFormat("application/x-jackson-smile;q=0, application/json"), MessageFormat.JSON);
+        assertEquals(ServletRequestContextBuilder.negotiateFormat("text/html, */*"), MessageFormat.XML);
+    }
+
+    //请求体绑定测试用的服务方法
+    private Object createUser(CreateUserRequest request) {
+        return null;
+    }
+
     @Test
     public void testBindBusinessParams() throws Exception {
 
@@ -0,0 +1,180 @@
+/**
+ * Copyright 2012-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.rop.impl;
+
+import com.rop.config.SystemParameterNames;
+import com.rop.response.StreamingResponse;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.testng.Assert.*;
+
+/**
+ * <pre>
+ * 功能说明：
+ * </pre>
+ *
+ * @author 陈雄华
+ * @version 1.0
+ */
+public class SingleFlightTest {
+
+    @Test
+    public void testConcurrentCallsShareOneInvocation() throws Exception {
+        final SingleFlight singleFlight = new SingleFlight();
+        final AtomicInteger invocations = new AtomicInteger();
+        final CountDownLatch release = new CountDownLatch(1);
+        final Callable<Object> slowCall = new Callable<Object>() {
+            public Object call() throws Exception {
+                invocations.incrementAndGet();
+                release.await(5, TimeUnit.SECONDS);
+                return new Object();
+            }
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(5);
+        try {
+            List<Future<Object>> futures = new ArrayList<Future<Object>>();
+            for (int i = 0; i < 5; i++) {
+                futures.add(executor.submit(new Callable<Object>() {
+                    public Object call() throws Exception {
+                        return singleFlight.execute("user.get", slowCall);
+                    }
+                }));
+            }
+            //等待所有调用都加入
+            long deadline = System.currentTimeMillis() + 5000;
+            while (singleFlight.getSharedCount() < 4 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            release.countDown();
+            Object result = futures.get(0).get();
+            for (Future<Object> future : futures) {
+                assertSame(future.get(), result);
+            }
+            assertEquals(invocations.get(), 1);
+            assertEquals(singleFlight.getInflightCount(), 0);
+
+            //执行结束后再次调用重新执行
+            assertNotSame(singleFlight.execute("user.get", slowCall), result);
+            assertEquals(invocations.get(), 2);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testStreamingResultIsNotShared() throws Exception {
+        final SingleFlight singleFlight = new SingleFlight();
+        final AtomicInteger invocations = new AtomicInteger();
+        final CountDownLatch release = new CountDownLatch(1);
+        final Callable<Object> slowCall = new Callable<Object>() {
+            public Object call() throws Exception {
+                invocations.incrementAndGet();
+                release.await(5, TimeUnit.SECONDS);
+                return new StreamingResponse<String>("users", "user", Arrays.asList("tom", "john"));
+            }
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            List<Future<Object>> futures = new ArrayList<Future<Object>>();
+            for (int i = 0; i < 3; i++) {
+                futures.add(executor.submit(new Callable<Object>() {
+                    public Object call() throws Exception {
+                        return singleFlight.execute("user.list", slowCall);
+                    }
+                }));
+            }
+            long deadline = System.currentTimeMillis() + 5000;
+            while (invocations.get() < 1 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            Thread.sleep(100);
+            release.countDown();
+            Set<Object> results = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+            for (Future<Object> future : futures) {
+                results.add(future.get());
+            }
+            assertEquals(results.size(), 3);
+            assertEquals(invocations.get(), 3);
+            assertEquals(singleFlight.getSharedCount(), 0);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testExceptionIsPropagated() {
+        SingleFlight singleFlight = new SingleFlight();
+        try {
+            singleFlight.execute("user.get", new Callable<Object>() {
+                public Object call() throws Exception {
+                    throw new IllegalStateException("db down");
+                }
+            });
+            fail();
+        } catch (IllegalStateException e) {
+            assertEquals(e.getMessage(), "db down");
+        }
+        assertEquals(singleFlight.getInflightCount(), 0);
+    }
+
+    @Test
+    public void testCreateKey() {
+        Map<String, String> params = new HashMap<String, String>();
+        params.put(SystemParameterNames.getMethod(), "user.get");
+        params.put(SystemParameterNames.getVersion(), "1.0");
+        params.put(SystemParameterNames.getSessionId(), "s1");
+        params.put(SystemParameterNames.getSign(), "A");
+        params.put("a", "bc");
+        String key = SingleFlight.createKey(params, null);
+        String[] ignoreSession = new String[]{SystemParameterNames.getSessionId()};
+        String keyIgnoringSession = SingleFlight.createKey(params, ignoreSession);
+
+        params.put(SystemParameterNames.getSign(), "B");
+        assertEquals(SingleFlight.createKey(params, null), key);
+
+        params.put(SystemParameterNames.getSessionId(), "s2");
+        assertFalse(SingleFlight.createKey(params, null).equals(key));
+        assertEquals(SingleFlight.createKey(params, ignoreSession), keyIgnoringSession);
+
+        //拼接后相同的参数不能得到相同的键
+        Map<String, String> first = new HashMap<String, String>();
+        first.put("a", "bc");
+        Map<String, String> second = new HashMap<String, String>();
+        second.put("ab", "c");
+        assertFalse(SingleFlight.createKey(first, null).equals(SingleFlight.createKey(second, null)));
+
+        //报文体不同的请求不能得到相同的键
+        assertFalse(SingleFlight.createKey(first, "A1", null).equals(SingleFlight.createKey(first, "B2", null)));
+        assertFalse(SingleFlight.createKey(first, "A1", null).equals(SingleFlight.createKey(first, null)));
+        assertEquals(SingleFlight.createKey(first, "A1", null), SingleFlight.createKey(first, "A1", null));
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2012-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.rop.request;
+
+import com.rop.converter.UploadFile;
+import com.rop.security.DefaultFileUploadController;
+import org.apache.commons.io.IOUtils;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.multipart.MultipartException;
+import org.springframework.web.multipart.MultipartHttpServletRequest;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.util.Arrays;
+
+import static org.testng.Assert.*;
+
+/**
+ * <pre>
+ * 功能说明：
+ * </pre>
+ *
+ * @author 陈雄华
+ * @version 1.0
+ */
+public class RopMultipartResolverTest {
+
+    private static final String BOUNDARY = "----RopBoundary7MA4YWxkTrZu0gW";
+
+    private static byte[] content(int size) {
+        byte[] bytes = new byte[size];
+        for (int i = 0; i < size; i++) {
+            bytes[i] = (byte) i;
+        }
+        return bytes;
+    }
+
+    private static MockHttpServletRequest buildRequest(String fileName, byte[] fileContent) throws Exception {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        body.write(("--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"method\"\r\n\r\n"
+                + "user.upload\r\n"
+                + "--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"userName\"\r\n\r\n"
+                + "汤姆\r\n"
+                + "--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"photo\"; filename=\"" + fileName + "\"\r\n"
+                + "Content-Type: application/octet-stream\r\n\r\n").getBytes("utf-8"));
+        body.write(fileContent);
+        body.write(("\r\n--" + BOUNDARY + "--\r\n").getBytes("utf-8"));
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/router");
+        request.setContentType("multipart/form-data; boundary=" + BOUNDARY);
+        request.setCharacterEncoding("utf-8");
+        request.setContent(body.toByteArray());
+        return request;
+    }
+
+    @Test
+    public void testInMemory() throws Exception {
+        RopMultipartResolver resolver = new RopMultipartResolver(new DefaultFileUploadController(10));
+        byte[] bytes = content(1000);
+        MockHttpServletRequest request = buildRequest("photo.png", bytes);
+        assertTrue(resolver.isMultipart(request));
+        MultipartHttpServletRequest multipartRequest = resolver.resolveMultipart(request);
+        assertEquals(multipartRequest.getParameter("method"), "user.upload");
+        assertEquals(multipartRequest.getParameter("userName"), "汤姆");
+
+        RopMultipartFile file = (RopMultipartFile) multipartRequest.getFile("photo");
+        assertFalse(file.isRejected());
+        assertTrue(file.isInMemory());
+        assertEquals(file.getOriginalFilename(), "photo.png");
+        assertEquals(file.getFileType(), "png");
+        assertEquals(file.getBytes(), bytes);
+
+        UploadFile uploadFile = new MultipartFileConverter().convert(file);
+        assertEquals(uploadFile.getFileType(), "png");
+        assertEquals(uploadFile.getContent(), bytes);
+    }
+
+    @Test
+    public void testSpillToTempFile() throws Exception {
+        RopMultipartResolver resolver = new RopMultipartResolver(new DefaultFileUploadController(100));
+        resolver.setMemoryThreshold(1024);
+        byte[] bytes = content(50 * 1024);
+        MultipartHttpServletRequest multipartRequest = resolver.resolveMultipart(buildRequest("data.bin", bytes));
+        RopMultipartFile file = (RopMultipartFile) multipartRequest.getFile("photo");
+        assertFalse(file.isInMemory());
+        File storeLocation = file.getStoreLocation();
+        assertTrue(storeLocation.exists());
+        assertEquals(storeLocation.length(), bytes.length);
+        assertEquals(IOUtils.toByteArray(file.getInputStream()), bytes);
+
+        UploadFile uploadFile = new MultipartFileConverter().convert(file);
+        assertEquals(uploadFile.getSize(), bytes.length);
+        assertEquals(IOUtils.toByteArray(uploadFile.getInputStream()), bytes);
+        assertEquals(uploadFile.getByteBuffer().remaining(), bytes.length);
+
+        resolver.cleanupMultipart(multipartRequest);
+        assertFalse(storeLocation.exists());
+    }
+
+    @Test
+    public void testExceedMaxSize() throws Exception {
+        RopMultipartResolver resolver = new RopMultipartResolver(new DefaultFileUploadController(1));
+        resolver.setMemoryThreshold(512);
+        MultipartHttpServletRequest multipartRequest = resolver.resolveMultipart(buildRequest("photo.png", content(5000)));
+        //文件被拒绝后余下的内容被丢弃，其它参数仍然可以读取
+        assertEquals(multipartRequest.getParameter("userName"), "汤姆");
+        RopMultipartFile file = (RopMultipartFile) multipartRequest.getFile("photo");
+        assertTrue(file.isRejected());
+        assertTrue(file.getRejectMessage().startsWith("EXCEED_MAX_SIZE"));
+        assertNull(file.getStoreLocation());
+        assertNull(new MultipartFileConverter().convert(file));
+    }
+
+    @Test
+    public void testFileTypeNotAllow() throws Exception {
+        RopMultipartResolver resolver = new RopMultipartResolver(
+                new DefaultFileUploadController(Arrays.asList("png", "jpg"), 10));
+        MultipartHttpServletRequest multipartRequest = resolver.resolveMultipart(buildRequest("run.exe", content(100)));
+        RopMultipartFile file = (RopMultipartFile) multipartRequest.getFile("photo");
+        assertTrue(file.isRejected());
+        assertTrue(file.getRejectMessage().startsWith("FILE_TYPE_NOT_ALLOW"));
+    }
+
+    @Test(expectedExceptions = MultipartException.class)
+    public void testTruncatedBody() throws Exception {
+        MockHttpServletRequest request = buildRequest("photo.png", content(100));
+        byte[] body = IOUtils.toByteArray(request.getInputStream());
+        request.setContent(Arrays.copyOf(body, body.length - 20));
+        new RopMultipartResolver().resolveMultipart(request);
+    }
+}
@@ -0,0 +1,202 @@
+/**
+ * Copyright 2012-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.rop.schedule;
+
+import com.rop.annotation.PriorityType;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.Assert.*;
+
+/**
+ * <pre>
+ * 功能说明：
+ * </pre>
+ *
+ * @author 陈雄华
+ * @version 1.0
+ */
+public class WeightedFairQueueTest {
+
+    private static TenantFutureTask<Object> task(String tenant) {
+        return new TenantFutureTask<Object>(new Runnable() {
+            public void run() {
+            }
+        }, null, tenant);
+    }
+
+    private static TenantFutureTask<Object> task(String tenant, PriorityType priority) {
+        return new TenantFutureTask<Object>(new Runnable() {
+            public void run() {
+            }
+        }, null, tenant, priority);
+    }
+
+    private static List<String> drainTenants(WeightedFairQueue queue) {
+        List<String> tenants = new ArrayList<String>();
+        Runnable task;
+        while ((task = queue.poll()) != null) {
+            tenants.add(((TenantAware) task).getTenant());
+        }
+        return tenants;
+    }
+
+    @Test
+    public void testRoundRobinAcrossTenants() {
+        WeightedFairQueue queue = new WeightedFairQueue();
+        for (int i = 0; i < 4; i++) {
+            queue.offer(task("app1"));
+        }
+        queue.offer(task("app2"));
+        queue.offer(task("app2"));
+        assertEquals(queue.size(), 6);
+        //app1的突发请求不会让app2排在所有app1请求之后
+        assertEquals(drainTenants(queue).toString(), "[app1, app2, app1, app2, app1, app1]");
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void testWeights() {
+        WeightedFairQueue queue = new WeightedFairQueue();
+        queue.setWeight("app1", 3);
+        for (int i = 0; i < 6; i++) {
+            queue.offer(task("app1"));
+            queue.offer(task("app2"));
+        }
+        assertEquals(drainTenants(queue).toString(),
+                "[app1, app1, app1, app2, app1, app1, app1, app2, app2, app2, app2, app2]");
+    }
+
+    @Test
+    public void testCapacity() {
+        WeightedFairQueue queue = new WeightedFairQueue(3, 2);
+        assertTrue(queue.offer(task("app1")));
+        assertTrue(queue.offer(task("app1")));
+        assertFalse(queue.offer(task("app1")));
+        assertTrue(queue.offer(task("app2")));
+        assertFalse(queue.offer(task("app3")));
+        assertEquals(queue.remainingCapacity(), 0);
+
+        queue.poll();
+        Map<String, TenantStats> stats = queue.getTenantStats();
+        assertEquals(stats.get("app1").getQueueSize(), 1);
+        assertEquals(stats.get("app1").getDequeuedCount(), 1);
+        assertEquals(stats.get("app1").getRejectedCount(), 1);
+        assertFalse(stats.containsKey("app3"));
+        assertEquals(stats.get("app2").getQueueSize(), 1);
+    }
+
+    @Test
+    public void testEvictIdleTenants() {
+        WeightedFairQueue queue = new WeightedFairQueue();
+        queue.setWeight("app1", 2);
+        for (int i = 0; i < 100; i++) {
+            queue.offer(task("random" + i));
+        }
+        queue.offer(task("app1"));
+        assertEquals(queue.getTenantStats().size(), 101);
+        drainTenants(queue);
+        Map<String, TenantStats> stats = queue.getTenantStats();
+        assertEquals(stats.size(), 1);
+        assertEquals(stats.get("app1").getDequeuedCount(), 1);
+    }
+
+    @Test
+    public void testPriorityLanes() {
+        WeightedFairQueue queue = new WeightedFairQueue();
+        queue.offer(task("low", PriorityType.LOW));
+        queue.offer(task("normal", PriorityType.DEFAULT));
+        queue.offer(task("high1", PriorityType.HIGH));
+        queue.offer(task("high2", PriorityType.HIGH));
+        assertEquals(queue.size(PriorityType.HIGH), 2);
+        assertEquals(queue.size(PriorityType.NORMAL), 1);
+        assertEquals(((TenantAware) queue.peek()).getTenant(), "high1");
+        assertEquals(drainTenants(queue).toString(), "[high1, high2, normal, low]");
+    }
+
+    @Test
+    public void testShedLowPriorityFirst() {
+        WeightedFairQueue queue = new WeightedFairQueue(4, 4);
+        queue.setPriorityCapacity(PriorityType.NORMAL, 3);
+        queue.setPriorityCapacity(PriorityType.LOW, 2);
+        assertTrue(queue.offer(task("app1", PriorityType.LOW)));
+        assertTrue(queue.offer(task("app1", PriorityType.LOW)));
+        assertFalse(queue.offer(task("app1", PriorityType.LOW)));
+        assertTrue(queue.offer(task("app1", PriorityType.NORMAL)));
+        assertFalse(queue.offer(task("app1", PriorityType.NORMAL)));
+        assertTrue(queue.offer(task("app1", PriorityType.HIGH)));
+        assertFalse(queue.offer(task("app1", PriorityType.HIGH)));
+        assertEquals(queue.getRejectedCount(PriorityType.LOW), 1);
+        assertEquals(queue.getRejectedCount(PriorityType.NORMAL), 1);
+        assertEquals(queue.getRejectedCount(PriorityType.HIGH), 1);
+        assertEquals(queue.getTenantStats().get("app1").getRejectedCount(), 3);
+    }
+
+    @Test
+    public void testDefaultTenantAndRemove() {
+        WeightedFairQueue queue = new WeightedFairQueue();
+        Runnable plain = new Runnable() {
+            public void run() {
+            }
+        };
+        TenantFutureTask<Object> task = task("app1");
+        queue.offer(plain);
+        queue.offer(task);
+        assertTrue(queue.getTenantStats().containsKey(WeightedFairQueue.DEFAULT_TENANT));
+        assertTrue(queue.remove(task));
+        assertFalse(queue.remove(task));
+        assertEquals(queue.size(), 1);
+        assertSame(queue.peek(), plain);
+    }
+
+    @Test
+    public void testWithThreadPoolExecutor() throws Exception {
+        FairThreadPoolExecutorFactoryBean factoryBean = new FairThreadPoolExecutorFactoryBean();
+        factoryBean.setCorePoolSize(2);
+        factoryBean.setMaxPoolSize(2);
+        factoryBean.setQueueCapacity(100);
+        factoryBean.setAppWeights("app1:5, app2:1");
+        factoryBean.setPriorityScheduling(true);
+        factoryBean.afterPropertiesSet();
+        ThreadPoolExecutor executor = (ThreadPoolExecutor) factoryBean.getObject();
+        try {
+            WeightedFairQueue queue = (WeightedFairQueue) executor.getQueue();
+            assertEquals(queue.getWeight("app1"), 5);
+            assertEquals(queue.getWeight("app2"), 1);
+            assertEquals(queue.getWeight("app3"), WeightedFairQueue.DEFAULT_WEIGHT);
+            assertEquals(queue.getPriorityCapacity(PriorityType.HIGH), 100);
+            assertEquals(queue.getPriorityCapacity(PriorityType.NORMAL), 80);
+            assertEquals(queue.getPriorityCapacity(PriorityType.LOW), 50);
+
+            List<TenantFutureTask<Object>> tasks = new ArrayList<TenantFutureTask<Object>>();
+            for (int i = 0; i < 20; i++) {
+                TenantFutureTask<Object> task = task(i % 2 == 0 ? "app1" : "app2");
+                tasks.add(task);
+                executor.execute(task);
+            }
+            for (TenantFutureTask<Object> task : tasks) {
+                task.get(5, TimeUnit.SECONDS);
+            }
+        } finally {
+            factoryBean.destroy();
+        }
+    }
+}